@@ -0,0 +1,123 @@
+/*
+ * ***** BEGIN LICENSE BLOCK *****
+ * Zimbra Collaboration Suite Server
+ * Copyright (C) 2026 Synacor, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software Foundation,
+ * version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ * ***** END LICENSE BLOCK *****
+ */
+package com.zimbra.common.soap;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.zimbra.common.localconfig.LC;
+import com.zimbra.common.soap.Element.JSONElement;
+import com.zimbra.common.soap.Element.XMLElement;
+import com.zimbra.common.soap.StreamingElement.JSONStreamingElement;
+import com.zimbra.common.soap.StreamingElement.XMLStreamingElement;
+
+public class StreamingElementTest {
+
+    @BeforeClass
+    public static void init() {
+        LC.zimbra_tmp_directory.setDefault(System.getProperty("java.io.tmpdir"));
+    }
+
+    /**
+     * Fills the response the way a search handler does: hits are finished before the next one is added, and
+     * attributes of the response itself are set at the end.
+     */
+    private static Element fill(Element response) {
+        response.addAttribute(MailConstants.A_SORTBY, "dateDesc");
+        for (int i = 0; i < 20; i++) {
+            Element m = response.addNonUniqueElement(i % 3 == 0 ? MailConstants.E_CONV : MailConstants.E_MSG);
+            m.addAttribute(MailConstants.A_ID, i);
+            m.addAttribute(MailConstants.A_SUBJECT, "subject <" + i + "> & é中");
+            m.addNonUniqueElement(MailConstants.E_EMAIL).addAttribute(MailConstants.A_ADDRESS, "user" + i + "@zimbra.com");
+            m.addNonUniqueElement(MailConstants.E_FRAG).setText("fragment " + i);
+            m.addAttribute(MailConstants.A_SORT_FIELD, 1000 - i);
+        }
+        response.addAttribute(MailConstants.A_QUERY_MORE, true);
+        return response;
+    }
+
+    @Test
+    public void xml() {
+        Element expected = fill(new XMLElement(MailConstants.SEARCH_RESPONSE));
+        Element streamed = fill(new XMLStreamingElement(MailConstants.SEARCH_RESPONSE, 1024 * 1024));
+        Assert.assertEquals(expected.toString(), streamed.toString());
+        // only the last child is still in the tree
+        Assert.assertEquals(1, streamed.listElements(MailConstants.E_MSG).size());
+        streamed.destroy();
+    }
+
+    @Test
+    public void json() {
+        Element expected = fill(new JSONElement(MailConstants.SEARCH_RESPONSE));
+        Element streamed = fill(new JSONStreamingElement(MailConstants.SEARCH_RESPONSE, 1024 * 1024));
+        Assert.assertEquals(expected.toString(), streamed.toString());
+        streamed.destroy();
+    }
+
+    @Test
+    public void spillToFile() {
+        Element expected = fill(new XMLElement(MailConstants.SEARCH_RESPONSE));
+        Element streamed = fill(new XMLStreamingElement(MailConstants.SEARCH_RESPONSE, 64));
+        Assert.assertEquals(expected.toString(), streamed.toString());
+        // can be serialized more than once, e.g. for trace logging
+        Assert.assertEquals(expected.toString(), streamed.toString());
+        streamed.destroy();
+
+        expected = fill(new JSONElement(MailConstants.SEARCH_RESPONSE));
+        streamed = fill(new JSONStreamingElement(MailConstants.SEARCH_RESPONSE, 64));
+        Assert.assertEquals(expected.toString(), streamed.toString());
+        streamed.destroy();
+    }
+
+    @Test
+    public void uniqueChildrenKeepOrder() {
+        Element expected = new XMLElement(MailConstants.SEARCH_RESPONSE);
+        Element streamed = new XMLStreamingElement(MailConstants.SEARCH_RESPONSE, 1024);
+        for (Element response : new Element[] { expected, streamed }) {
+            response.addNonUniqueElement(MailConstants.E_MSG).addAttribute(MailConstants.A_ID, 1);
+            response.addNonUniqueElement(MailConstants.E_MSG).addAttribute(MailConstants.A_ID, 2);
+            response.addUniqueElement(MailConstants.E_INFO).addAttribute(MailConstants.A_ID, "info");
+            response.addNonUniqueElement(MailConstants.E_MSG).addAttribute(MailConstants.A_ID, 3);
+            response.addNonUniqueElement(MailConstants.E_MSG).addAttribute(MailConstants.A_ID, 4);
+        }
+        Assert.assertEquals(expected.toString(), streamed.toString());
+        Assert.assertNotNull(streamed.getOptionalElement(MailConstants.E_INFO));
+    }
+
+    @Test
+    public void envelope() throws Exception {
+        for (SoapProtocol proto : new SoapProtocol[] { SoapProtocol.Soap12, SoapProtocol.SoapJS }) {
+            Element expected = proto.soapEnvelope(fill(Element.create(proto, MailConstants.SEARCH_RESPONSE)));
+            Element streamed = proto.soapEnvelope(fill(StreamingElement.create(proto, MailConstants.SEARCH_RESPONSE)));
+            Assert.assertEquals(proto.toString(), expected.toString(), streamed.toString());
+            streamed.destroy();
+        }
+    }
+
+    @Test
+    public void detachedChild() {
+        Element expected = new JSONElement(MailConstants.SEARCH_RESPONSE);
+        Element streamed = new JSONStreamingElement(MailConstants.SEARCH_RESPONSE, 1024);
+        for (Element response : new Element[] { expected, streamed }) {
+            response.addNonUniqueElement(MailConstants.E_MSG).addAttribute(MailConstants.A_ID, 1);
+            response.addNonUniqueElement(MailConstants.E_MSG).addAttribute(MailConstants.A_ID, 2).detach();
+            response.addNonUniqueElement(MailConstants.E_MSG).addAttribute(MailConstants.A_ID, 3);
+        }
+        Assert.assertEquals(expected.toString(), streamed.toString());
+    }
+}
@@ -318,6 +318,12 @@ public final class LC {
     public static final KnownKey soap_response_chunked_transfer_encoding_enabled = KnownKey.newKey(true);
     public static final KnownKey zimbra_servlet_output_stream_buffer_size = KnownKey.newKey(5120);
 
+    @Reloadable
+    public static final KnownKey soap_response_streaming_enabled = KnownKey.newKey(true);
+    public static final KnownKey soap_response_streaming_max_memory = KnownKey.newKey(1024 * 1024);
+    public static final KnownKey soap_batch_parallel_threads = KnownKey.newKey(16);
+    public static final KnownKey soap_batch_parallel_max_per_batch = KnownKey.newKey(4);
+
     public static final KnownKey rest_response_cache_control_value = KnownKey.newKey("no-store, no-cache");
 
     @Reloadable
@@ -479,6 +485,17 @@ public final class LC {
     public static final KnownKey ldap_cache_ucservice_maxage = KnownKey.newKey(15);
     public static final KnownKey ldap_cache_alwaysoncluster_maxsize = KnownKey.newKey(100);
     public static final KnownKey ldap_cache_alwaysoncluster_maxage = KnownKey.newKey(15);
+    public static final KnownKey ldap_cache_typed_attrs_enabled = KnownKey.newKey(true);
+    public static final KnownKey ldap_cache_refresh_threads = KnownKey.newKey(4);
+    public static final KnownKey ldap_cache_refresh_max_stale = KnownKey.newKey(5);
+    public static final KnownKey ldap_cache_change_feed_enabled = KnownKey.newKey(false);
+    public static final KnownKey ldap_cache_change_feed_retry_interval = KnownKey.newKey(30);
+    public static final KnownKey ldap_group_index_enabled = KnownKey.newKey(true);
+    // minutes; no longer than cached groups are kept, so a change made on another server shows up as soon
+    public static final KnownKey ldap_group_index_rebuild_interval = KnownKey.newKey("${ldap_cache_group_maxage}");
+    public static final KnownKey ldap_group_index_membership_cache_size = KnownKey.newKey(10000);
+    public static final KnownKey ephemeral_local_dir = KnownKey.newKey("${zimbra_home}/data/ephemeral");
+    public static final KnownKey ephemeral_local_compact_min_records = KnownKey.newKey(10000);
 
     @Supported
     public static final KnownKey ldap_cache_timezone_maxsize = KnownKey.newKey(100);
@@ -680,6 +697,7 @@ public final class LC {
     @Supported
     public static final KnownKey calendar_cache_range_months = KnownKey.newKey(3);
     public static final KnownKey calendar_cache_max_stale_items = KnownKey.newKey(10);
+    public static final KnownKey calendar_cache_warm_on_startup = KnownKey.newKey(true);
     public static final KnownKey calendar_exchange_form_auth_url = KnownKey.newKey("/exchweb/bin/auth/owaauth.dll");
     public static final KnownKey calendar_item_get_max_retries = KnownKey.newKey(100);
 
@@ -715,6 +733,8 @@ public final class LC {
     public static final KnownKey imap_throttle_acct_limit = KnownKey.newKey(5000);
     public static final KnownKey imap_throttle_command_limit = KnownKey.newKey(25);
     public static final KnownKey imap_throttle_fetch = KnownKey.newKey(true);
+    // messages whose Message-ID/References headers are kept in memory for THREAD=REFERENCES; 0 disables the cache
+    public static final KnownKey imap_thread_cache_max_messages = KnownKey.newKey(50000);
     public static final KnownKey data_source_imap_reuse_connections = KnownKey.newKey(false);
 
     @Supported
@@ -826,6 +846,16 @@ public final class LC {
     public static final KnownKey data_source_xsync_factory_class = KnownKey.newKey("");
     public static final KnownKey data_source_config = KnownKey.newKey("${zimbra_home}/conf/datasource.xml");
     public static final KnownKey data_source_ioexception_handler_class = KnownKey.newKey("com.zimbra.cs.datasource.IOExceptionHandler");
+    // threads running on-demand data source imports; requests are served in order, one queued per data source
+    public static final KnownKey data_source_import_threads = KnownKey.newKey(8);
+    // threads shared by IMAP imports for parallel folder sync and fetching ahead
+    public static final KnownKey data_source_imap_sync_threads = KnownKey.newKey(16);
+    // connections an import-only IMAP data source syncs folders over at once; 1 syncs one folder at a time
+    public static final KnownKey data_source_imap_folder_connections = KnownKey.newKey(3);
+    // fetch the next batch of IMAP messages while the current one is being added
+    public static final KnownKey data_source_imap_pipeline_fetch = KnownKey.newKey(true);
+    // only fetch flags changed since the last sync from IMAP servers supporting CONDSTORE
+    public static final KnownKey data_source_imap_condstore = KnownKey.newKey(true);
 
     @Supported
     public static final KnownKey timezone_file = KnownKey.newKey("${zimbra_home}/conf/timezones.ics");
@@ -851,6 +881,9 @@ public final class LC {
     public static final KnownKey zimbra_active_waitset_timeout_minutes = KnownKey.newKey(20);
 
     public static final KnownKey zimbra_waitset_max_per_account = KnownKey.newKey(5);
+
+    // Number of mailbox changes kept in the change log shared by all WaitSets
+    public static final KnownKey zimbra_waitset_change_log_size = KnownKey.newKey(16384);
     public static final KnownKey zmdisklog_warn_threshold = KnownKey.newKey(85);
     public static final KnownKey zmdisklog_critical_threshold = KnownKey.newKey(95);
 
@@ -867,6 +900,10 @@ public final class LC {
      * If not setting to 0, suggest at least 600000 (10 minutes)
      */
     public static final KnownKey zimbra_dav_max_idle_time_ms = KnownKey.newKey(0);
+    // number of resource hrefs remembered across all collections for reporting deletions to sync-collection
+    public static final KnownKey zimbra_dav_sync_max_hrefs = KnownKey.newKey(100000);
+    // total characters of rendered iCalendar and vCard data kept in memory; 0 disables the cache
+    public static final KnownKey zimbra_dav_data_cache_max_chars = KnownKey.newKey(8388608);
 
     public static final KnownKey zimbra_admin_waitset_default_request_timeout = KnownKey.newKey(300);
     public static final KnownKey zimbra_admin_waitset_min_request_timeout = KnownKey.newKey(0);
@@ -928,6 +965,8 @@ public final class LC {
     public static final KnownKey mime_exclude_empty_content = KnownKey.newKey(true);
     public static final KnownKey mime_encode_compound_xwiniso2022jp_as_iso2022jp = KnownKey.newKey(true);
     public static final KnownKey mime_split_address_at_semicolon = KnownKey.newKey(true);
+    // cap on the text extracted from all parts of a single message during analysis; 0 disables the cap
+    public static final KnownKey message_analysis_text_limit = KnownKey.newKey(10 * 1024 * 1024);
 
     public static final KnownKey yauth_baseuri = KnownKey.newKey("https://login.yahoo.com/WSLogin/V1");
 
@@ -1076,6 +1115,9 @@ public final class LC {
 
     @Supported
     public static final KnownKey contact_ranking_enabled = KnownKey.newKey(true);
+    public static final KnownKey contact_autocomplete_index_enabled = KnownKey.newKey(true);
+    public static final KnownKey contact_autocomplete_index_cache_size = KnownKey.newKey(1000);
+    public static final KnownKey contact_autocomplete_index_idle_minutes = KnownKey.newKey(30);
 
 
     public static final KnownKey jdbc_results_streaming_enabled = KnownKey.newKey(true);
@@ -1085,11 +1127,18 @@ public final class LC {
     public static final KnownKey freebusy_exchange_cn2 = KnownKey.newKey(null);
     public static final KnownKey freebusy_exchange_cn3 = KnownKey.newKey(null);
     public static final KnownKey freebusy_disable_nodata_status = KnownKey.newKey(false);
+    public static final KnownKey freebusy_bitmap_enabled = KnownKey.newKey(true);
+    public static final KnownKey freebusy_bitmap_past_days = KnownKey.newKey(7);
+    public static final KnownKey freebusy_bitmap_future_days = KnownKey.newKey(90);
+    public static final KnownKey freebusy_bitmap_cache_size = KnownKey.newKey(10000);
+    public static final KnownKey freebusy_remote_lookup_threads = KnownKey.newKey(8);
 
     public static final KnownKey notes_enabled = KnownKey.newKey(false);
 
     public static final KnownKey zimbra_lmtp_validate_messages = KnownKey.newKey(true);
     public static final KnownKey zimbra_lmtp_max_line_length = KnownKey.newKey(10240);
+    public static final KnownKey zimbra_lmtp_parallel_delivery_threads = KnownKey.newKey(8);
+    public static final KnownKey zimbra_lmtp_parallel_delivery_min_recipients = KnownKey.newKey(4);
 
     public static final KnownKey data_source_scheduling_enabled = KnownKey.newKey(true);
     public static final KnownKey data_source_eas_sync_email = KnownKey.newKey(true);
@@ -1232,6 +1281,12 @@ public final class LC {
     // Remove this in 8.0.
     public static final KnownKey filter_null_env_sender_for_dsn_redirect = KnownKey.newKey(true);
 
+    // characters of Sieve script whose parsed form is shared by all accounts running it; 0 disables sharing
+    public static final KnownKey filter_script_cache_max_chars = KnownKey.newKey(8 * 1024 * 1024);
+
+    // number of compiled :matches patterns kept for reuse across messages; 0 disables the cache
+    public static final KnownKey filter_pattern_cache_size = KnownKey.newKey(10000);
+
     //appliance
     public static final KnownKey zimbra_vami_user = KnownKey.newKey("vmware");
     public static final KnownKey zimbra_vami_password = KnownKey.newKey("vmware").protect();
@@ -1422,9 +1477,21 @@ public final class LC {
     @Reloadable
     public static final KnownKey imap_always_use_remote_store = KnownKey.newKey(false);
 
+    // accounts added to, updated in or removed from a remote WaitSet in a single AdminWaitSetRequest
+    public static final KnownKey imap_server_listener_batch_size = KnownKey.newKey(500);
+
+    // signalled accounts queued per mailbox server; when full, the account's sessions are dropped and resync
+    public static final KnownKey imap_server_listener_queue_size = KnownKey.newKey(10000);
+
+    // threads delivering remote WaitSet notifications to IMAP sessions, shared by all mailbox servers
+    public static final KnownKey imap_server_listener_notify_threads = KnownKey.newKey(4);
+
     // owasp handler
     public static final KnownKey zimbra_use_owasp_html_sanitizer = KnownKey.newKey(true);
 
+    // characters of defanged HTML kept in memory for re-reads of the same message; 0 disables the cache
+    public static final KnownKey defang_cache_max_chars = KnownKey.newKey(32 * 1024 * 1024);
+
     public static final KnownKey enable_delegated_admin_ldap_access = KnownKey.newKey(true);
 
     // OAuth2 Social
@@ -1458,6 +1525,17 @@ public final class LC {
     // to switch to Tika com.zimbra.cs.convert.TikaExtractionClient
     public static final KnownKey attachment_extraction_client_class = KnownKey.newKey("com.zimbra.cs.convert.TikaExtractionClient");
 
+    // worker pool for attachment text extraction; 0 threads extracts on the calling thread
+    public static final KnownKey conversion_threads = KnownKey.newKey(4);
+    public static final KnownKey conversion_queue_size = KnownKey.newKey(100);
+    public static final KnownKey conversion_timeout_ms = KnownKey.newKey(60000);
+    // in-process handlers only use the pool for parts at least this large
+    public static final KnownKey conversion_pool_min_part_size = KnownKey.newKey(1024 * 1024);
+    // text extracted from attachments, keyed by content digest; 0 max size disables the cache
+    public static final KnownKey text_extraction_cache_directory = KnownKey.newKey("${zimbra_tmp_directory}/extracted");
+    public static final KnownKey text_extraction_cache_max_size = KnownKey.newKey(256L * 1024 * 1024);
+    public static final KnownKey text_extraction_cache_min_part_size = KnownKey.newKey(16 * 1024);
+
     //allowed file extensions for doc server
     public static final KnownKey doc_editing_supported_document_formats = KnownKey.newKey("doc,docx,docm,dot,dotx,dotm,odt,fodt,ott,rtf,txt,html,htm,mht,pdf,djvu,fb2,epub,xps,xml");
     public static final KnownKey doc_editing_supported_spreadsheet_formats = KnownKey.newKey("xls,xlsx,xlsm,xlt,xltx,xltm,ods,fods,ots,csv");
@@ -1494,6 +1572,12 @@ public final class LC {
     // ZCS-11349: Toggle off/on fallback to ldap search
     public static final KnownKey zimbra_gal_fallback_ldap_search_enabled = KnownKey.newKey(true);
 
+    // in-memory index over GalSync account contacts for autocomplete
+    public static final KnownKey gal_autocomplete_index_enabled = KnownKey.newKey(true);
+    // GalSync accounts whose autocomplete index is kept, and how long an unused index is kept
+    public static final KnownKey gal_autocomplete_index_cache_size = KnownKey.newKey(20);
+    public static final KnownKey gal_autocomplete_index_idle_minutes = KnownKey.newKey(60);
+
     static {
         // Automatically set the key name with the variable name.
         for (Field field : LC.class.getFields()) {
@@ -463,7 +463,7 @@ public abstract class Element implements Cloneable {
     }
 
     protected boolean namespaceDeclarationNeeded(String prefix, String uri) {
-        if (mParent == null || getClass() != mParent.getClass()) {
+        if (mParent == null || getFactory() != mParent.getFactory()) {
             return true;
         }
         String thatURI = mParent.getNamespaceURI(prefix);
@@ -823,8 +823,18 @@ public abstract class Element implements Cloneable {
 
         @Override
         public void destroy() {
-            // Assumption - Only FileBackedElement children of XMLElement
-            // need special action from destroy(), so, we're done here.
+            // only streamed responses hold resources, e.g. StreamingElement spill files
+            for (Object value : mAttributes.values()) {
+                if (value instanceof Element) {
+                    ((Element) value).destroy();
+                } else if (value instanceof List<?>) {
+                    for (Object child : (List<?>) value) {
+                        if (child instanceof Element) {
+                            ((Element) child).destroy();
+                        }
+                    }
+                }
+            }
         }
 
         public JSONElement(QName qname) {
@@ -1501,6 +1511,8 @@ public abstract class Element implements Cloneable {
                                     ((JSONElement) child).marshal(out, lindent, safe);
                                 } else if (child instanceof JSONKeyValuePair) {
                                     out.append(child.toString());
+                                } else if (child instanceof StreamingElement.Spill) {
+                                    ((Element) child).marshal(out);
                                 } else {
                                     out.append('"').append(StringUtil.jsEncode(child)).append('"');
                                 }
@@ -1655,7 +1667,8 @@ public abstract class Element implements Cloneable {
                         "cannot add children to element containing text - <" +
                         this.getName() + ">, trying to add <" + elt.getName() + ">");
             }
-            assert(elt instanceof XMLElement || elt instanceof FileBackedElement);
+            assert(elt instanceof XMLElement || elt instanceof FileBackedElement ||
+                    elt instanceof StreamingElement.Spill);
             if (mChildren == null) {
                 mChildren = new ArrayList<Element>();
             }
@@ -1994,7 +2007,7 @@ public abstract class Element implements Cloneable {
                     for (Element child : mChildren) {
                         if (child instanceof XMLElement) {
                             ((XMLElement) child).marshal(out, indent < 0 ? -1 : indent + INDENT_SIZE, safe);
-                        } else if (child instanceof FileBackedElement) {
+                        } else if (child instanceof FileBackedElement || child instanceof StreamingElement.Spill) {
                             child.marshal(out);
                         } else {
                             out.append(xmlEncode(child.toString(), false));
@@ -0,0 +1,373 @@
+/*
+ * ***** BEGIN LICENSE BLOCK *****
+ * Zimbra Collaboration Suite Server
+ * Copyright (C) 2026 Synacor, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software Foundation,
+ * version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ * ***** END LICENSE BLOCK *****
+ */
+
+package com.zimbra.common.soap;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.dom4j.QName;
+
+import com.google.common.base.Charsets;
+import com.zimbra.common.localconfig.LC;
+import com.zimbra.common.service.ServiceException;
+import com.zimbra.common.util.BufferStream;
+import com.zimbra.common.util.ByteUtil;
+
+/**
+ * Response {@link Element}s that serialize their children as they are completed instead of keeping the whole tree
+ * in memory.
+ * <p>
+ * A child added with {@code addNonUniqueElement} is considered complete as soon as the next child is added to the
+ * streaming element.  It is then encoded and dropped from the tree, and only its serialized form is kept: in memory
+ * up to {@code soap_response_streaming_max_memory} bytes, then in a temporary file.  Encoders such as {@code ToXML}
+ * work against a streaming element unchanged as long as they are done with a child before starting its next sibling.
+ * Attributes and unique children of the streaming element itself stay in memory and can be changed at any time.
+ * <p>
+ * Completed children can't be read back, and they are always encoded compactly: {@link #prettyPrint()} only indents
+ * the children that are still in the tree.  Call {@link #destroy()} once the response has been sent to remove the
+ * temporary files.
+ */
+public final class StreamingElement {
+
+    private StreamingElement() {
+    }
+
+    /**
+     * Creates a streaming element for the given response protocol.
+     */
+    public static Element create(SoapProtocol proto, QName qname) throws ServiceException {
+        int maxMemory = LC.soap_response_streaming_max_memory.intValue();
+        if (proto == SoapProtocol.SoapJS) {
+            return new JSONStreamingElement(qname, maxMemory);
+        } else if (proto == SoapProtocol.Soap11 || proto == SoapProtocol.Soap12) {
+            return new XMLStreamingElement(qname, maxMemory);
+        }
+        throw ServiceException.INVALID_REQUEST("Unknown SoapProtocol: " + proto, null);
+    }
+
+    private static Element.ContainerException failure(Element child, IOException e) {
+        Element.ContainerException ce = new Element.ContainerException("unable to stream element <" +
+                child.getName() + ">");
+        ce.initCause(e);
+        return ce;
+    }
+
+    public static final class XMLStreamingElement extends Element.XMLElement {
+        private final int maxMemory;
+        private Element pending;
+        // run of completed children the next completed child is appended to, or null if another child was added
+        // to the tree since
+        private Spill lastRun;
+
+        public XMLStreamingElement(QName qname, int maxMemory) {
+            super(qname);
+            this.maxMemory = maxMemory;
+        }
+
+        @Override
+        public Element addNonUniqueElement(Element elt) throws ContainerException {
+            if (elt == null || elt.mParent == this) {
+                return elt;
+            }
+            completePending();
+            Element child = super.addNonUniqueElement(elt);
+            pending = child;
+            return child;
+        }
+
+        @Override
+        public Element addUniqueElement(String name) throws ContainerException {
+            return addUniqueElement(new XMLElement(name));
+        }
+
+        @Override
+        public Element addUniqueElement(QName qname) throws ContainerException {
+            return addUniqueElement(new XMLElement(qname));
+        }
+
+        /**
+         * Unique children are kept in the tree.
+         */
+        @Override
+        public Element addUniqueElement(Element elt) throws ContainerException {
+            if (elt == null || elt.mParent == this) {
+                return elt;
+            }
+            completePending();
+            lastRun = null;
+            return super.addNonUniqueElement(elt);
+        }
+
+        private void completePending() {
+            Element child = pending;
+            pending = null;
+            if (child == null || child.mParent != this) {
+                return;
+            }
+            boolean newRun = lastRun == null;
+            Spill run = newRun ? new Spill(maxMemory, null) : lastRun;
+            try {
+                // encode while still attached so that namespaces are resolved against this element
+                run.write(child);
+            } catch (IOException e) {
+                throw failure(child, e);
+            }
+            detach(child);
+            if (newRun) {
+                super.addNonUniqueElement(run);
+                lastRun = run;
+            }
+        }
+
+        @Override
+        protected void detach(Element elt) throws ContainerException {
+            super.detach(elt);
+            if (elt == pending) {
+                pending = null;
+            }
+        }
+    }
+
+    public static final class JSONStreamingElement extends Element.JSONElement {
+        private final int maxMemory;
+        private Element pending;
+        // completed children, by element name
+        private final Map<String, Spill> runs = new HashMap<String, Spill>();
+
+        public JSONStreamingElement(QName qname, int maxMemory) {
+            super(qname);
+            this.maxMemory = maxMemory;
+        }
+
+        @Override
+        public Element addNonUniqueElement(Element elt) throws ContainerException {
+            if (elt == null || elt.mParent == this) {
+                return elt;
+            }
+            completePending();
+            Element child = super.addNonUniqueElement(elt);
+            pending = child;
+            return child;
+        }
+
+        @Override
+        public Element addUniqueElement(Element elt) throws ContainerException {
+            completePending();
+            return super.addUniqueElement(elt);
+        }
+
+        @SuppressWarnings("unchecked")
+        private void completePending() {
+            Element child = pending;
+            pending = null;
+            if (child == null || child.mParent != this) {
+                return;
+            }
+            String name = child.getName();
+            Spill run = runs.get(name);
+            if (run == null) {
+                // children of the same name are rendered as one array, so keep the run in that array
+                run = new Spill(maxMemory, ",");
+                run.mParent = this;
+                ((List<Object>) mAttributes.get(name)).add(run);
+                runs.put(name, run);
+            }
+            try {
+                run.write(child);
+            } catch (IOException e) {
+                throw failure(child, e);
+            }
+            detach(child);
+        }
+
+        @Override
+        protected void detach(Element elt) throws ContainerException {
+            super.detach(elt);
+            if (elt == pending) {
+                pending = null;
+            }
+        }
+
+    }
+
+    /**
+     * Serialized form of a run of completed sibling elements.
+     */
+    static final class Spill extends Element {
+        private static final String NAME = "#spill";
+
+        private final int maxMemory;
+        private final String separator;
+        private final BufferStream buffer;
+        private final Writer writer;
+        private int count;
+
+        Spill(int maxMemory, String separator) {
+            mName = NAME;
+            this.maxMemory = maxMemory;
+            this.separator = separator;
+            buffer = new BufferStream(0, maxMemory);
+            writer = new OutputStreamWriter(buffer, Charsets.UTF_8);
+        }
+
+        void write(Element elt) throws IOException {
+            if (count++ > 0 && separator != null) {
+                writer.write(separator);
+            }
+            elt.marshal(writer);
+            writer.flush();
+        }
+
+        @Override
+        public void marshal(Appendable out) throws IOException {
+            Reader reader = new InputStreamReader(buffer.getInputStream(), Charsets.UTF_8);
+            try {
+                char[] cbuf = new char[8192];
+                int len;
+                while ((len = reader.read(cbuf)) != -1) {
+                    out.append(CharBuffer.wrap(cbuf, 0, len));
+                }
+            } finally {
+                ByteUtil.closeReader(reader);
+            }
+        }
+
+        @Override
+        public void destroy() {
+            buffer.close();
+        }
+
+        @Override
+        public ElementFactory getFactory() {
+            return null;
+        }
+
+        @Override
+        public Element addNonUniqueElement(String name) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Element addNonUniqueElement(QName qname) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Element addNonUniqueElement(Element elt) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Element setText(String content) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Element addAttribute(String key, String value, Disposition disp) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public KeyValuePair addKeyValuePair(String key, String value, String eltname, String attrname) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Element clone() {
+            Spill clone = new Spill(maxMemory, separator);
+            try {
+                marshal(clone.writer);
+                clone.writer.flush();
+            } catch (IOException e) {
+                throw failure(this, e);
+            }
+            clone.count = count;
+            return clone;
+        }
+
+        @Override
+        public Element getOptionalElement(String name) {
+            return null;
+        }
+
+        @Override
+        public Set<Attribute> listAttributes() {
+            return Collections.emptySet();
+        }
+
+        @Override
+        public List<Element> listElements(String name) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public boolean hasChildren() {
+            return count > 0;
+        }
+
+        @Override
+        public List<KeyValuePair> listKeyValuePairs(String eltname, String attrname) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public String getText() {
+            return "";
+        }
+
+        @Override
+        String getRawText() {
+            return null;
+        }
+
+        @Override
+        public String getAttribute(String key, String defaultValue) {
+            return defaultValue;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            try {
+                marshal(sb);
+            } catch (IOException e) {
+                throw failure(this, e);
+            }
+            return sb.toString();
+        }
+
+        @Override
+        public String prettyPrint() {
+            return toString();
+        }
+
+        @Override
+        public String prettyPrint(boolean safe) {
+            return toString();
+        }
+    }
+}
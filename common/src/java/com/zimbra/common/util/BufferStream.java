@@ -388,6 +388,7 @@ public class BufferStream extends OutputStream {
             if (left > len)
                 left = len;
             System.arraycopy(data, off, buf, (int)size, left);
+            off += left;
             len -= left;
             size += left;
         }
@@ -22,6 +22,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
 
 import com.google.common.base.Function;
 import com.google.common.cache.CacheBuilder;
@@ -39,6 +40,14 @@ public class MapUtil {
         return new LruMap<K, V>(maxSize);
     }
 
+    /**
+     * Returns a thread-safe map that evicts the least recently used entries once it holds more than
+     * {@code maxSize} entries.  Unlike {@link #newLruMap}, lookups don't need to be synchronized.
+     */
+    public static <K, V> ConcurrentMap<K, V> newConcurrentLruMap(int maxSize) {
+        return CacheBuilder.newBuilder().maximumSize(maxSize).<K, V>build().asMap();
+    }
+
     /**
      * Returns a new {@code LoadingCache} that maps a key to a {@code List} of values.
      * When {@code get()} is called on a key that does not exist in the map,
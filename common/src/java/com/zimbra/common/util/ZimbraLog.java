@@ -828,6 +828,25 @@ public final class ZimbraLog {
         ZimbraLog.addToContext(C_OPROTO, protocol);
     }
 
+    /**
+     * Returns a copy of the current thread's logging context, to carry it over to another thread with
+     * {@link #setContext(Map)}.
+     */
+    public static Map<String, String> getContext() {
+        Map<String, String> contextMap = sContextMap.get();
+        return contextMap == null ? new LinkedHashMap<String, String>() : new LinkedHashMap<String, String>(contextMap);
+    }
+
+    /**
+     * Replaces the current thread's logging context.
+     */
+    public static void setContext(Map<String, String> context) {
+        clearContext();
+        for (Map.Entry<String, String> entry : context.entrySet()) {
+            addToContext(entry.getKey(), entry.getValue());
+        }
+    }
+
     /**
      * Clears the current thread's logging context.
      *
@@ -0,0 +1,127 @@
+/*
+ * ***** BEGIN LICENSE BLOCK *****
+ * Zimbra Collaboration Suite Server
+ * Copyright (C) 2026 Synacor, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software Foundation,
+ * version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ * ***** END LICENSE BLOCK *****
+ */
+package com.zimbra.cs.account;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.zimbra.common.account.ProvisioningConstants;
+import com.zimbra.common.util.Constants;
+import com.zimbra.cs.mailbox.MailboxTestUtil;
+
+public class AttributeSnapshotTest {
+
+    @BeforeClass
+    public static void init() throws Exception {
+        MailboxTestUtil.initProvisioning();
+    }
+
+    private static Map<String, Object> attrs(String... keyValues) {
+        Map<String, Object> attrs = new HashMap<String, Object>();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            attrs.put(keyValues[i], keyValues[i + 1]);
+        }
+        return attrs;
+    }
+
+    @Test
+    public void modify() throws Exception {
+        Provisioning prov = Provisioning.getInstance();
+        Account acct = new Account("snapshot@zimbra.com", "snapshot-id", attrs(
+                Provisioning.A_zimbraMailQuota, "1024",
+                Provisioning.A_zimbraMailTrashLifetime, "2d",
+                Provisioning.A_zimbraFeatureMailForwardingEnabled, ProvisioningConstants.FALSE,
+                Provisioning.A_zimbraPasswordMinLength, "bogus"), null, prov);
+        Assert.assertEquals(1024L, acct.getMailQuota());
+        Assert.assertEquals(2 * Constants.MILLIS_PER_DAY, acct.getMailTrashLifetime());
+        Assert.assertFalse(acct.isFeatureMailForwardingEnabled());
+        // unparseable values fall back to the default
+        Assert.assertEquals(6, acct.getPasswordMinLength());
+        Assert.assertEquals(42, acct.getIntAttr(Provisioning.A_zimbraPasswordMinLength, 42));
+
+        prov.modifyAttrs(acct, attrs(
+                Provisioning.A_zimbraMailQuota, "10MB",
+                Provisioning.A_zimbraMailTrashLifetime, "1h",
+                Provisioning.A_zimbraFeatureMailForwardingEnabled, ProvisioningConstants.TRUE,
+                Provisioning.A_zimbraPasswordMinLength, "8"));
+        Assert.assertEquals(10L * 1024 * 1024, acct.getMailQuota());
+        Assert.assertEquals(Constants.MILLIS_PER_HOUR, acct.getMailTrashLifetime());
+        Assert.assertTrue(acct.isFeatureMailForwardingEnabled());
+        Assert.assertEquals(8, acct.getPasswordMinLength());
+    }
+
+    @Test
+    public void inherited() throws Exception {
+        Provisioning prov = Provisioning.getInstance();
+        Cos cos = new Cos("snapshot", "snapshot-cos-id", attrs(Provisioning.A_zimbraMailQuota, "2048"), prov);
+        Account acct = new Account("inherit@zimbra.com", "inherit-id", attrs(), cos.getAccountDefaults(), prov);
+        Assert.assertEquals(2048L, acct.getMailQuota());
+
+        // the account isn't reloaded when its COS changes
+        prov.modifyAttrs(cos, attrs(Provisioning.A_zimbraMailQuota, "4096"));
+        Assert.assertEquals(4096L, acct.getMailQuota());
+
+        // set on the account
+        prov.modifyAttrs(acct, attrs(Provisioning.A_zimbraMailQuota, "512"));
+        Assert.assertEquals(512L, acct.getMailQuota());
+    }
+
+    @Test
+    public void parsedOnce() throws Exception {
+        Provisioning prov = Provisioning.getInstance();
+        Cos cos = new Cos("parsed", "parsed-cos-id", attrs(
+                Provisioning.A_zimbraMailTrashLifetime, "30d",
+                Provisioning.A_zimbraPasswordMinLength, "7"), prov);
+        Account acct = new Account("parsed@zimbra.com", "parsed-id", attrs(Provisioning.A_zimbraMailQuota, "500MB"),
+                cos.getAccountDefaults(), prov);
+        Assert.assertEquals(500L * 1024 * 1024, acct.getMailQuota());
+        Assert.assertEquals(30 * Constants.MILLIS_PER_DAY, acct.getMailTrashLifetime());
+        Assert.assertEquals(7, acct.getPasswordMinLength());
+
+        // later calls don't look the value up again until the entry is reset
+        acct.getRawAttrs().put(Provisioning.A_zimbraMailQuota, "1024");
+        Assert.assertEquals(500L * 1024 * 1024, acct.getMailQuota());
+        acct.resetData();
+        Assert.assertEquals(1024L, acct.getMailQuota());
+        Assert.assertEquals(30 * Constants.MILLIS_PER_DAY, acct.getMailTrashLifetime());
+    }
+
+    @Test
+    public void otherDefaults() throws Exception {
+        Provisioning prov = Provisioning.getInstance();
+        Cos cos = new Cos("mine", "mine-cos-id", attrs(Provisioning.A_zimbraPasswordMinLength, "7"), prov);
+        Cos other = new Cos("other", "other-cos-id", attrs(Provisioning.A_zimbraPasswordMinLength, "9"), prov);
+        Account acct = new Account("mine@zimbra.com", "mine-id", attrs(Provisioning.A_zimbraMailQuota, "1024"),
+                cos.getAccountDefaults(), prov);
+        Assert.assertEquals(1024L, acct.getMailQuota());
+        acct.getRawAttrs().put(Provisioning.A_zimbraMailQuota, "2048");
+
+        // neither creating nor refilling another COS drops the account's snapshot
+        new Cos("new", "new-cos-id", attrs(), prov);
+        prov.modifyAttrs(other, attrs(Provisioning.A_zimbraPasswordMinLength, "10"));
+        Assert.assertEquals(1024L, acct.getMailQuota());
+
+        // refilling its own COS does
+        prov.modifyAttrs(cos, attrs(Provisioning.A_zimbraPasswordMinLength, "8"));
+        Assert.assertEquals(2048L, acct.getMailQuota());
+        Assert.assertEquals(8, acct.getPasswordMinLength());
+    }
+}
@@ -266,6 +266,8 @@ public final class MockProvisioning extends Provisioning {
                 map.remove(attr.getKey());
             }
         }
+        // drop values cached from the previous attributes
+        entry.setAttrs(map);
     }
 
     @Override
@@ -0,0 +1,107 @@
+/*
+ * ***** BEGIN LICENSE BLOCK *****
+ * Zimbra Collaboration Suite Server
+ * Copyright (C) 2026 Synacor, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software Foundation,
+ * version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ * ***** END LICENSE BLOCK *****
+ */
+package com.zimbra.cs.account.accesscontrol;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.zimbra.cs.account.Account;
+import com.zimbra.cs.account.Provisioning;
+import com.zimbra.cs.account.accesscontrol.PermissionCache.CachedPermission;
+import com.zimbra.cs.account.accesscontrol.Rights.User;
+import com.zimbra.cs.mailbox.MailboxTestUtil;
+
+public class CompiledACLTest {
+
+    private static final String GRANTEE_ID = "11111111-1111-1111-1111-111111111111";
+
+    private Account target;
+
+    @BeforeClass
+    public static void init() throws Exception {
+        MailboxTestUtil.initServer();
+        RightManager.getInstance();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        CompiledACL.invalidate();
+        Provisioning prov = Provisioning.getInstance();
+        Map<String, Object> attrs = new HashMap<String, Object>();
+        attrs.put(Provisioning.A_zimbraId, "22222222-2222-2222-2222-222222222222");
+        attrs.put(Provisioning.A_zimbraACE, new String[] {
+                GRANTEE_ID + " usr " + User.R_viewFreeBusy.getName(),
+                GRANTEE_ID + " usr -" + User.R_invite.getName() });
+        target = prov.createAccount("target@zimbra.com", "secret", attrs);
+    }
+
+    private static CompiledACL compile(Account target) throws Exception {
+        return CompiledACL.get(Provisioning.getInstance(), target, TargetType.account, false);
+    }
+
+    @Test
+    public void grantsByRight() throws Exception {
+        CompiledACL compiled = compile(target);
+        CompiledACL.Segment segment = compiled.segments().get(0);
+        Assert.assertFalse(segment.isGroups());
+        Assert.assertEquals(2, segment.getACL(GroupACLs.NO_SKIP).size());
+
+        List<ZimbraACE> acl = segment.getACL(GroupACLs.NO_SKIP, User.R_viewFreeBusy);
+        Assert.assertEquals(1, acl.size());
+        Assert.assertSame(User.R_viewFreeBusy, acl.get(0).getRight());
+        Assert.assertSame(acl, segment.getACL(GroupACLs.NO_SKIP, User.R_viewFreeBusy));
+        Assert.assertTrue(segment.getACL(GroupACLs.NO_SKIP, User.R_sendAs).isEmpty());
+    }
+
+    @Test
+    public void cached() throws Exception {
+        CompiledACL compiled = compile(target);
+        Assert.assertSame(compiled, compile(target));
+
+        CompiledACL.invalidate(target);
+        CompiledACL recompiled = compile(target);
+        Assert.assertNotSame(compiled, recompiled);
+        Assert.assertSame(recompiled, compile(target));
+
+        CompiledACL.invalidate();
+        Assert.assertNotSame(recompiled, compile(target));
+    }
+
+    @Test
+    public void decisions() throws Exception {
+        String key = CompiledACL.decisionKey(GRANTEE_ID + "0", User.R_viewFreeBusy, false);
+        Assert.assertFalse(key.equals(CompiledACL.decisionKey(GRANTEE_ID + "0", User.R_viewFreeBusy, true)));
+        Assert.assertNull(CompiledACL.decisionKey(null, User.R_viewFreeBusy, false));
+
+        CompiledACL compiled = compile(target);
+        Assert.assertEquals(CachedPermission.NOT_CACHED, compiled.getDecision(key));
+        compiled.putDecision(key, Boolean.TRUE);
+        Assert.assertEquals(CachedPermission.ALLOWED, compile(target).getDecision(key));
+        compiled.putDecision(key, null);
+        Assert.assertEquals(CachedPermission.NO_MATCHING_ACL, compile(target).getDecision(key));
+
+        // decisions go with the compiled grants
+        CompiledACL.invalidate(target);
+        Assert.assertEquals(CachedPermission.NOT_CACHED, compile(target).getDecision(key));
+    }
+}
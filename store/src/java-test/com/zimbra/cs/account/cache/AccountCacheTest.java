@@ -0,0 +1,123 @@
+/*
+ * ***** BEGIN LICENSE BLOCK *****
+ * Zimbra Collaboration Suite Server
+ * Copyright (C) 2026 Synacor, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software Foundation,
+ * version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ * ***** END LICENSE BLOCK *****
+ */
+package com.zimbra.cs.account.cache;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.zimbra.common.service.ServiceException;
+import com.zimbra.cs.account.Account;
+import com.zimbra.cs.account.Entry;
+import com.zimbra.cs.account.Provisioning;
+import com.zimbra.cs.mailbox.MailboxTestUtil;
+
+public class AccountCacheTest {
+
+    private static final long TTL = 50;
+
+    @BeforeClass
+    public static void init() throws Exception {
+        MailboxTestUtil.initProvisioning();
+    }
+
+    private static Account account() {
+        Map<String, Object> attrs = new HashMap<String, Object>();
+        attrs.put(Provisioning.A_zimbraId, "cache-id");
+        return new Account("cache@zimbra.com", "cache-id", attrs, null, Provisioning.getInstance());
+    }
+
+    private static class Loader implements EntryRefresher.Loader {
+        final AtomicInteger reloads = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(1);
+        AccountCache cache;
+        boolean fail;
+
+        @Override
+        public void reload(Entry entry) throws ServiceException {
+            reloads.incrementAndGet();
+            try {
+                release.await();
+                if (fail) {
+                    throw ServiceException.FAILURE("ldap down", null);
+                }
+                cache.replace((Account) entry);
+            } catch (InterruptedException e) {
+            } finally {
+                done.countDown();
+            }
+        }
+    }
+
+    @Test
+    public void refreshAhead() throws Exception {
+        Loader loader = new Loader();
+        AccountCache cache = new AccountCache(10, TTL, new EntryRefresher(loader, 60000));
+        loader.cache = cache;
+        Account acct = account();
+        cache.put(acct);
+        Thread.sleep(TTL * 2);
+
+        // the stale entry is served while it is reloaded, only once
+        Assert.assertSame(acct, cache.getById("cache-id"));
+        Assert.assertSame(acct, cache.getByName("cache@zimbra.com"));
+        loader.release.countDown();
+        Assert.assertTrue(loader.done.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(1, loader.reloads.get());
+        Assert.assertSame(acct, cache.getById("cache-id"));
+        Assert.assertEquals(1, loader.reloads.get());
+    }
+
+    @Test
+    public void tooStale() throws Exception {
+        Loader loader = new Loader();
+        AccountCache cache = new AccountCache(10, TTL, new EntryRefresher(loader, 0));
+        loader.cache = cache;
+        cache.put(account());
+        Thread.sleep(TTL * 2);
+
+        Assert.assertNull(cache.getById("cache-id"));
+        Assert.assertEquals(0, loader.reloads.get());
+        Assert.assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void refreshFailed() throws Exception {
+        Loader loader = new Loader();
+        loader.fail = true;
+        AccountCache cache = new AccountCache(10, TTL, new EntryRefresher(loader, 60000));
+        loader.cache = cache;
+        cache.put(account());
+        Thread.sleep(TTL * 2);
+
+        Assert.assertNotNull(cache.getById("cache-id"));
+        loader.release.countDown();
+        Assert.assertTrue(loader.done.await(10, TimeUnit.SECONDS));
+        // removed after the refresher gives up on it
+        for (int i = 0; i < 100 && cache.getSize() > 0; i++) {
+            Thread.sleep(10);
+        }
+        Assert.assertNull(cache.getById("cache-id"));
+    }
+}
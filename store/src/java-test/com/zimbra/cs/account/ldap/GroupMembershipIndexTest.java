@@ -0,0 +1,148 @@
+/*
+ * ***** BEGIN LICENSE BLOCK *****
+ * Zimbra Collaboration Suite Server
+ * Copyright (C) 2026 Synacor, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software Foundation,
+ * version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ * ***** END LICENSE BLOCK *****
+ */
+package com.zimbra.cs.account.ldap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.zimbra.common.service.ServiceException;
+import com.zimbra.cs.account.DistributionList;
+import com.zimbra.cs.account.Provisioning;
+import com.zimbra.cs.ldap.SearchLdapOptions.SearchLdapVisitor;
+import com.zimbra.cs.ldap.SearchLdapOptions.StopIteratingException;
+import com.zimbra.cs.mailbox.MailboxTestUtil;
+
+public class GroupMembershipIndexTest {
+
+    private static class TestIndex extends GroupMembershipIndex {
+        final List<Map<String, Object>> lists = new ArrayList<Map<String, Object>>();
+
+        TestIndex() {
+            super(null);
+        }
+
+        @Override
+        protected void scanGroups(SearchLdapVisitor visitor) throws ServiceException {
+            for (Map<String, Object> attrs : lists) {
+                try {
+                    visitor.visit("dn", attrs, null);
+                } catch (StopIteratingException e) {
+                    break;
+                }
+            }
+        }
+
+        void addList(String id, String addr, String... members) {
+            lists.add(attrs(id, addr, members));
+        }
+    }
+
+    private static Map<String, Object> attrs(String id, String addr, String... members) {
+        Map<String, Object> attrs = new HashMap<String, Object>();
+        attrs.put(Provisioning.A_zimbraId, id);
+        attrs.put(Provisioning.A_mail, addr);
+        attrs.put(Provisioning.A_zimbraMailForwardingAddress, members);
+        return attrs;
+    }
+
+    private TestIndex index;
+
+    @BeforeClass
+    public static void init() throws Exception {
+        MailboxTestUtil.initProvisioning();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        index = new TestIndex();
+        // all -> eng -> backend -> user; sales -> user2
+        index.addList("all", "all@zimbra.com", "eng@zimbra.com", "sales@zimbra.com");
+        index.addList("eng", "eng@zimbra.com", "backend@zimbra.com", "lead@zimbra.com");
+        index.addList("backend", "backend@zimbra.com", "User@zimbra.com");
+        index.addList("sales", "sales@zimbra.com", "user2@zimbra.com");
+    }
+
+    private static HashSet<String> set(String... values) {
+        return new HashSet<String>(Arrays.asList(values));
+    }
+
+    @Test
+    public void notReady() throws Exception {
+        Assert.assertFalse(index.isReady());
+        Assert.assertNull(index.getDirectGroupIds(new String[] {"user@zimbra.com"}));
+        Assert.assertNull(index.getGroupIds("u1", new String[] {"user@zimbra.com"}));
+        Assert.assertEquals(0, index.getMemoryFootprint());
+    }
+
+    @Test
+    public void transitive() throws Exception {
+        index.rebuild();
+        Assert.assertTrue(index.isReady());
+        Assert.assertEquals(4, index.getSize());
+        Assert.assertTrue(index.getMemoryFootprint() > 0);
+
+        Assert.assertEquals(Arrays.asList("backend"), index.getDirectGroupIds(new String[] {"USER@zimbra.com"}));
+        Assert.assertEquals(set("backend", "eng", "all"),
+                index.getGroupIds("u1", new String[] {"user@zimbra.com"}));
+        Assert.assertEquals(set("backend", "eng", "all", "sales"),
+                index.getGroupIds(null, new String[] {"user@zimbra.com", "user2@zimbra.com"}));
+        Assert.assertEquals(set(), index.getGroupIds("u3", new String[] {"nobody@zimbra.com"}));
+        Assert.assertEquals(set("lead@zimbra.com", "backend@zimbra.com"), set(index.getMembers("eng")));
+    }
+
+    @Test
+    public void cycle() throws Exception {
+        index.addList("loop", "loop@zimbra.com", "all@zimbra.com");
+        index.lists.get(1).put(Provisioning.A_zimbraMailForwardingAddress,
+                new String[] {"backend@zimbra.com", "loop@zimbra.com"});
+        index.rebuild();
+        Assert.assertEquals(set("backend", "eng", "all", "loop"),
+                index.getGroupIds("u1", new String[] {"user@zimbra.com"}));
+    }
+
+    @Test
+    public void incremental() throws Exception {
+        index.rebuild();
+        long footprint = index.getMemoryFootprint();
+        Assert.assertEquals(set("backend", "eng", "all"),
+                index.getGroupIds("u1", new String[] {"user@zimbra.com"}));
+
+        // move backend from eng to sales
+        index.groupChanged(new DistributionList("eng@zimbra.com", "eng",
+                attrs("eng", "eng@zimbra.com", "lead@zimbra.com"), Provisioning.getInstance()) {});
+        index.groupChanged(new DistributionList("sales@zimbra.com", "sales",
+                attrs("sales", "sales@zimbra.com", "user2@zimbra.com", "backend@zimbra.com"),
+                Provisioning.getInstance()) {});
+        Assert.assertEquals(set("backend", "sales", "all"),
+                index.getGroupIds("u1", new String[] {"user@zimbra.com"}));
+
+        index.groupDeleted("backend");
+        Assert.assertEquals(set(), index.getGroupIds("u1", new String[] {"user@zimbra.com"}));
+        Assert.assertNull(index.getMembers("backend"));
+        Assert.assertEquals(3, index.getSize());
+        Assert.assertTrue(index.getMemoryFootprint() < footprint);
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * ***** BEGIN LICENSE BLOCK *****
+ * Zimbra Collaboration Suite Server
+ * Copyright (C) 2026 Synacor, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software Foundation,
+ * version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ * ***** END LICENSE BLOCK *****
+ */
+package com.zimbra.cs.convert;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ConversionPoolTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private ConversionPool pool;
+
+    @After
+    public void tearDown() throws Exception {
+        release.countDown();
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    /** Returns a task that, like a hung converter, ignores interrupts until it is released. */
+    private Callable<String> blocking() {
+        return new Callable<String>() {
+            @Override
+            public String call() {
+                long deadline = System.currentTimeMillis() + 10000;
+                while (release.getCount() > 0 && System.currentTimeMillis() < deadline) {
+                    try {
+                        release.await(10, TimeUnit.MILLISECONDS);
+                    } catch (InterruptedException ignore) {
+                    }
+                }
+                return "slow";
+            }
+        };
+    }
+
+    @Test
+    public void run() throws Exception {
+        pool = new ConversionPool(2, 2, 10000);
+        Assert.assertEquals("text", pool.run(new Callable<String>() {
+            @Override
+            public String call() {
+                return Thread.currentThread().getName().startsWith("Conversion-") ? "text" : "caller";
+            }
+        }));
+        try {
+            pool.run(new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    throw new IOException("corrupt");
+                }
+            });
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof IOException);
+        }
+    }
+
+    @Test
+    public void timeout() throws Exception {
+        pool = new ConversionPool(1, 1, 100);
+        try {
+            pool.run(blocking());
+            Assert.fail();
+        } catch (ConversionException e) {
+            Assert.assertTrue(e.isTemporary());
+        }
+    }
+
+    @Test
+    public void saturated() throws Exception {
+        pool = new ConversionPool(1, 1, 100);
+        // the first task times out but keeps the only worker busy, the second one waits in the queue
+        try {
+            pool.run(blocking());
+            Assert.fail();
+        } catch (ConversionException expected) {
+        }
+        try {
+            pool.run(blocking());
+            Assert.fail();
+        } catch (ConversionException expected) {
+        }
+        try {
+            pool.run(blocking());
+            Assert.fail();
+        } catch (ConversionException e) {
+            Assert.assertTrue(e.isTemporary());
+            Assert.assertEquals("conversion pool saturated", e.getMessage());
+        }
+    }
+
+    @Test
+    public void disabled() throws Exception {
+        pool = new ConversionPool(0, 0, 100);
+        Assert.assertEquals(Thread.currentThread().getName(), pool.run(new Callable<String>() {
+            @Override
+            public String call() {
+                return Thread.currentThread().getName();
+            }
+        }));
+    }
+}
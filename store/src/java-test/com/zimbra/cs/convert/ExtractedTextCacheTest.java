@@ -0,0 +1,98 @@
+/*
+ * ***** BEGIN LICENSE BLOCK *****
+ * Zimbra Collaboration Suite Server
+ * Copyright (C) 2026 Synacor, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software Foundation,
+ * version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ * ***** END LICENSE BLOCK *****
+ */
+package com.zimbra.cs.convert;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Charsets;
+import com.zimbra.common.util.FileUtil;
+
+public class ExtractedTextCacheTest {
+
+    private File dir;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = new File("build/test/extracted");
+        FileUtil.deleteDir(dir);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtil.deleteDir(dir);
+    }
+
+    private static String key(String content, String variant) throws Exception {
+        return ExtractedTextCache.getKey(new ByteArrayInputStream(content.getBytes(Charsets.UTF_8)), variant);
+    }
+
+    @Test
+    public void key() throws Exception {
+        Assert.assertEquals(key("content", "TextHtmlHandler"), key("content", "TextHtmlHandler"));
+        Assert.assertFalse(key("content", "TextHtmlHandler").equals(key("content2", "TextHtmlHandler")));
+        Assert.assertFalse(key("content", "TextHtmlHandler").equals(key("content", "TextPlainHandler")));
+    }
+
+    @Test
+    public void getAndPut() throws Exception {
+        ExtractedTextCache cache = new ExtractedTextCache(dir, 1000);
+        String key = key("<html>hello</html>", "html");
+        Assert.assertNull(cache.get(key));
+        cache.put(key, "hello été");
+        Assert.assertEquals("hello été", cache.get(key));
+        cache.put(key("empty", "html"), "");
+        Assert.assertEquals("", cache.get(key("empty", "html")));
+        Assert.assertEquals(2, cache.getCount());
+
+        // entries survive a restart
+        cache = new ExtractedTextCache(dir, 1000);
+        Assert.assertEquals(2, cache.getCount());
+        Assert.assertEquals("hello été", cache.get(key));
+    }
+
+    @Test
+    public void evict() throws Exception {
+        ExtractedTextCache cache = new ExtractedTextCache(dir, 1000);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 90; i++) {
+            text.append('x');
+        }
+        for (int i = 0; i < 10; i++) {
+            cache.put(key("content" + i, "v"), text.toString());
+        }
+        Assert.assertEquals(900, cache.getSize());
+        // touch the oldest entry, so that the next one is evicted instead
+        Assert.assertNotNull(cache.get(key("content0", "v")));
+        cache.put(key("content10", "v"), text.toString());
+        cache.put(key("content11", "v"), text.toString());
+        Assert.assertEquals(11, cache.getCount());
+        Assert.assertEquals(990, cache.getSize());
+        Assert.assertNotNull(cache.get(key("content0", "v")));
+        Assert.assertNull(cache.get(key("content1", "v")));
+        Assert.assertEquals(11, dir.list().length);
+
+        // too large to be worth caching
+        cache.put(key("large", "v"), text.toString() + text);
+        Assert.assertNull(cache.get(key("large", "v")));
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * ***** BEGIN LICENSE BLOCK *****
+ * Zimbra Collaboration Suite Server
+ * Copyright (C) 2026 Synacor, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software Foundation,
+ * version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ * ***** END LICENSE BLOCK *****
+ */
+package com.zimbra.cs.datasource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public final class ImportSchedulerTest {
+
+    @Test
+    public void schedule() throws Exception {
+        ImportScheduler scheduler = new ImportScheduler(1);
+        final List<String> runs = Collections.synchronizedList(new ArrayList<String>());
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(3);
+
+        Runnable a = new Runnable() {
+            @Override
+            public void run() {
+                runs.add("a");
+                started.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                done.countDown();
+            }
+        };
+        Assert.assertTrue(scheduler.schedule("a", a));
+        Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+        Runnable b = new Runnable() {
+            @Override
+            public void run() {
+                runs.add("b");
+                done.countDown();
+            }
+        };
+        Assert.assertTrue(scheduler.schedule("b", b));
+        Assert.assertFalse("b is already queued", scheduler.schedule("b", b));
+        // a is running, so it runs again, behind b
+        Assert.assertTrue(scheduler.schedule("a", a));
+        Assert.assertFalse(scheduler.schedule("a", a));
+
+        release.countDown();
+        Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(Arrays.asList("a", "b", "a"), runs);
+        for (int i = 0; i < 100 && (scheduler.isScheduled("a") || scheduler.isScheduled("b")); i++) {
+            Thread.sleep(10);
+        }
+        Assert.assertFalse(scheduler.isScheduled("a"));
+        Assert.assertFalse(scheduler.isScheduled("b"));
+    }
+}
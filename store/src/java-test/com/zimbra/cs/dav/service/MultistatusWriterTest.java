@@ -0,0 +1,168 @@
+/*
+ * ***** BEGIN LICENSE BLOCK *****
+ * Zimbra Collaboration Suite Server
+ * Copyright (C) 2026 Synacor, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software Foundation,
+ * version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ * ***** END LICENSE BLOCK *****
+ */
+package com.zimbra.cs.dav.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+
+import org.dom4j.Document;
+import org.dom4j.DocumentHelper;
+import org.dom4j.Element;
+import org.dom4j.QName;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.zimbra.cs.dav.DavContext;
+import com.zimbra.cs.dav.DavElements;
+import com.zimbra.cs.dav.property.ResourceProperty;
+import com.zimbra.cs.dav.resource.DavResource;
+import com.zimbra.cs.mailbox.MailboxTestUtil;
+import com.zimbra.cs.service.MockHttpServletRequest;
+import com.zimbra.cs.service.MockHttpServletResponse;
+
+public final class MultistatusWriterTest {
+
+    @BeforeClass
+    public static void init() throws Exception {
+        MailboxTestUtil.initServer();
+    }
+
+    private static final class Resource extends DavResource {
+        Resource(String uri) {
+            super(uri, "test@zimbra.com");
+            setProperty(DavElements.P_DISPLAYNAME, "name of " + uri);
+        }
+
+        @Override
+        public boolean isCollection() {
+            return false;
+        }
+
+        @Override
+        public void delete(DavContext ctxt) {
+        }
+    }
+
+    private static final class BrokenResource extends DavResource {
+        BrokenResource(String uri) {
+            super(uri, "test@zimbra.com");
+        }
+
+        @Override
+        public ResourceProperty getProperty(QName prop, DavContext.RequestProp request) {
+            throw new IllegalStateException("can't read " + prop);
+        }
+
+        @Override
+        public boolean isCollection() {
+            return false;
+        }
+
+        @Override
+        public void delete(DavContext ctxt) {
+        }
+    }
+
+    private static final class Response extends MockHttpServletResponse {
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            return new ServletOutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    body.write(b);
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setWriteListener(WriteListener listener) {
+                }
+            };
+        }
+    }
+
+    private static DavContext context(Response resp) throws Exception {
+        return new DavContext(new MockHttpServletRequest(new byte[0],
+                new URL("http://localhost/dav/test@zimbra.com/Calendar/"), "text/xml", 80, "127.0.0.1",
+                new HashMap<String, String>()), resp, null);
+    }
+
+    @Test
+    public void write() throws Exception {
+        Response resp = new Response();
+        DavContext ctxt = context(resp);
+        List<DavResource> resources = new ArrayList<DavResource>();
+        for (int i = 0; i < 50; i++) {
+            resources.add(new Resource("/Calendar/" + i + ".ics"));
+        }
+        resources.add(new DavResource.InvalidResource("/Calendar/missing.ics", "test@zimbra.com"));
+        Element query = DocumentHelper.createElement(DavElements.E_CALENDAR_MULTIGET);
+        query.addElement(DavElements.E_PROP).addElement(DavElements.E_DISPLAYNAME);
+
+        MultistatusWriter.write(ctxt, resources, new DavContext.RequestProp(query));
+        Assert.assertTrue(ctxt.isResponseSent());
+
+        Document doc = DocumentHelper.parseText(resp.body.toString("UTF-8"));
+        Assert.assertEquals(DavElements.E_MULTISTATUS, doc.getRootElement().getQName());
+        List<?> responses = doc.getRootElement().elements(DavElements.E_RESPONSE);
+        Assert.assertEquals(resources.size(), responses.size());
+        for (int i = 0; i < 50; i++) {
+            Element response = (Element) responses.get(i);
+            Assert.assertTrue(response.elementText(DavElements.E_HREF).endsWith("/Calendar/" + i + ".ics"));
+            Assert.assertEquals("name of /Calendar/" + i + ".ics", response.element(DavElements.E_PROPSTAT)
+                    .element(DavElements.E_PROP).elementText(DavElements.E_DISPLAYNAME));
+        }
+        Element missing = (Element) responses.get(50);
+        Assert.assertEquals("HTTP/1.1 404 Not Found", missing.elementText(DavElements.E_STATUS));
+    }
+
+    @Test
+    public void renderFailure() throws Exception {
+        Response resp = new Response();
+        DavContext ctxt = context(resp);
+        List<DavResource> resources = new ArrayList<DavResource>();
+        resources.add(new Resource("/Calendar/0.ics"));
+        resources.add(new BrokenResource("/Calendar/broken.ics"));
+        resources.add(new Resource("/Calendar/2.ics"));
+        Element query = DocumentHelper.createElement(DavElements.E_CALENDAR_MULTIGET);
+        query.addElement(DavElements.E_PROP).addElement(DavElements.E_DISPLAYNAME);
+
+        MultistatusWriter.write(ctxt, resources, new DavContext.RequestProp(query));
+
+        Document doc = DocumentHelper.parseText(resp.body.toString("UTF-8"));
+        List<?> responses = doc.getRootElement().elements(DavElements.E_RESPONSE);
+        Assert.assertEquals(3, responses.size());
+        Element broken = (Element) responses.get(1);
+        Assert.assertTrue(broken.elementText(DavElements.E_HREF).endsWith("/Calendar/broken.ics"));
+        Assert.assertEquals("HTTP/1.1 500 Internal Server Error", broken.elementText(DavElements.E_STATUS));
+        Assert.assertEquals("name of /Calendar/2.ics", ((Element) responses.get(2)).element(DavElements.E_PROPSTAT)
+                .element(DavElements.E_PROP).elementText(DavElements.E_DISPLAYNAME));
+    }
+}
@@ -0,0 +1,263 @@
+/*
+ * ***** BEGIN LICENSE BLOCK *****
+ * Zimbra Collaboration Suite Server
+ * Copyright (C) 2026 Synacor, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software Foundation,
+ * version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ * ***** END LICENSE BLOCK *****
+ */
+package com.zimbra.cs.dav.service.method;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+
+import org.dom4j.Document;
+import org.dom4j.DocumentHelper;
+import org.dom4j.Element;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.zimbra.common.mailbox.ContactConstants;
+import com.zimbra.cs.account.Account;
+import com.zimbra.cs.account.Provisioning;
+import com.zimbra.cs.dav.DavContext;
+import com.zimbra.cs.dav.DavElements;
+import com.zimbra.cs.dav.DavException;
+import com.zimbra.cs.mailbox.Contact;
+import com.zimbra.cs.mailbox.MailItem;
+import com.zimbra.cs.mailbox.Mailbox;
+import com.zimbra.cs.mailbox.MailboxManager;
+import com.zimbra.cs.mailbox.MailboxTestUtil;
+import com.zimbra.cs.mime.ParsedContact;
+import com.zimbra.cs.service.MockHttpServletRequest;
+import com.zimbra.cs.service.MockHttpServletResponse;
+
+public final class SyncCollectionTest {
+
+    private Account acct;
+    private Mailbox mbox;
+
+    @BeforeClass
+    public static void init() throws Exception {
+        MailboxTestUtil.initServer();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        MailboxTestUtil.clearData();
+        SyncCollection.MEMBERS.invalidateAll();
+        acct = Provisioning.getInstance().createAccount("test@zimbra.com", "secret", new HashMap<String, Object>());
+        mbox = MailboxManager.getInstance().getMailboxByAccount(acct);
+    }
+
+    private static final class Request extends MockHttpServletRequest {
+        private final String path;
+
+        Request(String body, String path) throws Exception {
+            super(body.getBytes("UTF-8"), new URL("http://localhost/dav" + path), "text/xml", 80, "127.0.0.1",
+                    new HashMap<String, String>());
+            this.path = path;
+        }
+
+        @Override
+        public String getPathInfo() {
+            return path;
+        }
+
+        @Override
+        public String getRequestURI() {
+            return "/dav" + path;
+        }
+    }
+
+    /** Uses the parsed request body, rather than saving it as an upload. */
+    private static final class Context extends DavContext {
+        private final Document body;
+
+        Context(Request req, Response resp, Account acct, String body) throws Exception {
+            super(req, resp, acct);
+            this.body = DocumentHelper.parseText(body);
+        }
+
+        @Override
+        public boolean hasRequestMessage() {
+            return true;
+        }
+
+        @Override
+        public Document getRequestMessage() {
+            return body;
+        }
+    }
+
+    private static final class Response extends MockHttpServletResponse {
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            return new ServletOutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    body.write(b);
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setWriteListener(WriteListener listener) {
+                }
+            };
+        }
+    }
+
+    private int createContact(String name, int folderId) throws Exception {
+        HashMap<String, String> fields = new HashMap<String, String>();
+        fields.put(ContactConstants.A_fullName, name);
+        fields.put(ContactConstants.A_email, name + "@example.com");
+        Contact contact = mbox.createContact(null, new ParsedContact(fields), folderId, null);
+        return contact.getId();
+    }
+
+    /** Runs a sync-collection REPORT on the Contacts address book and returns the multistatus. */
+    private Element report(String token) throws Exception {
+        String body = "<D:sync-collection xmlns:D=\"DAV:\"><D:sync-token>" + (token == null ? "" : token) +
+                "</D:sync-token><D:sync-level>1</D:sync-level><D:prop><D:getetag/></D:prop></D:sync-collection>";
+        Response resp = new Response();
+        DavContext ctxt = new Context(new Request(body, "/home/test@zimbra.com/Contacts/"), resp, acct, body);
+        new Report().handle(ctxt);
+        Document doc = DocumentHelper.parseText(resp.body.toString("UTF-8"));
+        Assert.assertEquals(DavElements.E_MULTISTATUS, doc.getRootElement().getQName());
+        return doc.getRootElement();
+    }
+
+    /** Returns the hrefs in the multistatus, with the status of the removed ones. */
+    private static List<String> hrefs(Element multistatus) {
+        List<String> hrefs = new ArrayList<String>();
+        for (Object o : multistatus.elements(DavElements.E_RESPONSE)) {
+            Element response = (Element) o;
+            String status = response.elementText(DavElements.E_STATUS);
+            hrefs.add(response.elementText(DavElements.E_HREF) + (status == null ? "" : " " + status));
+        }
+        return hrefs;
+    }
+
+    private static void assertInvalidToken(SyncCollectionTest test, String token) throws Exception {
+        try {
+            test.report(token);
+            Assert.fail("token should be invalid");
+        } catch (DavException e) {
+            Assert.assertEquals(403, e.getStatus());
+        }
+    }
+
+    @Test
+    public void report() throws Exception {
+        createContact("alice", Mailbox.ID_FOLDER_CONTACTS);
+        int other = createContact("bob", Mailbox.ID_FOLDER_AUTO_CONTACTS);
+        Element initial = report(null);
+        List<String> hrefs = hrefs(initial);
+        Assert.assertEquals(1, hrefs.size());
+        String alice = hrefs.get(0);
+        String token = initial.elementText(DavElements.E_SYNC_TOKEN);
+
+        // a deletion in another address book isn't reported and doesn't invalidate the token
+        mbox.delete(null, other, MailItem.Type.CONTACT);
+        Element incremental = report(token);
+        Assert.assertTrue(hrefs(incremental).isEmpty());
+        token = incremental.elementText(DavElements.E_SYNC_TOKEN);
+
+        int carol = createContact("carol", Mailbox.ID_FOLDER_CONTACTS);
+        incremental = report(token);
+        Assert.assertEquals(1, hrefs(incremental).size());
+        token = incremental.elementText(DavElements.E_SYNC_TOKEN);
+
+        mbox.delete(null, carol, MailItem.Type.CONTACT);
+        incremental = report(token);
+        Assert.assertEquals(1, hrefs(incremental).size());
+        Assert.assertTrue(hrefs(incremental).get(0).endsWith(" HTTP/1.1 404 Not Found"));
+        Assert.assertFalse(hrefs(incremental).get(0).startsWith(alice));
+    }
+
+    @Test
+    public void reportAfterRestart() throws Exception {
+        int alice = createContact("alice", Mailbox.ID_FOLDER_CONTACTS);
+        int other = createContact("bob", Mailbox.ID_FOLDER_AUTO_CONTACTS);
+        Element initial = report(null);
+        String alicesHref = hrefs(initial).get(0);
+        String token = initial.elementText(DavElements.E_SYNC_TOKEN);
+
+        // the remembered hrefs are lost; the next request lists the address book again
+        SyncCollection.MEMBERS.invalidateAll();
+        Element incremental = report(token);
+        Assert.assertTrue(hrefs(incremental).isEmpty());
+        token = incremental.elementText(DavElements.E_SYNC_TOKEN);
+
+        mbox.delete(null, other, MailItem.Type.CONTACT);
+        incremental = report(token);
+        Assert.assertTrue(hrefs(incremental).isEmpty());
+        token = incremental.elementText(DavElements.E_SYNC_TOKEN);
+
+        mbox.delete(null, alice, MailItem.Type.CONTACT);
+        incremental = report(token);
+        Assert.assertEquals(1, hrefs(incremental).size());
+        Assert.assertEquals(alicesHref + " HTTP/1.1 404 Not Found", hrefs(incremental).get(0));
+    }
+
+    @Test
+    public void reportTokenOlderThanMembers() throws Exception {
+        createContact("alice", Mailbox.ID_FOLDER_CONTACTS);
+        int other = createContact("bob", Mailbox.ID_FOLDER_AUTO_CONTACTS);
+        String token = report(null).elementText(DavElements.E_SYNC_TOKEN);
+
+        // a resource deleted before the hrefs were listed again might have been in the collection
+        SyncCollection.MEMBERS.invalidateAll();
+        mbox.delete(null, other, MailItem.Type.CONTACT);
+        assertInvalidToken(this, token);
+    }
+
+    @Test
+    public void token() throws Exception {
+        Assert.assertEquals(42, SyncCollection.parseSyncToken(SyncCollection.getSyncToken(42)));
+        for (String token : new String[] { "42", "data:,", "data:,x", "data:,0", "http://example.com/sync/42" }) {
+            try {
+                SyncCollection.parseSyncToken(token);
+                Assert.fail(token);
+            } catch (DavException e) {
+                Assert.assertEquals(403, e.getStatus());
+            }
+        }
+    }
+
+    @Test
+    public void wasInFolder() throws Exception {
+        // moved from 10 to 11 at change 100, then from 11 to 12 at change 200
+        String prevFolders = "100:10;200:11";
+        Assert.assertTrue(SyncCollection.wasInFolder(prevFolders, 10, 50));
+        Assert.assertFalse(SyncCollection.wasInFolder(prevFolders, 11, 50));
+        Assert.assertTrue(SyncCollection.wasInFolder(prevFolders, 11, 100));
+        Assert.assertTrue(SyncCollection.wasInFolder(prevFolders, 11, 150));
+        Assert.assertFalse(SyncCollection.wasInFolder(prevFolders, 11, 200));
+        Assert.assertFalse(SyncCollection.wasInFolder(null, 10, 50));
+        Assert.assertFalse(SyncCollection.wasInFolder("garbage", 10, 50));
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * ***** BEGIN LICENSE BLOCK *****
+ * Zimbra Collaboration Suite Server
+ * Copyright (C) 2026 Synacor, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software Foundation,
+ * version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ * ***** END LICENSE BLOCK *****
+ */
+package com.zimbra.cs.ephemeral;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.zimbra.common.util.FileUtil;
+import com.zimbra.cs.ephemeral.EphemeralInput.AbsoluteExpiration;
+import com.zimbra.cs.ephemeral.EphemeralInput.RelativeExpiration;
+import com.zimbra.cs.ephemeral.EphemeralStoreTest.TestLocation;
+
+public class LocalEphemeralStoreTest {
+
+    private File dir;
+    private LocalEphemeralStore store;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = new File("build/test/ephemeral");
+        FileUtil.deleteDir(dir);
+        store = new LocalEphemeralStore(dir);
+        store.open();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        store.close();
+        FileUtil.deleteDir(dir);
+    }
+
+    private LocalEphemeralStore reopen() throws Exception {
+        store.close();
+        store = new LocalEphemeralStore(dir);
+        store.open();
+        return store;
+    }
+
+    @Test
+    public void registered() throws Exception {
+        Assert.assertTrue(EphemeralStore.getFactory("local", true) instanceof LocalEphemeralStore.Factory);
+    }
+
+    @Test
+    public void basic() throws Exception {
+        EphemeralKey key = new EphemeralKey("foo");
+        EphemeralKey dynamicKey = new EphemeralKey("foo", "1");
+        EphemeralLocation target = new TestLocation();
+        store.set(new EphemeralInput(key, "bar"), target);
+        store.update(new EphemeralInput(key, "baz"), target);
+        store.update(new EphemeralInput(dynamicKey, "dynamic"), target);
+        Assert.assertArrayEquals(new String[] {"bar", "baz"}, store.get(key, target).getValues());
+        Assert.assertEquals("dynamic", store.get(dynamicKey, target).getValue());
+        Assert.assertEquals(3, store.getSize());
+
+        store.delete(key, "bar", target);
+        Assert.assertArrayEquals(new String[] {"baz"}, store.get(key, target).getValues());
+        Assert.assertTrue(store.has(dynamicKey, target));
+
+        store.deleteData(target);
+        Assert.assertFalse(store.has(key, target));
+        Assert.assertEquals(0, store.getSize());
+    }
+
+    @Test
+    public void expiry() throws Exception {
+        EphemeralKey key = new EphemeralKey("foo");
+        EphemeralLocation target = new TestLocation();
+        long now = System.currentTimeMillis();
+        store.update(new EphemeralInput(key, "short", new AbsoluteExpiration(now + 2000)), target);
+        store.update(new EphemeralInput(key, "long", new RelativeExpiration(2L, TimeUnit.HOURS)), target);
+        store.update(new EphemeralInput(key, "forever"), target);
+
+        store.tick(now + 1000);
+        Assert.assertEquals(3, store.get(key, target).getValues().length);
+        store.tick(now + 5000);
+        Assert.assertArrayEquals(new String[] {"long", "forever"}, store.get(key, target).getValues());
+        store.tick(now + TimeUnit.HOURS.toMillis(3));
+        Assert.assertArrayEquals(new String[] {"forever"}, store.get(key, target).getValues());
+    }
+
+    @Test
+    public void restart() throws Exception {
+        EphemeralKey key = new EphemeralKey("foo");
+        EphemeralKey dynamicKey = new EphemeralKey("foo", "1");
+        EphemeralLocation target = new TestLocation();
+        EphemeralLocation other = new TestLocation("other");
+        store.set(new EphemeralInput(key, "bar"), target);
+        store.update(new EphemeralInput(key, "baz"), target);
+        store.update(new EphemeralInput(dynamicKey, "dynamic"), target);
+        store.set(new EphemeralInput(key, "gone", new AbsoluteExpiration(System.currentTimeMillis() + 1500)), other);
+        store.delete(key, "bar", target);
+
+        reopen();
+        Assert.assertArrayEquals(new String[] {"baz"}, store.get(key, target).getValues());
+        Assert.assertEquals("dynamic", store.get(dynamicKey, target).getValue());
+        Assert.assertEquals("gone", store.get(key, other).getValue());
+
+        store.deleteData(target);
+        Thread.sleep(1600);
+        reopen();
+        Assert.assertFalse(store.has(key, target));
+        Assert.assertFalse(store.has(key, other));
+        Assert.assertEquals(0, store.getSize());
+    }
+
+    @Test
+    public void concurrentChanges() throws Exception {
+        final EphemeralKey key = new EphemeralKey("foo");
+        final EphemeralKey otherKey = new EphemeralKey("bar");
+        final EphemeralLocation target = new TestLocation();
+        final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < 4; t++) {
+            final int id = t;
+            threads.add(new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < 500; i++) {
+                            switch (id) {
+                            case 0:
+                            case 1:
+                                store.set(new EphemeralInput(key, id + "-" + i), target);
+                                store.update(new EphemeralInput(otherKey, id + "-" + i), target);
+                                break;
+                            case 2:
+                                for (String value : store.get(key, target).getValues()) {
+                                    store.delete(key, value, target);
+                                }
+                                break;
+                            default:
+                                if (i % 50 == 0) {
+                                    store.deleteData(target);
+                                }
+                                break;
+                            }
+                        }
+                    } catch (Throwable e) {
+                        errors.add(e);
+                    }
+                }
+            });
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertTrue(errors.toString(), errors.isEmpty());
+        String[] values = store.get(key, target).getValues();
+        String[] otherValues = store.get(otherKey, target).getValues();
+        long size = store.getSize();
+        Assert.assertEquals(values.length + otherValues.length, size);
+
+        // the journal replays to the same values
+        reopen();
+        Assert.assertArrayEquals(values, store.get(key, target).getValues());
+        Assert.assertArrayEquals(otherValues, store.get(otherKey, target).getValues());
+        Assert.assertEquals(size, store.getSize());
+    }
+
+    @Test
+    public void wheel() throws Exception {
+        TimingWheel<Integer> wheel = new TimingWheel<Integer>(1000, 0);
+        // spread over all levels, and beyond
+        long[] expires = {500, 2000, 63000, 64000, 65500, 4096000, 300000000L, 20000000000L};
+        for (int i = 0; i < expires.length; i++) {
+            Assert.assertTrue(wheel.schedule(i, expires[i]));
+        }
+        Assert.assertFalse(wheel.schedule(-1, 0));
+        Assert.assertEquals(expires.length, wheel.size());
+
+        List<Integer> expired = new ArrayList<Integer>();
+        for (int i = 0; i < expires.length; i++) {
+            long at = ((expires[i] + 999) / 1000) * 1000;
+            wheel.advance(at - 1000, expired);
+            Assert.assertFalse(expired.contains(i));
+            wheel.advance(at, expired);
+            Assert.assertTrue(expired.contains(i));
+        }
+        Assert.assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7), expired);
+        Assert.assertEquals(0, wheel.size());
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * ***** BEGIN LICENSE BLOCK *****
+ * Zimbra Collaboration Suite Server
+ * Copyright (C) 2026 Synacor, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software Foundation,
+ * version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ * ***** END LICENSE BLOCK *****
+ */
+package com.zimbra.cs.fb;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.zimbra.cs.fb.FreeBusy.Interval;
+import com.zimbra.cs.mailbox.calendar.IcalXmlStrMap;
+
+public class FreeBusyBitmapTest {
+
+    private static final long SLOT = FreeBusyBitmap.SLOT_MILLIS;
+    private static final long BASE = 1000 * SLOT;
+
+    private static List<Interval> busy(FreeBusy fb) {
+        List<Interval> result = new ArrayList<Interval>();
+        for (Interval iv : fb) {
+            if (!IcalXmlStrMap.FBTYPE_FREE.equals(iv.getStatus())) {
+                result.add(iv);
+            }
+        }
+        return result;
+    }
+
+    @Test
+    public void window() {
+        FreeBusyBitmap bitmap = new FreeBusyBitmap(BASE + 5, BASE + 10 * SLOT - 5);
+        Assert.assertEquals("start rounded down", BASE, bitmap.getStart());
+        Assert.assertEquals("end rounded up", BASE + 10 * SLOT, bitmap.getEnd());
+        Assert.assertTrue(bitmap.covers(BASE, BASE + 10 * SLOT));
+        Assert.assertFalse(bitmap.covers(BASE - 1, BASE + SLOT));
+        Assert.assertFalse(bitmap.covers(BASE, BASE + 10 * SLOT + 1));
+    }
+
+    @Test
+    public void markRoundsOut() {
+        FreeBusyBitmap bitmap = new FreeBusyBitmap(BASE, BASE + 96 * SLOT);
+        bitmap.mark(BASE + SLOT + 5, BASE + 2 * SLOT + 5, IcalXmlStrMap.FBTYPE_BUSY);
+        Assert.assertEquals(IcalXmlStrMap.FBTYPE_FREE, bitmap.getStatus(BASE));
+        Assert.assertEquals(IcalXmlStrMap.FBTYPE_BUSY, bitmap.getStatus(BASE + SLOT));
+        Assert.assertEquals(IcalXmlStrMap.FBTYPE_BUSY, bitmap.getStatus(BASE + 2 * SLOT));
+        Assert.assertEquals(IcalXmlStrMap.FBTYPE_FREE, bitmap.getStatus(BASE + 3 * SLOT));
+    }
+
+    @Test
+    public void busiestWins() {
+        FreeBusyBitmap bitmap = new FreeBusyBitmap(BASE, BASE + 96 * SLOT);
+        bitmap.mark(BASE, BASE + 4 * SLOT, IcalXmlStrMap.FBTYPE_BUSY_TENTATIVE);
+        bitmap.mark(BASE + SLOT, BASE + 2 * SLOT, IcalXmlStrMap.FBTYPE_BUSY_UNAVAILABLE);
+        bitmap.mark(BASE, BASE + 2 * SLOT, IcalXmlStrMap.FBTYPE_BUSY);
+        Assert.assertEquals(IcalXmlStrMap.FBTYPE_BUSY, bitmap.getStatus(BASE));
+        Assert.assertEquals(IcalXmlStrMap.FBTYPE_BUSY_UNAVAILABLE, bitmap.getStatus(BASE + SLOT));
+        Assert.assertEquals(IcalXmlStrMap.FBTYPE_BUSY_TENTATIVE, bitmap.getStatus(BASE + 2 * SLOT));
+        bitmap.mark(BASE + 3 * SLOT, BASE + 4 * SLOT, IcalXmlStrMap.FBTYPE_FREE);
+        Assert.assertEquals(IcalXmlStrMap.FBTYPE_BUSY_TENTATIVE, bitmap.getStatus(BASE + 3 * SLOT));
+    }
+
+    @Test
+    public void markOutsideWindow() {
+        FreeBusyBitmap bitmap = new FreeBusyBitmap(BASE, BASE + 4 * SLOT);
+        bitmap.mark(BASE - 10 * SLOT, BASE + SLOT, IcalXmlStrMap.FBTYPE_BUSY);
+        bitmap.mark(BASE + 3 * SLOT, BASE + 10 * SLOT, IcalXmlStrMap.FBTYPE_BUSY);
+        bitmap.mark(BASE + 20 * SLOT, BASE + 30 * SLOT, IcalXmlStrMap.FBTYPE_BUSY);
+        Assert.assertEquals(IcalXmlStrMap.FBTYPE_BUSY, bitmap.getStatus(BASE));
+        Assert.assertEquals(IcalXmlStrMap.FBTYPE_FREE, bitmap.getStatus(BASE + SLOT));
+        Assert.assertEquals(IcalXmlStrMap.FBTYPE_BUSY, bitmap.getStatus(BASE + 3 * SLOT));
+    }
+
+    @Test
+    public void toFreeBusy() {
+        // 64 slots per two words; make sure runs across word boundaries are merged
+        FreeBusyBitmap bitmap = new FreeBusyBitmap(BASE, BASE + 96 * SLOT);
+        bitmap.mark(BASE + 30 * SLOT, BASE + 34 * SLOT, IcalXmlStrMap.FBTYPE_BUSY);
+        bitmap.mark(BASE + 34 * SLOT, BASE + 36 * SLOT, IcalXmlStrMap.FBTYPE_BUSY_TENTATIVE);
+        bitmap.mark(BASE + 90 * SLOT, BASE + 96 * SLOT, IcalXmlStrMap.FBTYPE_BUSY);
+
+        FreeBusy fb = bitmap.toFreeBusy("user1", BASE + SLOT / 2, BASE + 92 * SLOT + 7);
+        Assert.assertEquals("user1", fb.getName());
+        List<Interval> intervals = busy(fb);
+        Assert.assertEquals(3, intervals.size());
+        Assert.assertEquals(BASE + 30 * SLOT, intervals.get(0).getStart());
+        Assert.assertEquals(BASE + 34 * SLOT, intervals.get(0).getEnd());
+        Assert.assertEquals(IcalXmlStrMap.FBTYPE_BUSY, intervals.get(0).getStatus());
+        Assert.assertEquals(BASE + 34 * SLOT, intervals.get(1).getStart());
+        Assert.assertEquals(BASE + 36 * SLOT, intervals.get(1).getEnd());
+        Assert.assertEquals(IcalXmlStrMap.FBTYPE_BUSY_TENTATIVE, intervals.get(1).getStatus());
+        Assert.assertEquals("clipped to the range", BASE + 92 * SLOT + 7, intervals.get(2).getEnd());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void toFreeBusyOutsideWindow() {
+        new FreeBusyBitmap(BASE, BASE + 4 * SLOT).toFreeBusy("user1", BASE, BASE + 5 * SLOT);
+    }
+
+    @Test
+    public void memorySize() {
+        // 90 days
+        FreeBusyBitmap bitmap = new FreeBusyBitmap(BASE, BASE + 90 * 96 * SLOT);
+        Assert.assertTrue(bitmap.getMemorySize() < 2200);
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * ***** BEGIN LICENSE BLOCK *****
+ * Zimbra Collaboration Suite Server
+ * Copyright (C) 2026 Synacor, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software Foundation,
+ * version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ * ***** END LICENSE BLOCK *****
+ */
+package com.zimbra.cs.filter;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.zimbra.common.util.ArrayUtil;
+import com.zimbra.cs.account.Account;
+import com.zimbra.cs.account.Provisioning;
+import com.zimbra.cs.mailbox.DeliveryContext;
+import com.zimbra.cs.mailbox.Mailbox;
+import com.zimbra.cs.mailbox.MailboxManager;
+import com.zimbra.cs.mailbox.MailboxTestUtil;
+import com.zimbra.cs.mailbox.Message;
+import com.zimbra.cs.mailbox.OperationContext;
+import com.zimbra.cs.mime.ParsedMessage;
+import com.zimbra.cs.service.util.ItemId;
+
+/**
+ * Unit test for {@link SieveScriptCache}.
+ */
+public final class SieveScriptCacheTest {
+
+    private static final String SCRIPT = "require [\"tag\"];\n"
+        + "if header :matches \"Subject\" \"*report*\" {\n"
+        + "  tag \"report\";\n"
+        + "}";
+
+    @BeforeClass
+    public static void init() throws Exception {
+        MailboxTestUtil.initServer();
+        Provisioning prov = Provisioning.getInstance();
+        prov.createAccount("test1@zimbra.com", "secret", new HashMap<String, Object>());
+        prov.createAccount("test2@zimbra.com", "secret", new HashMap<String, Object>());
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        MailboxTestUtil.clearData();
+    }
+
+    @Test
+    public void sharedNode() throws Exception {
+        SieveScriptCache cache = new SieveScriptCache(1024, 10);
+        Assert.assertSame(cache.getNode(SCRIPT), cache.getNode(SCRIPT));
+        Assert.assertNotSame(cache.getNode(SCRIPT), cache.getNode(SCRIPT + "\n"));
+        Assert.assertEquals(2, cache.size());
+
+        cache = new SieveScriptCache(0, 0);
+        Assert.assertNotSame(cache.getNode(SCRIPT), cache.getNode(SCRIPT));
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void globPattern() throws Exception {
+        SieveScriptCache cache = new SieveScriptCache(1024, 10);
+        Pattern pattern = cache.getGlobPattern("*@zimbra.?om", 0);
+        Assert.assertSame(pattern, cache.getGlobPattern("*@zimbra.?om", 0));
+        Assert.assertNotSame(pattern, cache.getGlobPattern("*@zimbra.?om", Pattern.CASE_INSENSITIVE));
+        Assert.assertTrue(pattern.matcher("user@zimbra.com").matches());
+        Assert.assertFalse(pattern.matcher("user@ZIMBRA.com").matches());
+        Assert.assertTrue(cache.getGlobPattern("*@zimbra.?om", Pattern.CASE_INSENSITIVE)
+                .matcher("user@ZIMBRA.com").matches());
+    }
+
+    private static Account getAccount(String name) throws Exception {
+        Account account = Provisioning.getInstance().getAccountByName(name);
+        return MailboxManager.getInstance().getMailboxByAccount(account).getAccount();
+    }
+
+    private static String deliver(Account account, String subject) throws Exception {
+        Mailbox mbox = MailboxManager.getInstance().getMailboxByAccount(account);
+        String raw = "From: sender@zimbra.com\nSubject: " + subject + "\n\nbody";
+        List<ItemId> ids = RuleManager.applyRulesToIncomingMessage(new OperationContext(mbox), mbox,
+                new ParsedMessage(raw.getBytes(), false), 0, account.getName(), new DeliveryContext(),
+                Mailbox.ID_FOLDER_INBOX, true);
+        Assert.assertEquals(1, ids.size());
+        Message msg = mbox.getMessageById(null, ids.get(0).getId());
+        return ArrayUtil.getFirstElement(msg.getTags());
+    }
+
+    @Test
+    public void sameAdminScript() throws Exception {
+        Account acct1 = getAccount("test1@zimbra.com");
+        Account acct2 = getAccount("test2@zimbra.com");
+        for (Account account : new Account[] {acct1, acct2}) {
+            RuleManager.clearCachedRules(account);
+            account.setAdminSieveScriptBefore(SCRIPT);
+        }
+        Assert.assertEquals("report", deliver(acct1, "weekly report"));
+        Assert.assertEquals("report", deliver(acct2, "monthly report"));
+        Assert.assertNull(deliver(acct2, "hello"));
+    }
+
+    @Test
+    public void headerEdited() throws Exception {
+        Account account = getAccount("test1@zimbra.com");
+        RuleManager.clearCachedRules(account);
+        account.setSieveEditHeaderEnabled(true);
+        // the second test must see the header added after the first one looked it up
+        account.setAdminSieveScriptBefore("require [\"editheader\", \"tag\"];\n"
+            + "if not exists \"X-Seen\" {\n"
+            + "  addheader \"X-Seen\" \"yes\";\n"
+            + "}\n"
+            + "if header :is \"X-Seen\" \"yes\" {\n"
+            + "  tag \"seen\";\n"
+            + "}");
+        Assert.assertEquals("seen", deliver(account, "test"));
+    }
+}
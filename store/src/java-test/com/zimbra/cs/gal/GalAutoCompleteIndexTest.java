@@ -0,0 +1,127 @@
+/*
+ * ***** BEGIN LICENSE BLOCK *****
+ * Zimbra Collaboration Suite Server
+ * Copyright (C) 2026 Synacor, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software Foundation,
+ * version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ * ***** END LICENSE BLOCK *****
+ */
+package com.zimbra.cs.gal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+import com.zimbra.common.mailbox.ContactConstants;
+import com.zimbra.cs.account.Provisioning;
+import com.zimbra.cs.gal.GalAutoCompleteIndex.Entry;
+import com.zimbra.soap.type.GalSearchType;
+
+public class GalAutoCompleteIndexTest {
+
+    private static final int FOLDER = 257;
+    private static final Set<Integer> FOLDERS = ImmutableSet.of(FOLDER);
+
+    private GalAutoCompleteIndex index;
+
+    private static Entry entry(int id, String first, String last, String email, String... attrs) {
+        Map<String, String> fields = new HashMap<String, String>();
+        fields.put(ContactConstants.A_firstName, first);
+        fields.put(ContactConstants.A_lastName, last);
+        fields.put(ContactConstants.A_email, email);
+        for (int i = 0; i < attrs.length; i += 2) {
+            fields.put(attrs[i], attrs[i + 1]);
+        }
+        return new Entry(id, FOLDER, fields);
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        index = new GalAutoCompleteIndex("gal");
+        List<Entry> entries = new ArrayList<Entry>();
+        entries.add(entry(1, "John", "Smith", "john.smith@zimbra.com"));
+        entries.add(entry(2, "Jane", "Doe", "jdoe@zimbra.com", ContactConstants.A_email2, "jane.doe@zimbra.com"));
+        entries.add(entry(3, "Johnny", "Walker", "jwalker@zimbra.com"));
+        entries.add(entry(4, "Conference", "Room", "room1@zimbra.com",
+                Provisioning.A_zimbraAccountCalendarUserType, "RESOURCE"));
+        entries.add(entry(5, null, null, "john-team@zimbra.com", ContactConstants.A_fullName, "John's Team",
+                ContactConstants.A_type, ContactConstants.TYPE_GROUP));
+        index.load(entries);
+    }
+
+    private List<Integer> search(String query) {
+        return index.search(query, FOLDERS, GalSearchType.all, 0, null);
+    }
+
+    @Test
+    public void prefix() throws Exception {
+        Assert.assertEquals(Arrays.asList(1, 3, 5), search("joh"));
+        Assert.assertEquals(Arrays.asList(1, 3, 5), search("JOHN*"));
+        Assert.assertEquals(Arrays.asList(1), search("smi"));
+        // email, and the words of its local part
+        Assert.assertEquals(Arrays.asList(2), search("jdoe@"));
+        Assert.assertEquals(Arrays.asList(2), search("doe"));
+        Assert.assertEquals(Arrays.asList(5), search("team"));
+        Assert.assertEquals(Collections.emptyList(), search("zimbra"));
+        Assert.assertEquals(Collections.emptyList(), search(""));
+    }
+
+    @Test
+    public void multipleWords() throws Exception {
+        Assert.assertEquals(Arrays.asList(1), search("john sm"));
+        Assert.assertEquals(Arrays.asList(1), search("smith jo"));
+        Assert.assertEquals(Collections.emptyList(), search("john doe"));
+    }
+
+    @Test
+    public void filters() throws Exception {
+        Assert.assertEquals(Arrays.asList(1, 2, 3, 5), index.search("j", FOLDERS, GalSearchType.account, 0, null));
+        Assert.assertEquals(Arrays.asList(4), index.search("r", FOLDERS, GalSearchType.resource, 0, null));
+        Assert.assertEquals(Arrays.asList(5), index.search("j", FOLDERS, GalSearchType.group, 0, null));
+        Assert.assertEquals(Collections.emptyList(),
+                index.search("j", ImmutableSet.of(FOLDER + 1), GalSearchType.all, 0, null));
+    }
+
+    @Test
+    public void ranking() throws Exception {
+        Assert.assertEquals(Arrays.asList(1, 3), index.search("joh", FOLDERS, GalSearchType.all, 2, null));
+        GalAutoCompleteIndex.Ranker ranker = new GalAutoCompleteIndex.Ranker() {
+            @Override
+            public int rank(String email) {
+                return email.equals("john-team@zimbra.com") ? 5 : email.equals("jwalker@zimbra.com") ? 1 : 0;
+            }
+        };
+        Assert.assertEquals(Arrays.asList(5, 3), index.search("joh", FOLDERS, GalSearchType.all, 2, ranker));
+    }
+
+    @Test
+    public void update() throws Exception {
+        index.add(entry(1, "Jon", "Smith", "jon.smith@zimbra.com"));
+        Assert.assertEquals(Arrays.asList(3, 5), search("john"));
+        Assert.assertEquals(Arrays.asList(1), search("jon"));
+        index.add(entry(6, "Johanna", "Field", "jfield@zimbra.com"));
+        Assert.assertEquals(Arrays.asList(3, 5, 6), search("joh"));
+        index.remove(3);
+        index.remove(42);
+        Assert.assertEquals(Arrays.asList(5, 6), search("joh"));
+        Assert.assertEquals(Collections.emptyList(), search("walker"));
+        Assert.assertEquals(5, index.size());
+    }
+}
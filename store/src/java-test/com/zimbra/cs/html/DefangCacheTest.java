@@ -0,0 +1,65 @@
+/*
+ * ***** BEGIN LICENSE BLOCK *****
+ * Zimbra Collaboration Suite Server
+ * Copyright (C) 2026 Synacor, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software Foundation,
+ * version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ * ***** END LICENSE BLOCK *****
+ */
+package com.zimbra.cs.html;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.zimbra.cs.html.owasp.OwaspDefang;
+
+public final class DefangCacheTest {
+
+    @Test
+    public void cache() throws Exception {
+        DefangCache cache = new DefangCache(1024);
+        BrowserDefang owasp = new OwaspDefang();
+        String key = cache.getKey("digest", "2", owasp, true, "utf-8", 100);
+        Assert.assertNull(cache.get(key));
+        cache.put(key, "<div>x</div>", true);
+        DefangCache.Result result = cache.get(key);
+        Assert.assertEquals("<div>x</div>", result.content);
+        Assert.assertTrue(result.truncated);
+
+        // anything else the output depends on is part of the key
+        Assert.assertNull(cache.get(cache.getKey("digest2", "2", owasp, true, "utf-8", 100)));
+        Assert.assertNull(cache.get(cache.getKey("digest", "1", owasp, true, "utf-8", 100)));
+        Assert.assertNull(cache.get(cache.getKey("digest", "2", new HtmlDefang(), true, "utf-8", 100)));
+        Assert.assertNull(cache.get(cache.getKey("digest", "2", owasp, false, "utf-8", 100)));
+        Assert.assertNull(cache.get(cache.getKey("digest", "2", owasp, true, "utf-8", 200)));
+        Assert.assertNull(cache.getKey(null, "2", owasp, true, "utf-8", 100));
+    }
+
+    @Test
+    public void bounded() throws Exception {
+        DefangCache cache = new DefangCache(1024);
+        BrowserDefang defanger = new HtmlDefang();
+        char[] body = new char[100];
+        for (int i = 0; i < 50; i++) {
+            cache.put(cache.getKey("digest" + i, "1", defanger, true, null, 0), new String(body), false);
+        }
+        Assert.assertTrue(cache.size() < 50);
+    }
+
+    @Test
+    public void disabled() throws Exception {
+        DefangCache cache = new DefangCache(0);
+        Assert.assertNull(cache.getKey("digest", "1", new HtmlDefang(), true, null, 0));
+        cache.put(null, "x", false);
+        Assert.assertNull(cache.get(null));
+        Assert.assertEquals(0, cache.size());
+    }
+}
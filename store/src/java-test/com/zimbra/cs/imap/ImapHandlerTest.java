@@ -21,12 +21,15 @@ import com.zimbra.common.mailbox.FolderStore;
 import com.zimbra.common.service.ServiceException;
 import com.zimbra.cs.account.Account;
 import com.zimbra.cs.account.Provisioning;
+import com.zimbra.cs.mailbox.DeliveryOptions;
+import com.zimbra.cs.mailbox.Folder;
 import com.zimbra.cs.mailbox.MailItem;
 import com.zimbra.cs.mailbox.Mailbox;
 import com.zimbra.cs.mailbox.MailboxManager;
 import com.zimbra.cs.mailbox.MailboxTestUtil;
 import com.zimbra.cs.mailbox.Message;
 import com.zimbra.cs.mailbox.SearchFolder;
+import com.zimbra.cs.mime.ParsedMessage;
 import com.zimbra.cs.server.ServerThrottle;
 import com.zimbra.cs.util.ZTestWatchman;
 import com.zimbra.qa.unittest.TestUtil;
@@ -121,6 +124,99 @@ public class ImapHandlerTest {
         }
     }
 
+    @Test
+    public void testDoMOVEByUID() throws Exception {
+        Account acct = Provisioning.getInstance().getAccount("12aa345b-2b47-44e6-8cb8-7fdfa18c1a9f");
+        Mailbox mbox = MailboxManager.getInstance().getMailboxByAccount(acct);
+        Message m1 = TestUtil.addMessage(mbox, "Message 1");
+        Message m2 = TestUtil.addMessage(mbox, "Message 2");
+        Message m3 = TestUtil.addMessage(mbox, "Message 3");
+        Folder archive = mbox.createFolder(null, "Archive", new Folder.FolderOptions().setDefaultView(MailItem.Type.MESSAGE));
+        MockImapHandler handler = new MockImapHandler();
+        ImapCredentials creds = new ImapCredentials(acct, ImapCredentials.EnabledHack.NONE);
+        ImapPath pathInbox = new MockImapPath(null, mbox.getFolderById(null, Mailbox.ID_FOLDER_INBOX), creds);
+        ImapPath pathArchive = new MockImapPath(null, archive, creds);
+        handler.setCredentials(creds);
+        handler.setSelectedFolder(pathInbox, (byte) 0);
+        Assert.assertEquals(3, handler.getSelectedFolder().getSize());
+        int indexId = mbox.getMessageById(null, m1.getId()).getIndexId();
+        int uid1 = m1.getImapUid();
+        int uid3 = m3.getImapUid();
+
+        String sequenceSet = String.format("%d,%d", uid1, uid3);
+        Assert.assertTrue(handler.doMOVE("A1", sequenceSet, pathArchive, true));
+
+        // moved in place, keeping the item, its index entry and its blob, but with new UIDs
+        Message moved = mbox.getMessageById(null, m1.getId());
+        Assert.assertEquals(archive.getId(), moved.getFolderId());
+        Assert.assertEquals(indexId, moved.getIndexId());
+        Assert.assertTrue(moved.getImapUid() > uid3);
+        Assert.assertEquals(archive.getId(), mbox.getMessageById(null, m3.getId()).getFolderId());
+        Assert.assertEquals(Mailbox.ID_FOLDER_INBOX, mbox.getMessageById(null, m2.getId()).getFolderId());
+
+        String response = handler.output.toString();
+        String copyuid = "* OK [COPYUID " + archive.getUIDValidity() + " " + uid1 + "," + uid3 + " ";
+        Assert.assertTrue(response, response.contains(copyuid));
+        Assert.assertTrue(response, response.indexOf(copyuid) < response.indexOf(" EXPUNGE"));
+        Assert.assertTrue(response, response.endsWith("A1 OK UID MOVE completed\r\n"));
+        Assert.assertEquals(1, handler.getSelectedFolder().getSize());
+
+        // not to the selected folder
+        Assert.assertTrue(handler.doMOVE("A2", String.valueOf(m2.getImapUid()), pathInbox, true));
+        Assert.assertTrue(handler.output.toString().endsWith("A2 NO [CANNOT] cannot UID MOVE messages to the selected mailbox\r\n"));
+    }
+
+    private static String execute(MockImapHandler handler, String command) throws Exception {
+        int start = handler.output.toString().length();
+        NioImapRequest req = new NioImapRequest(handler);
+        req.parse(command);
+        handler.executeRequest(req);
+        return handler.output.toString().substring(start);
+    }
+
+    @Test
+    public void testNOTIFY() throws Exception {
+        Account acct = Provisioning.getInstance().getAccount("12aa345b-2b47-44e6-8cb8-7fdfa18c1a9f");
+        Mailbox mbox = MailboxManager.getInstance().getMailboxByAccount(acct);
+        Folder lists = mbox.createFolder(null, "Lists", new Folder.FolderOptions().setDefaultView(MailItem.Type.MESSAGE));
+        MockImapHandler handler = new MockImapHandler();
+        handler.setCredentials(new ImapCredentials(acct, ImapCredentials.EnabledHack.NONE));
+
+        String response = execute(handler,
+                "A1 NOTIFY SET STATUS (SELECTED (MessageNew MessageExpunge)) (SUBTREE Lists (MessageNew MessageExpunge MailboxName))");
+        Assert.assertTrue(response, response.startsWith("* STATUS \"Lists\" (MESSAGES 0 UIDNEXT "));
+        Assert.assertTrue(response, response.endsWith("A1 OK NOTIFY completed\r\n"));
+
+        // reported along with the next command, without selecting the folder
+        TestUtil.addMessage(mbox, "inbox message");
+        mbox.addMessage(null, new ParsedMessage("Subject: list message".getBytes(), false),
+                new DeliveryOptions().setFolderId(lists.getId()), null);
+        mbox.createFolder(null, "/Lists/Sub", new Folder.FolderOptions().setDefaultView(MailItem.Type.MESSAGE));
+        response = execute(handler, "A2 NOOP");
+        Assert.assertTrue(response, response.contains("* STATUS \"Lists\" (MESSAGES 1 UIDNEXT "));
+        Assert.assertTrue(response, response.contains("* LIST () \"/\" \"Lists/Sub\"\r\n"));
+        Assert.assertFalse(response, response.contains("INBOX"));
+        Assert.assertTrue(response, response.endsWith("A2 OK NOOP completed\r\n"));
+        Assert.assertEquals("A3 OK NOOP completed\r\n", execute(handler, "A3 NOOP"));
+
+        try {
+            execute(handler, "A4 NOTIFY SET (PERSONAL (MessageNew MessageExpunge AnnotationChange))");
+            fail("AnnotationChange is not supported");
+        } catch (ImapParseException e) {
+            Assert.assertTrue(e.responseCode, e.responseCode.startsWith("BADEVENT"));
+        }
+        try {
+            execute(handler, "A5 NOTIFY SET (PERSONAL (MessageNew))");
+            fail("MessageExpunge is missing");
+        } catch (ImapParseException e) {
+        }
+
+        Assert.assertEquals("A6 OK NOTIFY completed\r\n", execute(handler, "A6 NOTIFY NONE"));
+        mbox.addMessage(null, new ParsedMessage("Subject: list message 2".getBytes(), false),
+                new DeliveryOptions().setFolderId(lists.getId()), null);
+        Assert.assertEquals("A7 OK NOOP completed\r\n", execute(handler, "A7 NOOP"));
+    }
+
     @Test
     public void testDoCOPYByNumber() throws Exception {
         
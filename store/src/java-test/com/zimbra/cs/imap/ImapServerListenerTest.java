@@ -0,0 +1,83 @@
+/*
+ * ***** BEGIN LICENSE BLOCK *****
+ * Zimbra Collaboration Suite Server
+ * Copyright (C) 2026 Synacor, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software Foundation,
+ * version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ * ***** END LICENSE BLOCK *****
+ */
+package com.zimbra.cs.imap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.zimbra.cs.account.Provisioning;
+import com.zimbra.cs.mailbox.MailboxTestUtil;
+import com.zimbra.soap.type.AccountWithModifications;
+
+public class ImapServerListenerTest {
+    private static final String SERVER = "listener.zimbra.com";
+
+    @BeforeClass
+    public static void init() throws Exception {
+        MailboxTestUtil.initProvisioning();
+        HashMap<String, Object> attrs = new HashMap<String, Object>();
+        attrs.put(Provisioning.A_zimbraServiceHostname, SERVER);
+        attrs.put(Provisioning.A_zimbraAdminPort, 7071);
+        Provisioning.getInstance().createServer(SERVER, attrs);
+    }
+
+    @Test
+    public void queueFull() throws Exception {
+        final List<Runnable> tasks = new ArrayList<Runnable>();
+        Executor executor = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                tasks.add(command);
+            }
+        };
+        ImapServerListener listener = new ImapServerListener(SERVER, 1, executor);
+        String acct1 = UUID.randomUUID().toString();
+        String acct2 = UUID.randomUUID().toString();
+        CountDownLatch caughtUp1 = new CountDownLatch(1);
+        CountDownLatch caughtUp2 = new CountDownLatch(1);
+        listener.addNotifyWhenCaughtUp(acct1, 5, caughtUp1);
+        listener.addNotifyWhenCaughtUp(acct2, 7, caughtUp2);
+
+        listener.queueNotifications(Arrays.asList(new AccountWithModifications(acct1, 5),
+                new AccountWithModifications(acct2, 7)));
+        Assert.assertEquals("queued", 1, listener.getQueuedCount());
+        Assert.assertTrue("lag", listener.getLagMillis() >= 0);
+        Assert.assertEquals("dropped", 1, listener.takeDroppedCount());
+        Assert.assertEquals("dropped reset", 0, listener.takeDroppedCount());
+        Assert.assertEquals("dropped account released", 0, caughtUp2.getCount());
+        Assert.assertTrue("dropped account to be removed from the WaitSet", listener.isRegistrationPending(acct2));
+        Assert.assertFalse("queued account kept", listener.isRegistrationPending(acct1));
+        Assert.assertEquals("queued account waiting", 1, caughtUp1.getCount());
+        Assert.assertEquals("one delivery scheduled", 1, tasks.size());
+
+        tasks.remove(0).run();
+        Assert.assertEquals("queued", 0, listener.getQueuedCount());
+        Assert.assertEquals("lag", 0, listener.getLagMillis());
+        Assert.assertEquals("delivered", 1, listener.getDeliveredCount());
+        Assert.assertEquals("queued account released", 0, caughtUp1.getCount());
+        Assert.assertTrue("nothing left to deliver", tasks.isEmpty());
+    }
+}
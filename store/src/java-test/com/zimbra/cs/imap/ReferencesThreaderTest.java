@@ -0,0 +1,92 @@
+/*
+ * ***** BEGIN LICENSE BLOCK *****
+ * Zimbra Collaboration Suite Server
+ * Copyright (C) 2026 Synacor, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software Foundation,
+ * version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ * ***** END LICENSE BLOCK *****
+ */
+package com.zimbra.cs.imap;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link ReferencesThreader}.
+ */
+public final class ReferencesThreaderTest {
+
+    private static ImapThreadCache.Refs refs(String messageId, String... references) {
+        return new ImapThreadCache.Refs(messageId, Arrays.asList(references));
+    }
+
+    private static String thread(ReferencesThreader threader) {
+        StringBuilder result = new StringBuilder();
+        threader.append(result);
+        return result.toString();
+    }
+
+    @Test
+    public void nesting() {
+        // the RFC 5256 example thread "(3 6 (4 23)(44 7 96))"
+        ReferencesThreader threader = new ReferencesThreader();
+        threader.add(3, refs("a"));
+        threader.add(6, refs("b", "a"));
+        threader.add(4, refs("c", "a", "b"));
+        threader.add(44, refs("d", "a", "b"));
+        threader.add(23, refs("e", "a", "b", "c"));
+        threader.add(7, refs("f", "a", "b", "d"));
+        threader.add(96, refs("g", "f"));
+        Assert.assertEquals("(3 6 (4 23)(44 7 96))", thread(threader));
+    }
+
+    @Test
+    public void missingParent() {
+        // replies to a message that isn't in the results are siblings under a dummy
+        ReferencesThreader threader = new ReferencesThreader();
+        threader.add(3, refs("b", "a"));
+        threader.add(5, refs("c", "a"));
+        threader.add(8, refs("d", "a", "c"));
+        Assert.assertEquals("((3)(5 8))", thread(threader));
+
+        // nearest referenced message that is present wins
+        threader = new ReferencesThreader();
+        threader.add(1, refs("a"));
+        threader.add(2, refs("c", "a", "b"));
+        Assert.assertEquals("(1 2)", thread(threader));
+    }
+
+    @Test
+    public void loops() {
+        ReferencesThreader threader = new ReferencesThreader();
+        threader.add(1, refs("a", "b"));
+        threader.add(2, refs("b", "a"));
+        threader.add(3, null);
+        threader.add(4, refs("a", "a"));
+        // 1 goes under 2, so 2 can't go under 1; the duplicate "a" maps to the first message with it
+        Assert.assertEquals("((2 1 4)(3))", thread(threader));
+    }
+
+    @Test
+    public void truncatedReferences() {
+        String[] references = new String[ImapThreadCache.MAX_REFERENCES + 5];
+        for (int i = 0; i < references.length; i++) {
+            references[i] = "ref" + i;
+        }
+        ImapThreadCache.Refs refs = refs("x", references);
+        Assert.assertEquals(ImapThreadCache.MAX_REFERENCES, refs.references.length);
+        Assert.assertEquals("ref" + (references.length - 1), refs.references[refs.references.length - 1]);
+        Assert.assertNull(new ImapThreadCache.Refs(null, Collections.<String>emptyList()).messageId);
+    }
+}
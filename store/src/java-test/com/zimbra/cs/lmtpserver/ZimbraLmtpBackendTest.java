@@ -0,0 +1,94 @@
+/*
+ * ***** BEGIN LICENSE BLOCK *****
+ * Zimbra Collaboration Suite Server
+ * Copyright (C) 2026 Synacor, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software Foundation,
+ * version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ * ***** END LICENSE BLOCK *****
+ */
+package com.zimbra.cs.lmtpserver;
+
+import java.io.ByteArrayInputStream;
+import java.util.HashMap;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.zimbra.cs.account.Account;
+import com.zimbra.cs.account.Provisioning;
+import com.zimbra.cs.mailbox.MailItem;
+import com.zimbra.cs.mailbox.Mailbox;
+import com.zimbra.cs.mailbox.MailboxManager;
+import com.zimbra.cs.mailbox.MailboxTestUtil;
+import com.zimbra.cs.mailbox.Message;
+
+public class ZimbraLmtpBackendTest {
+
+    private static final int NUM_RECIPIENTS = 10;
+
+    @BeforeClass
+    public static void init() throws Exception {
+        MailboxTestUtil.initServer();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        MailboxTestUtil.clearData();
+        Provisioning prov = Provisioning.getInstance();
+        for (int i = 0; i < NUM_RECIPIENTS; i++) {
+            prov.createAccount("rcpt" + i + "@zimbra.com", "secret", new HashMap<String, Object>());
+        }
+    }
+
+    private static LmtpEnvelope envelope(String... recipients) {
+        LmtpEnvelope env = new LmtpEnvelope();
+        env.setSender(new LmtpAddress("<sender@example.com>", new String[] { "BODY", "SIZE" }, null));
+        for (String recipient : recipients) {
+            env.addLocalRecipient(new LmtpAddress("<" + recipient + ">", null, null));
+        }
+        return env;
+    }
+
+    private static List<Message> inbox(String name) throws Exception {
+        Account acct = Provisioning.getInstance().getAccountByName(name);
+        Mailbox mbox = MailboxManager.getInstance().getMailboxByAccount(acct);
+        @SuppressWarnings("unchecked")
+        List<Message> msgs = (List<Message>) (List<?>) mbox.getItemList(null, MailItem.Type.MESSAGE,
+                Mailbox.ID_FOLDER_INBOX);
+        return msgs;
+    }
+
+    @Test
+    public void multipleRecipients() throws Exception {
+        String[] names = new String[NUM_RECIPIENTS + 1];
+        for (int i = 0; i < NUM_RECIPIENTS; i++) {
+            names[i] = "rcpt" + i + "@zimbra.com";
+        }
+        names[NUM_RECIPIENTS] = "nosuchuser@zimbra.com";
+        LmtpEnvelope env = envelope(names);
+        byte[] raw = ("From: sender@example.com\r\nTo: list@zimbra.com\r\nSubject: shared delivery\r\n" +
+                "Message-ID: <shared-delivery@example.com>\r\n\r\nhello all\r\n").getBytes();
+
+        new ZimbraLmtpBackend(LmtpConfig.getInstance()).deliver(env, new ByteArrayInputStream(raw), raw.length);
+
+        List<LmtpAddress> recipients = env.getLocalRecipients();
+        for (int i = 0; i < NUM_RECIPIENTS; i++) {
+            Assert.assertEquals(names[i], LmtpReply.DELIVERY_OK, recipients.get(i).getDeliveryStatus());
+            List<Message> msgs = inbox(names[i]);
+            Assert.assertEquals(names[i], 1, msgs.size());
+            Assert.assertEquals("shared delivery", msgs.get(0).getSubject());
+        }
+        Assert.assertEquals(LmtpReply.PERMANENT_FAILURE, recipients.get(NUM_RECIPIENTS).getDeliveryStatus());
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * ***** BEGIN LICENSE BLOCK *****
+ * Zimbra Collaboration Suite Server
+ * Copyright (C) 2026 Synacor, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software Foundation,
+ * version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ * ***** END LICENSE BLOCK *****
+ */
+package com.zimbra.cs.mailbox;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.mail.internet.InternetAddress;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+import com.zimbra.common.mailbox.ContactConstants;
+import com.zimbra.cs.account.Account;
+import com.zimbra.cs.account.Provisioning;
+import com.zimbra.cs.mailbox.ContactAutoComplete.ContactEntry;
+import com.zimbra.cs.mailbox.ContactAutoCompleteIndex.Entry;
+import com.zimbra.cs.mime.ParsedContact;
+
+public final class ContactAutoCompleteIndexTest {
+
+    private Account account;
+
+    @BeforeClass
+    public static void init() throws Exception {
+        MailboxTestUtil.initServer();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        account = Provisioning.getInstance().createAccount("acindex@zimbra.com", "secret",
+                new HashMap<String, Object>());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        ContactAutoCompleteIndex.getInstance().invalidate(account.getId());
+        MailboxTestUtil.clearData();
+    }
+
+    private static BitSet collect(ContactAutoCompleteIndex.Trie trie, String prefix) {
+        BitSet ids = new BitSet();
+        trie.collect(prefix, ids);
+        return ids;
+    }
+
+    private static BitSet bits(int... ids) {
+        BitSet bits = new BitSet();
+        for (int id : ids) {
+            bits.set(id);
+        }
+        return bits;
+    }
+
+    @Test
+    public void trie() throws Exception {
+        ContactAutoCompleteIndex.Trie trie = new ContactAutoCompleteIndex.Trie();
+        trie.add("john", 1);
+        trie.add("johnny", 2);
+        trie.add("jo", 3);
+        trie.add("jane", 4);
+        trie.add("john", 5);
+        Assert.assertEquals(bits(1, 2, 3, 5), collect(trie, "jo"));
+        Assert.assertEquals(bits(1, 2, 5), collect(trie, "john"));
+        Assert.assertEquals(bits(1, 2, 3, 4, 5), collect(trie, "j"));
+        Assert.assertEquals(bits(), collect(trie, "johnnyx"));
+
+        trie.remove("johnny", 2);
+        trie.remove("john", 1);
+        trie.remove("john", 42);
+        Assert.assertEquals(bits(3, 5), collect(trie, "jo"));
+        trie.remove("john", 5);
+        trie.remove("jo", 3);
+        trie.remove("jane", 4);
+        Assert.assertTrue(trie.isEmpty());
+    }
+
+    private static Entry entry(int id, int folderId, String first, String last, String email) {
+        Map<String, String> fields = new HashMap<String, String>();
+        fields.put(ContactConstants.A_firstName, first);
+        fields.put(ContactConstants.A_lastName, last);
+        fields.put(ContactConstants.A_email, email);
+        return new Entry(id, folderId, fields);
+    }
+
+    private static List<Integer> ids(List<Entry> entries) {
+        List<Integer> ids = new ArrayList<Integer>();
+        for (Entry entry : entries) {
+            ids.add(entry.id);
+        }
+        return ids;
+    }
+
+    @Test
+    public void search() throws Exception {
+        ContactAutoCompleteIndex.MailboxContacts contacts = new ContactAutoCompleteIndex.MailboxContacts();
+        contacts.add(entry(300, 7, "John", "Smith", "jsmith@zimbra.com"));
+        contacts.add(entry(301, 7, "Jane", "Smithers", "jane@zimbra.com"));
+        contacts.add(entry(302, 8, "Johnny", "Cash", "cash@zimbra.com"));
+        ImmutableSet<Integer> folders = ImmutableSet.of(7, 8);
+
+        Assert.assertEquals(ImmutableSet.of(300, 302), ImmutableSet.copyOf(ids(contacts.search("jo", folders))));
+        Assert.assertEquals(Collections.singletonList(300), ids(contacts.search("smith jo", folders)));
+        Assert.assertEquals(Collections.singletonList(301), ids(contacts.search("jane@", folders)));
+        Assert.assertEquals(Collections.singletonList(300), ids(contacts.search("jo", ImmutableSet.of(7))));
+
+        // replace
+        contacts.add(entry(300, 7, "Jon", "Smith", "jsmith@zimbra.com"));
+        Assert.assertEquals(Collections.singletonList(302), ids(contacts.search("joh", folders)));
+        contacts.remove(302);
+        Assert.assertTrue(contacts.search("joh", folders).isEmpty());
+        Assert.assertEquals(2, contacts.size());
+    }
+
+    private static void createContact(Mailbox mbox, String first, String last, String email) throws Exception {
+        Map<String, Object> fields = new HashMap<String, Object>();
+        fields.put(ContactConstants.A_firstName, first);
+        fields.put(ContactConstants.A_lastName, last);
+        fields.put(ContactConstants.A_email, email);
+        mbox.createContact(null, new ParsedContact(fields), Mailbox.ID_FOLDER_CONTACTS, null);
+    }
+
+    private List<String> autocomplete(Mailbox mbox, String query) throws Exception {
+        ContactAutoComplete autocomplete = new ContactAutoComplete(account, new OperationContext(mbox));
+        autocomplete.setIncludeGal(false);
+        List<String> emails = new ArrayList<String>();
+        for (ContactEntry entry : autocomplete.query(query, null, 10).entries) {
+            emails.add(entry.getEmail());
+        }
+        return emails;
+    }
+
+    @Test
+    public void maintained() throws Exception {
+        Mailbox mbox = MailboxManager.getInstance().getMailboxByAccount(account);
+        createContact(mbox, "First", "Last", "first@zimbra.com");
+        Assert.assertEquals(Collections.singletonList("\"First Last\" <first@zimbra.com>"), autocomplete(mbox, "fir"));
+        Assert.assertEquals(1, ContactAutoCompleteIndex.getInstance()
+                .search(mbox, "fir", ImmutableSet.of(Mailbox.ID_FOLDER_CONTACTS)).size());
+
+        // created and deleted after the index was loaded
+        createContact(mbox, "Fiona", "Other", "fiona@zimbra.com");
+        Assert.assertEquals(2, autocomplete(mbox, "fi").size());
+        List<Entry> fiona = ContactAutoCompleteIndex.getInstance()
+                .search(mbox, "fiona", ImmutableSet.of(Mailbox.ID_FOLDER_CONTACTS));
+        Assert.assertEquals(1, fiona.size());
+
+        mbox.move(null, fiona.get(0).id, MailItem.Type.CONTACT, Mailbox.ID_FOLDER_TRASH);
+        Assert.assertEquals(Collections.singletonList("\"First Last\" <first@zimbra.com>"), autocomplete(mbox, "fi"));
+        mbox.delete(null, fiona.get(0).id, MailItem.Type.CONTACT);
+        Assert.assertTrue(ContactAutoCompleteIndex.getInstance()
+                .search(mbox, "fiona", ImmutableSet.of(Mailbox.ID_FOLDER_TRASH)).isEmpty());
+    }
+
+    @Test
+    public void rankings() throws Exception {
+        Mailbox mbox = MailboxManager.getInstance().getMailboxByAccount(account);
+        createContact(mbox, "Alpha", "One", "alpha@zimbra.com");
+        createContact(mbox, "Alice", "Two", "alice@zimbra.com");
+        Assert.assertEquals(2, autocomplete(mbox, "al").size());
+
+        ContactRankings.increment(account.getId(),
+                Collections.singleton(new InternetAddress("alpha@zimbra.com")));
+        ContactRankings rankings = ContactAutoCompleteIndex.getInstance().getRankings(account.getId());
+        Assert.assertSame(rankings, ContactAutoCompleteIndex.getInstance().getRankings(account.getId()));
+        Assert.assertEquals(1, rankings.query("alpha@zimbra.com"));
+        Assert.assertEquals("\"Alpha One\" <alpha@zimbra.com>", autocomplete(mbox, "al").get(0));
+
+        ContactRankings.reset(account.getId());
+        Assert.assertEquals(0,
+                ContactAutoCompleteIndex.getInstance().getRankings(account.getId()).query("alpha@zimbra.com"));
+    }
+}
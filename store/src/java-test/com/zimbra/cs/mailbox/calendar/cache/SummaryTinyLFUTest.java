@@ -0,0 +1,144 @@
+/*
+ * ***** BEGIN LICENSE BLOCK *****
+ * Zimbra Collaboration Suite Server
+ * Copyright (C) 2026 Synacor, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software Foundation,
+ * version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ * ***** END LICENSE BLOCK *****
+ */
+
+package com.zimbra.cs.mailbox.calendar.cache;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SummaryTinyLFUTest {
+
+    private static CalSummaryKey key(String account, int folderId) {
+        return new CalSummaryKey(account, folderId);
+    }
+
+    private static CalendarData data(int folderId, int itemId) {
+        CalendarData calData = new CalendarData(folderId, 1, 0, 1000);
+        calData.addCalendarItem(new CalendarItemData(null, folderId, itemId, null, null, null,
+                0, 0, 0, 0, 0, "uid" + itemId, false, false, true, null, null));
+        return calData;
+    }
+
+    /**
+     * Looks up the key the way CalSummaryCache does: get, and put on a miss.
+     */
+    private static void lookup(SummaryTinyLFU cache, CalSummaryKey key) {
+        if (cache.get(key) == null) {
+            cache.put(key, data(key.getFolderId(), key.getFolderId()));
+        }
+    }
+
+    @Test
+    public void sketch() {
+        FrequencySketch sketch = new FrequencySketch(100);
+        for (int i = 0; i < 5; i++) {
+            sketch.increment("hot");
+        }
+        sketch.increment("warm");
+        Assert.assertEquals(5, sketch.frequency("hot"));
+        Assert.assertEquals(1, sketch.frequency("warm"));
+        Assert.assertEquals(0, sketch.frequency("cold"));
+        for (int i = 0; i < 100; i++) {
+            sketch.increment("hot");
+        }
+        Assert.assertTrue(sketch.frequency("hot") <= FrequencySketch.MAX_FREQUENCY);
+    }
+
+    @Test
+    public void sketchAging() {
+        FrequencySketch sketch = new FrequencySketch(10);
+        for (int i = 0; i < 8; i++) {
+            sketch.increment("old");
+        }
+        // 10x capacity increments trigger halving
+        for (int i = 0; i < 100; i++) {
+            sketch.increment("key" + i);
+        }
+        Assert.assertTrue(sketch.frequency("old") < 8);
+    }
+
+    @Test
+    public void sharedCalendarSurvivesScan() {
+        SummaryTinyLFU cache = new SummaryTinyLFU(50);
+        CalSummaryKey shared = key("shared", 10);
+        for (int i = 0; i < 10; i++) {
+            lookup(cache, shared);
+        }
+        Assert.assertNotNull(cache.get(shared));
+
+        // many one-off lookups of other calendars
+        for (int i = 0; i < 1000; i++) {
+            lookup(cache, key("user" + i, 10));
+        }
+        Assert.assertNotNull("heavily shared calendar evicted", cache.peek(shared));
+        Assert.assertTrue(cache.size() <= 50);
+    }
+
+    @Test
+    public void removeAndFolderLookup() {
+        SummaryTinyLFU cache = new SummaryTinyLFU(100);
+        cache.put(key("acct", 10), data(10, 257));
+        cache.put(key("acct", 11), data(11, 258));
+        cache.put(key("other", 10), data(10, 259));
+        Assert.assertEquals(3, cache.size());
+        Assert.assertEquals(11, cache.getFolderForItem("acct", 258));
+        Assert.assertEquals(SummaryTinyLFU.FOLDER_NOT_FOUND, cache.getFolderForItem("acct", 259));
+
+        cache.remove(key("acct", 11));
+        Assert.assertNull(cache.peek(key("acct", 11)));
+        Assert.assertEquals(SummaryTinyLFU.FOLDER_NOT_FOUND, cache.getFolderForItem("acct", 258));
+
+        cache.removeAccount("acct");
+        Assert.assertNull(cache.peek(key("acct", 10)));
+        Assert.assertNotNull(cache.peek(key("other", 10)));
+        Assert.assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void warm() {
+        SummaryTinyLFU cache = new SummaryTinyLFU(100);
+        CalSummaryKey hot = key("hot", 10);
+        CalSummaryKey cold = key("cold", 10);
+        for (int i = 0; i < 6; i++) {
+            lookup(cache, hot);
+        }
+        lookup(cache, cold);
+        List<SummaryTinyLFU.HotKey> keys = cache.getHotKeys();
+        Assert.assertEquals(2, keys.size());
+        Assert.assertEquals(hot, keys.get(0).key);
+        Assert.assertEquals(6, keys.get(0).frequency);
+
+        Map<CalSummaryKey, CalendarData> values = new HashMap<CalSummaryKey, CalendarData>();
+        values.put(hot, data(10, 257));
+        values.put(cold, data(10, 258));
+        SummaryTinyLFU restored = new SummaryTinyLFU(100);
+        restored.warm(keys, values);
+        Assert.assertEquals(2, restored.size());
+        Assert.assertEquals(10, restored.getFolderForItem("hot", 257));
+        Assert.assertEquals(6, restored.getHotKeys().get(0).frequency);
+
+        // keys without data are skipped
+        restored.clear();
+        restored.warm(keys, Collections.<CalSummaryKey, CalendarData>emptyMap());
+        Assert.assertEquals(0, restored.size());
+    }
+}
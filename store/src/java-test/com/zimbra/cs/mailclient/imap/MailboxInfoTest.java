@@ -35,6 +35,13 @@ public class MailboxInfoTest extends TestCase {
         assertEquals(5, info.getUnseen());
     }
 
+    public void testHighestModSeq() throws Exception {
+        MailboxInfo info = parseResponse(" \"INBOX\" (UIDNEXT 3 HIGHESTMODSEQ 7011231777)");
+        assertEquals(3, info.getUidNext());
+        assertEquals(7011231777L, info.getHighestModSeq());
+        assertEquals(-1, parseResponse(" \"INBOX\" (UIDNEXT 3)").getHighestModSeq());
+    }
+
     // AOL's IMAP server has been known to include "helpful" comments in the STATUS attribute list.
     // AOL is probably (incorrectly) copying their code from the SELECT/EXAMINE response;
     // those responses require a comment after the data -- don't ask why.
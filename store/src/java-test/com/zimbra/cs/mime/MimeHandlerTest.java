@@ -0,0 +1,131 @@
+/*
+ * ***** BEGIN LICENSE BLOCK *****
+ * Zimbra Collaboration Suite Server
+ * Copyright (C) 2026 Synacor, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software Foundation,
+ * version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ * ***** END LICENSE BLOCK *****
+ */
+package com.zimbra.cs.mime;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.activation.DataSource;
+
+import org.apache.lucene.document.Document;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.google.common.base.Charsets;
+import com.zimbra.common.util.ByteUtil;
+import com.zimbra.cs.convert.AttachmentInfo;
+import com.zimbra.cs.mailbox.MailboxTestUtil;
+
+/**
+ * Unit test for {@link MimeHandler}.
+ */
+public class MimeHandlerTest {
+
+    @BeforeClass
+    public static void init() throws Exception {
+        MailboxTestUtil.initServer();
+    }
+
+    public static final class ExternalHandler extends MimeHandler {
+        static final List<MimeHandler> CONVERTED = Collections.synchronizedList(new ArrayList<MimeHandler>());
+        static final List<String> THREADS = Collections.synchronizedList(new ArrayList<String>());
+
+        @Override
+        protected boolean runsExternally() {
+            return true;
+        }
+
+        @Override
+        protected void addFields(Document doc) {
+        }
+
+        @Override
+        protected String getContentImpl() throws MimeHandlerException {
+            CONVERTED.add(this);
+            THREADS.add(Thread.currentThread().getName());
+            InputStream is = null;
+            try {
+                is = getDataSource().getInputStream();
+                return new String(ByteUtil.getContent(is, -1), Charsets.UTF_8);
+            } catch (IOException e) {
+                throw new MimeHandlerException(e);
+            } finally {
+                ByteUtil.closeStream(is);
+            }
+        }
+
+        @Override
+        public String convert(AttachmentInfo doc, String urlPart) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean doConversion() {
+            return false;
+        }
+    }
+
+    @Test
+    public void detachedConversion() throws Exception {
+        final byte[] content = "converted text".getBytes(Charsets.UTF_8);
+        final AtomicInteger opened = new AtomicInteger();
+        DataSource source = new DataSource() {
+            @Override
+            public InputStream getInputStream() {
+                opened.incrementAndGet();
+                return new ByteArrayInputStream(content);
+            }
+
+            @Override
+            public OutputStream getOutputStream() throws IOException {
+                throw new IOException();
+            }
+
+            @Override
+            public String getContentType() {
+                return "application/x-test";
+            }
+
+            @Override
+            public String getName() {
+                return "test.bin";
+            }
+        };
+        ExternalHandler handler = new ExternalHandler();
+        handler.init(source);
+        handler.setPartName("2");
+        handler.setSize(content.length);
+
+        Assert.assertEquals("converted text", handler.getContent());
+        Assert.assertEquals(1, opened.get());
+        Assert.assertEquals(1, ExternalHandler.CONVERTED.size());
+        MimeHandler worker = ExternalHandler.CONVERTED.get(0);
+        Assert.assertNotSame(handler, worker);
+        Assert.assertNotSame(source, worker.getDataSource());
+        Assert.assertEquals("test.bin", worker.getDataSource().getName());
+        Assert.assertEquals("2", worker.getPartName());
+        Assert.assertTrue(ExternalHandler.THREADS.get(0).startsWith("Conversion-"));
+        Assert.assertSame(source, handler.getDataSource());
+    }
+}
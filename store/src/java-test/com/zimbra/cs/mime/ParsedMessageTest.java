@@ -25,14 +25,14 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 
 import com.google.common.io.ByteStreams;
+import com.zimbra.common.localconfig.LC;
 import com.zimbra.common.util.L10nUtil;
 import com.zimbra.common.util.Pair;
 import com.zimbra.common.util.ZimbraLog;
-import com.zimbra.cs.account.MockProvisioning;
-import com.zimbra.cs.account.Provisioning;
 import com.zimbra.cs.index.IndexDocument;
 import com.zimbra.cs.index.LuceneFields;
 import com.zimbra.cs.index.analysis.RFC822AddressTokenStream;
+import com.zimbra.cs.mailbox.MailboxTestUtil;
 
 /**
  * Unit test for {@link ParsedMessage}.
@@ -42,9 +42,8 @@ import com.zimbra.cs.index.analysis.RFC822AddressTokenStream;
 public final class ParsedMessageTest {
 
     @BeforeClass
-    public static void init() {
-        System.setProperty("log4j.configuration", "log4j-test.properties");
-        Provisioning.setInstance(new MockProvisioning());
+    public static void init() throws Exception {
+        MailboxTestUtil.initServer();
     }
 
     /**
@@ -136,6 +135,18 @@ public final class ParsedMessageTest {
     }
 
 
+    @Test
+    public void sameDefaultCharset() throws Exception {
+        ParsedMessage pm = new ParsedMessage("Subject: Re: foo\r\n\r\nbody".getBytes(), false);
+        pm.prepareForSharedDelivery("utf-8");
+        String subject = pm.getSubject();
+        pm.setDefaultCharset("utf-8");
+        Assert.assertSame("subject kept", subject, pm.getSubject());
+        pm.setDefaultCharset("iso-8859-1");
+        Assert.assertNotSame("subject reparsed", subject, pm.getSubject());
+        Assert.assertEquals("subject", "Re: foo", pm.getSubject());
+    }
+
     @Test
     public void encryptedFragment() throws Exception {
         String msgWasEncrypted = L10nUtil.getMessage(L10nUtil.MsgKey.encryptedMessageFragment);
@@ -152,4 +163,50 @@ public final class ParsedMessageTest {
         pm = new ParsedMessage(raw, false);
         Assert.assertFalse("normal message fragment", pm.getFragment(null).equals(msgWasEncrypted));
     }
+
+    @Test
+    public void extractedTextLimit() throws Exception {
+        StringBuilder raw = new StringBuilder();
+        raw.append("From: sender@zimbra.com\r\n");
+        raw.append("To: rcpt@zimbra.com\r\n");
+        raw.append("Subject: attachments\r\n");
+        raw.append("Content-Type: multipart/mixed; boundary=\"BOUNDARY\"\r\n\r\n");
+        for (int i = 0; i < 3; i++) {
+            raw.append("--BOUNDARY\r\n");
+            if (i == 0) {
+                raw.append("Content-Type: text/plain\r\n\r\n");
+            } else {
+                raw.append("Content-Type: text/plain; name=\"part").append(i).append(".txt\"\r\n");
+                raw.append("Content-Disposition: attachment; filename=\"part").append(i).append(".txt\"\r\n\r\n");
+            }
+            for (int j = 0; j < 100; j++) {
+                raw.append("word").append(i).append("x ");
+            }
+            raw.append("\r\n");
+        }
+        raw.append("--BOUNDARY--\r\n");
+
+        ParsedMessage pm = new ParsedMessage(raw.toString().getBytes(), true);
+        Assert.assertEquals(4, pm.getLuceneDocuments().size());
+        Assert.assertTrue(pm.getExtractedTextLength() >= 3 * 700);
+
+        int limit = LC.message_analysis_text_limit.intValue();
+        LC.message_analysis_text_limit.setDefault(1000);
+        try {
+            pm = new ParsedMessage(raw.toString().getBytes(), true);
+            // every part is still indexed, but only the first 1000 characters of text
+            List<IndexDocument> docs = pm.getLuceneDocuments();
+            Assert.assertEquals(4, docs.size());
+            Assert.assertEquals(1000, pm.getExtractedTextLength());
+            StringBuilder content = new StringBuilder();
+            for (IndexDocument doc : docs) {
+                content.append(doc.toDocument().getFieldable(LuceneFields.L_CONTENT).stringValue()).append('\n');
+            }
+            Assert.assertTrue(content.indexOf("word0x") >= 0);
+            Assert.assertTrue(content.indexOf("word1x") >= 0);
+            Assert.assertTrue(content.indexOf("word2x") < 0);
+        } finally {
+            LC.message_analysis_text_limit.setDefault(limit);
+        }
+    }
 }
@@ -0,0 +1,137 @@
+/*
+ * ***** BEGIN LICENSE BLOCK *****
+ * Zimbra Collaboration Suite Server
+ * Copyright (C) 2026 Synacor, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software Foundation,
+ * version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ * ***** END LICENSE BLOCK *****
+ */
+package com.zimbra.cs.server;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.apache.mina.core.buffer.IoBuffer;
+import org.apache.mina.core.service.IoHandlerAdapter;
+import org.apache.mina.core.session.DummySession;
+import org.apache.mina.core.session.IoSession;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
+import com.google.common.io.ByteStreams;
+
+/**
+ * Unit test for {@link DeflateStreams} and {@link NioCompressionFilter}.
+ */
+public final class CompressionTest {
+
+    private static final String RESPONSE = "* 1 FETCH (BODY[] {1000}\r\n" + Strings.repeat("0123456789", 100) + ")\r\n";
+
+    private static byte[] deflate(Deflater deflater, String s) {
+        deflater.setInput(s.getBytes(Charsets.UTF_8));
+        byte[] buf = new byte[4096];
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int len;
+        do {
+            len = deflater.deflate(buf, 0, buf.length, Deflater.SYNC_FLUSH);
+            out.write(buf, 0, len);
+        } while (len == buf.length);
+        return out.toByteArray();
+    }
+
+    private static String inflate(Inflater inflater, byte[] b) throws Exception {
+        inflater.setInput(b);
+        byte[] buf = new byte[4096];
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        while (!inflater.needsInput()) {
+            out.write(buf, 0, inflater.inflate(buf));
+        }
+        return new String(out.toByteArray(), Charsets.UTF_8);
+    }
+
+    @Test
+    public void streams() throws Exception {
+        CompressionStats stats = new CompressionStats();
+        ByteArrayOutputStream wire = new ByteArrayOutputStream();
+        OutputStream out = DeflateStreams.deflating(wire, Deflater.DEFAULT_COMPRESSION, stats);
+        out.write(RESPONSE.getBytes(Charsets.UTF_8));
+        out.flush();
+        // the client can decompress the whole response without waiting for more
+        Inflater client = new Inflater(true);
+        Assert.assertEquals(RESPONSE, inflate(client, wire.toByteArray()));
+        Assert.assertEquals(RESPONSE.length(), stats.getRawBytesOut());
+        Assert.assertEquals(wire.size(), stats.getWireBytesOut());
+        Assert.assertTrue(stats.getRatioPercent() < 20);
+
+        Deflater clientOut = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        byte[] request = deflate(clientOut, "A1 NOOP\r\nA2 LOGOUT\r\n");
+        InputStream in = DeflateStreams.inflating(new ByteArrayInputStream(request), stats);
+        Assert.assertEquals("A1 NOOP\r\nA2 LOGOUT\r\n", new String(ByteStreams.toByteArray(in), Charsets.UTF_8));
+        Assert.assertEquals(request.length, stats.getWireBytesIn());
+        Assert.assertEquals(20, stats.getRawBytesIn());
+        out.close();
+        out.close();
+    }
+
+    @Test
+    public void filter() throws Exception {
+        DummySession session = new DummySession();
+        TestIoHandler handler = new TestIoHandler();
+        session.setHandler(handler);
+        CompressionStats stats = new CompressionStats();
+        session.getFilterChain().addLast("deflate", new NioCompressionFilter(Deflater.DEFAULT_COMPRESSION, stats));
+        session.setAttribute(NioCompressionFilter.DISABLE_COMPRESSION_ONCE, true);
+
+        session.write(IoBuffer.wrap("A1 OK DEFLATE active\r\n".getBytes(Charsets.UTF_8)));
+        session.write(IoBuffer.wrap(RESPONSE.getBytes(Charsets.UTF_8)));
+        session.write(IoBuffer.wrap("A2 OK FETCH completed\r\n".getBytes(Charsets.UTF_8)));
+        Assert.assertEquals(3, handler.sent.size());
+        Assert.assertEquals("A1 OK DEFLATE active\r\n", new String(handler.sent.get(0), Charsets.UTF_8));
+        Inflater client = new Inflater(true);
+        Assert.assertEquals(RESPONSE, inflate(client, handler.sent.get(1)));
+        Assert.assertEquals("A2 OK FETCH completed\r\n", inflate(client, handler.sent.get(2)));
+        Assert.assertEquals(handler.sent.get(1).length + handler.sent.get(2).length, stats.getWireBytesOut());
+
+        Deflater clientOut = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        session.getFilterChain().fireMessageReceived(IoBuffer.wrap(deflate(clientOut, "A3 NOOP\r\n")));
+        session.getFilterChain().fireMessageReceived(IoBuffer.wrap(deflate(clientOut, "A4 LOGOUT\r\n")));
+        Assert.assertEquals("A3 NOOP\r\nA4 LOGOUT\r\n", handler.received.toString());
+    }
+
+    private static final class TestIoHandler extends IoHandlerAdapter {
+        private final List<byte[]> sent = new ArrayList<byte[]>();
+        private final StringBuilder received = new StringBuilder();
+
+        @Override
+        public void messageSent(IoSession session, Object message) {
+            IoBuffer buf = (IoBuffer) message;
+            byte[] b = new byte[buf.remaining()];
+            buf.get(b);
+            sent.add(b);
+        }
+
+        @Override
+        public void messageReceived(IoSession session, Object message) {
+            IoBuffer buf = (IoBuffer) message;
+            byte[] b = new byte[buf.remaining()];
+            buf.get(b);
+            received.append(new String(b, Charsets.UTF_8));
+        }
+    }
+}
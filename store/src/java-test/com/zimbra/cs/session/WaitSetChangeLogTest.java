@@ -0,0 +1,215 @@
+/*
+ * ***** BEGIN LICENSE BLOCK *****
+ * Zimbra Collaboration Suite Server
+ * Copyright (C) 2026 Synacor, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software Foundation,
+ * version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ * ***** END LICENSE BLOCK *****
+ */
+package com.zimbra.cs.session;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.zimbra.cs.account.Account;
+import com.zimbra.cs.account.Provisioning;
+import com.zimbra.cs.mailbox.DeliveryOptions;
+import com.zimbra.cs.mailbox.MailItem;
+import com.zimbra.cs.mailbox.Mailbox;
+import com.zimbra.cs.mailbox.MailboxManager;
+import com.zimbra.cs.mailbox.MailboxTestUtil;
+import com.zimbra.cs.mailbox.Message;
+import com.zimbra.cs.mime.ParsedMessage;
+import com.zimbra.cs.service.util.SyncToken;
+
+public final class WaitSetChangeLogTest {
+    private static final Set<MailItem.Type> MESSAGES = EnumSet.of(MailItem.Type.MESSAGE);
+
+    private Mailbox mbox;
+
+    @BeforeClass
+    public static void init() throws Exception {
+        MailboxTestUtil.initServer();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        MailboxTestUtil.clearData();
+        Account acct = Provisioning.getInstance().createAccount("waitset@zimbra.com", "secret",
+                new HashMap<String, Object>());
+        mbox = MailboxManager.getInstance().getMailboxByAccount(acct);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        MailboxTestUtil.clearData();
+    }
+
+    private void addMessage(int folderId) throws Exception {
+        mbox.addMessage(null, new ParsedMessage("Subject: waitset".getBytes(), false),
+                new DeliveryOptions().setFolderId(folderId), null);
+    }
+
+    @Test
+    public void ring() throws Exception {
+        WaitSetChangeLog log = new WaitSetChangeLog(2);
+        PendingLocalModifications pms = new PendingLocalModifications();
+        pms.changedTypes.add(MailItem.Type.MESSAGE);
+
+        log.mailboxChanged("unwatched", 1, pms, null);
+        Assert.assertEquals("unwatched account not logged", 0, log.getEntryCount());
+
+        log.watch("a1", false);
+        log.watch("a2", true);
+        log.mailboxChanged("a1", 1, pms, null);
+        log.mailboxChanged("a2", 2, pms, null);
+        log.mailboxChanged("a1", 3, pms, null);
+        Assert.assertEquals("entries", 2, log.getEntryCount());
+        Assert.assertEquals("watched accounts", 2, log.getWatchedAccountCount());
+        Assert.assertTrue("bytes per account", log.getBytesPerWatchedAccount() > 0);
+
+        WaitSetChangeLog.Changes changes = log.getChangesSince(0);
+        Assert.assertTrue("overflowed", changes.overflowed);
+        Assert.assertEquals("next", 3, changes.next);
+        Assert.assertEquals("entries", 2, changes.entries.size());
+        Assert.assertNotNull("mods kept for folder interests", changes.entries.get(0).mods);
+        Assert.assertNull("mods not kept without folder interests", changes.entries.get(1).mods);
+
+        changes = log.getChangesSince(3);
+        Assert.assertFalse("up to date", changes.overflowed);
+        Assert.assertTrue("no entries", changes.entries.isEmpty());
+
+        log.unwatch("a1", false);
+        log.unwatch("a2", true);
+        Assert.assertEquals("watched accounts", 0, log.getWatchedAccountCount());
+    }
+
+    @Test
+    public void signalled() throws Exception {
+        SomeAccountsWaitSet ws = new SomeAccountsWaitSet(mbox.getAccountId(), "WaitSet-test", MESSAGES);
+        MailboxManager.getInstance().addListener(ws);
+        try {
+            ws.addAccountErrors(Collections.singletonList(new WaitSetAccount(mbox.getAccountId(), null, MESSAGES,
+                    Collections.singleton(Mailbox.ID_FOLDER_INBOX))));
+            addMessage(Mailbox.ID_FOLDER_INBOX);
+            addMessage(Mailbox.ID_FOLDER_INBOX);
+
+            WaitSetCallback cb = new WaitSetCallback();
+            ws.doWait(cb, "0", null, null);
+            Assert.assertTrue("completed", cb.completed);
+            Assert.assertEquals("signalled", Collections.singleton(mbox.getAccountId()), cb.signalledAccounts);
+            Assert.assertEquals("folder interests", Collections.singleton(Mailbox.ID_FOLDER_INBOX),
+                    cb.folderInterests.get(mbox.getAccountId()));
+            int messages = 0;
+            for (Object created : cb.pendingModifications.get(mbox.getAccountId()).created.values()) {
+                if (created instanceof Message) {
+                    messages++;
+                }
+            }
+            Assert.assertEquals("both messages", 2, messages);
+
+            // a change while the callback is waiting is sent straight away
+            cb = new WaitSetCallback();
+            ws.doWait(cb, "2", null, null);
+            Assert.assertFalse("nothing new", cb.completed);
+            addMessage(Mailbox.ID_FOLDER_INBOX);
+            Assert.assertTrue("woken", cb.completed);
+        } finally {
+            ws.destroy();
+        }
+    }
+
+    private static PendingLocalModifications folderChange(int folderId) {
+        PendingLocalModifications pms = new PendingLocalModifications();
+        pms.changedTypes.add(MailItem.Type.MESSAGE);
+        pms.addChangedParentFolderId(folderId);
+        return pms;
+    }
+
+    @Test
+    public void busyLog() throws Exception {
+        WaitSetChangeLog log = new WaitSetChangeLog(2);
+        SomeAccountsWaitSet ws = new SomeAccountsWaitSet("owner", "WaitSet-busy", MESSAGES, log);
+        ws.addAccountErrors(Collections.singletonList(new WaitSetAccount("a1", null, MESSAGES,
+                Collections.singleton(Mailbox.ID_FOLDER_INBOX))));
+        log.watch("a2", false);
+
+        // the log wraps several times while nobody is polling the WaitSet
+        PendingLocalModifications pms = folderChange(Mailbox.ID_FOLDER_INBOX);
+        log.mailboxChanged("a1", 1, pms, null);
+        for (int i = 1; i <= 5; i++) {
+            log.mailboxChanged("a2", i, folderChange(Mailbox.ID_FOLDER_INBOX), null);
+        }
+
+        WaitSetCallback cb = new WaitSetCallback();
+        ws.doWait(cb, "0", null, null);
+        Assert.assertTrue("completed", cb.completed);
+        Assert.assertTrue("no errors", cb.errors.isEmpty());
+        Assert.assertEquals("signalled", Collections.singleton("a1"), cb.signalledAccounts);
+        Assert.assertSame("modifications", pms, cb.pendingModifications.get("a1"));
+        Assert.assertTrue("retained modifications counted", log.getBytesPerWatchedAccount() > 0);
+    }
+
+    @Test
+    public void overflow() throws Exception {
+        WaitSetChangeLog log = new WaitSetChangeLog(2);
+        SomeAccountsWaitSet ws = new SomeAccountsWaitSet("owner", "WaitSet-overflow", MESSAGES, log);
+        ws.addAccountErrors(Collections.singletonList(new WaitSetAccount("a1", null, MESSAGES,
+                Collections.singleton(Mailbox.ID_FOLDER_INBOX))));
+
+        // changes that are overwritten before the WaitSet reads them
+        log.removeWaitSet(ws);
+        for (int i = 1; i <= 3; i++) {
+            log.mailboxChanged("a1", i, folderChange(Mailbox.ID_FOLDER_INBOX), null);
+        }
+        log.addWaitSet(ws);
+
+        WaitSetCallback cb = new WaitSetCallback();
+        ws.doWait(cb, "0", null, null);
+        Assert.assertTrue("completed", cb.completed);
+        Assert.assertEquals("errors", 1, cb.errors.size());
+        Assert.assertEquals("account", "a1", cb.errors.get(0).accountId);
+        Assert.assertEquals("resync", WaitSetError.Type.RESYNC_REQUIRED, cb.errors.get(0).error);
+    }
+
+    @Test
+    public void filtered() throws Exception {
+        SomeAccountsWaitSet ws = new SomeAccountsWaitSet(mbox.getAccountId(), "WaitSet-test", MESSAGES);
+        MailboxManager.getInstance().addListener(ws);
+        try {
+            ws.addAccountErrors(Collections.singletonList(new WaitSetAccount(mbox.getAccountId(), null, MESSAGES,
+                    Collections.singleton(Mailbox.ID_FOLDER_TRASH))));
+            addMessage(Mailbox.ID_FOLDER_INBOX);
+
+            WaitSetCallback cb = new WaitSetCallback();
+            ws.doWait(cb, "0", null, null);
+            Assert.assertFalse("other folder", cb.completed);
+            ws.doneWaiting(cb);
+
+            // a sync token at the mailbox's last change is up to date
+            SyncToken token = new SyncToken(mbox.getLastChangeID());
+            ws.doWait(cb, "0", null, Collections.singletonList(new WaitSetAccount(mbox.getAccountId(), token,
+                    MESSAGES, null)));
+            Assert.assertFalse("up to date", cb.completed);
+        } finally {
+            ws.destroy();
+        }
+        Assert.assertFalse("unwatched", WaitSetChangeLog.getInstance().isWatched(mbox.getAccountId()));
+    }
+}
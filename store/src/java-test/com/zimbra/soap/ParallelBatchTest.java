@@ -0,0 +1,145 @@
+/*
+ * ***** BEGIN LICENSE BLOCK *****
+ * Zimbra Collaboration Suite Server
+ * Copyright (C) 2026 Synacor, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software Foundation,
+ * version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ * ***** END LICENSE BLOCK *****
+ */
+package com.zimbra.soap;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.zimbra.common.soap.Element;
+import com.zimbra.common.soap.MailConstants;
+import com.zimbra.common.soap.SoapProtocol;
+import com.zimbra.cs.account.Account;
+import com.zimbra.cs.account.Provisioning;
+import com.zimbra.cs.mailbox.Mailbox;
+import com.zimbra.cs.mailbox.MailboxTestUtil;
+import com.zimbra.cs.service.AuthProvider;
+import com.zimbra.cs.service.mail.ServiceTestUtil;
+
+public class ParallelBatchTest {
+
+    private Account acct;
+
+    @BeforeClass
+    public static void init() throws Exception {
+        MailboxTestUtil.initServer();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        MailboxTestUtil.clearData();
+        acct = Provisioning.getInstance().createAccount("test@zimbra.com", "secret", new HashMap<String, Object>());
+    }
+
+    private static Element getFolder(String id) {
+        Element req = new Element.XMLElement(MailConstants.GET_FOLDER_REQUEST);
+        req.addAttribute(SoapEngine.A_REQUEST_CORRELATOR, id);
+        return req;
+    }
+
+    private static Element getMsg(String id, String msgId) {
+        Element req = new Element.XMLElement(MailConstants.GET_MSG_REQUEST);
+        req.addAttribute(SoapEngine.A_REQUEST_CORRELATOR, id);
+        req.addNonUniqueElement(MailConstants.E_MSG).addAttribute(MailConstants.A_ID, msgId);
+        return req;
+    }
+
+    private static Element createFolder(String id, String name) {
+        Element req = new Element.XMLElement(MailConstants.CREATE_FOLDER_REQUEST);
+        req.addAttribute(SoapEngine.A_REQUEST_CORRELATOR, id);
+        req.addNonUniqueElement(MailConstants.E_FOLDER).addAttribute(MailConstants.A_NAME, name)
+                .addAttribute(MailConstants.A_FOLDER, Mailbox.ID_FOLDER_USER_ROOT);
+        return req;
+    }
+
+    private List<Element> run(boolean contOnError, Element... requests) throws Exception {
+        Map<String, Object> context = ServiceTestUtil.getRequestContext(acct);
+        SoapEngine engine = (SoapEngine) context.get(SoapEngine.ZIMBRA_ENGINE);
+        ZimbraSoapContext zsc = (ZimbraSoapContext) context.get(SoapEngine.ZIMBRA_CONTEXT);
+        List<Element> list = new ArrayList<Element>();
+        for (Element req : requests) {
+            list.add(req);
+        }
+        return new ParallelBatch(engine, context, zsc, null, contOnError, true).run(list);
+    }
+
+    private static boolean hasFolder(Element getFolderResponse, String name) throws Exception {
+        for (Element folder : getFolderResponse.getElement(MailConstants.E_FOLDER).listElements(MailConstants.E_FOLDER)) {
+            if (name.equals(folder.getAttribute(MailConstants.A_NAME, null))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Test
+    public void orderAndBarrier() throws Exception {
+        List<Element> responses = run(false, getFolder("1"), getFolder("2"), getFolder("3"), getFolder("4"),
+                getFolder("5"), createFolder("6", "batch"), getFolder("7"), getFolder("8"));
+        Assert.assertEquals(8, responses.size());
+        for (int i = 0; i < responses.size(); i++) {
+            Assert.assertEquals(String.valueOf(i + 1), responses.get(i).getAttribute(SoapEngine.A_REQUEST_CORRELATOR));
+        }
+        Assert.assertEquals(MailConstants.CREATE_FOLDER_RESPONSE.getName(), responses.get(5).getName());
+        // the write is only started once the reads before it are done, and the reads after it see it
+        Assert.assertFalse(hasFolder(responses.get(4), "batch"));
+        Assert.assertTrue(hasFolder(responses.get(6), "batch"));
+        Assert.assertTrue(hasFolder(responses.get(7), "batch"));
+    }
+
+    @Test
+    public void stopOnError() throws Exception {
+        List<Element> responses = run(false, getFolder("1"), getMsg("2", "999"), getFolder("3"),
+                createFolder("4", "batch"));
+        Assert.assertEquals(2, responses.size());
+        Assert.assertTrue(SoapProtocol.Soap12.isFault(responses.get(1)));
+        Assert.assertEquals("2", responses.get(1).getAttribute(SoapEngine.A_REQUEST_CORRELATOR));
+
+        // the folder wasn't created
+        responses = run(false, getFolder("1"));
+        Assert.assertFalse(hasFolder(responses.get(0), "batch"));
+    }
+
+    @Test
+    public void continueOnError() throws Exception {
+        List<Element> responses = run(true, getMsg("1", "999"), getFolder("2"), createFolder("3", "batch"));
+        Assert.assertEquals(3, responses.size());
+        Assert.assertTrue(SoapProtocol.Soap12.isFault(responses.get(0)));
+        Assert.assertFalse(SoapProtocol.Soap12.isFault(responses.get(1)));
+        Assert.assertFalse(SoapProtocol.Soap12.isFault(responses.get(2)));
+    }
+
+    @Test
+    public void ownAuthToken() throws Exception {
+        ZimbraSoapContext zsc = new ZimbraSoapContext(AuthProvider.getAuthToken(acct), acct.getId(),
+                SoapProtocol.Soap12, SoapProtocol.Soap12);
+        ZimbraSoapContext copy = zsc.copyForParallelRequest();
+        Assert.assertNotNull(copy);
+        Assert.assertEquals(acct.getId(), copy.getRequestedAccountId());
+        Assert.assertEquals(zsc.getHopCount(), copy.getHopCount());
+
+        // proxying a sub-request sets the proxy token on its own copy only
+        copy.getAuthToken().setProxyAuthToken("proxy");
+        Assert.assertNull(zsc.getAuthToken().getProxyAuthToken());
+    }
+}
@@ -1044,6 +1044,8 @@ public class AttributeManagerUtil {
        String defaultValue = defaultValue(ai, ac);
        String dynamic = ai.isDynamic() ? "dynamicComponent" : "null";
 
+       // Non-ephemeral boolean, integer, long and duration getters go through the typed Entry accessors with
+       // skipEphemeralCheck set, which parse each value once into the entry's AttributeSnapshot.
        switch (type) {
            case TYPE_BOOLEAN:
                defaultValue = "TRUE".equalsIgnoreCase(defaultValue) ? "true" : "false";
@@ -0,0 +1,183 @@
+/*
+ * ***** BEGIN LICENSE BLOCK *****
+ * Zimbra Collaboration Suite Server
+ * Copyright (C) 2026 Synacor, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software Foundation,
+ * version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ * ***** END LICENSE BLOCK *****
+ */
+
+package com.zimbra.cs.account;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.collect.MapMaker;
+import com.zimbra.common.account.ProvisioningConstants;
+import com.zimbra.common.localconfig.LC;
+import com.zimbra.common.service.ServiceException;
+import com.zimbra.common.util.DateUtil;
+import com.zimbra.cs.util.MemoryUnitUtil;
+
+/**
+ * Parsed values of the boolean, integer, long and duration attributes of an {@link Entry}, with defaults and
+ * inheritance (COS, domain, global config) already applied.
+ * <p>
+ * A value is parsed the first time it is read and then served from the snapshot until the entry is reloaded or
+ * modified, at which point {@link Entry#resetData()} drops the snapshot.  Entries inheriting attributes share the
+ * default maps of their COS, domain or config, which are refilled in place; those call {@link #defaultsChanged(Map)}
+ * so that the snapshots taken through that map, and only those, are discarded on their next use.
+ */
+final class AttributeSnapshot {
+
+    static final boolean ENABLED = LC.ldap_cache_typed_attrs_enabled.booleanValue();
+
+    /** Attribute is unset or its value can't be parsed: the caller's default applies. */
+    private static final Object UNSET = new Object();
+
+    /** Versions of the default maps snapshots were taken through, by identity. */
+    private static final ConcurrentMap<Map<String, Object>, AtomicLong> defaultsVersions =
+            new MapMaker().weakKeys().makeMap();
+
+    enum Kind {
+        BOOLEAN {
+            @Override
+            Object parse(String v) {
+                return ProvisioningConstants.TRUE.equals(v) ? Boolean.TRUE : Boolean.FALSE;
+            }
+        },
+        INTEGER {
+            @Override
+            Object parse(String v) {
+                try {
+                    return Integer.valueOf(v);
+                } catch (NumberFormatException e) {
+                    return UNSET;
+                }
+            }
+        },
+        LONG {
+            @Override
+            Object parse(String v) {
+                try {
+                    if (MemoryUnitUtil.isMemoryUnit(v)) {
+                        return new MemoryUnitUtil(1024).convertToBytes(v);
+                    }
+                    return Long.valueOf(v);
+                } catch (NumberFormatException e) {
+                    return UNSET;
+                }
+            }
+        },
+        DURATION {
+            @Override
+            Object parse(String v) {
+                try {
+                    return DateUtil.getTimeInterval(v);
+                } catch (ServiceException e) {
+                    return UNSET;
+                }
+            }
+        };
+
+        /**
+         * @param v attribute value, not null
+         */
+        abstract Object parse(String v);
+
+        /**
+         * @return the parsed value, or null if the attribute is unset or can't be parsed
+         */
+        Object parseOrNull(String v) {
+            if (v == null) {
+                return null;
+            }
+            Object parsed = parse(v);
+            return parsed == UNSET ? null : parsed;
+        }
+    }
+
+    private final AtomicLong[] versions;
+    private final long[] taken;
+    private final Map<Kind, ConcurrentMap<String, Object>> values =
+            new EnumMap<Kind, ConcurrentMap<String, Object>>(Kind.class);
+
+    /**
+     * @param defaults the default maps the entry reads through, any of which may be null
+     */
+    @SafeVarargs
+    AttributeSnapshot(Map<String, Object>... defaults) {
+        List<AtomicLong> list = new ArrayList<AtomicLong>(defaults.length);
+        for (Map<String, Object> map : defaults) {
+            if (map != null) {
+                AtomicLong version = defaultsVersions.get(map);
+                if (version == null) {
+                    AtomicLong existing = defaultsVersions.putIfAbsent(map, version = new AtomicLong());
+                    if (existing != null) {
+                        version = existing;
+                    }
+                }
+                list.add(version);
+            }
+        }
+        versions = list.toArray(new AtomicLong[list.size()]);
+        taken = new long[versions.length];
+        for (int i = 0; i < versions.length; i++) {
+            taken[i] = versions[i].get();
+        }
+        for (Kind kind : Kind.values()) {
+            values.put(kind, new ConcurrentHashMap<String, Object>(8, 0.75f, 1));
+        }
+    }
+
+    /**
+     * Called when a default map other entries inherit from has been refilled.
+     */
+    static void defaultsChanged(Map<String, Object> defaults) {
+        AtomicLong version = defaultsVersions.get(defaults);
+        if (version != null) {
+            version.incrementAndGet();
+        }
+    }
+
+    /**
+     * Whether none of the default maps has been refilled since the snapshot was taken.
+     */
+    boolean isCurrent() {
+        for (int i = 0; i < versions.length; i++) {
+            if (versions[i].get() != taken[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the parsed value of the attribute, loading it from the entry if it isn't in the snapshot yet.
+     *
+     * @return the parsed value, or null if the attribute is unset or can't be parsed
+     */
+    Object get(Kind kind, String name, Entry entry) {
+        ConcurrentMap<String, Object> map = values.get(kind);
+        Object v = map.get(name);
+        if (v == null) {
+            String raw = entry.getAttr(name, true, true);
+            v = raw == null ? UNSET : kind.parse(raw);
+            map.put(name, v);
+        }
+        return v == UNSET ? null : v;
+    }
+}
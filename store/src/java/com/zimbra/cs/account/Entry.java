@@ -57,7 +57,6 @@ import com.zimbra.cs.ephemeral.EphemeralStore.FailureMode;
 import com.zimbra.cs.ephemeral.LdapEntryLocation;
 import com.zimbra.cs.ephemeral.LdapEphemeralStore;
 import com.zimbra.cs.ldap.LdapDateUtil;
-import com.zimbra.cs.util.MemoryUnitUtil;
 
 public abstract class Entry implements ToZJSONObject {
 
@@ -98,6 +97,7 @@ public abstract class Entry implements ToZJSONObject {
     private Map<String, Object> mData;
     private Map<String, Set<String>> mMultiAttrSetCache;
     private Map<String, Set<byte[]>> mMultiBinaryAttrSetCache;
+    private volatile AttributeSnapshot mSnapshot;
     private Locale mLocale;
     private final Provisioning mProvisioning;
     private AttributeManager mAttrMgr;
@@ -199,9 +199,28 @@ public abstract class Entry implements ToZJSONObject {
             mMultiAttrSetCache.clear();
         if (mData != null)
             mData.clear();
+        mSnapshot = null;
         mLocale = null;
     }
 
+    /**
+     * Returns the parsed value of a boolean, integer, long or duration attribute.
+     *
+     * @return the parsed value, or null if the attribute is unset or can't be parsed
+     */
+    private Object getTypedAttr(AttributeSnapshot.Kind kind, String name, boolean skipEphemeralCheck) {
+        if (!AttributeSnapshot.ENABLED || (!skipEphemeralCheck && mAttrMgr.isEphemeral(name))) {
+            return kind.parseOrNull(getAttr(name, true, skipEphemeralCheck));
+        }
+        AttributeSnapshot snapshot = mSnapshot;
+        if (snapshot == null || !snapshot.isCurrent()) {
+            // install before reading any value, so that a concurrent resetData() drops what this one loads
+            snapshot = new AttributeSnapshot(mDefaults, mSecondaryDefaults, overrideDefaults);
+            mSnapshot = snapshot;
+        }
+        return snapshot.get(kind, name, this);
+    }
+
     /**
      * looks up name in map, and if found, returns its value.
      * if not found, get real attr name from AttributeManager and try getting
@@ -448,8 +467,8 @@ public abstract class Entry implements ToZJSONObject {
     }
 
     protected boolean getBooleanAttr(String name, boolean defaultValue, boolean skipEphemeralCheck) {
-        String v = getAttr(name, true, skipEphemeralCheck);
-        return v == null ? defaultValue : ProvisioningConstants.TRUE.equals(v);
+        Object v = getTypedAttr(AttributeSnapshot.Kind.BOOLEAN, name, skipEphemeralCheck);
+        return v == null ? defaultValue : (Boolean) v;
     }
 
     public byte[] getBinaryAttr(String name) {
@@ -490,12 +509,8 @@ public abstract class Entry implements ToZJSONObject {
     }
 
     protected int getIntAttr(String name, int defaultValue, boolean skipEphemeralCheck) {
-        String v = getAttr(name, true, skipEphemeralCheck);
-        try {
-            return v == null ? defaultValue : Integer.parseInt(v);
-        } catch (NumberFormatException e) {
-            return defaultValue;
-        }
+        Object v = getTypedAttr(AttributeSnapshot.Kind.INTEGER, name, skipEphemeralCheck);
+        return v == null ? defaultValue : (Integer) v;
     }
 
     public Locale getLocale() throws ServiceException {
@@ -525,15 +540,8 @@ public abstract class Entry implements ToZJSONObject {
     }
 
     protected long getLongAttr(String name, long defaultValue, boolean skipEphemeralCheck) {
-        String v = getAttr(name, true, skipEphemeralCheck);
-        try {
-            if (MemoryUnitUtil.isMemoryUnit(v))
-                return new MemoryUnitUtil(1024).convertToBytes(v);
-            else
-                return v == null ? defaultValue : Long.parseLong(v);
-        } catch (NumberFormatException e) {
-            return defaultValue;
-        }
+        Object v = getTypedAttr(AttributeSnapshot.Kind.LONG, name, skipEphemeralCheck);
+        return v == null ? defaultValue : (Long) v;
     }
 
     /**
@@ -686,8 +694,8 @@ public abstract class Entry implements ToZJSONObject {
     }
 
     protected long getTimeInterval(String name, long defaultValue, boolean skipEphemeralCheck) {
-        String v = getAttr(name, true, skipEphemeralCheck);
-        return DateUtil.getTimeInterval(v, defaultValue);
+        Object v = getTypedAttr(AttributeSnapshot.Kind.DURATION, name, skipEphemeralCheck);
+        return v == null ? defaultValue : (Long) v;
     }
 
     /**
@@ -766,11 +774,16 @@ public abstract class Entry implements ToZJSONObject {
 
     protected void getDefaults(AttributeFlag flag, Map<String,Object> defaults)
     throws ServiceException {
-        defaults.clear();
-        Set<String> attrs = AttributeManager.getInstance().getAttrsWithFlag(flag);
-        for (String a : attrs) {
-            Object obj = getObject(a, true);
-            if (obj != null) defaults.put(a, obj);
+        // the map is shared with the entries inheriting from this one
+        try {
+            defaults.clear();
+            Set<String> attrs = AttributeManager.getInstance().getAttrsWithFlag(flag);
+            for (String a : attrs) {
+                Object obj = getObject(a, true);
+                if (obj != null) defaults.put(a, obj);
+            }
+        } finally {
+            AttributeSnapshot.defaultsChanged(defaults);
         }
         //return Collections.unmodifiableMap(defaults);
     }
@@ -28,7 +28,6 @@ import com.zimbra.common.util.SetUtil;
 import com.zimbra.common.util.ZimbraLog;
 import com.zimbra.cs.account.AttributeClass;
 import com.zimbra.cs.account.AttributeManager;
-import com.zimbra.cs.account.Domain;
 import com.zimbra.cs.account.Entry;
 import com.zimbra.cs.account.Group;
 import com.zimbra.cs.account.accesscontrol.RightBearer.Grantee;
@@ -95,75 +94,34 @@ public class CheckAttrRight extends CheckRight {
         //
         CollectAttrsResult car = CollectAttrsResult.SOME;
 
-        // check the target entry itself
-        List<ZimbraACE> acl = ACLUtil.getAllACEs(mTarget);
-        if (acl != null) {
-            car = checkTarget(acl, relativity, false, allowSome, denySome);
-            relativity += granteeRanksPerTarget;
+        // check grants on the target entry itself, then grants on entries from which
+        // the target entry can inherit
+        boolean expandTargetGroups = CheckRight.allowGroupTarget(mRightNeeded);
+        final CompiledACL compiled = CompiledACL.get(mProv, mTarget, mTargetType, expandTargetGroups);
+
+        GroupACLs.PositiveGrantsFilter filter = GroupACLs.NO_SKIP;
+        // check cross domain right if we are checking rights for an account
+        // skip cross domain rights if we are checking rights for a group, because
+        // members in the group can be in different domains, no point checking it.
+        if (mGrantee.isAccount()) {
+            filter = new GroupACLs.PositiveGrantsFilter() {
+                @Override
+                public boolean skipPositiveGrants(Group grantedOn) throws ServiceException {
+                    return !CrossDomain.crossDomainOK(mProv, mGrantee.getAccount(), mGrantee.getDomain(),
+                            compiled.getTargetDomain(), grantedOn);
+                }
+            };
         }
 
-        //
-        // if the target is a domain-ed entry, get the domain of the target.
-        // It is need for checking the cross domain right.
-        //
-        Domain targetDomain = TargetType.getTargetDomain(mProv, mTarget);
-
-        if (!car.isAll()) {
-            // check grants granted on entries from which the target entry can inherit
-            boolean expandTargetGroups = CheckRight.allowGroupTarget(mRightNeeded);
-            TargetIterator iter = TargetIterator.getTargetIeterator(mProv, mTarget, expandTargetGroups);
-            Entry grantedOn;
-
-            GroupACLs groupACLs = null;
-
-            while ((grantedOn = iter.next()) != null && (!car.isAll())) {
-                acl = ACLUtil.getAllACEs(grantedOn);
-
-                if (grantedOn instanceof Group) {
-                    if (acl == null)
-                        continue;
-
-                    boolean skipPositiveGrants = false;
-                    // check cross domain right if we are checking rights for an account
-                    // skip cross domain rights if we are checking rights for a group, because
-                    // members in the group can be in different domains, no point checking it.
-                    if (mGrantee.isAccount()) {
-                        skipPositiveGrants = !CrossDomain.crossDomainOK(mProv,
-                                mGrantee.getAccount(), mGrantee.getDomain(),
-                                targetDomain, (Group)grantedOn);
-                    }
-
-                    // don't check yet, collect all acls on all target groups
-                    if (groupACLs == null) {
-                        groupACLs = new GroupACLs(mTarget);
-                    }
-                    groupACLs.collectACL((Group)grantedOn, skipPositiveGrants);
-
-                } else {
-                    // end of group targets, put all collected denied and allowed grants into
-                    // one list, as if they are granted on the same entry, then check.
-                    // We put denied in the front, so it is consistent with ZimbraACL.getAllACEs
-                    if (groupACLs != null) {
-                        List<ZimbraACE> aclsOnGroupTargets = groupACLs.getAllACLs();
-                        if (aclsOnGroupTargets != null) {
-                            car = checkTarget(aclsOnGroupTargets, relativity, false, allowSome, denySome);
-                            relativity += granteeRanksPerTarget;
-                            if (car.isAll())
-                                break;
-                            // else continue with the next target
-                        }
-
-                        // set groupACLs to null, we are done with group targets
-                        groupACLs = null;
-                    }
-
-                    if (acl == null)
-                        continue;
-
-                    boolean subDomain = (mTargetType == TargetType.domain && (grantedOn instanceof Domain));
-                    car = checkTarget(acl, relativity, subDomain, allowSome, denySome);
-                    relativity += granteeRanksPerTarget;
-                }
+        for (CompiledACL.Segment segment : compiled.segments()) {
+            List<ZimbraACE> acl = segment.getACL(filter);
+            if (acl == null) {
+                continue;
+            }
+            car = checkTarget(acl, relativity, segment.subDomain(), allowSome, denySome);
+            relativity += granteeRanksPerTarget;
+            if (car.isAll()) {
+                break;
             }
         }
 
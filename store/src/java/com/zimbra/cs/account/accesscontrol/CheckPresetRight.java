@@ -173,83 +173,53 @@ public class CheckPresetRight extends CheckRight {
             }
         }
 
-        Boolean result = null;
-
-        // check grants explicitly granted on the target entry
-        // we don't return the target entry itself in TargetIterator because if
-        // target is a dl, we need to know if the dl returned from TargetIterator
-        // is the target itself or one of the groups the target is in.  So we check
-        // the actual target separately
-        List<ZimbraACE> acl = ACLUtil.getAllACEs(mTarget);
-        if (acl != null) {
-            result = checkTarget(acl, false);
-            if (result != null) {
-                return result;
-            }
-        }
-
-        //
-        // if the target is a domain-ed entry, get the domain of the target.
-        // It is needed for checking the cross domain right.
-        //
-        Domain targetDomain = TargetType.getTargetDomain(mProv, mTarget);
-
         // group target is only supported for admin rights
         boolean expandTargetGroups = CheckRight.allowGroupTarget(mRightNeeded);
+        final CompiledACL compiled = CompiledACL.get(mProv, mTarget, mTargetType, expandTargetGroups);
 
-        // check grants granted on entries from which the target entry can inherit from
-        TargetIterator iter = TargetIterator.getTargetIeterator(mProv, mTarget, expandTargetGroups);
-        Entry grantedOn;
-
-        GroupACLs groupACLs = null;
-
-        while ((grantedOn = iter.next()) != null) {
-            acl = ACLUtil.getAllACEs(grantedOn);
-
-            if (grantedOn instanceof Group) {
-                if (acl == null) {
-                    continue;
-                }
-
-                boolean skipPositiveGrants = false;
-                if (adminRight) {
-                    skipPositiveGrants = !CrossDomain.crossDomainOK(mProv, mGranteeMailTarget, granteeDomain,
-                        targetDomain, (Group)grantedOn);
-                }
+        // user rights are cached in PermissionCache
+        String decisionKey = null;
+        if (adminRight && mVia == null) {
+            decisionKey = CompiledACL.decisionKey(PermissionCache.buildGranteeKey(mGranteeMailTarget),
+                    mRightNeeded, mCanDelegateNeeded);
+        }
+        CachedPermission decided = compiled.getDecision(decisionKey);
+        if (decided != CachedPermission.NOT_CACHED) {
+            return decided.getResult();
+        }
 
-                // don't check yet, collect all acls on all target groups
-                if (groupACLs == null) {
-                    groupACLs = new GroupACLs(mTarget);
-                }
-                groupACLs.collectACL((Group)grantedOn, skipPositiveGrants);
-
-            } else {
-                // end of group targets, put all collected denied and allowed grants into one
-                // list, as if they are granted on the same entry, then check.
-                // We put denied in the front, so it is consistent with ZimbraACL.getAllACEs
-                if (groupACLs != null) {
-                    List<ZimbraACE> aclsOnGroupTargets = groupACLs.getAllACLs();
-                    if (aclsOnGroupTargets != null) {
-                        result = checkTarget(aclsOnGroupTargets, false);
-                    }
-                    if (result != null) {
-                        return result;
-                    }
-
-                    // set groupACLs to null, we are done with group targets
-                    groupACLs = null;
+        GroupACLs.PositiveGrantsFilter filter = GroupACLs.NO_SKIP;
+        if (adminRight) {
+            final Domain granteeDomainOfAdmin = granteeDomain;
+            filter = new GroupACLs.PositiveGrantsFilter() {
+                @Override
+                public boolean skipPositiveGrants(Group grantedOn) throws ServiceException {
+                    return !CrossDomain.crossDomainOK(mProv, mGranteeMailTarget, granteeDomainOfAdmin,
+                            compiled.getTargetDomain(), grantedOn);
                 }
+            };
+        }
 
-                // didn't encounter any group grantedOn, or none of them matches, just check this grantedOn entry
-                if (acl == null) {
-                    continue;
-                }
+        Boolean result = checkSegments(compiled, filter);
+        compiled.putDecision(decisionKey, result);
+        return result;
+    }
 
-                boolean subDomain = (mTargetType == TargetType.domain && (grantedOn instanceof Domain));
-                result = checkTarget(acl, subDomain);
-                if (result != null) {
-                    return result;
-                }
+    /*
+     * check the grants on the target entry, then the grants on entries from which the
+     * target entry can inherit, in the order they were compiled.  Grants on consecutive
+     * group targets are checked together, as if they are granted on the same entry.
+     */
+    private Boolean checkSegments(CompiledACL compiled, GroupACLs.PositiveGrantsFilter filter)
+    throws ServiceException {
+        for (CompiledACL.Segment segment : compiled.segments()) {
+            List<ZimbraACE> acl = segment.getACL(filter, mRightNeeded);
+            if (acl == null) {
+                continue;
+            }
+            Boolean result = checkTarget(acl, segment.subDomain());
+            if (result != null) {
+                return result;
             }
         }
 
@@ -31,7 +31,6 @@ import com.zimbra.common.service.ServiceException;
 import com.zimbra.common.util.Log;
 import com.zimbra.common.util.SetUtil;
 import com.zimbra.common.util.ZimbraLog;
-import com.zimbra.cs.account.Domain;
 import com.zimbra.cs.account.Entry;
 import com.zimbra.cs.account.Group;
 import com.zimbra.cs.account.Provisioning;
@@ -191,9 +190,9 @@ public class CollectEffectiveRights {
     
     private Set<Right> getEffectiveAdminPresetRights() throws ServiceException {
         
-        Provisioning prov = Provisioning.getInstance();
+        final Provisioning prov = Provisioning.getInstance();
         
-        Grantee grantee = getGrantee();
+        final Grantee grantee = getGrantee();
         TargetType targetType = TargetType.getTargetType(mTarget);
         
         Map<Right, Integer> allowed = new HashMap<Right, Integer>();
@@ -203,75 +202,33 @@ public class CollectEffectiveRights {
         //
         // collecting phase
         //
-        CheckAttrRight.CollectAttrsResult car = CheckAttrRight.CollectAttrsResult.SOME;
         
-        // check the target entry itself
-        List<ZimbraACE> acl = ACLUtil.getAllACEs(mTarget);
-        if (acl != null) {
-            collectAdminPresetRightOnTarget(acl, targetType, relativity, false, allowed, denied);
-            relativity += 2;
-        }
-        
-        //
-        // if the target is a domain-ed entry, get the domain of the target.
-        // It is need for checking the cross domain right.
-        //
-        Domain targetDomain = TargetType.getTargetDomain(prov, mTarget);
-        
-        // check grants granted on entries from which the target entry can inherit from
+        // check grants on the target entry itself, then grants on entries from which
+        // the target entry can inherit
         boolean expandTargetGroups = CheckRight.allowGroupTarget(AdminRight.PR_ADMIN_PRESET_RIGHT);
-        TargetIterator iter = TargetIterator.getTargetIeterator(prov, mTarget, expandTargetGroups);
-        Entry grantedOn;
-            
-        GroupACLs groupACLs = null;
-            
-        while ((grantedOn = iter.next()) != null && (!car.isAll())) {
-            acl = ACLUtil.getAllACEs(grantedOn);
-                
-            if (grantedOn instanceof Group) {
-                if (acl == null)
-                    continue;
-                    
-                boolean skipPositiveGrants = false;
-                // check cross domain right if we are checking rights for an account
-                // skip cross domain rights if we are checking rights for a group, because
-                // members in the group can be in different domains, no point checking it.
-                if (grantee.isAccount()) {
-                    skipPositiveGrants = 
-                        !CrossDomain.crossDomainOK(prov, grantee.getAccount(), 
-                                grantee.getDomain(), targetDomain, (Group)grantedOn);
-                }
-                
-                // don't check yet, collect all acls on all target groups
-                if (groupACLs == null) {
-                    groupACLs = new GroupACLs(mTarget);
-                }
-                groupACLs.collectACL((Group)grantedOn, skipPositiveGrants);
-                    
-            } else {
-                // end of group targets, put all collected denied and allowed grants into one list, as if 
-                // they are granted on the same entry, then check.  We put denied in the front, so it is 
-                // consistent with ZimbraACL.getAllACEs
-                if (groupACLs != null) {
-                    List<ZimbraACE> aclsOnGroupTargets = groupACLs.getAllACLs();
-                    if (aclsOnGroupTargets != null) {
-                        collectAdminPresetRightOnTarget(aclsOnGroupTargets, targetType, 
-                                relativity, false, allowed, denied);
-                        relativity += 2;
-                    }
-                        
-                    // set groupACLs to null, we are done with group targets
-                    groupACLs = null;
-                }
-                    
-                if (acl == null) {
-                    continue;
+        final CompiledACL compiled = CompiledACL.get(prov, mTarget, mTargetType, expandTargetGroups);
+
+        GroupACLs.PositiveGrantsFilter filter = GroupACLs.NO_SKIP;
+        // check cross domain right if we are checking rights for an account
+        // skip cross domain rights if we are checking rights for a group, because
+        // members in the group can be in different domains, no point checking it.
+        if (grantee.isAccount()) {
+            filter = new GroupACLs.PositiveGrantsFilter() {
+                @Override
+                public boolean skipPositiveGrants(Group grantedOn) throws ServiceException {
+                    return !CrossDomain.crossDomainOK(prov, grantee.getAccount(), grantee.getDomain(),
+                            compiled.getTargetDomain(), grantedOn);
                 }
-                
-                boolean subDomain = (mTargetType == TargetType.domain && (grantedOn instanceof Domain));
-                collectAdminPresetRightOnTarget(acl, targetType, relativity, subDomain, allowed, denied);
-                relativity += 2;
+            };
+        }
+
+        for (CompiledACL.Segment segment : compiled.segments()) {
+            List<ZimbraACE> acl = segment.getACL(filter);
+            if (acl == null) {
+                continue;
             }
+            collectAdminPresetRightOnTarget(acl, targetType, relativity, segment.subDomain(), allowed, denied);
+            relativity += 2;
         }
         
         if (sLog.isDebugEnabled()) {
@@ -0,0 +1,303 @@
+/*
+ * ***** BEGIN LICENSE BLOCK *****
+ * Zimbra Collaboration Suite Server
+ * Copyright (C) 2026 Synacor, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software Foundation,
+ * version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ * ***** END LICENSE BLOCK *****
+ */
+package com.zimbra.cs.account.accesscontrol;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.zimbra.common.localconfig.LC;
+import com.zimbra.common.service.ServiceException;
+import com.zimbra.common.stats.Counter;
+import com.zimbra.common.stats.HitRateCounter;
+import com.zimbra.common.util.Constants;
+import com.zimbra.common.util.MapUtil;
+import com.zimbra.cs.account.Domain;
+import com.zimbra.cs.account.Entry;
+import com.zimbra.cs.account.Group;
+import com.zimbra.cs.account.NamedEntry;
+import com.zimbra.cs.account.Provisioning;
+import com.zimbra.cs.account.accesscontrol.PermissionCache.CachedPermission;
+
+/**
+ * The grants that apply to a target entry, in the order they are evaluated: the grants on the target itself, then
+ * the grants on each entry returned by the {@link TargetIterator}, with the grants on consecutive group targets
+ * merged into one segment.
+ * <p>
+ * None of this depends on the grantee, so it is compiled once per target and kept in a cache along with the
+ * decisions made for each grantee.  The cache is dropped for a target, or for all targets, by the same events that
+ * invalidate the {@link PermissionCache}: each compiled ACL carries the version of the cache it was compiled at, and
+ * {@link PermissionCache#invalidateCache()} moves to a new version.  Compiled ACLs also expire after
+ * {@code acl_cache_target_maxage} minutes, since grants changed on other servers don't invalidate them.
+ */
+final class CompiledACL {
+
+    private static final boolean CACHE_ENABLED = LC.acl_cache_enabled.booleanValue();
+    private static final long MAX_AGE = LC.acl_cache_target_maxage.intValue() * Constants.MILLIS_PER_MINUTE;
+    private static final int MAX_DECISIONS = LC.acl_cache_credential_maxsize.intValue();
+
+    private static final ConcurrentMap<String, CompiledACL> CACHE =
+            MapUtil.newConcurrentLruMap(LC.acl_cache_target_maxsize.intValue());
+
+    // bumped when the grants on any target may have changed
+    private static final AtomicLong version = new AtomicLong();
+    // bumped when the grants on a single target have changed
+    private static final AtomicLong targetVersion = new AtomicLong();
+
+    private static final Counter decisionHitRate = new HitRateCounter();
+
+    /**
+     * Grants on one entry, or on consecutive group targets.
+     */
+    static final class Segment {
+        private final List<ZimbraACE> acl;
+        private final boolean subDomain;
+        private final GroupACLs groupACLs;
+        private final ConcurrentMap<Right, List<ZimbraACE>> byRight;
+
+        private Segment(List<ZimbraACE> acl, boolean subDomain) {
+            this.acl = acl;
+            this.subDomain = subDomain;
+            this.groupACLs = null;
+            this.byRight = new ConcurrentHashMap<Right, List<ZimbraACE>>(4, 0.75f, 1);
+        }
+
+        private Segment(GroupACLs groupACLs) {
+            this.acl = null;
+            this.subDomain = false;
+            this.groupACLs = groupACLs;
+            this.byRight = null;
+        }
+
+        boolean isGroups() {
+            return groupACLs != null;
+        }
+
+        /**
+         * Whether the grants are for sub domains.
+         */
+        boolean subDomain() {
+            return subDomain;
+        }
+
+        /**
+         * Returns the grants, with the positive grants on group targets the filter skips removed.
+         *
+         * @return the grants, or null if there are none
+         */
+        List<ZimbraACE> getACL(GroupACLs.PositiveGrantsFilter filter) throws ServiceException {
+            return groupACLs != null ? groupACLs.getAllACLs(filter) : acl;
+        }
+
+        /**
+         * Returns the grants that grant the preset right, directly or by a combo right.
+         */
+        List<ZimbraACE> getACL(GroupACLs.PositiveGrantsFilter filter, Right presetRight) throws ServiceException {
+            if (groupACLs != null) {
+                List<ZimbraACE> merged = groupACLs.getAllACLs(filter);
+                return merged == null ? null : grantsOf(merged, presetRight);
+            }
+            List<ZimbraACE> grants = byRight.get(presetRight);
+            if (grants == null) {
+                grants = grantsOf(acl, presetRight);
+                byRight.put(presetRight, grants);
+            }
+            return grants;
+        }
+    }
+
+    private final List<Segment> segments;
+    private final Domain targetDomain;
+    private final long compiledVersion;
+    private final long expires = System.currentTimeMillis() + MAX_AGE;
+    private final ConcurrentMap<String, CachedPermission> decisions;
+
+    private CompiledACL(long compiledVersion, List<Segment> segments, Domain targetDomain, boolean cached) {
+        this.compiledVersion = compiledVersion;
+        this.segments = segments;
+        this.targetDomain = targetDomain;
+        this.decisions = cached ? MapUtil.<String, CachedPermission>newConcurrentLruMap(MAX_DECISIONS) : null;
+    }
+
+    List<Segment> segments() {
+        return segments;
+    }
+
+    /**
+     * Domain of the target, if it is a domain-ed entry.  It is needed for checking the cross domain right.
+     */
+    Domain getTargetDomain() {
+        return targetDomain;
+    }
+
+    private boolean isCurrent() {
+        return compiledVersion == version.get() && System.currentTimeMillis() < expires;
+    }
+
+    /**
+     * Returns the compiled grants of the target, from the cache if possible.
+     *
+     * @param expandTargetGroups whether grants on the groups the target is a member of apply
+     */
+    static CompiledACL get(Provisioning prov, Entry target, TargetType targetType, boolean expandTargetGroups)
+    throws ServiceException {
+        String key = cacheKey(target, expandTargetGroups);
+        if (key == null) {
+            return compile(prov, target, targetType, expandTargetGroups, false);
+        }
+        CompiledACL compiled = CACHE.get(key);
+        if (compiled != null && compiled.isCurrent()) {
+            return compiled;
+        }
+        long targetVersionAtStart = targetVersion.get();
+        compiled = compile(prov, target, targetType, expandTargetGroups, true);
+        // don't cache what was compiled while the target's grants were changing
+        if (targetVersionAtStart == targetVersion.get() && compiled.isCurrent()) {
+            CACHE.put(key, compiled);
+        }
+        return compiled;
+    }
+
+    private static String cacheKey(Entry target, boolean expandTargetGroups) {
+        if (!CACHE_ENABLED || PseudoTarget.isPseudoEntry(target)) {
+            return null;
+        }
+        String id = target instanceof NamedEntry ? ((NamedEntry) target).getId() : target.getLabel();
+        if (id == null) {
+            return null;
+        }
+        return expandTargetGroups ? id + "+g" : id;
+    }
+
+    private static CompiledACL compile(Provisioning prov, Entry target, TargetType targetType,
+            boolean expandTargetGroups, boolean cached) throws ServiceException {
+        long compiledVersion = version.get();
+        List<Segment> segments = new ArrayList<Segment>();
+
+        // grants explicitly granted on the target entry
+        // we don't return the target entry itself in TargetIterator because if
+        // target is a dl, we need to know if the dl returned from TargetIterator
+        // is the target itself or one of the groups the target is in.  So we check
+        // the actual target separately
+        List<ZimbraACE> acl = ACLUtil.getAllACEs(target);
+        if (acl != null) {
+            segments.add(new Segment(acl, false));
+        }
+
+        Domain targetDomain = TargetType.getTargetDomain(prov, target);
+
+        // grants granted on entries from which the target entry can inherit from
+        TargetIterator iter = TargetIterator.getTargetIeterator(prov, target, expandTargetGroups);
+        Entry grantedOn;
+        GroupACLs groupACLs = null;
+
+        while ((grantedOn = iter.next()) != null) {
+            acl = ACLUtil.getAllACEs(grantedOn);
+
+            if (grantedOn instanceof Group) {
+                if (acl == null) {
+                    continue;
+                }
+                // collect all acls on all target groups into one segment
+                if (groupACLs == null) {
+                    groupACLs = new GroupACLs(target);
+                }
+                groupACLs.collectACL((Group) grantedOn);
+            } else {
+                // end of group targets
+                if (groupACLs != null) {
+                    segments.add(new Segment(groupACLs));
+                    groupACLs = null;
+                }
+                if (acl == null) {
+                    continue;
+                }
+                boolean subDomain = (targetType == TargetType.domain && (grantedOn instanceof Domain));
+                segments.add(new Segment(acl, subDomain));
+            }
+        }
+        return new CompiledACL(compiledVersion, Collections.unmodifiableList(segments), targetDomain, cached);
+    }
+
+    private static List<ZimbraACE> grantsOf(List<ZimbraACE> acl, Right presetRight) {
+        List<ZimbraACE> grants = null;
+        for (ZimbraACE ace : acl) {
+            Right rightGranted = ace.getRight();
+            if ((rightGranted.isPresetRight() && rightGranted == presetRight) ||
+                    rightGranted.isComboRight() && ((ComboRight) rightGranted).containsPresetRight(presetRight)) {
+                if (grants == null) {
+                    grants = new ArrayList<ZimbraACE>(2);
+                }
+                grants.add(ace);
+            }
+        }
+        return grants == null ? Collections.<ZimbraACE>emptyList() : grants;
+    }
+
+    /**
+     * Returns the decision cached for the grantee and right, or {@link CachedPermission#NOT_CACHED}.
+     */
+    CachedPermission getDecision(String decisionKey) {
+        if (decisions == null || decisionKey == null) {
+            return CachedPermission.NOT_CACHED;
+        }
+        CachedPermission perm = decisions.get(decisionKey);
+        decisionHitRate.increment(perm != null ? 100 : 0);
+        return perm != null ? perm : CachedPermission.NOT_CACHED;
+    }
+
+    void putDecision(String decisionKey, Boolean allowed) {
+        if (decisions != null && decisionKey != null) {
+            decisions.put(decisionKey, allowed == null ? CachedPermission.NO_MATCHING_ACL :
+                allowed.booleanValue() ? CachedPermission.ALLOWED : CachedPermission.DENIED);
+        }
+    }
+
+    static String decisionKey(String granteeKey, Right right, boolean canDelegateNeeded) {
+        if (granteeKey == null) {
+            return null;
+        }
+        return granteeKey + (canDelegateNeeded ? '1' : '0') + right.getName();
+    }
+
+    /**
+     * Drops all compiled ACLs.
+     */
+    static void invalidate() {
+        version.incrementAndGet();
+        CACHE.clear();
+    }
+
+    /**
+     * Drops the compiled ACLs of a target no other entry inherits grants from.
+     */
+    static void invalidate(Entry target) {
+        targetVersion.incrementAndGet();
+        String key = cacheKey(target, false);
+        if (key != null) {
+            CACHE.remove(key);
+            CACHE.remove(cacheKey(target, true));
+        }
+    }
+
+    static double getDecisionHitRate() {
+        return decisionHitRate.getAverage();
+    }
+}
@@ -17,9 +17,8 @@
 package com.zimbra.cs.account.accesscontrol;
 
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
 import com.zimbra.common.service.ServiceException;
@@ -33,6 +32,9 @@ import com.zimbra.cs.account.Provisioning;
 /*
  * aux class for collecting ACLs on all groups the perspective target entry
  * is a direct/indirect member of. 
+ *
+ * The grants are collected once per target, and merged for each grantee,
+ * since whether positive grants apply depends on the grantee.
  */
 
 public class GroupACLs {
@@ -41,10 +43,36 @@ public class GroupACLs {
     // Set of zimbraId of groups the account target is a direct member of
     private Set<String> directGroupsOfAccountTarget;
     
-    private Set<ZimbraACE> aclsOnGroupTargetsAllowedNotDelegable = new HashSet<ZimbraACE>();
-    private Set<ZimbraACE> aclsOnGroupTargetsAllowedDelegable = new HashSet<ZimbraACE>();
-    private Set<ZimbraACE> aclsOnGroupTargetsDenied = new HashSet<ZimbraACE>();
-    
+    private final List<GroupGrants> groups = new ArrayList<GroupGrants>();
+
+    /*
+     * grants on one group target that apply to the target entry
+     */
+    private static class GroupGrants {
+        private final Group grantedOn;
+        private final List<ZimbraACE> allowedNotDelegable = new ArrayList<ZimbraACE>();
+        private final List<ZimbraACE> allowedDelegable = new ArrayList<ZimbraACE>();
+        private final List<ZimbraACE> denied = new ArrayList<ZimbraACE>();
+
+        private GroupGrants(Group grantedOn) {
+            this.grantedOn = grantedOn;
+        }
+    }
+
+    /*
+     * decides, for the grantee being checked, whether positive grants on a group target are ignored
+     */
+    interface PositiveGrantsFilter {
+        boolean skipPositiveGrants(Group grantedOn) throws ServiceException;
+    }
+
+    static final PositiveGrantsFilter NO_SKIP = new PositiveGrantsFilter() {
+        @Override
+        public boolean skipPositiveGrants(Group grantedOn) {
+            return false;
+        }
+    };
+
     GroupACLs(Entry target) throws ServiceException {
         if (target instanceof Account) {
             Account acctTarget = (Account)target;
@@ -74,37 +102,23 @@ public class GroupACLs {
         }
     }
     
-    void collectACL(Group grantedOn, boolean skipPositiveGrants) 
-    throws ServiceException {
-        
-        Set<ZimbraACE> allowedNotDelegable = ACLUtil.getAllowedNotDelegableACEs(grantedOn);
-        Set<ZimbraACE> allowedDelegable = ACLUtil.getAllowedDelegableACEs(grantedOn);
-        Set<ZimbraACE> denied = ACLUtil.getDeniedACEs(grantedOn);
-        
-        if (allowedNotDelegable != null && !skipPositiveGrants) {
-            for (ZimbraACE ace : allowedNotDelegable) {
+    private void collect(Group grantedOn, Set<ZimbraACE> aces, List<ZimbraACE> into) {
+        if (aces != null) {
+            for (ZimbraACE ace : aces) {
                 if (applies(grantedOn, ace)) {
-                    aclsOnGroupTargetsAllowedNotDelegable.add(ace);
-                }
-            }
-        }
-        
-        if (allowedDelegable != null && !skipPositiveGrants) {
-            for (ZimbraACE ace : allowedDelegable) {
-                if (applies(grantedOn, ace)) {
-                    aclsOnGroupTargetsAllowedDelegable.add(ace);
-                }
-            }
-        }
-        
-        if (denied != null) {
-            for (ZimbraACE ace : denied) {
-                if (applies(grantedOn, ace)) {
-                    aclsOnGroupTargetsDenied.add(ace);
+                    into.add(ace);
                 }
             }
         }
     }
+
+    void collectACL(Group grantedOn) throws ServiceException {
+        GroupGrants grants = new GroupGrants(grantedOn);
+        collect(grantedOn, ACLUtil.getAllowedNotDelegableACEs(grantedOn), grants.allowedNotDelegable);
+        collect(grantedOn, ACLUtil.getAllowedDelegableACEs(grantedOn), grants.allowedDelegable);
+        collect(grantedOn, ACLUtil.getDeniedACEs(grantedOn), grants.denied);
+        groups.add(grants);
+    }
     
     /*
      * put all denied and allowed grants into one list, as if they are granted 
@@ -112,7 +126,19 @@ public class GroupACLs {
      * delegable, followed by allowed but not delegable, so it is consistent with 
      * ZimbraACL.getAllACEs
      */
-    List<ZimbraACE> getAllACLs() {
+    List<ZimbraACE> getAllACLs(PositiveGrantsFilter filter) throws ServiceException {
+        Set<ZimbraACE> aclsOnGroupTargetsAllowedNotDelegable = new LinkedHashSet<ZimbraACE>();
+        Set<ZimbraACE> aclsOnGroupTargetsAllowedDelegable = new LinkedHashSet<ZimbraACE>();
+        Set<ZimbraACE> aclsOnGroupTargetsDenied = new LinkedHashSet<ZimbraACE>();
+
+        for (GroupGrants grants : groups) {
+            if (!filter.skipPositiveGrants(grants.grantedOn)) {
+                aclsOnGroupTargetsAllowedNotDelegable.addAll(grants.allowedNotDelegable);
+                aclsOnGroupTargetsAllowedDelegable.addAll(grants.allowedDelegable);
+            }
+            aclsOnGroupTargetsDenied.addAll(grants.denied);
+        }
+
         if (!aclsOnGroupTargetsAllowedNotDelegable.isEmpty() ||
             !aclsOnGroupTargetsAllowedDelegable.isEmpty() ||   
             !aclsOnGroupTargetsDenied.isEmpty()) {
@@ -92,6 +92,7 @@ class PermCacheManager {
     synchronized void invalidateCache() {
         invalidatedAt = System.currentTimeMillis();
         targetCache.clear();
+        CompiledACL.invalidate();
     }
     
     /**
@@ -129,6 +130,7 @@ class PermCacheManager {
             if (permCache != null) {
                 permCache.reset();
             }
+            CompiledACL.invalidate(target);
         }
     }
     
@@ -178,6 +178,19 @@ public class PermissionCache {
         if (!rightNeeded.isUserRight() && Admin.R_adminLoginAs != rightNeeded)
             return null;
 
+        String granteeKey = buildGranteeKey(grantee);
+        if (granteeKey == null) {
+            return null;
+        }
+        char canDelegate = canDelegateNeeded ? '1' : '0';
+        return granteeKey + canDelegate;
+    }
+
+    /*
+     * returns the <GRANTEE-IDENTIFIER><ADMIN-FLAG> part of the cache key, or null if
+     * the grantee has no identifier
+     */
+    static String buildGranteeKey(MailTarget grantee) {
         String id = null;
         if (grantee instanceof GuestAccount) {
             // note: do NOT use account id as part of the cache key for GuestAccount,
@@ -209,8 +222,7 @@ public class PermissionCache {
         } else {
             adminFlag = '0';
         }
-        char canDelegate = canDelegateNeeded ? '1' : '0';
-        return id + adminFlag + canDelegate;
+        return id + adminFlag;
     }
 
 }
@@ -32,47 +32,45 @@ import com.zimbra.common.stats.Counter;
 import com.zimbra.common.stats.HitRateCounter;
 import com.zimbra.cs.account.Account;
 import com.zimbra.cs.account.Provisioning;
+import com.zimbra.cs.account.cache.EntryRefresher.CacheEntry;
 
-public class AccountCache implements IAccountCache {
+public class AccountCache implements IAccountCache, EntryRefresher.Cache<Account> {
 
-    private Map<String, CacheEntry> mNameCache;
-    private Map<String, CacheEntry> mIdCache;
-    private Map<String, CacheEntry> mAliasCache;
-    private Map<String, CacheEntry> mForeignPrincipalCache;
-    private Map<String, CacheEntry> mOldNameCache;
+    private Map<String, CacheEntry<Account>> mNameCache;
+    private Map<String, CacheEntry<Account>> mIdCache;
+    private Map<String, CacheEntry<Account>> mAliasCache;
+    private Map<String, CacheEntry<Account>> mForeignPrincipalCache;
+    private Map<String, CacheEntry<Account>> mOldNameCache;
     private Counter mHitRate = new HitRateCounter();
 
     private long mRefreshTTL;
+    private final EntryRefresher mRefresher;
 
-    static class CacheEntry {
-        long mLifetime;
-        Account mEntry;
-
-        CacheEntry(Account entry, long expires) {
-            mEntry = entry;
-            mLifetime = System.currentTimeMillis() + expires;
-        }
-
-        boolean isStale() {
-            return mLifetime < System.currentTimeMillis();
-        }
+    /**
+     * @param maxItems
+     * @param refreshTTL
+     */
+    public AccountCache(int maxItems, long refreshTTL) {
+        this(maxItems, refreshTTL, null);
     }
 
     /**
      * @param maxItems
      * @param refreshTTL
+     * @param refresher reloads stale entries in the background, or null to drop them on lookup
      */
-    public AccountCache(int maxItems, long refreshTTL) {
-        mNameCache = MapUtil.newLruMap(maxItems);
-        mIdCache = MapUtil.newLruMap(maxItems);
-        mAliasCache = MapUtil.newLruMap(maxItems);
-        mForeignPrincipalCache = MapUtil.newLruMap(maxItems);
-        mOldNameCache = MapUtil.newLruMap(maxItems);
+    public AccountCache(int maxItems, long refreshTTL, EntryRefresher refresher) {
+        mNameCache = MapUtil.newConcurrentLruMap(maxItems);
+        mIdCache = MapUtil.newConcurrentLruMap(maxItems);
+        mAliasCache = MapUtil.newConcurrentLruMap(maxItems);
+        mForeignPrincipalCache = MapUtil.newConcurrentLruMap(maxItems);
+        mOldNameCache = MapUtil.newConcurrentLruMap(maxItems);
         mRefreshTTL = refreshTTL;
+        mRefresher = refresher;
     }
 
     @Override
-    public synchronized void clear() {
+    public void clear() {
         mNameCache.clear();
         mIdCache.clear();
         mAliasCache.clear();
@@ -81,10 +79,10 @@ public class AccountCache implements IAccountCache {
     }
 
     @Override
-    public synchronized void remove(Account entry) {
+    public void remove(Account entry) {
         if (entry != null) {
-            mNameCache.remove(entry.getName());
-            mIdCache.remove(entry.getId());
+            EntryRefresher.removeIfKey(mNameCache, entry.getName());
+            EntryRefresher.removeIfKey(mIdCache, entry.getId());
 
             String aliases[] = entry.getMultiAttr(Provisioning.A_zimbraMailAlias);
             for (String alias : aliases) {
@@ -95,16 +93,19 @@ public class AccountCache implements IAccountCache {
             for (String fp : fps) {
                 mForeignPrincipalCache.remove(fp);
             }
-            mOldNameCache.remove(entry.getOldMailAddress());
+            String oldName = entry.getOldMailAddress();
+            if (oldName != null) {
+                mOldNameCache.remove(oldName);
+            }
         }
     }
 
     @Override
-    public synchronized void put(Account entry) {
+    public void put(Account entry) {
         if (entry != null) {
-            CacheEntry cacheEntry = new CacheEntry(entry, mRefreshTTL);
-            mNameCache.put(entry.getName(), cacheEntry);
-            mIdCache.put(entry.getId(), cacheEntry);
+            CacheEntry<Account> cacheEntry = new CacheEntry<Account>(entry, mRefreshTTL);
+            EntryRefresher.putIfKey(mNameCache, entry.getName(), cacheEntry);
+            EntryRefresher.putIfKey(mIdCache, entry.getId(), cacheEntry);
 
             String aliases[] = entry.getMultiAttr(Provisioning.A_zimbraMailAlias);
             for (String alias : aliases) {
@@ -122,15 +123,15 @@ public class AccountCache implements IAccountCache {
     }
 
     @Override
-    public synchronized void replace(Account entry) {
+    public void replace(Account entry) {
         remove(entry);
         put(entry);
     }
 
-    private Account get(String key, Map cache) {
-        CacheEntry ce = (CacheEntry) cache.get(key);
+    private Account get(String key, Map<String, CacheEntry<Account>> cache) {
+        CacheEntry<Account> ce = key == null ? null : cache.get(key);
         if (ce != null) {
-            if (mRefreshTTL != 0 && ce.isStale()) {
+            if (mRefreshTTL != 0 && ce.isStale() && (mRefresher == null || !mRefresher.refresh(ce, this))) {
                 remove(ce.mEntry);
                 mHitRate.increment(0);
                 return null;
@@ -145,25 +146,30 @@ public class AccountCache implements IAccountCache {
     }
 
     @Override
-    public synchronized Account getById(String key) {
+    public Account getById(String key) {
         return get(key, mIdCache);
     }
 
     @Override
-    public synchronized Account getByName(String key) {
-        Account acct = get(key.toLowerCase(), mNameCache) != null ? get(key.toLowerCase(), mNameCache)
-                : get(key.toLowerCase(), mAliasCache) != null ? get(key.toLowerCase(), mAliasCache)
-                        : get(key.toLowerCase(), mOldNameCache);
+    public Account getByName(String key) {
+        String name = key.toLowerCase();
+        Account acct = get(name, mNameCache);
+        if (acct == null) {
+            acct = get(name, mAliasCache);
+        }
+        if (acct == null) {
+            acct = get(name, mOldNameCache);
+        }
         return acct;
     }
 
     @Override
-    public synchronized Account getByForeignPrincipal(String key) {
+    public Account getByForeignPrincipal(String key) {
         return get(key, mForeignPrincipalCache);
     }
 
     @Override
-    public synchronized int getSize() {
+    public int getSize() {
         return mIdCache.size();
     }
 
@@ -171,7 +177,17 @@ public class AccountCache implements IAccountCache {
      * Returns the cache hit rate as a value between 0 and 100.
      */
     @Override
-    public synchronized double getHitRate() {
+    public double getHitRate() {
         return mHitRate.getAverage();
     }
+
+    @Override
+    public double getRefreshTime() {
+        return mRefresher == null ? 0 : mRefresher.getLoadTime();
+    }
+
+    @Override
+    public double getStaleness() {
+        return mRefresher == null ? 0 : mRefresher.getStaleness();
+    }
 }
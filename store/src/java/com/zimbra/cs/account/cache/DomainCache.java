@@ -31,20 +31,22 @@ import com.zimbra.common.stats.Counter;
 import com.zimbra.common.stats.HitRateCounter;
 import com.zimbra.cs.account.Domain;
 import com.zimbra.cs.account.Provisioning;
+import com.zimbra.cs.account.cache.EntryRefresher.CacheEntry;
 
 /**
  * @author schemers
  **/
-public class DomainCache implements IDomainCache {
+public class DomainCache implements IDomainCache, EntryRefresher.Cache<Domain> {
     
-    private Map mNameCache;
-    private Map mIdCache;
-    private Map mVirtualHostnameCache;
-    private Map mForeignNameCache;
-    private Map mKrb5RealmCache;
+    private Map<String, CacheEntry<Domain>> mNameCache;
+    private Map<String, CacheEntry<Domain>> mIdCache;
+    private Map<String, CacheEntry<Domain>> mVirtualHostnameCache;
+    private Map<String, CacheEntry<Domain>> mForeignNameCache;
+    private Map<String, CacheEntry<Domain>> mKrb5RealmCache;
     
     private long mRefreshTTL;
     private Counter mHitRate = new HitRateCounter();
+    private final EntryRefresher mRefresher;
 
     
     public enum GetFromDomainCacheOption {
@@ -61,19 +63,6 @@ public class DomainCache implements IDomainCache {
      */
     private NegativeCache mNegativeCache;
 
-    static class CacheEntry {
-        long mLifetime;
-        Domain mEntry;
-        CacheEntry(Domain entry, long expires) {
-            mEntry = entry;
-            mLifetime = System.currentTimeMillis() + expires;
-        }
-        
-        boolean isStale() {
-            return mLifetime < System.currentTimeMillis();
-        }
-    }
-    
     public static class NonExistingDomain extends Domain {
         private NonExistingDomain() {
             super(null, null, null, null, null);
@@ -82,11 +71,11 @@ public class DomainCache implements IDomainCache {
     
 
     class NegativeCache {
-        private Map mNegativeNameCache;
-        private Map mNegativeIdCache;
-        private Map mNegativeVirtualHostnameCache;
-        private Map mNegativeForeignNameCache;
-        private Map mNegativeKrb5RealmCache;
+        private Map<String, NonExistingDomain> mNegativeNameCache;
+        private Map<String, NonExistingDomain> mNegativeIdCache;
+        private Map<String, NonExistingDomain> mNegativeVirtualHostnameCache;
+        private Map<String, NonExistingDomain> mNegativeForeignNameCache;
+        private Map<String, NonExistingDomain> mNegativeKrb5RealmCache;
 
         private long mNERefreshTTL;
         
@@ -97,16 +86,16 @@ public class DomainCache implements IDomainCache {
         private boolean mEnabled = true;
         
         private NegativeCache(int maxItems, long refreshTTL) {
-            mNegativeNameCache = MapUtil.newLruMap(maxItems);
-            mNegativeIdCache = MapUtil.newLruMap(maxItems);
-            mNegativeVirtualHostnameCache = MapUtil.newLruMap(maxItems);  
-            mNegativeForeignNameCache = MapUtil.newLruMap(maxItems);  
-            mNegativeKrb5RealmCache = MapUtil.newLruMap(maxItems);   
+            mNegativeNameCache = MapUtil.newConcurrentLruMap(maxItems);
+            mNegativeIdCache = MapUtil.newConcurrentLruMap(maxItems);
+            mNegativeVirtualHostnameCache = MapUtil.newConcurrentLruMap(maxItems);  
+            mNegativeForeignNameCache = MapUtil.newConcurrentLruMap(maxItems);  
+            mNegativeKrb5RealmCache = MapUtil.newConcurrentLruMap(maxItems);   
             mNERefreshTTL = refreshTTL;
         }
         
         private void put(DomainBy domainBy, String key) {
-            if (!mEnabled)
+            if (!mEnabled || key == null)
                 return;
             
             NonExistingDomain nonExistingDomain = new NonExistingDomain();
@@ -131,26 +120,26 @@ public class DomainCache implements IDomainCache {
         }
         
         private NonExistingDomain get(DomainBy domainBy, String key) {
-            if (!mEnabled)
+            if (!mEnabled || key == null)
                 return null;
             
             switch (domainBy) {
             case name:
-                return (NonExistingDomain)mNegativeNameCache.get(key);
+                return mNegativeNameCache.get(key);
             case id:
-                return (NonExistingDomain)mNegativeIdCache.get(key);
+                return mNegativeIdCache.get(key);
             case virtualHostname:
-                return (NonExistingDomain)mNegativeVirtualHostnameCache.get(key);
+                return mNegativeVirtualHostnameCache.get(key);
             case foreignName:
-                return (NonExistingDomain)mNegativeForeignNameCache.get(key);
+                return mNegativeForeignNameCache.get(key);
             case krb5Realm:
-                return (NonExistingDomain)mNegativeKrb5RealmCache.get(key);
+                return mNegativeKrb5RealmCache.get(key);
             }
             return null;
         }
         
         private void remove(DomainBy domainBy, String key) {
-            if (!mEnabled)
+            if (!mEnabled || key == null)
                 return;
             
             switch (domainBy) {
@@ -173,8 +162,8 @@ public class DomainCache implements IDomainCache {
         }
         
         private void clean(DomainBy domainBy, String key, Domain entry) {
-            mNegativeNameCache.remove(entry.getName());
-            mNegativeIdCache.remove(entry.getId());
+            EntryRefresher.removeIfKey(mNegativeNameCache, entry.getName());
+            EntryRefresher.removeIfKey(mNegativeIdCache, entry.getId());
             
             String vhost[] = entry.getMultiAttr(Provisioning.A_zimbraVirtualHostname);            
             for (String vh : vhost)
@@ -204,18 +193,27 @@ public class DomainCache implements IDomainCache {
  * @param refreshTTL
  */
     public DomainCache(int maxItems, long refreshTTL, int maxItemsNegative, long refreshTTLNegative) {
-        mNameCache = MapUtil.newLruMap(maxItems);
-        mIdCache = MapUtil.newLruMap(maxItems);
-        mVirtualHostnameCache = MapUtil.newLruMap(maxItems);  
-        mForeignNameCache = MapUtil.newLruMap(maxItems); 
-        mKrb5RealmCache = MapUtil.newLruMap(maxItems);   
+        this(maxItems, refreshTTL, maxItemsNegative, refreshTTLNegative, null);
+    }
+
+    /**
+     * @param refresher reloads stale entries in the background, or null to drop them on lookup
+     */
+    public DomainCache(int maxItems, long refreshTTL, int maxItemsNegative, long refreshTTLNegative,
+            EntryRefresher refresher) {
+        mNameCache = MapUtil.newConcurrentLruMap(maxItems);
+        mIdCache = MapUtil.newConcurrentLruMap(maxItems);
+        mVirtualHostnameCache = MapUtil.newConcurrentLruMap(maxItems);  
+        mForeignNameCache = MapUtil.newConcurrentLruMap(maxItems); 
+        mKrb5RealmCache = MapUtil.newConcurrentLruMap(maxItems);   
         mRefreshTTL = refreshTTL;
+        mRefresher = refresher;
         
         mNegativeCache = new NegativeCache(maxItemsNegative, refreshTTLNegative);
     }
 
     @Override
-    public synchronized void clear() {
+    public void clear() {
         mNameCache.clear();
         mIdCache.clear();
         mVirtualHostnameCache.clear();
@@ -226,10 +224,10 @@ public class DomainCache implements IDomainCache {
     }
 
     @Override
-    public synchronized void remove(Domain entry) {
+    public void remove(Domain entry) {
         if (entry != null) {
-            mNameCache.remove(entry.getName());
-            mIdCache.remove(entry.getId());
+            EntryRefresher.removeIfKey(mNameCache, entry.getName());
+            EntryRefresher.removeIfKey(mIdCache, entry.getId());
             
             String vhost[] = entry.getMultiAttr(Provisioning.A_zimbraVirtualHostname);            
             for (String vh : vhost)
@@ -246,25 +244,25 @@ public class DomainCache implements IDomainCache {
     }
     
     @Override
-    public synchronized void replace(Domain entry) {
+    public void replace(Domain entry) {
         remove(entry);
         put(DomainBy.id, entry.getId(), entry);
     }
     
     @Override
-    public synchronized void removeFromNegativeCache(DomainBy domainBy, String key) {
+    public void removeFromNegativeCache(DomainBy domainBy, String key) {
         mNegativeCache.remove(domainBy, key);
     }
     
     @Override
-    public synchronized void put(DomainBy domainBy, String key, Domain entry) {
+    public void put(DomainBy domainBy, String key, Domain entry) {
         if (entry != null) {
             // clean it from the non-existing cache first
             mNegativeCache.clean(domainBy, key, entry);
             
-            CacheEntry cacheEntry = new CacheEntry(entry, mRefreshTTL);
-            mNameCache.put(entry.getName(), cacheEntry);
-            mIdCache.put(entry.getId(), cacheEntry);
+            CacheEntry<Domain> cacheEntry = new CacheEntry<Domain>(entry, mRefreshTTL);
+            EntryRefresher.putIfKey(mNameCache, entry.getName(), cacheEntry);
+            EntryRefresher.putIfKey(mIdCache, entry.getId(), cacheEntry);
             
             String vhost[] = entry.getMultiAttr(Provisioning.A_zimbraVirtualHostname);            
             for (String vh : vhost)
@@ -282,10 +280,10 @@ public class DomainCache implements IDomainCache {
         }
     }
 
-    private Domain get(String key, Map cache) {
-        CacheEntry ce = (CacheEntry) cache.get(key);
+    private Domain get(String key, Map<String, CacheEntry<Domain>> cache) {
+        CacheEntry<Domain> ce = key == null ? null : cache.get(key);
         if (ce != null) {
-            if (mRefreshTTL != 0 && ce.isStale()) {
+            if (mRefreshTTL != 0 && ce.isStale() && (mRefresher == null || !mRefresher.refresh(ce, this))) {
                 remove(ce.mEntry);
                 mHitRate.increment(0);
                 return null;
@@ -300,7 +298,7 @@ public class DomainCache implements IDomainCache {
     }
     
     @Override
-    public synchronized Domain getById(String key, GetFromDomainCacheOption option) {
+    public Domain getById(String key, GetFromDomainCacheOption option) {
         
         switch (option) {
         case POSITIVE:
@@ -318,7 +316,7 @@ public class DomainCache implements IDomainCache {
     }
     
     @Override
-    public synchronized Domain getByName(String key, GetFromDomainCacheOption option) {
+    public Domain getByName(String key, GetFromDomainCacheOption option) {
         
         switch (option) {
         case POSITIVE:
@@ -336,7 +334,7 @@ public class DomainCache implements IDomainCache {
     }
     
     @Override
-    public synchronized Domain getByVirtualHostname(String key, GetFromDomainCacheOption option) {
+    public Domain getByVirtualHostname(String key, GetFromDomainCacheOption option) {
         
         switch (option) {
         case POSITIVE:
@@ -354,7 +352,7 @@ public class DomainCache implements IDomainCache {
     }
     
     @Override
-    public synchronized Domain getByForeignName(String key, GetFromDomainCacheOption option) {
+    public Domain getByForeignName(String key, GetFromDomainCacheOption option) {
         
         switch (option) {
         case POSITIVE:
@@ -372,7 +370,7 @@ public class DomainCache implements IDomainCache {
     }
     
     @Override
-    public synchronized Domain getByKrb5Realm(String key, GetFromDomainCacheOption option) {
+    public Domain getByKrb5Realm(String key, GetFromDomainCacheOption option) {
         
         switch (option) {
         case POSITIVE:
@@ -390,7 +388,7 @@ public class DomainCache implements IDomainCache {
     }
 
     @Override
-    public synchronized int getSize() {
+    public int getSize() {
         return mIdCache.size();
     }
     
@@ -398,7 +396,7 @@ public class DomainCache implements IDomainCache {
      * Returns the cache hit rate as a value between 0 and 100.<br />
      */
     @Override
-    public synchronized double getHitRate() {
+    public double getHitRate() {
     	 return mHitRate.getAverage();
     }
 }
@@ -0,0 +1,178 @@
+/*
+ * ***** BEGIN LICENSE BLOCK *****
+ * Zimbra Collaboration Suite Server
+ * Copyright (C) 2026 Synacor, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software Foundation,
+ * version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ * ***** END LICENSE BLOCK *****
+ */
+
+package com.zimbra.cs.account.cache;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.zimbra.common.localconfig.LC;
+import com.zimbra.common.service.ServiceException;
+import com.zimbra.common.stats.Counter;
+import com.zimbra.common.stats.HitRateCounter;
+import com.zimbra.common.util.ZimbraLog;
+import com.zimbra.cs.account.Entry;
+
+/**
+ * Reloads stale cache entries in the background.
+ * <p>
+ * Once an entry has been cached longer than the cache's refresh TTL, lookups keep returning it for up to
+ * {@code maxStale} more milliseconds while it is reloaded on a refresher thread.  The reload is expected to put the
+ * entry back in the cache with a new lifetime, like {@code Provisioning.reload} does.  An entry that could not be
+ * reloaded in time, or whose reload failed, is treated as a miss so the caller loads it synchronously.
+ */
+public class EntryRefresher {
+
+    /**
+     * Reloads an entry in place and refreshes it in the cache.
+     */
+    public interface Loader {
+        void reload(Entry entry) throws ServiceException;
+    }
+
+    private static final ExecutorService EXECUTOR;
+    static {
+        int threads = LC.ldap_cache_refresh_threads.intValue();
+        if (threads > 0) {
+            // When the queue is full, the refresh is skipped and retried on a later lookup.
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<Runnable>(threads * 100),
+                    new ThreadFactoryBuilder().setNameFormat("LdapCacheRefresh-%d").setDaemon(true).build(),
+                    new ThreadPoolExecutor.AbortPolicy());
+            pool.allowCoreThreadTimeOut(true);
+            EXECUTOR = pool;
+        } else {
+            EXECUTOR = null;
+        }
+    }
+
+    private final Loader loader;
+    private final long maxStale;
+
+    // interval averages, for the realtime stats
+    private final Counter loadTime = new HitRateCounter();
+    private final Counter staleness = new HitRateCounter();
+
+    /**
+     * @param maxStale how long (ms) past its TTL an entry may still be returned while it is refreshed
+     */
+    public EntryRefresher(Loader loader, long maxStale) {
+        this.loader = loader;
+        this.maxStale = maxStale;
+    }
+
+    /**
+     * State of a cached entry, shared by all the keys it is cached under.
+     */
+    static class CacheEntry<E extends Entry> {
+        final E mEntry;
+        final long mLifetime;
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+
+        CacheEntry(E entry, long expires) {
+            mEntry = entry;
+            mLifetime = System.currentTimeMillis() + expires;
+        }
+
+        boolean isStale() {
+            return mLifetime < System.currentTimeMillis();
+        }
+    }
+
+    // The caches' concurrent maps don't take null keys, which the LRU maps they replaced did.
+
+    static <E extends Entry> void putIfKey(Map<String, CacheEntry<E>> map, String key, CacheEntry<E> ce) {
+        if (key != null) {
+            map.put(key, ce);
+        }
+    }
+
+    static void removeIfKey(Map<String, ?> map, String key) {
+        if (key != null) {
+            map.remove(key);
+        }
+    }
+
+    /**
+     * Cache the entries are refreshed for.
+     */
+    interface Cache<E extends Entry> {
+        void remove(E entry);
+    }
+
+    /**
+     * Called when a lookup finds a stale entry.
+     *
+     * @return true if the stale entry can be returned, false if it should be treated as a miss
+     */
+    <E extends Entry> boolean refresh(final CacheEntry<E> ce, final Cache<E> cache) {
+        long stale = System.currentTimeMillis() - ce.mLifetime;
+        if (EXECUTOR == null || stale > maxStale) {
+            return false;
+        }
+        staleness.increment(stale);
+        if (ce.refreshing.compareAndSet(false, true)) {
+            try {
+                EXECUTOR.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        reload(ce, cache);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                ce.refreshing.set(false);
+            }
+        }
+        return true;
+    }
+
+    private <E extends Entry> void reload(CacheEntry<E> ce, Cache<E> cache) {
+        long start = System.currentTimeMillis();
+        try {
+            loader.reload(ce.mEntry);
+        } catch (ServiceException e) {
+            ZimbraLog.account.warn("unable to refresh cached entry %s", ce.mEntry.getLabel(), e);
+            // the next lookup loads it again
+            cache.remove(ce.mEntry);
+        } catch (RuntimeException e) {
+            ZimbraLog.account.warn("unable to refresh cached entry %s", ce.mEntry.getLabel(), e);
+            cache.remove(ce.mEntry);
+        } finally {
+            loadTime.increment(System.currentTimeMillis() - start);
+        }
+    }
+
+    /**
+     * Average time (ms) spent reloading an entry since the last call.
+     */
+    public double getLoadTime() {
+        return loadTime.getAverage();
+    }
+
+    /**
+     * Average time (ms) stale entries had been expired for when returned since the last call.
+     */
+    public double getStaleness() {
+        return staleness.getAverage();
+    }
+}
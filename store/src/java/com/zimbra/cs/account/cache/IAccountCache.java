@@ -26,4 +26,14 @@ public interface IAccountCache extends IEntryCache {
     public Account getById(String key);
     public Account getByName(String key);
     public Account getByForeignPrincipal(String key);
+
+    /**
+     * Returns the average time (ms) taken to refresh a stale entry in the background.
+     */
+    public double getRefreshTime();
+
+    /**
+     * Returns the average time (ms) stale entries had been expired for when they were returned.
+     */
+    public double getStaleness();
 }
@@ -30,73 +30,74 @@ import com.zimbra.common.util.MapUtil;
 import com.zimbra.common.stats.Counter;
 import com.zimbra.common.stats.HitRateCounter;
 import com.zimbra.cs.account.NamedEntry;
+import com.zimbra.cs.account.cache.EntryRefresher.CacheEntry;
 
 /**
  * @author schemers
  **/
-public class NamedEntryCache<E extends NamedEntry> implements INamedEntryCache<E> {
+public class NamedEntryCache<E extends NamedEntry> implements INamedEntryCache<E>, EntryRefresher.Cache<E> {
     
-    private Map mNameCache;
-    private Map mIdCache;
+    private Map<String, CacheEntry<E>> mNameCache;
+    private Map<String, CacheEntry<E>> mIdCache;
     
     private long mRefreshTTL;
     private Counter mHitRate = new HitRateCounter();
-   
-
-    static class CacheEntry<E extends NamedEntry> {
-        long mLifetime;
-        E mEntry;
-        CacheEntry(E entry, long expires) {
-            mEntry = entry;
-            mLifetime = System.currentTimeMillis() + expires;
-        }
-        
-        boolean isStale() {
-            return mLifetime < System.currentTimeMillis();
-        }
-    }
+    private final EntryRefresher mRefresher;
     
 /**
  * @param maxItems
  * @param refreshTTL
  */
     public NamedEntryCache(int maxItems, long refreshTTL) {
-        mNameCache = MapUtil.newLruMap(maxItems);
-        mIdCache = MapUtil.newLruMap(maxItems);
+        this(maxItems, refreshTTL, null);
+    }
+
+    /**
+     * @param maxItems
+     * @param refreshTTL
+     * @param refresher reloads stale entries in the background, or null to drop them on lookup
+     */
+    public NamedEntryCache(int maxItems, long refreshTTL, EntryRefresher refresher) {
+        mNameCache = MapUtil.newConcurrentLruMap(maxItems);
+        mIdCache = MapUtil.newConcurrentLruMap(maxItems);
         mRefreshTTL = refreshTTL;
+        mRefresher = refresher;
     }
 
     @Override
-    public synchronized void clear() {
+    public void clear() {
         mNameCache.clear();
         mIdCache.clear();
     }
 
     @Override
-    public synchronized void remove(String name, String id) {
-        mNameCache.remove(name);
-        mIdCache.remove(id);
+    public void remove(String name, String id) {
+        if (name != null) {
+            mNameCache.remove(name);
+        }
+        if (id != null) {
+            mIdCache.remove(id);
+        }
     }
     
     @Override
-    public synchronized void remove(E entry) {
+    public void remove(E entry) {
         if (entry != null) {
-            mNameCache.remove(entry.getName());
-            mIdCache.remove(entry.getId());
+            remove(entry.getName(), entry.getId());
         }
     }
     
     @Override
-    public synchronized void put(E entry) {
+    public void put(E entry) {
         if (entry != null) {
             CacheEntry<E> cacheEntry = new CacheEntry<E>(entry, mRefreshTTL);
-            mNameCache.put(entry.getName(), cacheEntry);
-            mIdCache.put(entry.getId(), cacheEntry);
+            EntryRefresher.putIfKey(mNameCache, entry.getName(), cacheEntry);
+            EntryRefresher.putIfKey(mIdCache, entry.getId(), cacheEntry);
         }
     }
     
     @Override
-    public synchronized void replace(E entry) {
+    public void replace(E entry) {
         remove(entry);
         put(entry);
     }
@@ -110,11 +111,10 @@ public class NamedEntryCache<E extends NamedEntry> implements INamedEntryCache<E
         }
     }
 
-    @SuppressWarnings("unchecked")
-    private E get(String key, Map cache) {
-        CacheEntry<E> ce = (CacheEntry<E>) cache.get(key);
+    private E get(String key, Map<String, CacheEntry<E>> cache) {
+        CacheEntry<E> ce = key == null ? null : cache.get(key);
         if (ce != null) {
-            if (mRefreshTTL != 0 && ce.isStale()) {
+            if (mRefreshTTL != 0 && ce.isStale() && (mRefresher == null || !mRefresher.refresh(ce, this))) {
                 remove(ce.mEntry);
                 mHitRate.increment(0);
                 return null;
@@ -129,17 +129,17 @@ public class NamedEntryCache<E extends NamedEntry> implements INamedEntryCache<E
     }
     
     @Override
-    public synchronized E getById(String key) {
+    public E getById(String key) {
         return get(key, mIdCache);
     }
     
     @Override
-    public synchronized E getByName(String key) {
+    public E getByName(String key) {
         return get(key.toLowerCase(), mNameCache);
     }
     
     @Override
-    public synchronized int getSize() {
+    public int getSize() {
         return mIdCache.size();
     }
     
@@ -148,7 +148,7 @@ public class NamedEntryCache<E extends NamedEntry> implements INamedEntryCache<E
      * Returns the cache hit rate as a value between 0 and 100.
      */
     @Override
-    public synchronized double getHitRate() {
+    public double getHitRate() {
         return mHitRate.getAverage();
     }
 }
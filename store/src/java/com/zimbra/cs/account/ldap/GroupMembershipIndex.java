@@ -0,0 +1,539 @@
+/*
+ * ***** BEGIN LICENSE BLOCK *****
+ * Zimbra Collaboration Suite Server
+ * Copyright (C) 2026 Synacor, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software Foundation,
+ * version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ * ***** END LICENSE BLOCK *****
+ */
+package com.zimbra.cs.account.ldap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.zimbra.common.localconfig.LC;
+import com.zimbra.common.service.ServiceException;
+import com.zimbra.common.util.Constants;
+import com.zimbra.common.util.MapUtil;
+import com.zimbra.common.util.StringUtil;
+import com.zimbra.common.util.ZimbraLog;
+import com.zimbra.cs.account.DistributionList;
+import com.zimbra.cs.account.Provisioning;
+import com.zimbra.cs.ldap.IAttributes;
+import com.zimbra.cs.ldap.SearchLdapOptions.SearchLdapVisitor;
+import com.zimbra.cs.ldap.ZLdapFilterFactory;
+
+/**
+ * In-memory index of the members of all distribution lists on the system, so that the lists an account or list
+ * is a member of, directly or through nested lists, can be found without searching LDAP for each level of nesting.
+ * <p>
+ * Each list gets an int handle, and the lists an address is a direct member of are kept as a sorted int array.  The
+ * transitive memberships of accounts are computed from those and cached by account id.
+ * <p>
+ * The index is built from a scan of all lists in LDAP when it is started, and is kept up to date from the
+ * provisioning calls that modify lists on this server, and from the LDAP change feed when it is enabled.  Since
+ * lists can be modified on other servers, it is rebuilt every {@code ldap_group_index_rebuild_interval} minutes,
+ * by default as often as cached groups expire, so it is no staler than the group cache it replaces.  Until the first
+ * build is done, {@link #isReady()} is false and callers search LDAP as before.
+ * <p>
+ * Dynamic groups are not indexed, an account's membership of them is on the account entry.
+ */
+public class GroupMembershipIndex {
+
+    private static final String[] ATTRS = {
+        Provisioning.A_zimbraId, Provisioning.A_mail, Provisioning.A_zimbraMailAlias,
+        Provisioning.A_zimbraMailForwardingAddress
+    };
+
+    private static final int[] NONE = new int[0];
+
+    // rough sizes (bytes) of the objects in the index, for getMemoryFootprint()
+    private static final int OBJECT_OVERHEAD = 16;
+    private static final int REF_SIZE = 8;
+    private static final int MAP_ENTRY_SIZE = 48;
+
+    private static final class GroupInfo {
+        final String id;
+        final String[] addrs;   // addresses the list is known by as a member of other lists
+        final String[] members;
+
+        GroupInfo(String id, String[] addrs, String[] members) {
+            this.id = id;
+            this.addrs = addrs;
+            this.members = members;
+        }
+
+        long footprint() {
+            return OBJECT_OVERHEAD + 3 * REF_SIZE + MAP_ENTRY_SIZE + sizeOf(id) + sizeOf(addrs) + sizeOf(members);
+        }
+    }
+
+    private static final class State {
+        final Map<String, Integer> handles = new HashMap<String, Integer>();       // list id -> handle
+        final List<GroupInfo> groups = new ArrayList<GroupInfo>();                 // handle -> list, null if deleted
+        final Map<String, int[]> directGroups = new HashMap<String, int[]>();      // member address -> handles
+        long footprint;
+    }
+
+    /**
+     * Transitive memberships of an account, valid as long as the index and the account's addresses don't change.
+     */
+    private static final class Membership {
+        final long version;
+        final String[] addrs;
+        final Set<String> groupIds;
+
+        Membership(long version, String[] addrs, Set<String> groupIds) {
+            this.version = version;
+            this.addrs = addrs;
+            this.groupIds = groupIds;
+        }
+    }
+
+    private final LdapProv prov;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ConcurrentMap<String, Membership> memberships =
+            MapUtil.newConcurrentLruMap(LC.ldap_group_index_membership_cache_size.intValue());
+
+    // guarded by lock
+    private State state;
+    private long version;
+    // changes made while the index is being rebuilt, replayed on the rebuilt index; null value for a deleted list
+    private Map<String, GroupInfo> changedWhileRebuilding;
+
+    private Timer timer;
+    private TimerTask rebuildTask;
+
+    public GroupMembershipIndex(LdapProv prov) {
+        this.prov = prov;
+    }
+
+    /**
+     * Builds the index in the background, and rebuilds it periodically.
+     */
+    public synchronized void start() {
+        if (timer != null) {
+            return;
+        }
+        long interval = LC.ldap_group_index_rebuild_interval.longValue() * Constants.MILLIS_PER_MINUTE;
+        timer = new Timer("GroupMembershipIndex", true);
+        rebuildTask = new TimerTask() {
+            @Override
+            public void run() {
+                try {
+                    rebuild();
+                } catch (ServiceException e) {
+                    ZimbraLog.account.warn("unable to build group membership index", e);
+                } catch (RuntimeException e) {
+                    ZimbraLog.account.warn("unable to build group membership index", e);
+                }
+            }
+        };
+        if (interval > 0) {
+            timer.schedule(rebuildTask, 0, interval);
+        } else {
+            timer.schedule(rebuildTask, 0);
+        }
+    }
+
+    /**
+     * Rebuilds the index in the background, if it has been started.
+     */
+    public synchronized void requestRebuild() {
+        if (timer != null) {
+            final TimerTask task = rebuildTask;
+            timer.schedule(new TimerTask() {
+                @Override
+                public void run() {
+                    task.run();
+                }
+            }, 0);
+        }
+    }
+
+    public synchronized void stop() {
+        if (timer != null) {
+            timer.cancel();
+            timer = null;
+            rebuildTask = null;
+        }
+    }
+
+    public boolean isReady() {
+        lock.readLock().lock();
+        try {
+            return state != null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rebuilds the index from all distribution lists in LDAP.
+     */
+    public void rebuild() throws ServiceException {
+        long start = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            changedWhileRebuilding = new HashMap<String, GroupInfo>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        final State rebuilt = new State();
+        boolean done = false;
+        try {
+            scanGroups(new SearchLdapVisitor() {
+                @Override
+                public void visit(String dn, Map<String, Object> attrs, IAttributes ldapAttrs) {
+                    GroupInfo group = toGroupInfo(attrs);
+                    if (group != null) {
+                        put(rebuilt, group);
+                    }
+                }
+            });
+            done = true;
+        } finally {
+            lock.writeLock().lock();
+            try {
+                if (done) {
+                    for (Map.Entry<String, GroupInfo> change : changedWhileRebuilding.entrySet()) {
+                        if (change.getValue() == null) {
+                            remove(rebuilt, change.getKey());
+                        } else {
+                            put(rebuilt, change.getValue());
+                        }
+                    }
+                    state = rebuilt;
+                    version++;
+                }
+                changedWhileRebuilding = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        memberships.clear();
+        ZimbraLog.account.info("built group membership index: %d lists, %d member addresses, ~%d bytes, in %dms",
+                rebuilt.handles.size(), rebuilt.directGroups.size(), rebuilt.footprint,
+                System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Visits all distribution lists, with their ids, addresses and members.
+     */
+    protected void scanGroups(SearchLdapVisitor visitor) throws ServiceException {
+        prov.searchLdapOnReplica(prov.getDIT().mailBranchBaseDN(),
+                ZLdapFilterFactory.getInstance().allDistributionLists(), ATTRS, visitor);
+    }
+
+    private static GroupInfo toGroupInfo(Map<String, Object> attrs) {
+        String[] id = StringUtil.toStringArray(attrs.get(Provisioning.A_zimbraId));
+        if (id == null || id.length == 0) {
+            return null;
+        }
+        Set<String> addrs = new LinkedHashSet<String>();
+        addLowerCase(addrs, attrs.get(Provisioning.A_mail));
+        addLowerCase(addrs, attrs.get(Provisioning.A_zimbraMailAlias));
+        Set<String> members = new LinkedHashSet<String>();
+        addLowerCase(members, attrs.get(Provisioning.A_zimbraMailForwardingAddress));
+        return new GroupInfo(id[0], addrs.toArray(new String[addrs.size()]), members.toArray(new String[members.size()]));
+    }
+
+    private static void addLowerCase(Set<String> set, Object values) {
+        if (values == null) {
+            return;
+        }
+        for (String value : StringUtil.toStringArray(values)) {
+            set.add(value.toLowerCase());
+        }
+    }
+
+    /**
+     * Indexes a distribution list that was created or modified.  The entry must have its members loaded.
+     */
+    public void groupChanged(DistributionList dl) {
+        Map<String, Object> attrs = new HashMap<String, Object>();
+        for (String attr : ATTRS) {
+            attrs.put(attr, dl.getMultiAttr(attr));
+        }
+        attrs.put(Provisioning.A_zimbraId, dl.getId());
+        GroupInfo group = toGroupInfo(attrs);
+        if (group != null) {
+            update(group.id, group);
+        }
+    }
+
+    /**
+     * Reloads a distribution list from the LDAP master, or removes it from the index if it no longer exists.
+     */
+    public void reloadGroup(String id) throws ServiceException {
+        if (!isReady()) {
+            return;
+        }
+        final List<GroupInfo> found = new ArrayList<GroupInfo>(1);
+        prov.searchLdapOnMaster(prov.getDIT().mailBranchBaseDN(),
+                ZLdapFilterFactory.getInstance().distributionListById(id), ATTRS, new SearchLdapVisitor() {
+            @Override
+            public void visit(String dn, Map<String, Object> attrs, IAttributes ldapAttrs) {
+                GroupInfo group = toGroupInfo(attrs);
+                if (group != null) {
+                    found.add(group);
+                }
+            }
+        });
+        update(id, found.isEmpty() ? null : found.get(0));
+    }
+
+    public void groupDeleted(String id) {
+        update(id, null);
+    }
+
+    private void update(String id, GroupInfo group) {
+        lock.writeLock().lock();
+        try {
+            if (changedWhileRebuilding != null) {
+                changedWhileRebuilding.put(id, group);
+            }
+            if (state == null) {
+                return;
+            }
+            if (group == null) {
+                remove(state, id);
+            } else {
+                put(state, group);
+            }
+            version++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void put(State state, GroupInfo group) {
+        Integer handle = state.handles.get(group.id);
+        if (handle == null) {
+            handle = state.groups.size();
+            state.groups.add(group);
+            state.handles.put(group.id, handle);
+        } else {
+            unindex(state, handle);
+            state.groups.set(handle, group);
+        }
+        state.footprint += group.footprint();
+        for (String member : group.members) {
+            int[] handles = state.directGroups.get(member);
+            if (handles == null) {
+                state.footprint += MAP_ENTRY_SIZE + sizeOf(member) + OBJECT_OVERHEAD;
+                handles = NONE;
+            }
+            state.directGroups.put(member, add(handles, handle));
+            state.footprint += 4;
+        }
+    }
+
+    private static void remove(State state, String id) {
+        Integer handle = state.handles.remove(id);
+        if (handle != null) {
+            unindex(state, handle);
+            // handles are not reused until the index is rebuilt
+            state.groups.set(handle, null);
+        }
+    }
+
+    private static void unindex(State state, int handle) {
+        GroupInfo old = state.groups.get(handle);
+        state.footprint -= old.footprint();
+        for (String member : old.members) {
+            int[] handles = state.directGroups.get(member);
+            if (handles == null) {
+                continue;
+            }
+            handles = remove(handles, handle);
+            state.footprint -= 4;
+            if (handles.length == 0) {
+                state.directGroups.remove(member);
+                state.footprint -= MAP_ENTRY_SIZE + sizeOf(member) + OBJECT_OVERHEAD;
+            } else {
+                state.directGroups.put(member, handles);
+            }
+        }
+    }
+
+    /**
+     * Returns the ids of the distribution lists any of the addresses is a direct member of, or null if the index
+     * is not ready.
+     */
+    public List<String> getDirectGroupIds(String[] addrs) {
+        lock.readLock().lock();
+        try {
+            if (state == null) {
+                return null;
+            }
+            BitSet handles = new BitSet();
+            addDirectGroups(state, addrs, handles);
+            return toIds(state, handles);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the ids of the distribution lists any of the addresses is a member of, directly or through nested
+     * lists, or null if the index is not ready.
+     *
+     * @param memberId id of the entry the addresses are of, to cache the result under; or null
+     */
+    public Set<String> getGroupIds(String memberId, String[] addrs) {
+        Membership cached = memberId == null ? null : memberships.get(memberId);
+        lock.readLock().lock();
+        try {
+            if (state == null) {
+                return null;
+            }
+            if (cached != null && cached.version == version && Arrays.equals(cached.addrs, addrs)) {
+                return cached.groupIds;
+            }
+            BitSet handles = new BitSet();
+            addDirectGroups(state, addrs, handles);
+            // walk up the nested lists
+            List<Integer> toVisit = new ArrayList<Integer>();
+            for (int h = handles.nextSetBit(0); h >= 0; h = handles.nextSetBit(h + 1)) {
+                toVisit.add(h);
+            }
+            while (!toVisit.isEmpty()) {
+                GroupInfo group = state.groups.get(toVisit.remove(toVisit.size() - 1));
+                for (String addr : group.addrs) {
+                    for (int parent : get(state, addr)) {
+                        if (!handles.get(parent)) {
+                            handles.set(parent);
+                            toVisit.add(parent);
+                        }
+                    }
+                }
+            }
+            Set<String> groupIds = Collections.unmodifiableSet(new HashSet<String>(toIds(state, handles)));
+            if (memberId != null) {
+                memberships.put(memberId, new Membership(version, addrs.clone(), groupIds));
+            }
+            return groupIds;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the member addresses of a distribution list, or null if the list is not in the index.
+     */
+    public String[] getMembers(String groupId) {
+        lock.readLock().lock();
+        try {
+            if (state == null) {
+                return null;
+            }
+            Integer handle = state.handles.get(groupId);
+            return handle == null ? null : state.groups.get(handle).members.clone();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of distribution lists in the index.
+     */
+    public int getSize() {
+        lock.readLock().lock();
+        try {
+            return state == null ? 0 : state.handles.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Estimated memory used by the index, in bytes.
+     */
+    public long getMemoryFootprint() {
+        lock.readLock().lock();
+        try {
+            return state == null ? 0 : state.footprint;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static void addDirectGroups(State state, String[] addrs, BitSet handles) {
+        for (String addr : addrs) {
+            for (int handle : get(state, addr.toLowerCase())) {
+                handles.set(handle);
+            }
+        }
+    }
+
+    private static int[] get(State state, String addr) {
+        int[] handles = state.directGroups.get(addr);
+        return handles == null ? NONE : handles;
+    }
+
+    private static List<String> toIds(State state, BitSet handles) {
+        List<String> ids = new ArrayList<String>(handles.cardinality());
+        for (int h = handles.nextSetBit(0); h >= 0; h = handles.nextSetBit(h + 1)) {
+            ids.add(state.groups.get(h).id);
+        }
+        return ids;
+    }
+
+    private static int[] add(int[] set, int value) {
+        int pos = Arrays.binarySearch(set, value);
+        if (pos >= 0) {
+            return set;
+        }
+        pos = -(pos + 1);
+        int[] result = new int[set.length + 1];
+        System.arraycopy(set, 0, result, 0, pos);
+        result[pos] = value;
+        System.arraycopy(set, pos, result, pos + 1, set.length - pos);
+        return result;
+    }
+
+    private static int[] remove(int[] set, int value) {
+        int pos = Arrays.binarySearch(set, value);
+        if (pos < 0) {
+            return set;
+        }
+        int[] result = new int[set.length - 1];
+        System.arraycopy(set, 0, result, 0, pos);
+        System.arraycopy(set, pos + 1, result, pos, set.length - pos - 1);
+        return result;
+    }
+
+    private static long sizeOf(String s) {
+        return OBJECT_OVERHEAD + 24 + 2L * s.length();
+    }
+
+    private static long sizeOf(String[] values) {
+        long size = OBJECT_OVERHEAD + (long) REF_SIZE * values.length;
+        for (String value : values) {
+            size += sizeOf(value);
+        }
+        return size;
+    }
+}
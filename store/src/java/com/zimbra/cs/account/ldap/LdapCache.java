@@ -37,6 +37,7 @@ import com.zimbra.cs.account.XMPPComponent;
 import com.zimbra.cs.account.cache.AccountCache;
 import com.zimbra.cs.account.cache.DomainCache;
 import com.zimbra.cs.account.cache.DomainCache.GetFromDomainCacheOption;
+import com.zimbra.cs.account.cache.EntryRefresher;
 import com.zimbra.cs.account.cache.IAccountCache;
 import com.zimbra.cs.account.cache.IDomainCache;
 import com.zimbra.cs.account.cache.IMimeTypeCache;
@@ -69,34 +70,20 @@ abstract class LdapCache {
      */
     static class LRUMapCache extends LdapCache {
 
-        private final IAccountCache accountCache =
-            new AccountCache(
-                    LC.ldap_cache_account_maxsize.intValue(),
-                    LC.ldap_cache_account_maxage.intValue() * Constants.MILLIS_PER_MINUTE);
+        private final IAccountCache accountCache;
 
-        private final INamedEntryCache<LdapCos> cosCache =
-            new NamedEntryCache<LdapCos>(
-                    LC.ldap_cache_cos_maxsize.intValue(),
-                    LC.ldap_cache_cos_maxage.intValue() * Constants.MILLIS_PER_MINUTE);
+        private final INamedEntryCache<LdapCos> cosCache;
 
         private final INamedEntryCache<ShareLocator> shareLocatorCache =
                 new NamedEntryCache<ShareLocator>(
                         LC.ldap_cache_share_locator_maxsize.intValue(),
                         LC.ldap_cache_share_locator_maxage.intValue() * Constants.MILLIS_PER_MINUTE);
 
-        private final IDomainCache domainCache =
-            new DomainCache(
-                    LC.ldap_cache_domain_maxsize.intValue(),
-                    LC.ldap_cache_domain_maxage.intValue() * Constants.MILLIS_PER_MINUTE,
-                    LC.ldap_cache_external_domain_maxsize.intValue(),
-                    LC.ldap_cache_external_domain_maxage.intValue() * Constants.MILLIS_PER_MINUTE);
+        private final IDomainCache domainCache;
 
         private final IMimeTypeCache mimeTypeCache = new LdapMimeTypeCache();
 
-        private final INamedEntryCache<Server> serverCache =
-            new NamedEntryCache<Server>(
-                    LC.ldap_cache_server_maxsize.intValue(),
-                    LC.ldap_cache_server_maxage.intValue() * Constants.MILLIS_PER_MINUTE);
+        private final INamedEntryCache<Server> serverCache;
 
         private final INamedEntryCache<UCService> ucServiceCache =
             new NamedEntryCache<UCService>(
@@ -124,6 +111,32 @@ abstract class LdapCache {
                         LC.ldap_cache_alwaysoncluster_maxsize.intValue(),
                         LC.ldap_cache_alwaysoncluster_maxage.intValue() * Constants.MILLIS_PER_MINUTE);
 
+        /**
+         * @param loader reloads stale accounts, COS, domains and servers in the background while the cached
+         *        entry is still served; other entries are dropped from the cache once stale
+         */
+        LRUMapCache(EntryRefresher.Loader loader) {
+            long maxStale = LC.ldap_cache_refresh_max_stale.intValue() * Constants.MILLIS_PER_MINUTE;
+            accountCache = new AccountCache(
+                    LC.ldap_cache_account_maxsize.intValue(),
+                    LC.ldap_cache_account_maxage.intValue() * Constants.MILLIS_PER_MINUTE,
+                    new EntryRefresher(loader, maxStale));
+            cosCache = new NamedEntryCache<LdapCos>(
+                    LC.ldap_cache_cos_maxsize.intValue(),
+                    LC.ldap_cache_cos_maxage.intValue() * Constants.MILLIS_PER_MINUTE,
+                    new EntryRefresher(loader, maxStale));
+            domainCache = new DomainCache(
+                    LC.ldap_cache_domain_maxsize.intValue(),
+                    LC.ldap_cache_domain_maxage.intValue() * Constants.MILLIS_PER_MINUTE,
+                    LC.ldap_cache_external_domain_maxsize.intValue(),
+                    LC.ldap_cache_external_domain_maxage.intValue() * Constants.MILLIS_PER_MINUTE,
+                    new EntryRefresher(loader, maxStale));
+            serverCache = new NamedEntryCache<Server>(
+                    LC.ldap_cache_server_maxsize.intValue(),
+                    LC.ldap_cache_server_maxage.intValue() * Constants.MILLIS_PER_MINUTE,
+                    new EntryRefresher(loader, maxStale));
+        }
+
         @Override
         IAccountCache accountCache() {
             return accountCache;
@@ -228,6 +241,12 @@ abstract class LdapCache {
 
             @Override
             public double getHitRate() { return 0; }
+
+            @Override
+            public double getRefreshTime() { return 0; }
+
+            @Override
+            public double getStaleness() { return 0; }
         }
 
         static class NoopDomainCache implements IDomainCache {
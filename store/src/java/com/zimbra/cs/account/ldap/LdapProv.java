@@ -75,6 +75,10 @@ public abstract class LdapProv extends Provisioning {
 
     public abstract int getAccountCacheSize();
     public abstract double getAccountCacheHitRate();
+    public abstract double getAccountCacheRefreshTime();
+    public abstract double getAccountCacheStaleness();
+    public abstract int getGroupIndexSize();
+    public abstract long getGroupIndexMemoryFootprint();
     public abstract int getCosCacheSize();
     public abstract double getCosCacheHitRate();
     public abstract int getDomainCacheSize();
@@ -127,6 +131,18 @@ public abstract class LdapProv extends Provisioning {
 
     public abstract void removeFromCache(Entry entry);
 
+    /**
+     * Starts invalidating cached entries as soon as they are changed on the LDAP master.
+     */
+    public abstract void startChangeFeed();
+    public abstract void stopChangeFeed();
+
+    /**
+     * Starts building the index of distribution list members used for group membership lookups.
+     */
+    public abstract void startGroupIndex();
+    public abstract void stopGroupIndex();
+
     @TODO  // deprecate
     public abstract void searchLdapOnMaster(String base, String filter,
             String[] returnAttrs, SearchLdapOptions.SearchLdapVisitor visitor)
@@ -128,6 +128,7 @@ import com.zimbra.cs.account.auth.AuthMechanism.AuthMech;
 import com.zimbra.cs.account.auth.PasswordUtil;
 import com.zimbra.cs.account.cache.DomainCache;
 import com.zimbra.cs.account.cache.DomainCache.GetFromDomainCacheOption;
+import com.zimbra.cs.account.cache.EntryRefresher;
 import com.zimbra.cs.account.cache.IAccountCache;
 import com.zimbra.cs.account.cache.IDomainCache;
 import com.zimbra.cs.account.cache.IMimeTypeCache;
@@ -209,6 +210,7 @@ import com.zimbra.cs.ldap.ZSearchResultEntry;
 import com.zimbra.cs.ldap.ZSearchResultEnumeration;
 import com.zimbra.cs.ldap.ZSearchScope;
 import com.zimbra.cs.ldap.unboundid.InMemoryLdapServer;
+import com.zimbra.cs.ldap.unboundid.UBIDChangeFeed;
 import com.zimbra.cs.listeners.AuthListener;
 import com.zimbra.cs.mailbox.Folder;
 import com.zimbra.cs.mailbox.Mailbox;
@@ -271,6 +273,7 @@ public class LdapProvisioning extends LdapProv implements CacheAwareProvisioning
     private GlobalGrant cachedGlobalGrant = null;
     private static final Random sPoolRandom = new Random();
     private final Groups allDLs; // email addresses of all distribution lists on the system
+    private final GroupMembershipIndex groupIndex;
     private final ZLdapFilterFactory filterFactory;
 
     private String[] BASIC_DL_ATTRS;
@@ -301,7 +304,12 @@ public class LdapProvisioning extends LdapProv implements CacheAwareProvisioning
         }
 
         if (this.useCache) {
-            cache = new LdapCache.LRUMapCache();
+            cache = new LdapCache.LRUMapCache(new EntryRefresher.Loader() {
+                @Override
+                public void reload(Entry entry) throws ServiceException {
+                    LdapProvisioning.this.reload(entry, false);
+                }
+            });
         } else {
             cache = new LdapCache.NoopCache();
         }
@@ -324,6 +332,7 @@ public class LdapProvisioning extends LdapProv implements CacheAwareProvisioning
         setDIT();
         setHelper(new ZLdapHelper(this));
         allDLs = new Groups(this);
+        groupIndex = new GroupMembershipIndex(this);
 
         filterFactory = ZLdapFilterFactory.getInstance();
 
@@ -346,6 +355,18 @@ public class LdapProvisioning extends LdapProv implements CacheAwareProvisioning
     @Override
     public double getAccountCacheHitRate() { return accountCache.getHitRate(); }
 
+    @Override
+    public double getAccountCacheRefreshTime() { return accountCache.getRefreshTime(); }
+
+    @Override
+    public double getAccountCacheStaleness() { return accountCache.getStaleness(); }
+
+    @Override
+    public int getGroupIndexSize() { return groupIndex.getSize(); }
+
+    @Override
+    public long getGroupIndexMemoryFootprint() { return groupIndex.getMemoryFootprint(); }
+
     @Override
     public int getCosCacheSize() { return cosCache.getSize(); }
 
@@ -673,6 +694,22 @@ public class LdapProvisioning extends LdapProv implements CacheAwareProvisioning
                 LdapClient.closeContext(zlc);
             }
         }
+        if (entry instanceof DistributionList && changesGroupMembership(attrs)) {
+            // refreshed with all attributes, including the members
+            groupIndex.groupChanged((DistributionList) entry);
+        }
+    }
+
+    private static boolean changesGroupMembership(Map<String, ? extends Object> attrs) {
+        for (String key : attrs.keySet()) {
+            String attrName = (key.startsWith("+") || key.startsWith("-")) ? key.substring(1) : key;
+            if (Provisioning.A_zimbraMailForwardingAddress.equalsIgnoreCase(attrName) ||
+                    Provisioning.A_mail.equalsIgnoreCase(attrName) ||
+                    Provisioning.A_zimbraMailAlias.equalsIgnoreCase(attrName)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     private void setLdapPassword(Entry entry, ZLdapContext initZlc, String newPassword)
@@ -4628,6 +4665,12 @@ public class LdapProvisioning extends LdapProv implements CacheAwareProvisioning
                 AttributeManager.getInstance().postModify(listAttrs, dlist, callbackContext);
                 removeExternalAddrsFromAllDynamicGroups(dlist.getAllAddrsSet(), zlc);
                 allDLs.addGroup(dlist);
+                try {
+                    // dlist only has the basic attributes, it might have been created with members
+                    groupIndex.reloadGroup(zimbraIdStr);
+                } catch (ServiceException e) {
+                    ZimbraLog.account.warn("unable to index distribution list %s", listAddress, e);
+                }
             } else {
                 throw ServiceException.FAILURE("unable to get distribution list after creating LDAP entry: "+
                         listAddress, null);
@@ -4949,6 +4992,7 @@ public class LdapProvisioning extends LdapProv implements CacheAwareProvisioning
             zlc.deleteEntry(dl.getDN());
             groupCache.remove(dl);
             allDLs.removeGroup(addrs);
+            groupIndex.groupDeleted(zimbraId);
         } catch (ServiceException e) {
             throw ServiceException.FAILURE("unable to purge distribution list: "+zimbraId, e);
         } finally {
@@ -6787,6 +6831,8 @@ public class LdapProvisioning extends LdapProv implements CacheAwareProvisioning
      * -  Get list of ids from EntryCacheDataKey.GROUPEDENTRY_DIRECT_GROUPIDS for "entry"
      *    -  Entry not cached:
      *       -  Get all addresses of this entry that can be identified as a member in a static group.
+     *       -  If the group membership index is ready, get the ids of the direct groups from it and
+     *          fetch the groups as for a cached entry.  Otherwise:
      *       -  Get direct groups for those addresses using filterFactory.distributionListsByMemberAddrs
      *          i.e. using an OR filter on Provisioning.A_zimbraMailForwardingAddress
      *       -  See if prov's Group Cache has this group already.  If so, use that! otherwise add it
@@ -6813,6 +6859,13 @@ public class LdapProvisioning extends LdapProv implements CacheAwareProvisioning
         if (directGroupIds == null) {
             String[] addrs = ((GroupedEntry)entry).getAllAddrsAsGroupMember();
 
+            directGroupIds = groupIndex.getDirectGroupIds(addrs);
+            if (directGroupIds != null) {
+                // the group ids are from the membership index, the groups come from the cache
+                entry.setCachedData(cacheKey, directGroupIds);
+                return getDirectDLs(prov, entry, directGroupIds);
+            }
+
             // fetch from LDAP
             directGroups = prov.getAllDistributionListsForAddresses(addrs, true);
 
@@ -6840,40 +6893,45 @@ public class LdapProvisioning extends LdapProv implements CacheAwareProvisioning
             return directGroupsToReturn;
 
         } else {
-            /*
-             * The entry already have direct group ids cached.
-             * Go through each of them and fetch the groups,
-             * eithr from cache or from LDAP (prov.getDLBasic).
-             */
-            directGroups = new ArrayList<DistributionList>();
-            Set<String> idsToRemove = null;
-            for (String groupId : directGroupIds) {
-                DistributionList group = prov.getDLBasic(Key.DistributionListBy.id, groupId);
-                if (group == null) {
-                    // the group could have been deleted
-                    // remove it from our direct group id cache on the entry
-                    if (idsToRemove == null) {
-                        idsToRemove = new HashSet<String>();
-                    }
-                    idsToRemove.add(groupId);
-                } else {
-                    directGroups.add(group);
+            return getDirectDLs(prov, entry, directGroupIds);
+        }
+    }
+
+    private List<DistributionList> getDirectDLs(LdapProvisioning prov, Entry entry, List<String> directGroupIds)
+    throws ServiceException {
+        EntryCacheDataKey cacheKey = EntryCacheDataKey.GROUPEDENTRY_DIRECT_GROUPIDS;
+        /*
+         * Go through each of the direct group ids and fetch the groups,
+         * either from cache or from LDAP (prov.getDLBasic).
+         */
+        List<DistributionList> directGroups = new ArrayList<DistributionList>();
+        Set<String> idsToRemove = null;
+        for (String groupId : directGroupIds) {
+            DistributionList group = prov.getDLBasic(Key.DistributionListBy.id, groupId);
+            if (group == null) {
+                // the group could have been deleted
+                // remove it from our direct group id cache on the entry
+                if (idsToRemove == null) {
+                    idsToRemove = new HashSet<String>();
                 }
+                idsToRemove.add(groupId);
+            } else {
+                directGroups.add(group);
             }
+        }
 
-            // update our direct group id cache if needed
-            if (idsToRemove != null) {
-                // create a new object, do *not* update directly on the cached copy
-                List<String> updatedDirectGroupIds = new ArrayList<String>();
-                for (String id : directGroupIds) {
-                    if (!idsToRemove.contains(id)) {
-                        updatedDirectGroupIds.add(id);
-                    }
+        // update our direct group id cache if needed
+        if (idsToRemove != null) {
+            // create a new object, do *not* update directly on the cached copy
+            List<String> updatedDirectGroupIds = new ArrayList<String>();
+            for (String id : directGroupIds) {
+                if (!idsToRemove.contains(id)) {
+                    updatedDirectGroupIds.add(id);
                 }
-
-                // swap in the new data
-                entry.setCachedData(cacheKey, updatedDirectGroupIds);
             }
+
+            // swap in the new data
+            entry.setCachedData(cacheKey, updatedDirectGroupIds);
         }
 
         return directGroups;
@@ -6991,6 +7049,13 @@ public class LdapProvisioning extends LdapProv implements CacheAwareProvisioning
     private Set<String> getDistributionListIds(Account acct, boolean directOnly)
     throws ServiceException {
 
+        if (!directOnly) {
+            Set<String> indexed = groupIndex.getGroupIds(acct.getId(), acct.getAllAddrsAsGroupMember());
+            if (indexed != null) {
+                return indexed;
+            }
+        }
+
         Set<String> dls = new HashSet<String>();
 
         List<DistributionList> lists = getDistributionLists(acct, directOnly, null);
@@ -9081,10 +9146,14 @@ public class LdapProvisioning extends LdapProv implements CacheAwareProvisioning
                     Key.DistributionListBy dlBy = (entry.mEntryBy==Key.CacheEntryBy.id)?
                             Key.DistributionListBy.id : Key.DistributionListBy.name;
                     removeGroupFromCache(dlBy, entry.mEntryIdentity);
+                    if (dlBy == Key.DistributionListBy.id) {
+                        groupIndex.reloadGroup(entry.mEntryIdentity);
+                    }
                 }
             } else {
                 allDLs.clear();
                 groupCache.clear();
+                groupIndex.requestRebuild();
             }
             return;
         case config:
@@ -9181,6 +9250,81 @@ public class LdapProvisioning extends LdapProv implements CacheAwareProvisioning
         }
     }
 
+    private UBIDChangeFeed changeFeed;
+
+    @Override // LdapProv
+    public synchronized void startChangeFeed() {
+        if (changeFeed != null || !useCache) {
+            return;
+        }
+        String[] objectClasses = {
+                AttributeClass.OC_zimbraAccount, AttributeClass.OC_zimbraDistributionList,
+                AttributeClass.OC_zimbraGroup, AttributeClass.OC_zimbraDomain, AttributeClass.OC_zimbraCOS,
+                AttributeClass.OC_zimbraServer, AttributeClass.OC_zimbraGlobalConfig };
+        changeFeed = new UBIDChangeFeed("", objectClasses,
+                LC.ldap_cache_change_feed_retry_interval.intValue() * Constants.MILLIS_PER_SECOND,
+                new UBIDChangeFeed.Listener() {
+            @Override
+            public void entryChanged(String dn, String zimbraId, String[] objectClasses) throws ServiceException {
+                flushChangedEntry(dn, zimbraId, objectClasses);
+            }
+        });
+        changeFeed.start();
+    }
+
+    @Override // LdapProv
+    public synchronized void stopChangeFeed() {
+        if (changeFeed != null) {
+            changeFeed.stop();
+            changeFeed = null;
+        }
+    }
+
+    @Override // LdapProv
+    public void startGroupIndex() {
+        groupIndex.start();
+    }
+
+    @Override // LdapProv
+    public void stopGroupIndex() {
+        groupIndex.stop();
+    }
+
+    /**
+     * Flushes an entry the change feed reported as changed, if it is cached.
+     */
+    private void flushChangedEntry(String dn, String zimbraId, String[] objectClasses) throws ServiceException {
+        if (zimbraId == null || objectClasses == null) {
+            // deleted: it stays cached until it expires or is flushed
+            ZimbraLog.account.debug("LDAP change feed: %s deleted", dn);
+            return;
+        }
+        Set<String> ocs = new HashSet<String>();
+        for (String oc : objectClasses) {
+            ocs.add(oc.toLowerCase());
+        }
+        CacheEntry[] entries = new CacheEntry[] { new CacheEntry(Key.CacheEntryBy.id, zimbraId) };
+        ZimbraLog.account.debug("LDAP change feed: %s changed", dn);
+        if (ocs.contains(AttributeClass.OC_zimbraAccount.toLowerCase())) {
+            flushCache(CacheEntryType.account, entries);
+        } else if (ocs.contains(AttributeClass.OC_zimbraDistributionList.toLowerCase()) ||
+                ocs.contains(AttributeClass.OC_zimbraGroup.toLowerCase())) {
+            flushCache(CacheEntryType.group, entries);
+        } else if (ocs.contains(AttributeClass.OC_zimbraDomain.toLowerCase())) {
+            flushCache(CacheEntryType.domain, entries);
+        } else if (ocs.contains(AttributeClass.OC_zimbraCOS.toLowerCase())) {
+            flushCache(CacheEntryType.cos, entries);
+        } else if (ocs.contains(AttributeClass.OC_zimbraServer.toLowerCase())) {
+            // only if cached, flushCache(server) would load it
+            Server server = serverCache.getById(zimbraId);
+            if (server != null) {
+                reload(server, false);
+            }
+        } else if (ocs.contains(AttributeClass.OC_zimbraGlobalConfig.toLowerCase())) {
+            flushCache(CacheEntryType.config, null);
+        }
+    }
+
     private static class CountAccountVisitor implements NamedEntry.Visitor {
 
         private static class Result {
@@ -0,0 +1,108 @@
+/*
+ * ***** BEGIN LICENSE BLOCK *****
+ * Zimbra Collaboration Suite Server
+ * Copyright (C) 2026 Synacor, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software Foundation,
+ * version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ * ***** END LICENSE BLOCK *****
+ */
+package com.zimbra.cs.convert;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.zimbra.common.localconfig.LC;
+import com.zimbra.common.util.ZimbraLog;
+
+/**
+ * Bounded worker pool for text extraction and conversion, so that a slow or hung converter only
+ * ties up one of its own threads rather than a delivery or indexing thread.
+ * <p>
+ * A task that doesn't finish within {@link LC#conversion_timeout_ms}, or that can't be queued
+ * because the pool is saturated, fails with a temporary {@link ConversionException}; the caller
+ * indexes what it has and the item is reindexed later.
+ */
+public final class ConversionPool {
+
+    private static final ConversionPool INSTANCE = new ConversionPool(LC.conversion_threads.intValue(),
+            LC.conversion_queue_size.intValue(), LC.conversion_timeout_ms.longValue());
+
+    private final ThreadPoolExecutor executor;
+    private final long timeout;
+
+    @VisibleForTesting
+    ConversionPool(int threads, int queueSize, long timeout) {
+        this.timeout = timeout;
+        if (threads > 0) {
+            executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<Runnable>(Math.max(queueSize, 1)),
+                    new ThreadFactoryBuilder().setNameFormat("Conversion-%d").setDaemon(true).build(),
+                    new ThreadPoolExecutor.AbortPolicy());
+            executor.allowCoreThreadTimeOut(true);
+        } else {
+            executor = null;
+        }
+    }
+
+    public static ConversionPool getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Runs the task on the pool and waits for its result.  If the pool is disabled, the task runs
+     * on the calling thread.
+     *
+     * @throws ExecutionException if the task failed, with the task's exception as the cause
+     * @throws ConversionException (temporary) if the task timed out or the pool is saturated
+     */
+    public <T> T run(Callable<T> task) throws ExecutionException, ConversionException {
+        if (executor == null) {
+            try {
+                return task.call();
+            } catch (Exception e) {
+                throw new ExecutionException(e);
+            }
+        }
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            ZimbraLog.index.warn("conversion pool saturated (%d active, %d queued)",
+                    executor.getActiveCount(), executor.getQueue().size());
+            throw new ConversionException("conversion pool saturated", e, true);
+        }
+        try {
+            return future.get(timeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new ConversionException("conversion timed out after " + timeout + "ms", e, true);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ConversionException("interrupted while waiting for conversion", e, true);
+        }
+    }
+
+    @VisibleForTesting
+    void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * ***** BEGIN LICENSE BLOCK *****
+ * Zimbra Collaboration Suite Server
+ * Copyright (C) 2026 Synacor, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software Foundation,
+ * version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ * ***** END LICENSE BLOCK *****
+ */
+package com.zimbra.cs.convert;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import com.zimbra.common.localconfig.LC;
+import com.zimbra.common.util.ByteUtil;
+import com.zimbra.common.util.FileUtil;
+import com.zimbra.common.util.ZimbraLog;
+
+/**
+ * Disk cache of the text extracted from attachments, keyed by a digest of the attachment content.
+ * The same attachment delivered to many mailboxes, or reindexed, is then only extracted once.
+ * <p>
+ * Each entry is a UTF-8 file named after its key.  The least recently used entries are removed
+ * once the cache grows beyond {@link LC#text_extraction_cache_max_size}; the order survives
+ * restarts through the file modification times.
+ */
+public final class ExtractedTextCache {
+
+    private static final String FILE_EXT = ".txt";
+    private static ExtractedTextCache instance;
+    private static boolean initialized = false;
+
+    private final File dir;
+    private final long maxSize;
+    /** key to file size, in access order */
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<String, Long>(16, 0.75f, true);
+    private long size = 0;
+
+    @VisibleForTesting
+    ExtractedTextCache(File dir, long maxSize) {
+        this.dir = dir;
+        this.maxSize = maxSize;
+        load();
+    }
+
+    /**
+     * Returns the cache, or null if it is disabled.
+     */
+    public static synchronized ExtractedTextCache getInstance() {
+        if (!initialized) {
+            initialized = true;
+            long maxSize = LC.text_extraction_cache_max_size.longValue();
+            if (maxSize > 0) {
+                instance = new ExtractedTextCache(new File(LC.text_extraction_cache_directory.value()), maxSize);
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Returns the cache key of the given content.  {@code variant} covers everything besides the
+     * content that affects the extracted text, such as the handler and the charset.
+     */
+    public static String getKey(InputStream content, String variant) throws IOException {
+        MessageDigest md = newDigest(variant);
+        byte[] buf = new byte[8192];
+        int read;
+        while ((read = content.read(buf)) != -1) {
+            md.update(buf, 0, read);
+        }
+        return getKey(md);
+    }
+
+    /**
+     * Returns a digest to be updated with the content, for callers that read the content anyway.
+     *
+     * @see #getKey(MessageDigest)
+     */
+    public static MessageDigest newDigest(String variant) throws IOException {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+        md.update(variant.getBytes(Charsets.UTF_8));
+        md.update((byte) 0);
+        return md;
+    }
+
+    public static String getKey(MessageDigest md) {
+        return ByteUtil.encodeFSSafeBase64(md.digest());
+    }
+
+    private void load() {
+        File[] files = dir.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                return file.isFile();
+            }
+        });
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File f1, File f2) {
+                return Long.compare(f1.lastModified(), f2.lastModified());
+            }
+        });
+        synchronized (this) {
+            for (File file : files) {
+                String name = file.getName();
+                if (name.endsWith(FILE_EXT)) {
+                    String key = name.substring(0, name.length() - FILE_EXT.length());
+                    entries.put(key, file.length());
+                    size += file.length();
+                } else {
+                    // a write that didn't complete
+                    file.delete();
+                }
+            }
+            evict();
+        }
+        ZimbraLog.index.info("Loaded %d extracted text cache entries (%d bytes) from %s", entries.size(), size, dir);
+    }
+
+    private File getFile(String key) {
+        return new File(dir, key + FILE_EXT);
+    }
+
+    /**
+     * Returns the text cached for the key, or null.
+     */
+    public String get(String key) {
+        synchronized (this) {
+            if (entries.get(key) == null) {
+                return null;
+            }
+        }
+        File file = getFile(key);
+        try {
+            String text = Files.asCharSource(file, Charsets.UTF_8).read();
+            file.setLastModified(System.currentTimeMillis());
+            return text;
+        } catch (IOException e) {
+            ZimbraLog.index.debug("unable to read extracted text cache entry %s", file, e);
+            remove(key);
+            return null;
+        }
+    }
+
+    public void put(String key, String text) {
+        byte[] data = text.getBytes(Charsets.UTF_8);
+        if (data.length > maxSize / 10) {
+            return;
+        }
+        File file = getFile(key);
+        File tmp = new File(dir, key + ".tmp" + Thread.currentThread().getId());
+        FileOutputStream out = null;
+        try {
+            FileUtil.ensureDirExists(dir);
+            out = new FileOutputStream(tmp);
+            out.write(data);
+            out.close();
+            out = null;
+            if (!tmp.renameTo(file)) {
+                throw new IOException("unable to rename " + tmp + " to " + file);
+            }
+        } catch (IOException e) {
+            ZimbraLog.index.warn("unable to write extracted text cache entry %s", file, e);
+            ByteUtil.closeStream(out);
+            tmp.delete();
+            return;
+        }
+        synchronized (this) {
+            Long old = entries.put(key, (long) data.length);
+            size += data.length - (old == null ? 0 : old);
+            evict();
+        }
+    }
+
+    private void remove(String key) {
+        synchronized (this) {
+            Long old = entries.remove(key);
+            if (old != null) {
+                size -= old;
+            }
+        }
+        getFile(key).delete();
+    }
+
+    private void evict() {
+        assert Thread.holdsLock(this);
+        for (Iterator<Map.Entry<String, Long>> i = entries.entrySet().iterator(); size > maxSize && i.hasNext();) {
+            Map.Entry<String, Long> entry = i.next();
+            i.remove();
+            size -= entry.getValue();
+            getFile(entry.getKey()).delete();
+        }
+    }
+
+    public synchronized int getCount() {
+        return entries.size();
+    }
+
+    public synchronized long getSize() {
+        return size;
+    }
+}
@@ -16,9 +16,7 @@
  */
 package com.zimbra.cs.datasource;
 
-import static com.zimbra.common.util.TaskUtil.newDaemonThreadFactory;
 import static java.util.Collections.newSetFromMap;
-import static java.util.concurrent.Executors.newCachedThreadPool;
 
 import java.io.File;
 import java.lang.reflect.Constructor;
@@ -29,7 +27,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
 
 import javax.mail.MessagingException;
 import javax.mail.Session;
@@ -93,8 +90,6 @@ public class DataSourceManager {
 
     private final DataSourceConfig config;
 
-    private static final ExecutorService executor = newCachedThreadPool(newDaemonThreadFactory("ImportData"));
-
     private static <E> Set<E> newConcurrentHashSet() {
         return newSetFromMap(new ConcurrentHashMap<E, Boolean>());
     }
@@ -335,7 +330,7 @@ public class DataSourceManager {
     public static void asyncImportData(final DataSource ds) {
         ZimbraLog.datasource.debug("Requesting async import for DataSource %s", ds.getId());
 
-        executor.submit(new Runnable() {
+        boolean scheduled = ImportScheduler.getInstance().schedule(ds.getId(), new Runnable() {
             @Override
             public void run() {
                 try {
@@ -356,6 +351,9 @@ public class DataSourceManager {
                 }
             }
         });
+        if (!scheduled) {
+            ZimbraLog.datasource.debug("Import for DataSource %s already queued", ds.getId());
+        }
     }
 
     public static void importData(DataSource ds) throws ServiceException {
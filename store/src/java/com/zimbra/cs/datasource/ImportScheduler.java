@@ -0,0 +1,121 @@
+/*
+ * ***** BEGIN LICENSE BLOCK *****
+ * Zimbra Collaboration Suite Server
+ * Copyright (C) 2026 Synacor, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software Foundation,
+ * version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ * ***** END LICENSE BLOCK *****
+ */
+package com.zimbra.cs.datasource;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.zimbra.common.localconfig.LC;
+import com.zimbra.common.util.ZimbraLog;
+
+/**
+ * Runs on-demand data source imports on a bounded number of threads.
+ * <p>
+ * Imports run in the order they were requested, and a data source has at most one import queued or running:
+ * a request for a data source that is already queued is dropped, and a request for one whose import is
+ * running queues it again behind everyone else once the import is done.  A data source that is asked to
+ * sync over and over therefore can't hold more than one thread, or push other data sources back.
+ */
+public final class ImportScheduler {
+
+    private static final ImportScheduler INSTANCE = new ImportScheduler(LC.data_source_import_threads.intValue());
+
+    private enum State { QUEUED, RUNNING, REQUESTED_WHILE_RUNNING }
+
+    private final ThreadPoolExecutor executor;
+    private final Map<String, State> scheduled = new HashMap<String, State>();
+
+    @VisibleForTesting
+    ImportScheduler(int threads) {
+        threads = Math.max(threads, 1);
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactoryBuilder().setNameFormat("ImportData-%d").setDaemon(true).build());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    public static ImportScheduler getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Queues an import for the data source.
+     *
+     * @return false if an import of the data source was already queued
+     */
+    public boolean schedule(String dataSourceId, Runnable task) {
+        synchronized (scheduled) {
+            State state = scheduled.get(dataSourceId);
+            if (state == State.RUNNING) {
+                scheduled.put(dataSourceId, State.REQUESTED_WHILE_RUNNING);
+                return true;
+            } else if (state != null) {
+                return false;
+            }
+            scheduled.put(dataSourceId, State.QUEUED);
+        }
+        executor.execute(new Import(dataSourceId, task));
+        return true;
+    }
+
+    @VisibleForTesting
+    boolean isScheduled(String dataSourceId) {
+        synchronized (scheduled) {
+            return scheduled.containsKey(dataSourceId);
+        }
+    }
+
+    private final class Import implements Runnable {
+        private final String dataSourceId;
+        private final Runnable task;
+
+        Import(String dataSourceId, Runnable task) {
+            this.dataSourceId = dataSourceId;
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            synchronized (scheduled) {
+                scheduled.put(dataSourceId, State.RUNNING);
+            }
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                ZimbraLog.datasource.warn("Import of data source %s failed", dataSourceId, e);
+            } finally {
+                boolean again;
+                synchronized (scheduled) {
+                    again = scheduled.get(dataSourceId) == State.REQUESTED_WHILE_RUNNING;
+                    if (again) {
+                        scheduled.put(dataSourceId, State.QUEUED);
+                    } else {
+                        scheduled.remove(dataSourceId);
+                    }
+                }
+                if (again) {
+                    executor.execute(this);
+                }
+            }
+        }
+    }
+}
@@ -20,6 +20,7 @@ final class FolderSyncState {
     private long lastFetchedUid;
     private long lastUidNext;
     private int lastChangeId;
+    private long lastModSeq;
 
     public long getLastFetchedUid() {
         return lastFetchedUid;
@@ -33,6 +34,13 @@ final class FolderSyncState {
         return lastChangeId;
     }
 
+    /**
+     * Returns the remote HIGHESTMODSEQ as of the last full sync, or 0 if unknown.
+     */
+    public long getLastModSeq() {
+        return lastModSeq;
+    }
+
     public void setLastFetchedUid(long uid) {
         lastFetchedUid = uid;
     }
@@ -45,6 +53,10 @@ final class FolderSyncState {
         this.lastChangeId = lastChangeId;
     }
 
+    public void setLastModSeq(long lastModSeq) {
+        this.lastModSeq = lastModSeq;
+    }
+
     public void updateLastFetchedUid(long uid) {
         if (uid > lastFetchedUid) {
             lastFetchedUid = uid;
@@ -53,7 +65,7 @@ final class FolderSyncState {
 
     public String toString() {
         return String.format(
-            "{lastFetchedUid=%d,lastUidNext=%d,lastChangeId=%d}",
-            lastFetchedUid, lastUidNext, lastChangeId);
+            "{lastFetchedUid=%d,lastUidNext=%d,lastChangeId=%d,lastModSeq=%d}",
+            lastFetchedUid, lastUidNext, lastChangeId, lastModSeq);
     }
 }
@@ -26,11 +26,16 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
+import com.google.common.base.Throwables;
 import com.zimbra.common.localconfig.LC;
 import com.zimbra.common.service.RemoteServiceException;
 import com.zimbra.common.service.ServiceException;
@@ -69,7 +74,7 @@ import com.zimbra.cs.util.Zimbra;
 
 class ImapFolderSync {
     private final ImapSync imapSync;
-    private final ImapConnection connection;
+    private ImapConnection connection;
     private ImapConnection refetchConnection;
     private final DataSource ds;
     private final Mailbox mailbox;
@@ -94,6 +99,9 @@ class ImapFolderSync {
 
     private static final int FETCH_SIZE = LC.data_source_fetch_size.intValue();
 
+    private static final boolean PIPELINE_FETCH = LC.data_source_imap_pipeline_fetch.booleanValue();
+    private static final boolean USE_CONDSTORE = LC.data_source_imap_condstore.booleanValue();
+
     // Max number of errors before we generate report and skip item
     private static final int MAX_ITEM_ERRORS = 3;
 
@@ -120,6 +128,18 @@ class ImapFolderSync {
         this.fullSync = imapSync.isFullSync();
     }
 
+    /*
+     * Switches message sync over to another connection to the same server, so
+     * that several folders can have their messages synchronized at once. Must
+     * be called before syncMessages().
+     */
+    void setConnection(ImapConnection connection) {
+        this.connection = connection;
+        if (remoteFolder != null) {
+            remoteFolder = new RemoteFolder(connection, remoteFolder.getPath());
+        }
+    }
+
     /*
      * Synchronizes existing remote IMAP folder. Returns tracker if successful
      * otherwise returns null if local folder deleted or is not eligible for
@@ -279,6 +299,7 @@ class ImapFolderSync {
 
         // Restore previously cached sync state or create new state
         syncState = imapSync.removeSyncState(localFolder.getId());
+        long changedSince = syncState != null ? syncState.getLastModSeq() : 0;
         int lastChangeId = 0;
         if (syncState != null && DRAFTS.equals(remoteFolder.getPath())) {
             lastChangeId = syncState.getLastChangeId();
@@ -298,6 +319,7 @@ class ImapFolderSync {
             mailboxInfo = remoteFolder.select();
             syncState = newSyncState();
             fullSync = true;
+            changedSince = 0;
         }
 
         // If not full sync and there are no new local or remote changes,
@@ -341,12 +363,19 @@ class ImapFolderSync {
         addedUids = new ArrayList<Long>();
         deletedUids = new ArrayList<Long>();
         if (fullSync) {
+            // Note where the remote folder stands before looking at its flags,
+            // so that the next full sync only fetches flags changed since then
+            long highestModSeq = USE_CONDSTORE ? remoteFolder.getHighestModSeq() : 0;
             // If UIDPLUS supported, use COPY rather than APPEND to remotely
             // move messages that have moved locally between folders.
             if (hasCopyUid() && !ds.isImportOnly()) {
                 moveMessages();
             }
-            syncFlags(lastFetchedUid);
+            int errors = totalErrors;
+            syncFlags(lastFetchedUid, USE_CONDSTORE ? changedSince : 0);
+            if (totalErrors == errors) {
+                syncState.setLastModSeq(highestModSeq);
+            }
         } else if (changes != null) {
             int lastModSeq = syncState.getLastChangeId();
             if (lastModSeq > 0) {
@@ -414,10 +443,14 @@ class ImapFolderSync {
         return ss;
     }
 
-    private void syncFlags(long lastUid) throws ServiceException, IOException {
+    private void syncFlags(long lastUid, long lastModSeq) throws ServiceException, IOException {
         // Fetch flag changes and delete message ids that have been seen
         if (lastUid > 0) {
-            fetchFlags(lastUid);
+            if (lastModSeq > 0 && connection.hasCondStore()) {
+                fetchChangedFlags(lastUid, lastModSeq);
+            } else {
+                fetchFlags(lastUid);
+            }
         }
         // Check for messages deleted remotely or new local messages
         for (int id : localMsgIds) {
@@ -728,32 +761,63 @@ class ImapFolderSync {
         // Remove messages that have been flagged \Deleted
         removeDeleted(mds);
         for (MessageData md : mds.values()) {
-            long uid = md.getUid();
-            ImapMessage trackedMsg = trackedMsgs.getByUid(uid);
-            if (trackedMsg != null) {
-                int msgId = trackedMsg.getItemId();
-                if (localMsgIds.contains(msgId)) {
-                    localMsgIds.remove(msgId);
-                    try {
-                        updateFlags(trackedMsg, md.getFlags());
-                        clearError(msgId);
-                    } catch (MailServiceException.NoSuchItemException e) {
-                        // Message was deleted locally
-                        addDeletedUid(uid);
+            syncMessageFlags(md.getUid(), md.getFlags());
+        }
+    }
 
-                        clearError(msgId);
-                    } catch (Exception e) {
-                        syncMessageFailed(msgId, "Unable to update message flags", e);
-                    }
+    /*
+     * CONDSTORE (RFC 7162) version of fetchFlags(): only messages whose flags
+     * changed remotely since the last full sync are fetched with their flags,
+     * the others keep the flags we last saw for them. Expunged messages are
+     * found from the list of UIDs, which is much smaller than their flags.
+     */
+    private void fetchChangedFlags(long lastUid, long lastModSeq) throws ServiceException, IOException {
+        String seq = 1 + ":" + lastUid;
+        remoteFolder.debug("Fetching flags changed since MODSEQ %d for UID sequence %s", lastModSeq, seq);
+        Map<Long, MessageData> changed = connection.uidFetch(seq, "(FLAGS) (CHANGEDSINCE " + lastModSeq + ")");
+        List<Long> uids = connection.getUids(seq);
+        remoteFolder.debug("%d of %d message(s) changed remotely", changed.size(), uids.size());
+        for (long uid : uids) {
+            MessageData md = changed.get(uid);
+            if (md != null) {
+                Flags flags = md.getFlags();
+                if (flags != null && flags.isDeleted()) {
+                    remoteFolder.debug("Remote message with uid %d is flagged \\Deleted", uid);
                 } else {
+                    syncMessageFlags(uid, flags);
+                }
+            } else {
+                ImapMessage trackedMsg = trackedMsgs.getByUid(uid);
+                syncMessageFlags(uid, trackedMsg != null ? SyncUtil.zimbraToImapFlags(trackedMsg.getFlags()) : null);
+            }
+        }
+    }
+
+    private void syncMessageFlags(long uid, Flags flags) throws ServiceException, IOException {
+        ImapMessage trackedMsg = trackedMsgs.getByUid(uid);
+        if (trackedMsg != null) {
+            int msgId = trackedMsg.getItemId();
+            if (localMsgIds.contains(msgId)) {
+                localMsgIds.remove(msgId);
+                try {
+                    updateFlags(trackedMsg, flags);
+                    clearError(msgId);
+                } catch (MailServiceException.NoSuchItemException e) {
+                    // Message was deleted locally
                     addDeletedUid(uid);
+
                     clearError(msgId);
+                } catch (Exception e) {
+                    syncMessageFailed(msgId, "Unable to update message flags", e);
                 }
             } else {
-                remoteFolder.debug(
-                    "Adding new message with UID %d detected while syncing flags", uid);
-                addedUids.add(uid);
+                addDeletedUid(uid);
+                clearError(msgId);
             }
+        } else {
+            remoteFolder.debug(
+                "Adding new message with UID %d detected while syncing flags", uid);
+            addedUids.add(uid);
         }
     }
 
@@ -809,9 +873,33 @@ class ImapFolderSync {
             imapSync.getInboxFolderSync() : null;
         removeSkippedUids(uids);
         Iterator<Long> it = uids.iterator();
-        while (it.hasNext()) {
+        FetchBatch batch = null;
+        while (batch != null || it.hasNext()) {
             imapSync.checkIsEnabled();
-            fetchMessages(nextFetchSeq(it));
+            if (batch == null) {
+                batch = fetchBatch(nextFetchSeq(it));
+            }
+            // While this batch is being added locally, fetch the next one
+            // from the server, unless messages of this batch have to be
+            // fetched again one at a time.
+            Future<FetchBatch> next = null;
+            if (PIPELINE_FETCH && it.hasNext() && batch.remaining.isEmpty()) {
+                final String seq = nextFetchSeq(it);
+                next = ImapSync.submit(new Callable<FetchBatch>() {
+                    @Override
+                    public FetchBatch call() throws ServiceException, IOException {
+                        return fetchBatch(seq);
+                    }
+                });
+            }
+            try {
+                addBatch(batch);
+            } catch (ServiceException | RuntimeException e) {
+                discard(next);
+                throw e;
+            }
+            fetchRemaining(batch);
+            batch = next != null ? getBatch(next) : null;
             // Send pending messages if any...
             ds.checkPendingMessages();
             long time = System.currentTimeMillis();
@@ -880,40 +968,102 @@ class ImapFolderSync {
         return sb.toString();
     }
 
+    /*
+     * A batch of messages fetched from the server and not yet added locally.
+     */
+    private static final class FetchBatch {
+        final Map<Long, MessageData> flagsByUid;
+        final List<MessageData> messages = new ArrayList<MessageData>();
+        // UIDs the server didn't return a body for
+        final Set<Long> remaining = new HashSet<Long>();
+        int added;
+
+        FetchBatch(Map<Long, MessageData> flagsByUid) {
+            this.flagsByUid = flagsByUid;
+        }
+
+        void cleanup() {
+            for (MessageData md : messages.subList(added, messages.size())) {
+                try {
+                    getContent(md).cleanup();
+                } catch (IOException e) {
+                    // no content to clean up
+                }
+            }
+            added = messages.size();
+        }
+    }
+
     private void fetchMessages(String seq) throws ServiceException, IOException {
-        final Map<Long, MessageData> flagsByUid =
-            connection.uidFetch(seq, "(FLAGS INTERNALDATE)");
-        removeDeleted(flagsByUid);
-        final Set<Long> uidSet = flagsByUid.keySet();
-        if (uidSet.isEmpty()) return;
-        FetchResponseHandler handler = new FetchResponseHandler() {
+        FetchBatch batch = fetchBatch(seq);
+        addBatch(batch);
+        fetchRemaining(batch);
+    }
+
+    /*
+     * Fetches flags and content of the messages in the sequence. Only uses
+     * the connection, so that it can run while the previous batch is added.
+     */
+    private FetchBatch fetchBatch(String seq) throws ServiceException, IOException {
+        final FetchBatch batch = new FetchBatch(connection.uidFetch(seq, "(FLAGS INTERNALDATE)"));
+        removeDeleted(batch.flagsByUid);
+        if (batch.flagsByUid.isEmpty()) {
+            return batch;
+        }
+        batch.remaining.addAll(batch.flagsByUid.keySet());
+        FetchResponseHandler handler = new FetchResponseHandler(false) {
             @Override
-            public void handleFetchResponse(MessageData md) throws Exception {
-                long uid = md.getUid();
-                IOExceptionHandler.getInstance().trackSyncItem(mailbox, uid);
-                try {
-                    handleFetch(md, flagsByUid, true);
-                    clearError(uid);
-                } catch (OutOfMemoryError e) {
-                    Zimbra.halt("Out of memory", e);
-                } catch (Exception e) {
-                    if (!IOExceptionHandler.getInstance().isRecoverable(mailbox, uid, "Exception syncing UID "+uid+" in folder "+remoteFolder.getPath(), e)) {
-                        syncFailed("Fetch failed for uid " + uid, e);
-                        SyncErrorManager.incrementErrorCount(ds, remoteId(uid));
-                    }
+            public void handleFetchResponse(MessageData md) {
+                if (batch.remaining.remove(md.getUid())) {
+                    batch.messages.add(md);
                 }
-                uidSet.remove(uid);
             }
         };
         // Try fetching group of messages first
         LOG.debug("Fetching messages for sequence: " + seq);
         try {
-            connection.uidFetch(getSequence(uidSet), "BODY.PEEK[]", handler);
+            connection.uidFetch(getSequence(batch.remaining), "BODY.PEEK[]", handler);
         } catch (CommandFailedException e) {
             String msg = "UID FETCH failed: " + e.toString();
-            checkCanContinue(msg, e);
+            try {
+                checkCanContinue(msg, e);
+            } catch (ServiceException x) {
+                batch.cleanup();
+                throw x;
+            }
             LOG.warn(msg, e);
         }
+        return batch;
+    }
+
+    private void addBatch(FetchBatch batch) throws ServiceException {
+        try {
+            for (; batch.added < batch.messages.size(); batch.added++) {
+                addFetchedMessage(batch.messages.get(batch.added), batch.flagsByUid);
+            }
+        } finally {
+            batch.cleanup();
+        }
+    }
+
+    private void addFetchedMessage(MessageData md, Map<Long, MessageData> flagsByUid) throws ServiceException {
+        long uid = md.getUid();
+        IOExceptionHandler.getInstance().trackSyncItem(mailbox, uid);
+        try {
+            handleFetch(md, flagsByUid, true);
+            clearError(uid);
+        } catch (OutOfMemoryError e) {
+            Zimbra.halt("Out of memory", e);
+        } catch (Exception e) {
+            if (!IOExceptionHandler.getInstance().isRecoverable(mailbox, uid, "Exception syncing UID "+uid+" in folder "+remoteFolder.getPath(), e)) {
+                syncFailed("Fetch failed for uid " + uid, e);
+                SyncErrorManager.incrementErrorCount(ds, remoteId(uid));
+            }
+        }
+    }
+
+    private void fetchRemaining(FetchBatch batch) throws ServiceException {
+        Set<Long> uidSet = batch.remaining;
         if (uidSet.isEmpty()) return;
         LOG.info("Fetching remaining messages one at a time for UIDs: " + uidSet);
         for (long uid : getOrderedUids(uidSet)) {
@@ -924,7 +1074,8 @@ class ImapFolderSync {
                     //FLAGS returned data for UID but BODY.PEEK[] is not; server error; provide more meaningful error than NPE
                     throw ServiceException.FAILURE("Server returned no response for UID FETCH "+uid+" BODY.PEEK[]", null);
                 }
-                handler.handleFetchResponse(md);
+                addFetchedMessage(md, batch.flagsByUid);
+                uidSet.remove(uid);
             } catch (Exception e) {
                 String msg = "Error while fetching message for UID " + uid;
                 checkCanContinue(msg, e);
@@ -936,6 +1087,30 @@ class ImapFolderSync {
         }
     }
 
+    private static FetchBatch getBatch(Future<FetchBatch> future) throws ServiceException, IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw ServiceException.INTERRUPTED("interrupted while fetching messages");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            Throwables.propagateIfPossible(cause, ServiceException.class, IOException.class);
+            throw ServiceException.FAILURE("UID FETCH failed", cause);
+        }
+    }
+
+    // The connection can't be used again before the fetch in progress completes
+    private static void discard(Future<FetchBatch> future) {
+        if (future != null) {
+            try {
+                getBatch(future).cleanup();
+            } catch (Exception e) {
+                LOG.debug("Ignoring failed fetch", e);
+            }
+        }
+    }
+
     // Discard messages that have been flagged \Deleted
     private void removeDeleted(Map<Long, MessageData> mds) {
         Iterator<MessageData> it = mds.values().iterator();
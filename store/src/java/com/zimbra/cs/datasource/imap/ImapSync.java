@@ -25,9 +25,20 @@ import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.regex.Pattern;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.zimbra.common.localconfig.LC;
 import com.zimbra.common.service.RemoteServiceException;
 import com.zimbra.common.service.ServiceException;
 import com.zimbra.common.util.Log;
@@ -63,6 +74,18 @@ public class ImapSync extends MailItemImport {
     private static final Pattern ILLEGAL_FOLDER_CHARS = Pattern.compile("[:\\*\\?\"<>\\|]");
     private static final Log LOG = ZimbraLog.datasource;
 
+    private static final int FOLDER_CONNECTIONS = LC.data_source_imap_folder_connections.intValue();
+
+    // Shared by all imports, for folders synchronized in parallel and for
+    // fetching the next batch of messages while the current one is added.
+    // Tasks are never queued: a task that finds all threads busy runs in the
+    // caller, so a task can't end up waiting for one queued behind it.
+    private static final ThreadPoolExecutor SYNC_POOL = new ThreadPoolExecutor(0,
+            Math.max(LC.data_source_imap_sync_threads.intValue(), 1), 60, TimeUnit.SECONDS,
+            new SynchronousQueue<Runnable>(),
+            new ThreadFactoryBuilder().setNameFormat("ImapSync-%d").setDaemon(true).build(),
+            new ThreadPoolExecutor.CallerRunsPolicy());
+
     public ImapSync(DataSource ds) throws ServiceException {
         this(ds, false);
     }
@@ -330,20 +353,121 @@ public class ImapSync extends MailItemImport {
     private void syncMessages(Set<Integer> folderIds) throws ServiceException {
         // If folder ids specified, then only sync messages for specified
         // folders, otherwise sync messages for all folders.
+        List<ImapFolderSync> folders = new ArrayList<ImapFolderSync>(syncedFolders.size());
         for (ImapFolderSync ifs : syncedFolders.values()) {
+            if (folderIds == null || folderIds.contains(ifs.getLocalFolder().getId())) {
+                folders.add(ifs);
+            }
+        }
+        // Folders of an import-only data source don't depend on each other:
+        // nothing is moved, appended or deleted remotely.
+        int connections = Math.min(FOLDER_CONNECTIONS, folders.size());
+        if (connections > 1 && dataSource.isImportOnly() && !dataSource.isOffline()) {
+            syncMessages(folders, connections);
+            return;
+        }
+        for (ImapFolderSync ifs : folders) {
             checkIsEnabled();
-            LocalFolder folder = ifs.getLocalFolder();
-            int folderId = folder.getId();
+            syncMessages(ifs);
+        }
+    }
+
+    private void syncMessages(ImapFolderSync ifs) throws ServiceException {
+        try {
+            ifs.syncMessages();
+        } catch (Exception e) {
+            syncFailed(ifs.getLocalFolder().getPath(), e);
+        }
+    }
+
+    /*
+     * Synchronizes messages of the folders over several connections at once.
+     * Each connection takes the next folder from a shared queue, and the first
+     * failure stops them all. A connection that can't be opened, for example
+     * because the server limits connections per user, just leaves its share
+     * of the folders to the others.
+     */
+    private void syncMessages(List<ImapFolderSync> folders, int connections) throws ServiceException {
+        final Queue<ImapFolderSync> queue = new ConcurrentLinkedQueue<ImapFolderSync>(folders);
+        final AtomicReference<ServiceException> failure = new AtomicReference<ServiceException>();
+        List<Future<Void>> workers = new ArrayList<Future<Void>>(connections - 1);
+        for (int i = 1; i < connections; i++) {
+            workers.add(submit(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    ImapConnection ic;
+                    try {
+                        ic = ConnectionManager.newConnection(dataSource, authenticator);
+                    } catch (ServiceException e) {
+                        LOG.warn("Unable to open additional connection, continuing with fewer", e);
+                        return null;
+                    }
+                    try {
+                        syncMessages(queue, ic, failure);
+                    } finally {
+                        ic.close();
+                    }
+                    return null;
+                }
+            }));
+        }
+        syncMessages(queue, connection, failure);
+        for (Future<Void> worker : workers) {
             try {
-                if (folderIds == null || folderIds.contains(folderId)) {
-                    ifs.syncMessages();
+                worker.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure.compareAndSet(null, ServiceException.INTERRUPTED("interrupted while syncing folders"));
+            } catch (ExecutionException e) {
+                failure.compareAndSet(null, ServiceException.FAILURE("Folder sync failed", e.getCause()));
+            }
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+    }
+
+    private void syncMessages(Queue<ImapFolderSync> queue, ImapConnection ic,
+                              AtomicReference<ServiceException> failure) {
+        ImapFolderSync ifs;
+        while (failure.get() == null && (ifs = queue.poll()) != null) {
+            try {
+                checkIsEnabled();
+                if (ic != connection) {
+                    ifs.setConnection(ic);
                 }
-            } catch (Exception e) {
-                syncFailed(folder.getPath(), e);
+                syncMessages(ifs);
+            } catch (ServiceException e) {
+                failure.compareAndSet(null, e);
             }
         }
     }
 
+    /**
+     * Runs the task on the pool shared by all IMAP imports, or in the calling
+     * thread if all of the pool's threads are busy.
+     */
+    static <T> Future<T> submit(final Callable<T> task) {
+        final Thread caller = Thread.currentThread();
+        final Map<String, String> logContext = ZimbraLog.getContext();
+        return SYNC_POOL.submit(new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                boolean pooled = Thread.currentThread() != caller;
+                if (pooled) {
+                    ZimbraLog.setContext(logContext);
+                }
+                try {
+                    return task.call();
+                } finally {
+                    if (pooled) {
+                        ZimbraLog.clearContext();
+                    }
+                }
+            }
+        });
+    }
+
     public FolderSyncState getFolderSyncState(int folderId) {
         if (syncState != null) {
             FolderSyncState ss = syncState.getFolderSyncState(folderId);
@@ -254,6 +254,22 @@ final class RemoteFolder {
         return mi;
     }
 
+    /**
+     * Returns the folder's HIGHESTMODSEQ, or 0 if the server doesn't support
+     * CONDSTORE (RFC 7162) or doesn't keep mod-sequences for the folder.
+     */
+    public long getHighestModSeq() throws IOException {
+        if (!connection.hasCondStore()) {
+            return 0;
+        }
+        try {
+            return Math.max(connection.status(path, "HIGHESTMODSEQ").getHighestModSeq(), 0);
+        } catch (CommandFailedException e) {
+            debug("STATUS HIGHESTMODSEQ failed: %s", e.getError());
+            return 0;
+        }
+    }
+
     public MailboxInfo status() throws IOException {
         MailboxInfo mi = connection.status(path, "UIDVALIDITY", "UIDNEXT", "MESSAGES");
         // Bug 35554: If server does not provide UIDVALIDITY, then assume a value of 1
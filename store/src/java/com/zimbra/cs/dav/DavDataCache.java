@@ -0,0 +1,80 @@
+/*
+ * ***** BEGIN LICENSE BLOCK *****
+ * Zimbra Collaboration Suite Server
+ * Copyright (C) 2026 Synacor, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software Foundation,
+ * version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ * ***** END LICENSE BLOCK *****
+ */
+package com.zimbra.cs.dav;
+
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.zimbra.common.localconfig.LC;
+
+/**
+ * Caches the iCalendar and vCard data rendered for calendar and address book resources, so that a client
+ * fetching the same items again, or several clients syncing a shared calendar, don't render them again.
+ * <p>
+ * Keys are built by the resources and include the item's etag, which changes with its content and metadata,
+ * and everything else the output depends on, such as the authenticated account.
+ */
+public final class DavDataCache {
+
+    private static final DavDataCache INSTANCE = new DavDataCache(LC.zimbra_dav_data_cache_max_chars.longValue());
+
+    private final Cache<String, String> cache;
+
+    @VisibleForTesting
+    DavDataCache(long maxChars) {
+        if (maxChars > 0) {
+            cache = CacheBuilder.newBuilder()
+                    .maximumWeight(maxChars)
+                    .weigher(new Weigher<String, String>() {
+                        @Override
+                        public int weigh(String key, String value) {
+                            return key.length() + value.length();
+                        }
+                    })
+                    .expireAfterAccess(1, TimeUnit.HOURS)
+                    .build();
+        } else {
+            cache = null;
+        }
+    }
+
+    public static DavDataCache getInstance() {
+        return INSTANCE;
+    }
+
+    public boolean isEnabled() {
+        return cache != null;
+    }
+
+    public String get(String key) {
+        return cache == null || key == null ? null : cache.getIfPresent(key);
+    }
+
+    public void put(String key, String data) {
+        if (cache != null && key != null && data != null) {
+            cache.put(key, data);
+        }
+    }
+
+    @VisibleForTesting
+    long size() {
+        return cache == null ? 0 : cache.size();
+    }
+}
@@ -27,6 +27,7 @@ import javax.servlet.http.HttpServletResponse;
 
 import org.dom4j.Element;
 
+import com.google.common.base.Joiner;
 import com.google.common.collect.ListMultimap;
 import com.google.common.io.Closeables;
 import com.zimbra.common.mailbox.ContactConstants;
@@ -39,6 +40,7 @@ import com.zimbra.common.util.ZimbraLog;
 import com.zimbra.cs.account.Account;
 import com.zimbra.cs.account.Provisioning;
 import com.zimbra.cs.dav.DavContext;
+import com.zimbra.cs.dav.DavDataCache;
 import com.zimbra.cs.dav.DavElements;
 import com.zimbra.cs.dav.DavException;
 import com.zimbra.cs.dav.DavProtocol;
@@ -68,6 +70,8 @@ public class AddressObject extends MailItemResource {
     public static final String XABSKIND = "X-ADDRESSBOOKSERVER-KIND";
     public static final String XABSMEMBER = "X-ADDRESSBOOKSERVER-MEMBER";
 
+    private final boolean mContactGroup;
+
     public AddressObject(DavContext ctxt, Contact item) throws ServiceException {
         super(ctxt, item);
         setProperty(DavElements.P_GETCONTENTTYPE, DavProtocol.VCARD_CONTENT_TYPE);
@@ -75,6 +79,7 @@ public class AddressObject extends MailItemResource {
         // size is approximate.  it just has to be non-zero as the actual content
         // will be chunked to the client in GET response.
         setProperty(DavElements.P_GETCONTENTLENGTH, Integer.toString(item.getFields().size()));
+        mContactGroup = item.isContactGroup();
     }
 
     @Override
@@ -199,11 +204,24 @@ public class AddressObject extends MailItemResource {
         return VCard.formatContact(contact, null, true, false).getFormatted();
     }
     public String toVCard(DavContext ctxt, java.util.Collection<String> attrs) throws ServiceException, DavException {
-        if (attrs == null || attrs.isEmpty())
-            return toVCard(ctxt);
-        Contact contact = (Contact)getMailItem(ctxt);
-        populateContactGroupAppleXProps(ctxt, contact);
-        return VCard.formatContact(contact, attrs, true).getFormatted();
+        // the members of a group are other items, so a group can change without its etag changing
+        String key = mContactGroup || !DavDataCache.getInstance().isEnabled() ? null :
+            new StringBuilder("vcf|").append(mOwnerId).append(':').append(mId).append('|').append(mEtag)
+                .append('|').append(attrs == null ? "" : Joiner.on(',').join(attrs)).toString();
+        String cached = DavDataCache.getInstance().get(key);
+        if (cached != null) {
+            return cached;
+        }
+        String vcard;
+        if (attrs == null || attrs.isEmpty()) {
+            vcard = toVCard(ctxt);
+        } else {
+            Contact contact = (Contact)getMailItem(ctxt);
+            populateContactGroupAppleXProps(ctxt, contact);
+            vcard = VCard.formatContact(contact, attrs, true).getFormatted();
+        }
+        DavDataCache.getInstance().put(key, vcard);
+        return vcard;
     }
 
     public static boolean acceptableVCardContentType(String contentType, boolean nullIsOk) {
@@ -38,6 +38,7 @@ import com.zimbra.cs.dav.DavElements;
 import com.zimbra.cs.dav.DavException;
 import com.zimbra.cs.dav.DavProtocol;
 import com.zimbra.cs.dav.property.ResourceProperty;
+import com.zimbra.cs.dav.service.method.SyncCollection;
 import com.zimbra.cs.mailbox.Folder;
 import com.zimbra.cs.mailbox.MailItem;
 import com.zimbra.cs.mailbox.calendar.cache.CtagInfo;
@@ -53,7 +54,8 @@ public class AddressbookCollection extends Collection {
             DavElements.E_PRINCIPAL_MATCH,
             DavElements.E_PRINCIPAL_PROPERTY_SEARCH,
             DavElements.E_PRINCIPAL_SEARCH_PROPERTY_SET,
-            DavElements.E_EXPAND_PROPERTY
+            DavElements.E_EXPAND_PROPERTY,
+            DavElements.E_SYNC_COLLECTION
     };
 
     public AddressbookCollection(DavContext ctxt, Folder f) throws DavException, ServiceException {
@@ -92,6 +94,9 @@ public class AddressbookCollection extends Collection {
             coll.addResourceType(DavElements.CardDav.E_ADDRESSBOOK);
         }
         coll.setProperty(DavElements.E_GETCTAG, CtagInfo.makeCtag(f));
+        if (SyncCollection.getSyncType(coll) != null) {
+            coll.setProperty(DavElements.E_SYNC_TOKEN, SyncCollection.getSyncToken(f.getImapMODSEQ()));
+        }
     }
 
     @Override
@@ -50,6 +50,7 @@ import com.zimbra.common.util.ZimbraLog;
 import com.zimbra.cs.account.Account;
 import com.zimbra.cs.account.Provisioning;
 import com.zimbra.cs.dav.DavContext;
+import com.zimbra.cs.dav.DavDataCache;
 import com.zimbra.cs.dav.DavElements;
 import com.zimbra.cs.dav.DavException;
 import com.zimbra.cs.dav.caldav.AutoScheduler;
@@ -370,6 +371,8 @@ public interface CalendarObject {
         private final int mMailboxId;
         private final long mStart;
         private final long mEnd;
+        /** whether {@link #mInvites} holds expanded instances rather than the item's own invites */
+        private boolean mExpanded;
 
         /* Returns true if the supplied Filter matches this calendar object. */
         @Override public boolean match(Filter filter) {
@@ -437,16 +440,7 @@ public interface CalendarObject {
                 oldIdsToNewTZsMap.put(oldId, wellKnownTZ);
             }
             Account acct = ctxt.getAuthAccount();
-            boolean allowPrivateAccess = false;
-            try {
-                Mailbox mbox = getMailbox(ctxt);
-                OperationContext octxt = ctxt.getOperationContext();
-                Folder folder = mbox.getFolderById(octxt, mFolderId);
-                allowPrivateAccess = CalendarItem.allowPrivateAccess(
-                        folder, ctxt.getAuthAccount(), octxt.isUsingAdminPrivileges());
-            } catch (ServiceException se) {
-                ZimbraLog.dav.warn("cannot determine private access status", se);
-            }
+            boolean allowPrivateAccess = allowPrivateAccess(ctxt);
             boolean delegated = !acct.getId().equalsIgnoreCase(mOwnerId);
             if (!LC.calendar_apple_ical_compatible_canceled_instances.booleanValue()) {
                 for (Invite inv : mInvites) {
@@ -474,15 +468,50 @@ public interface CalendarObject {
             return createZVcalendar(components, oldIdsToNewTZsMap);
         }
 
+        private boolean allowPrivateAccess(DavContext ctxt) throws DavException {
+            try {
+                Mailbox mbox = getMailbox(ctxt);
+                OperationContext octxt = ctxt.getOperationContext();
+                Folder folder = mbox.getFolderById(octxt, mFolderId);
+                return CalendarItem.allowPrivateAccess(
+                        folder, ctxt.getAuthAccount(), octxt.isUsingAdminPrivileges());
+            } catch (ServiceException se) {
+                ZimbraLog.dav.warn("cannot determine private access status", se);
+                return false;
+            }
+        }
+
+        /**
+         * Returns the {@link DavDataCache} key of the unfiltered iCalendar representation, or null if it can't
+         * be cached.
+         */
+        private String getDataCacheKey(DavContext ctxt) throws DavException {
+            if (mExpanded || !DavDataCache.getInstance().isEnabled()) {
+                return null;
+            }
+            return new StringBuilder("ics|").append(mOwnerId).append(':').append(mId).append('|').append(mEtag)
+                    .append('|').append(ctxt.getAuthAccount().getId()).append('|').append(ctxt.isIcalClient())
+                    .append('|').append(allowPrivateAccess(ctxt))
+                    .append('|').append(LC.calendar_apple_ical_compatible_canceled_instances.booleanValue())
+                    .toString();
+        }
+
         /* Returns iCalendar representation of events that matches the supplied filter.
          */
         @Override
         public String getVcalendar(DavContext ctxt, Filter filter) throws IOException, DavException {
+            String key = filter == null ? getDataCacheKey(ctxt) : null;
+            String cached = DavDataCache.getInstance().get(key);
+            if (cached != null) {
+                return cached;
+            }
             try (CharArrayWriter writer = new CharArrayWriter()){
                 ZVCalendar vcal = getZVcalendar(ctxt, filter);
                 vcal.toICalendar(writer, true);
                 writer.flush();
-                return writer.toString();
+                String data = writer.toString();
+                DavDataCache.getInstance().put(key, data);
+                return data;
             } catch (ServiceException se) {
                 ZimbraLog.dav.warn("cannot convert to iCalendar", se);
                 return "";
@@ -561,6 +590,7 @@ public interface CalendarObject {
                     inviteList.add(inv);
                 }
                 mInvites = inviteList.toArray(new Invite[0]);
+                mExpanded = true;
             } catch (ServiceException se) {
                 ZimbraLog.dav.warn("error getting calendar item " + mUid + " from mailbox " + mMailboxId, se);
             }
@@ -0,0 +1,95 @@
+/*
+ * ***** BEGIN LICENSE BLOCK *****
+ * Zimbra Collaboration Suite Server
+ * Copyright (C) 2026 Synacor, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software Foundation,
+ * version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ * ***** END LICENSE BLOCK *****
+ */
+package com.zimbra.cs.dav.service;
+
+import java.io.IOException;
+import java.util.List;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.dom4j.DocumentHelper;
+import org.dom4j.Element;
+import org.dom4j.io.OutputFormat;
+import org.dom4j.io.XMLWriter;
+import org.xml.sax.SAXException;
+
+import com.zimbra.common.util.ZimbraLog;
+import com.zimbra.cs.dav.DavContext;
+import com.zimbra.cs.dav.DavContext.RequestProp;
+import com.zimbra.cs.dav.DavElements;
+import com.zimbra.cs.dav.DavException;
+import com.zimbra.cs.dav.DavProtocol;
+import com.zimbra.cs.dav.resource.DavResource;
+
+/**
+ * Writes a multistatus response for a list of resources as they are rendered, instead of building the whole
+ * response first, so a large multiget starts sending right away and doesn't hold every rendered item in memory
+ * at once.  Rendering stays on the request thread; the DavContext and its OperationContext aren't thread-safe.
+ */
+public final class MultistatusWriter {
+
+    private MultistatusWriter() {
+    }
+
+    public static void write(DavContext ctxt, List<DavResource> resources, RequestProp props) throws IOException {
+        HttpServletResponse resp = ctxt.getResponse();
+        ctxt.setStatus(DavProtocol.STATUS_MULTI_STATUS);
+        resp.setStatus(DavProtocol.STATUS_MULTI_STATUS);
+        if (!resources.isEmpty()) {
+            DavMethod.setResponseHeader(resp, DavProtocol.HEADER_DAV,
+                    DavProtocol.getComplianceString(resources.get(0).getComplianceList()));
+        }
+        resp.setContentType(DavProtocol.DAV_CONTENT_TYPE);
+
+        OutputFormat format = OutputFormat.createPrettyPrint();
+        format.setTrimText(false);
+        format.setOmitEncoding(false);
+        XMLWriter writer = new XMLWriter(resp.getOutputStream(), format);
+        Element top = DocumentHelper.createElement(DavElements.E_MULTISTATUS);
+        top.add(DavElements.WEBDAV_NS);
+        try {
+            writer.startDocument();
+        } catch (SAXException e) {
+            throw new IOException(e);
+        }
+        writer.writeOpen(top);
+
+        for (DavResource rs : resources) {
+            writer.write(render(ctxt, rs, props));
+        }
+
+        writer.writeClose(top);
+        writer.flush();
+        ctxt.responseSent();
+    }
+
+    /**
+     * Renders the response element of one resource.  A resource that fails to render gets a 500 response of its
+     * own, since the responses before it have already been sent.
+     */
+    private static Element render(DavContext ctxt, DavResource rs, RequestProp props) {
+        DavResponse resp = new DavResponse();
+        try {
+            resp.addResourceTo(ctxt, rs, props, false);
+        } catch (DavException | RuntimeException e) {
+            ZimbraLog.dav.warn("can't render %s", rs.getUri(), e);
+            resp = new DavResponse();
+            resp.addStatus(ctxt, rs.getHref(), HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+        }
+        return (Element) resp.getTop(DavElements.E_MULTISTATUS).element(DavElements.E_RESPONSE).detach();
+    }
+}
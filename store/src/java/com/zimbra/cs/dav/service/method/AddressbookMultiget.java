@@ -16,7 +16,10 @@
  */
 package com.zimbra.cs.dav.service.method;
 
+import java.io.IOException;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.servlet.http.HttpServletResponse;
 
@@ -32,20 +35,20 @@ import com.zimbra.cs.dav.resource.AddressObject;
 import com.zimbra.cs.dav.resource.AddressbookCollection;
 import com.zimbra.cs.dav.resource.DavResource;
 import com.zimbra.cs.dav.resource.UrlNamespace;
-import com.zimbra.cs.dav.service.DavResponse;
+import com.zimbra.cs.dav.service.MultistatusWriter;
 
 public class AddressbookMultiget extends Report {
     @Override
-    public void handle(DavContext ctxt) throws ServiceException, DavException {
+    public void handle(DavContext ctxt) throws ServiceException, DavException, IOException {
         Element query = ctxt.getRequestMessage().getRootElement();
         if (!query.getQName().equals(DavElements.CardDav.E_ADDRESSBOOK_MULTIGET))
             throw new DavException("msg "+query.getName()+" is not addressbook-multiget", HttpServletResponse.SC_BAD_REQUEST, null);
 
-        DavResponse resp = ctxt.getDavResponse();
         DavResource reqResource = ctxt.getRequestedResource();
         if (!(reqResource instanceof AddressbookCollection))
             throw new DavException("requested resource is not an addressbook collection", HttpServletResponse.SC_BAD_REQUEST, null);
         RequestProp reqProp = ctxt.getRequestProp();
+        List<DavResource> resources = new ArrayList<DavResource>();
         for (Object obj : query.elements(DavElements.E_HREF)) {
             if (obj instanceof Element) {
                 String href = ((Element)obj).getText();
@@ -59,8 +62,9 @@ public class AddressbookMultiget extends Report {
                 href = uri.getPath();
                 DavResource rs = UrlNamespace.getResourceAtUrl(ctxt, href);
                 if (rs != null)
-                    resp.addResource(ctxt, rs, reqProp, false);
+                    resources.add(rs);
             }
         }
+        MultistatusWriter.write(ctxt, resources, reqProp);
     }
 }
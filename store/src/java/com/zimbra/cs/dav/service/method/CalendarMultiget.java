@@ -18,6 +18,7 @@ package com.zimbra.cs.dav.service.method;
 
 import javax.servlet.http.HttpServletResponse;
 
+import java.io.IOException;
 import java.util.ArrayList;
 
 import org.dom4j.Element;
@@ -30,7 +31,7 @@ import com.zimbra.cs.dav.DavElements;
 import com.zimbra.cs.dav.DavException;
 import com.zimbra.cs.dav.resource.CalendarCollection;
 import com.zimbra.cs.dav.resource.DavResource;
-import com.zimbra.cs.dav.service.DavResponse;
+import com.zimbra.cs.dav.service.MultistatusWriter;
 
 /*
  * draft-dusseault-caldav section 9.10
@@ -41,12 +42,11 @@ import com.zimbra.cs.dav.service.DavResponse;
  *                                
  */
 public class CalendarMultiget extends Report {
-	public void handle(DavContext ctxt) throws ServiceException, DavException {
+	public void handle(DavContext ctxt) throws ServiceException, DavException, IOException {
 		Element query = ctxt.getRequestMessage().getRootElement();
 		if (!query.getQName().equals(DavElements.E_CALENDAR_MULTIGET))
 			throw new DavException("msg "+query.getName()+" is not calendar-multiget", HttpServletResponse.SC_BAD_REQUEST, null);
 
-		DavResponse resp = ctxt.getDavResponse();
 		ArrayList<String> hrefs = new ArrayList<String>();
 		for (Object obj : query.elements(DavElements.E_HREF))
 			if (obj instanceof Element)
@@ -59,8 +59,7 @@ public class CalendarMultiget extends Report {
 		long now = System.currentTimeMillis();
 		ZimbraLog.dav.debug("GetRequestedResource: "+(now - ts)+"ms");
 		RequestProp reqProp = ctxt.getRequestProp();
-		for (DavResource rs : calResource.getAppointmentsByUids(ctxt, hrefs))
-			resp.addResource(ctxt, rs, reqProp, false);
+		MultistatusWriter.write(ctxt, new ArrayList<DavResource>(calResource.getAppointmentsByUids(ctxt, hrefs)), reqProp);
 		ts = now;
 		now = System.currentTimeMillis();
 		ZimbraLog.dav.debug("multiget: "+(now - ts)+"ms");
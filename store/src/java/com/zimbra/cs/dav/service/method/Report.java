@@ -53,6 +53,7 @@ public class Report extends DavMethod {
         sReports.put(DavElements.E_EXPAND_PROPERTY, new ExpandProperty());
         sReports.put(DavElements.CardDav.E_ADDRESSBOOK_QUERY, new AddressbookQuery());
         sReports.put(DavElements.CardDav.E_ADDRESSBOOK_MULTIGET, new AddressbookMultiget());
+        sReports.put(DavElements.E_SYNC_COLLECTION, new SyncCollection());
     }
 
     @Override
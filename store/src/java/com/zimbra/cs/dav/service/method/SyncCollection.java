@@ -0,0 +1,311 @@
+/*
+ * ***** BEGIN LICENSE BLOCK *****
+ * Zimbra Collaboration Suite Server
+ * Copyright (C) 2026 Synacor, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software Foundation,
+ * version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ * ***** END LICENSE BLOCK *****
+ */
+package com.zimbra.cs.dav.service.method;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.dom4j.Element;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.zimbra.common.localconfig.LC;
+import com.zimbra.common.service.ServiceException;
+import com.zimbra.common.util.Pair;
+import com.zimbra.common.util.ZimbraLog;
+import com.zimbra.cs.dav.DavContext;
+import com.zimbra.cs.dav.DavContext.RequestProp;
+import com.zimbra.cs.dav.DavElements;
+import com.zimbra.cs.dav.DavException;
+import com.zimbra.cs.dav.resource.AddressbookCollection;
+import com.zimbra.cs.dav.resource.CalendarCollection;
+import com.zimbra.cs.dav.resource.Collection;
+import com.zimbra.cs.dav.resource.DavResource;
+import com.zimbra.cs.dav.resource.ScheduleInbox;
+import com.zimbra.cs.dav.resource.ScheduleOutbox;
+import com.zimbra.cs.dav.resource.UrlNamespace;
+import com.zimbra.cs.dav.service.DavResponse;
+import com.zimbra.cs.mailbox.MailItem;
+import com.zimbra.cs.mailbox.MailServiceException;
+import com.zimbra.cs.mailbox.Mailbox;
+import com.zimbra.cs.mailbox.MailboxManager;
+import com.zimbra.cs.mailbox.OperationContext;
+import com.zimbra.cs.mailbox.util.TypedIdList;
+
+/*
+ * RFC 6578 section 3.2
+ *
+ *     <!ELEMENT sync-collection (sync-token, sync-level, limit?, prop)>
+ *
+ * A sync token is the mailbox change id the response was computed at.  The resources changed in the collection
+ * since a token come from the modified items, the resources moved out of it from the previous folders of the
+ * items, and the deleted ones from the tombstones.  A tombstone has neither a folder nor an href, so the hrefs of
+ * the resources in each collection are remembered, starting with all of them the first time the collection is
+ * synchronized.  A deletion that isn't in the map can't have been in the collection, unless the token predates
+ * the map; only then is the token invalid, and the client starts over with an initial sync.
+ */
+public class SyncCollection extends Report {
+
+    private static final String TOKEN_PREFIX = "data:,";
+    private static final int BATCH_SIZE = 100;
+
+    @VisibleForTesting
+    static final Cache<String, Members> MEMBERS = CacheBuilder.newBuilder()
+            .maximumWeight(LC.zimbra_dav_sync_max_hrefs.intValue())
+            .weigher(new Weigher<String, Members>() {
+                @Override
+                public int weigh(String key, Members value) {
+                    return value.hrefs.size() + 1;
+                }
+            })
+            .build();
+
+    /**
+     * The hrefs of the resources in a collection since {@code since}: those in it at that point and those sent
+     * since.  Entries are kept after the resource is deleted, as other clients may still have to be told about it.
+     */
+    @VisibleForTesting
+    static final class Members {
+        final int since;
+        final Map<Integer, String> hrefs = new ConcurrentHashMap<Integer, String>();
+
+        Members(int since) {
+            this.since = since;
+        }
+    }
+
+    @Override
+    public void handle(DavContext ctxt) throws DavException, ServiceException {
+        Element query = ctxt.getRequestMessage().getRootElement();
+        if (!query.getQName().equals(DavElements.E_SYNC_COLLECTION)) {
+            throw new DavException("msg " + query.getName() + " is not sync-collection",
+                    HttpServletResponse.SC_BAD_REQUEST, null);
+        }
+        DavResource reqResource = ctxt.getRequestedResource();
+        MailItem.Type type = getSyncType(reqResource);
+        if (type == null) {
+            throw new DavException.UnsupportedReport(DavElements.E_SYNC_COLLECTION);
+        }
+        // calendar and address book collections only have leaf members, so both sync levels give the same result
+        Collection coll = (Collection) reqResource;
+        Mailbox mbox = MailboxManager.getInstance().getMailboxByAccountId(coll.getItemId().getAccountId());
+        OperationContext octxt = ctxt.getOperationContext();
+        String token = query.elementTextTrim(DavElements.E_SYNC_TOKEN);
+        int lastSync = Strings.isNullOrEmpty(token) ? 0 : parseSyncToken(token);
+
+        mbox.beginTrackingSync();
+        // read before the items, so that anything changed meanwhile is sent again next time
+        int changeId = mbox.getLastChangeID();
+        if (lastSync > changeId || (lastSync > 0 && lastSync < mbox.getSyncCutoff())) {
+            throw new DavException.InvalidData(DavElements.E_VALID_SYNC_TOKEN, "sync token is no longer valid");
+        }
+
+        ctxt.setCollectionPath(coll.getUri());
+        String key = mbox.getId() + ":" + coll.getId();
+        Members members = MEMBERS.getIfPresent(key);
+        if (members == null) {
+            members = new Members(changeId);
+            if (lastSync > 0) {
+                // an initial sync sends every resource; otherwise list them, so later tokens can be checked
+                addMembers(ctxt, mbox, mbox.listItemIds(octxt, type, coll.getId()), type, members);
+            }
+            MEMBERS.put(key, members);
+        }
+        Pair<List<Integer>, TypedIdList> changes = mbox.getModifiedItems(octxt, lastSync, 0, type,
+                Collections.singleton(coll.getId()), lastSync);
+        List<String> removed = new ArrayList<String>();
+        if (lastSync > 0) {
+            removed.addAll(getMovedOut(ctxt, mbox, coll, members, changes.getSecond().getItemInfos(type), lastSync));
+            removed.addAll(getDeleted(mbox, members, type, lastSync));
+        }
+
+        DavResponse resp = ctxt.getDavResponse();
+        resp.createResponse(ctxt);
+        RequestProp reqProp = ctxt.getRequestProp();
+        List<Integer> changed = changes.getFirst();
+        for (int i = 0; i < changed.size(); i += BATCH_SIZE) {
+            for (MailItem item : getItems(octxt, mbox, changed.subList(i, Math.min(i + BATCH_SIZE, changed.size())), type)) {
+                DavResource rs = UrlNamespace.getResourceFromMailItem(ctxt, item);
+                if (rs != null) {
+                    resp.addResource(ctxt, rs, reqProp, false);
+                    members.hrefs.put(item.getId(), rs.getHref());
+                }
+            }
+        }
+        for (String href : removed) {
+            resp.addStatus(ctxt, href, HttpServletResponse.SC_NOT_FOUND);
+        }
+        resp.getTop(DavElements.E_MULTISTATUS).addElement(DavElements.E_SYNC_TOKEN).setText(getSyncToken(changeId));
+        // reweigh
+        MEMBERS.put(key, members);
+        ZimbraLog.dav.debug("sync-collection %s since %d: %d changed, %d removed", coll.getUri(), lastSync,
+                changed.size(), removed.size());
+    }
+
+    /**
+     * Returns the type of the items the resource can be synchronized on, or null if it doesn't support
+     * sync-collection.
+     */
+    public static MailItem.Type getSyncType(DavResource rs) {
+        if (rs instanceof AddressbookCollection) {
+            return MailItem.Type.CONTACT;
+        } else if (rs instanceof CalendarCollection && !(rs instanceof ScheduleInbox || rs instanceof ScheduleOutbox)) {
+            MailItem.Type view = ((CalendarCollection) rs).getDefaultView();
+            if (view == MailItem.Type.APPOINTMENT || view == MailItem.Type.TASK) {
+                return view;
+            }
+        }
+        return null;
+    }
+
+    public static String getSyncToken(int changeId) {
+        return TOKEN_PREFIX + changeId;
+    }
+
+    @VisibleForTesting
+    static int parseSyncToken(String token) throws DavException {
+        if (token.startsWith(TOKEN_PREFIX)) {
+            try {
+                int changeId = Integer.parseInt(token.substring(TOKEN_PREFIX.length()));
+                if (changeId > 0) {
+                    return changeId;
+                }
+            } catch (NumberFormatException e) {
+            }
+        }
+        throw new DavException.InvalidData(DavElements.E_VALID_SYNC_TOKEN, "invalid sync token " + token);
+    }
+
+    /**
+     * Returns whether the item was in the folder at {@code lastSync}, given its previous folders, which are
+     * {@code modseq:folderId} pairs from the oldest move to the latest.
+     */
+    @VisibleForTesting
+    static boolean wasInFolder(String prevFolders, int folderId, int lastSync) {
+        if (Strings.isNullOrEmpty(prevFolders)) {
+            return false;
+        }
+        for (String move : prevFolders.split(";")) {
+            int colon = move.indexOf(':');
+            try {
+                if (colon > 0 && Integer.parseInt(move.substring(0, colon)) > lastSync) {
+                    return Integer.parseInt(move.substring(colon + 1)) == folderId;
+                }
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private static List<String> getMovedOut(DavContext ctxt, Mailbox mbox, Collection coll, Members members,
+            List<TypedIdList.ItemInfo> elsewhere, int lastSync) throws DavException, ServiceException {
+        List<String> hrefs = new ArrayList<String>();
+        if (elsewhere == null) {
+            return hrefs;
+        }
+        for (TypedIdList.ItemInfo info : elsewhere) {
+            if (!wasInFolder(info.getPrevFolders(), coll.getId(), lastSync)) {
+                continue;
+            }
+            String href = members.hrefs.get(info.getId());
+            if (href == null) {
+                // the resource name doesn't change with the folder
+                try {
+                    DavResource rs = UrlNamespace.getResourceFromMailItem(ctxt,
+                            mbox.getItemById(ctxt.getOperationContext(), info.getId(), MailItem.Type.UNKNOWN));
+                    if (rs == null) {
+                        continue;
+                    }
+                    String name = rs.getHref().substring(rs.getHref().lastIndexOf('/') + 1);
+                    href = coll.getHref().endsWith("/") ? coll.getHref() + name : coll.getHref() + "/" + name;
+                } catch (MailServiceException.NoSuchItemException e) {
+                    // deleted since, so there is a tombstone for it
+                    continue;
+                }
+            }
+            hrefs.add(href);
+        }
+        return hrefs;
+    }
+
+    private static List<String> getDeleted(Mailbox mbox, Members members, MailItem.Type type, int lastSync)
+            throws DavException, ServiceException {
+        List<String> hrefs = new ArrayList<String>();
+        List<Integer> ids;
+        try {
+            ids = mbox.getTombstones(lastSync).getIds(type);
+        } catch (ServiceException e) {
+            if (MailServiceException.MUST_RESYNC.equals(e.getCode())) {
+                throw new DavException.InvalidData(DavElements.E_VALID_SYNC_TOKEN, "tombstones have expired");
+            }
+            throw e;
+        }
+        if (ids == null) {
+            return hrefs;
+        }
+        for (int id : ids) {
+            String href = members.hrefs.get(id);
+            if (href != null) {
+                hrefs.add(href);
+            } else if (members.since > lastSync) {
+                // could have been in this collection before its resources were listed
+                throw new DavException.InvalidData(DavElements.E_VALID_SYNC_TOKEN, "unknown deleted resource");
+            }
+            // otherwise it was never in this collection
+        }
+        return hrefs;
+    }
+
+    private static void addMembers(DavContext ctxt, Mailbox mbox, List<Integer> ids, MailItem.Type type,
+            Members members) throws DavException, ServiceException {
+        for (int i = 0; i < ids.size(); i += BATCH_SIZE) {
+            List<Integer> batch = ids.subList(i, Math.min(i + BATCH_SIZE, ids.size()));
+            for (MailItem item : getItems(ctxt.getOperationContext(), mbox, batch, type)) {
+                DavResource rs = UrlNamespace.getResourceFromMailItem(ctxt, item);
+                if (rs != null) {
+                    members.hrefs.put(item.getId(), rs.getHref());
+                }
+            }
+        }
+    }
+
+    private static List<MailItem> getItems(OperationContext octxt, Mailbox mbox, List<Integer> ids, MailItem.Type type)
+            throws ServiceException {
+        List<MailItem> items = new ArrayList<MailItem>(ids.size());
+        try {
+            Collections.addAll(items, mbox.getItemById(octxt, ids, type));
+        } catch (MailServiceException.NoSuchItemException e) {
+            // one of them was deleted meanwhile, which the next sync reports
+            for (int id : ids) {
+                try {
+                    items.add(mbox.getItemById(octxt, id, type));
+                } catch (MailServiceException.NoSuchItemException nsie) {
+                }
+            }
+        }
+        return items;
+    }
+}
@@ -0,0 +1,590 @@
+/*
+ * ***** BEGIN LICENSE BLOCK *****
+ * Zimbra Collaboration Suite Server
+ * Copyright (C) 2026 Synacor, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software Foundation,
+ * version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ * ***** END LICENSE BLOCK *****
+ */
+package com.zimbra.cs.ephemeral;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Joiner;
+import com.google.common.base.Strings;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.zimbra.common.localconfig.LC;
+import com.zimbra.common.service.ServiceException;
+import com.zimbra.common.util.Constants;
+import com.zimbra.common.util.FileUtil;
+import com.zimbra.common.util.ZimbraLog;
+
+/**
+ * EphemeralStore that keeps its data in memory on the mailbox server, for single server installs that don't want to
+ * keep ephemeral data in LDAP.  Selected with a backend URL of {@code local:[directory]}; the directory defaults to
+ * {@code ephemeral_local_dir}.
+ * <p>
+ * Values are kept in their encoded form, like {@link InMemoryEphemeralStore}, in a concurrent map per location.
+ * Values with an expiration are scheduled on a {@link TimingWheel} that is advanced once a second, so expired values
+ * are removed without {@link #purgeExpired(EphemeralKey, EphemeralLocation)} having to be called.
+ * <p>
+ * Every change is appended to a journal file, which is replayed when the store starts up.  The journal is rewritten
+ * with only the live values at startup, and whenever it has grown to more than twice the number of live values.
+ */
+public class LocalEphemeralStore extends EphemeralStore {
+
+    private static final String JOURNAL = "ephemeral.journal";
+    private static final long TICK_MILLIS = Constants.MILLIS_PER_SECOND;
+
+    private static final byte OP_SET = 1;
+    private static final byte OP_UPDATE = 2;
+    private static final byte OP_DELETE = 3;
+    private static final byte OP_DELETE_DATA = 4;
+
+    private static final class Expiry {
+        final String location;
+        final String key;
+        final String value;
+
+        Expiry(String location, String key, String value) {
+            this.location = location;
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    private final File dir;
+    private final ConcurrentMap<String, ConcurrentMap<String, String[]>> data =
+            new ConcurrentHashMap<String, ConcurrentMap<String, String[]>>();
+    // changes hold the read lock; compaction holds the write lock so that it sees a consistent snapshot
+    private final ReadWriteLock journalLock = new ReentrantReadWriteLock();
+    private final TimingWheel<Expiry> wheel = new TimingWheel<Expiry>(TICK_MILLIS, System.currentTimeMillis());
+    private final AtomicLong liveValues = new AtomicLong();
+    private final AtomicLong journalRecords = new AtomicLong();
+    private final long compactMinRecords = LC.ephemeral_local_compact_min_records.longValue();
+    private DataOutputStream journal;
+    private ScheduledExecutorService expiryExecutor;
+
+    public LocalEphemeralStore(File dir) {
+        this.dir = dir;
+        setAttributeEncoder(new DynamicExpirationEncoder());
+    }
+
+    /**
+     * Loads the journal and starts expiring values.
+     */
+    public synchronized void open() throws ServiceException {
+        if (journal != null) {
+            return;
+        }
+        try {
+            FileUtil.ensureDirExists(dir);
+            replay();
+            compact();
+        } catch (IOException e) {
+            throw ServiceException.FAILURE("unable to load ephemeral journal from " + dir, e);
+        }
+        expiryExecutor = new ScheduledThreadPoolExecutor(1,
+                new ThreadFactoryBuilder().setNameFormat("EphemeralExpiry").setDaemon(true).build());
+        expiryExecutor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    tick(System.currentTimeMillis());
+                } catch (Throwable t) {
+                    ZimbraLog.ephemeral.warn("error expiring local ephemeral data", t);
+                }
+            }
+        }, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+        ZimbraLog.ephemeral.info("local ephemeral store loaded %d values from %s", liveValues.get(), dir);
+    }
+
+    /**
+     * Stops expiring values and closes the journal.
+     */
+    public synchronized void close() {
+        if (expiryExecutor != null) {
+            expiryExecutor.shutdownNow();
+            expiryExecutor = null;
+        }
+        journalLock.writeLock().lock();
+        try {
+            if (journal != null) {
+                journal.close();
+            }
+        } catch (IOException e) {
+            ZimbraLog.ephemeral.warn("error closing ephemeral journal", e);
+        } finally {
+            journal = null;
+            journalLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public EphemeralResult get(EphemeralKey key, EphemeralLocation target) throws ServiceException {
+        String[] values = getValues(target, encodeKey(key, target));
+        DynamicResultsHelper helper = new DynamicResultsHelper(key, target, encoder, null);
+        return helper.get(Arrays.asList(values));
+    }
+
+    @Override
+    public void set(EphemeralInput attribute, EphemeralLocation target) throws ServiceException {
+        change(OP_SET, locationKey(target), encodeKey(attribute, target), encodeValue(attribute, target),
+                attribute.getExpiration());
+    }
+
+    @Override
+    public void update(EphemeralInput attribute, EphemeralLocation target) throws ServiceException {
+        change(OP_UPDATE, locationKey(target), encodeKey(attribute, target), encodeValue(attribute, target),
+                attribute.getExpiration());
+    }
+
+    @Override
+    public void delete(EphemeralKey key, String valueToDelete, EphemeralLocation target) throws ServiceException {
+        String encodedKey = encodeKey(key, target);
+        DynamicResultsHelper helper = new DynamicResultsHelper(key, target, encoder, null);
+        removeValues(locationKey(target), encodedKey,
+                helper.delete(Arrays.asList(getValues(target, encodedKey)), valueToDelete));
+    }
+
+    @Override
+    public void purgeExpired(EphemeralKey key, EphemeralLocation target) throws ServiceException {
+        String encodedKey = encodeKey(key, target);
+        DynamicResultsHelper helper = new DynamicResultsHelper(key, target, encoder, null, true);
+        removeValues(locationKey(target), encodedKey, helper.purge(Arrays.asList(getValues(target, encodedKey))));
+    }
+
+    @Override
+    public void deleteData(EphemeralLocation location) throws ServiceException {
+        String loc = locationKey(location);
+        journalLock.readLock().lock();
+        try {
+            apply(OP_DELETE_DATA, loc, null, null, true);
+        } finally {
+            journalLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean has(EphemeralKey key, EphemeralLocation target) throws ServiceException {
+        String[] values = getValues(target, encodeKey(key, target));
+        DynamicResultsHelper helper = new DynamicResultsHelper(key, target, encoder, null);
+        return helper.has(Arrays.asList(values));
+    }
+
+    private static String locationKey(EphemeralLocation location) {
+        return Joiner.on("|").join(location.getLocation());
+    }
+
+    private String[] getValues(EphemeralLocation target, String encodedKey) {
+        Map<String, String[]> map = data.get(locationKey(target));
+        String[] values = map == null ? null : map.get(encodedKey);
+        return values == null ? new String[0] : values;
+    }
+
+    private ConcurrentMap<String, String[]> getOrCreateMap(String loc) {
+        ConcurrentMap<String, String[]> map = data.get(loc);
+        if (map == null) {
+            map = new ConcurrentHashMap<String, String[]>(8, 0.75f, 1);
+            ConcurrentMap<String, String[]> existing = data.putIfAbsent(loc, map);
+            if (existing != null) {
+                map = existing;
+            }
+        }
+        return map;
+    }
+
+    private void change(byte op, String loc, String key, String value, Long expiration) throws ServiceException {
+        journalLock.readLock().lock();
+        try {
+            apply(op, loc, key, value, true);
+        } finally {
+            journalLock.readLock().unlock();
+        }
+        if (expiration != null) {
+            schedule(new Expiry(loc, key, value), expiration);
+        }
+    }
+
+    private void removeValues(String loc, String key, List<String> values) throws ServiceException {
+        if (values.isEmpty()) {
+            return;
+        }
+        journalLock.readLock().lock();
+        try {
+            for (String value : values) {
+                apply(OP_DELETE, loc, key, value, true);
+            }
+        } finally {
+            journalLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Applies a change to the in-memory data, and appends it to the journal if anything changed.  Both happen while
+     * holding the monitor of the location's map, so that the journal has the changes of a location in the order they
+     * were made.  {@link #deleteData} removes the map under its monitor, so a change that finds its map removed
+     * starts over with the current one rather than writing to a map that is gone.
+     *
+     * @param toJournal false when replaying the journal
+     * @return whether anything changed
+     */
+    private boolean apply(byte op, String loc, String key, String value, boolean toJournal) {
+        while (true) {
+            ConcurrentMap<String, String[]> map = op == OP_DELETE || op == OP_DELETE_DATA ?
+                    data.get(loc) : getOrCreateMap(loc);
+            if (map == null) {
+                return false;
+            }
+            synchronized (map) {
+                if (data.get(loc) != map) {
+                    continue;
+                }
+                boolean changed = apply(map, op, loc, key, value);
+                if (changed && toJournal) {
+                    append(op, loc, key, value);
+                }
+                return changed;
+            }
+        }
+    }
+
+    private boolean apply(ConcurrentMap<String, String[]> map, byte op, String loc, String key, String value) {
+        String[] values = op == OP_DELETE_DATA ? null : map.get(key);
+        switch (op) {
+        case OP_DELETE_DATA:
+            data.remove(loc);
+            for (String[] removed : map.values()) {
+                liveValues.addAndGet(-removed.length);
+            }
+            return true;
+        case OP_SET:
+            map.put(key, new String[] {value});
+            liveValues.addAndGet(1 - (values == null ? 0 : values.length));
+            return true;
+        case OP_UPDATE:
+            if (values == null) {
+                map.put(key, new String[] {value});
+            } else {
+                String[] newValues = Arrays.copyOf(values, values.length + 1);
+                newValues[values.length] = value;
+                map.put(key, newValues);
+            }
+            liveValues.incrementAndGet();
+            return true;
+        case OP_DELETE:
+            if (values == null) {
+                return false;
+            }
+            int i = Arrays.asList(values).indexOf(value);
+            if (i < 0) {
+                return false;
+            }
+            if (values.length == 1) {
+                map.remove(key);
+            } else {
+                String[] newValues = new String[values.length - 1];
+                System.arraycopy(values, 0, newValues, 0, i);
+                System.arraycopy(values, i + 1, newValues, i, values.length - i - 1);
+                map.put(key, newValues);
+            }
+            liveValues.decrementAndGet();
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    private void schedule(Expiry expiry, long expiration) {
+        synchronized (wheel) {
+            if (wheel.schedule(expiry, expiration)) {
+                return;
+            }
+        }
+        // already expired
+        expire(Collections.singletonList(expiry));
+    }
+
+    /**
+     * Removes the values whose time has come, and flushes the journal.
+     */
+    @VisibleForTesting
+    void tick(long now) {
+        List<Expiry> expired = new ArrayList<Expiry>();
+        synchronized (wheel) {
+            wheel.advance(now, expired);
+        }
+        expire(expired);
+        journalLock.readLock().lock();
+        try {
+            if (journal != null) {
+                synchronized (journal) {
+                    journal.flush();
+                }
+            }
+        } catch (IOException e) {
+            ZimbraLog.ephemeral.warn("error flushing ephemeral journal", e);
+        } finally {
+            journalLock.readLock().unlock();
+        }
+        if (journalRecords.get() > Math.max(compactMinRecords, liveValues.get() * 2)) {
+            try {
+                compact();
+            } catch (IOException e) {
+                ZimbraLog.ephemeral.warn("error compacting ephemeral journal", e);
+            }
+        }
+    }
+
+    private void expire(List<Expiry> expired) {
+        if (expired.isEmpty()) {
+            return;
+        }
+        journalLock.readLock().lock();
+        try {
+            for (Expiry expiry : expired) {
+                // the value is gone if it was deleted or replaced in the meantime
+                apply(OP_DELETE, expiry.location, expiry.key, expiry.value, true);
+            }
+        } finally {
+            journalLock.readLock().unlock();
+        }
+        ZimbraLog.ephemeral.debug("expired %d local ephemeral values", expired.size());
+    }
+
+    @VisibleForTesting
+    long getSize() {
+        return liveValues.get();
+    }
+
+    private void append(byte op, String loc, String key, String value) {
+        DataOutputStream out = journal;
+        if (out == null) {
+            return;
+        }
+        try {
+            synchronized (out) {
+                writeRecord(out, op, loc, key, value);
+            }
+            journalRecords.incrementAndGet();
+        } catch (IOException e) {
+            ZimbraLog.ephemeral.warn("error writing ephemeral journal", e);
+        }
+    }
+
+    private static void writeRecord(DataOutputStream out, byte op, String loc, String key, String value)
+    throws IOException {
+        out.writeByte(op);
+        writeString(out, loc);
+        if (op != OP_DELETE_DATA) {
+            writeString(out, key);
+            writeString(out, value);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int len = in.readInt();
+        if (len < 0) {
+            throw new IOException("invalid string length " + len);
+        }
+        byte[] bytes = new byte[len];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Replays the journal into memory.  A record cut short by a crash ends the replay.
+     */
+    private void replay() throws IOException {
+        File file = new File(dir, JOURNAL);
+        if (!file.exists()) {
+            return;
+        }
+        int records = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while (true) {
+                byte op;
+                try {
+                    op = in.readByte();
+                } catch (EOFException e) {
+                    break;
+                }
+                try {
+                    String loc = readString(in);
+                    if (op == OP_DELETE_DATA) {
+                        apply(op, loc, null, null, false);
+                    } else {
+                        apply(op, loc, readString(in), readString(in), false);
+                    }
+                } catch (EOFException e) {
+                    ZimbraLog.ephemeral.warn("ephemeral journal %s is truncated after %d records", file, records);
+                    break;
+                }
+                records++;
+            }
+        }
+        // schedule expirations, and drop what expired while the server was down
+        long now = System.currentTimeMillis();
+        List<Expiry> expired = new ArrayList<Expiry>();
+        for (Map.Entry<String, ConcurrentMap<String, String[]>> loc : data.entrySet()) {
+            for (Map.Entry<String, String[]> entry : loc.getValue().entrySet()) {
+                for (String value : entry.getValue()) {
+                    Long expiration = expirationOf(entry.getKey(), value);
+                    if (expiration == null) {
+                        continue;
+                    }
+                    Expiry expiry = new Expiry(loc.getKey(), entry.getKey(), value);
+                    if (expiration <= now || !wheel.schedule(expiry, expiration)) {
+                        expired.add(expiry);
+                    }
+                }
+            }
+        }
+        for (Expiry expiry : expired) {
+            apply(OP_DELETE, expiry.location, expiry.key, expiry.value, false);
+        }
+    }
+
+    private Long expirationOf(String key, String value) {
+        try {
+            return ((ExpirableEphemeralKeyValuePair) decode(key, value)).getExpiration();
+        } catch (ServiceException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Rewrites the journal with the live values, and reopens it for appending.
+     */
+    private void compact() throws IOException {
+        journalLock.writeLock().lock();
+        try {
+            if (journal != null) {
+                journal.close();
+                journal = null;
+            }
+            File file = new File(dir, JOURNAL);
+            File tmp = new File(dir, JOURNAL + ".tmp");
+            long records = 0;
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+                for (Map.Entry<String, ConcurrentMap<String, String[]>> loc : data.entrySet()) {
+                    for (Map.Entry<String, String[]> entry : loc.getValue().entrySet()) {
+                        for (String value : entry.getValue()) {
+                            writeRecord(out, OP_UPDATE, loc.getKey(), entry.getKey(), value);
+                            records++;
+                        }
+                    }
+                }
+            }
+            if (!tmp.renameTo(file)) {
+                // rename over an existing file fails on some platforms
+                file.delete();
+                if (!tmp.renameTo(file)) {
+                    throw new IOException("unable to rename " + tmp + " to " + file);
+                }
+            }
+            journalRecords.set(records);
+            journal = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+            ZimbraLog.ephemeral.debug("compacted ephemeral journal to %d records", records);
+        } finally {
+            journalLock.writeLock().unlock();
+        }
+    }
+
+    public static class Factory extends EphemeralStore.Factory {
+
+        private static LocalEphemeralStore instance;
+
+        private static File getDir(String url) {
+            int i = url == null ? -1 : url.indexOf(':');
+            String path = i < 0 ? null : url.substring(i + 1);
+            return new File(Strings.isNullOrEmpty(path) ? LC.ephemeral_local_dir.value() : path);
+        }
+
+        @Override
+        public EphemeralStore getStore() {
+            synchronized (Factory.class) {
+                if (instance == null) {
+                    String url = null;
+                    try {
+                        url = getURL();
+                    } catch (ServiceException e) {
+                        ZimbraLog.ephemeral.warn("unable to get ephemeral backend URL, using %s",
+                                LC.ephemeral_local_dir.value(), e);
+                    }
+                    LocalEphemeralStore store = new LocalEphemeralStore(getDir(url));
+                    try {
+                        store.open();
+                    } catch (ServiceException e) {
+                        ZimbraLog.ephemeral.error("unable to load local ephemeral data, starting empty", e);
+                    }
+                    instance = store;
+                }
+                return instance;
+            }
+        }
+
+        @Override
+        public void startup() {}
+
+        @Override
+        public void shutdown() {
+            synchronized (Factory.class) {
+                if (instance != null) {
+                    instance.close();
+                    instance = null;
+                }
+            }
+        }
+
+        @Override
+        public void test(String url) throws ServiceException {
+            File dir = getDir(url);
+            try {
+                FileUtil.ensureDirExists(dir);
+            } catch (IOException e) {
+                throw ServiceException.FAILURE("cannot create directory " + dir, e);
+            }
+            if (!dir.canWrite()) {
+                throw ServiceException.FAILURE("cannot write to directory " + dir, null);
+            }
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * ***** BEGIN LICENSE BLOCK *****
+ * Zimbra Collaboration Suite Server
+ * Copyright (C) 2026 Synacor, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software Foundation,
+ * version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ * ***** END LICENSE BLOCK *****
+ */
+package com.zimbra.cs.ephemeral;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hierarchical timing wheel: schedules items to expire at a time, with a resolution of one tick.
+ * <p>
+ * Level 0 has one slot per tick, and each level above it has slots that are {@code SLOTS} times wider.  Scheduling
+ * an item is O(1).  When the ticks of a slot of a higher level come up, its items are moved down to the level below,
+ * so each item is moved at most once per level before it expires.  Items further away than the top level covers are
+ * kept in the last slot of the top level, and go back there until they are in range.
+ * <p>
+ * Not thread safe.
+ */
+final class TimingWheel<T> {
+
+    private static final int BITS = 6;
+    private static final int SLOTS = 1 << BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+
+    private static final class Timer<T> {
+        final T item;
+        final long tick;
+
+        Timer(T item, long tick) {
+            this.item = item;
+            this.tick = tick;
+        }
+    }
+
+    private final long tickMillis;
+    private final List<List<Timer<T>>> slots = new ArrayList<List<Timer<T>>>(LEVELS * SLOTS);
+    private long currentTick;
+    private int size;
+
+    /**
+     * @param now the current time (ms)
+     */
+    TimingWheel(long tickMillis, long now) {
+        this.tickMillis = tickMillis;
+        this.currentTick = now / tickMillis;
+        for (int i = 0; i < LEVELS * SLOTS; i++) {
+            slots.add(null);
+        }
+    }
+
+    /**
+     * Schedules an item to expire at the given time.
+     *
+     * @return false if the time has already come, in which case the item is not scheduled
+     */
+    boolean schedule(T item, long expiresAt) {
+        long tick = (expiresAt + tickMillis - 1) / tickMillis;
+        if (tick <= currentTick) {
+            return false;
+        }
+        add(new Timer<T>(item, tick));
+        size++;
+        return true;
+    }
+
+    private void add(Timer<T> timer) {
+        long delta = timer.tick - currentTick;
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= (1L << (BITS * (level + 1)))) {
+            level++;
+        }
+        int slot;
+        if (delta >= (1L << (BITS * LEVELS))) {
+            // out of range, park it in the slot that comes up last
+            slot = (int) ((currentTick >>> (BITS * level)) - 1) & MASK;
+        } else {
+            slot = (int) (timer.tick >>> (BITS * level)) & MASK;
+        }
+        int index = level * SLOTS + slot;
+        List<Timer<T>> list = slots.get(index);
+        if (list == null) {
+            list = new ArrayList<Timer<T>>(4);
+            slots.set(index, list);
+        }
+        list.add(timer);
+    }
+
+    /**
+     * Moves the wheel forward to the given time.
+     *
+     * @param expired receives the items whose time has come
+     */
+    void advance(long now, List<T> expired) {
+        long target = now / tickMillis;
+        while (currentTick < target) {
+            currentTick++;
+            // move the items of higher level slots that start at this tick down
+            for (int level = LEVELS - 1; level > 0; level--) {
+                if ((currentTick & ((1L << (BITS * level)) - 1)) == 0) {
+                    int slot = (int) (currentTick >>> (BITS * level)) & MASK;
+                    List<Timer<T>> list = slots.set(level * SLOTS + slot, null);
+                    if (list != null) {
+                        for (Timer<T> timer : list) {
+                            if (timer.tick <= currentTick) {
+                                expired.add(timer.item);
+                                size--;
+                            } else {
+                                add(timer);
+                            }
+                        }
+                    }
+                }
+            }
+            List<Timer<T>> list = slots.set((int) currentTick & MASK, null);
+            if (list != null) {
+                for (Timer<T> timer : list) {
+                    if (timer.tick <= currentTick) {
+                        expired.add(timer.item);
+                        size--;
+                    } else {
+                        add(timer);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Number of items scheduled.
+     */
+    int size() {
+        return size;
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * ***** BEGIN LICENSE BLOCK *****
+ * Zimbra Collaboration Suite Server
+ * Copyright (C) 2026 Synacor, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software Foundation,
+ * version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ * ***** END LICENSE BLOCK *****
+ */
+package com.zimbra.cs.fb;
+
+import com.zimbra.cs.fb.FreeBusy.Interval;
+import com.zimbra.cs.fb.FreeBusy.IntervalList;
+import com.zimbra.cs.mailbox.calendar.IcalXmlStrMap;
+
+/**
+ * Compact free/busy representation of one account over a fixed window.  The window is divided in
+ * {@link #SLOT_MILLIS} slots and each slot keeps the busiest status of the instances overlapping it
+ * in 2 bits, so 90 days of free/busy fit in about 2KB.
+ * <p>
+ * Marking is not thread safe; a bitmap is built once and only read after it has been published.
+ */
+public class FreeBusyBitmap {
+
+    public static final long SLOT_MILLIS = 15 * 60 * 1000;
+
+    // slot values, ordered from the least to the most busy
+    private static final int FREE = 0;
+    private static final int TENTATIVE = 1;
+    private static final int BUSY = 2;
+    private static final int UNAVAILABLE = 3;
+
+    private static final int BITS_PER_SLOT = 2;
+    private static final int SLOTS_PER_WORD = Long.SIZE / BITS_PER_SLOT;
+    private static final long SLOT_MASK = (1L << BITS_PER_SLOT) - 1;
+
+    private final long start;
+    private final int numSlots;
+    private final long[] words;
+
+    /**
+     * @param start window start; rounded down to a slot boundary
+     * @param end window end; rounded up to a slot boundary
+     */
+    public FreeBusyBitmap(long start, long end) {
+        if (end < start) {
+            throw new IllegalArgumentException("end " + end + " is before start " + start);
+        }
+        this.start = floorSlot(start);
+        this.numSlots = (int) ((ceilSlot(end) - this.start) / SLOT_MILLIS);
+        this.words = new long[(numSlots + SLOTS_PER_WORD - 1) / SLOTS_PER_WORD];
+    }
+
+    private static long floorSlot(long time) {
+        return time - Math.floorMod(time, SLOT_MILLIS);
+    }
+
+    private static long ceilSlot(long time) {
+        long floor = floorSlot(time);
+        return floor == time ? time : floor + SLOT_MILLIS;
+    }
+
+    public long getStart() {
+        return start;
+    }
+
+    public long getEnd() {
+        return start + numSlots * SLOT_MILLIS;
+    }
+
+    public boolean covers(long rangeStart, long rangeEnd) {
+        return rangeStart >= getStart() && rangeEnd <= getEnd();
+    }
+
+    /**
+     * @return approximate number of heap bytes used by this bitmap
+     */
+    public int getMemorySize() {
+        return 32 + words.length * 8;
+    }
+
+    /**
+     * Marks all slots overlapping the given instance, keeping the busier status where slots are
+     * already marked.  The part of the instance outside of the window is ignored.
+     */
+    public void mark(long instStart, long instEnd, String fbStatus) {
+        int value = toValue(fbStatus);
+        if (value == FREE || instEnd <= instStart) {
+            return;
+        }
+        int from = (int) ((Math.max(instStart, getStart()) - start) / SLOT_MILLIS);
+        int to = (int) ((Math.min(ceilSlot(instEnd), getEnd()) - start) / SLOT_MILLIS);
+        for (int slot = from; slot < to; slot++) {
+            if (get(slot) < value) {
+                set(slot, value);
+            }
+        }
+    }
+
+    private int get(int slot) {
+        int shift = (slot % SLOTS_PER_WORD) * BITS_PER_SLOT;
+        return (int) ((words[slot / SLOTS_PER_WORD] >>> shift) & SLOT_MASK);
+    }
+
+    private void set(int slot, int value) {
+        int shift = (slot % SLOTS_PER_WORD) * BITS_PER_SLOT;
+        int idx = slot / SLOTS_PER_WORD;
+        words[idx] = (words[idx] & ~(SLOT_MASK << shift)) | ((long) value << shift);
+    }
+
+    /**
+     * @return the busiest status of the slot containing the given time, or FREE outside of the window
+     */
+    public String getStatus(long time) {
+        if (time < getStart() || time >= getEnd()) {
+            return IcalXmlStrMap.FBTYPE_FREE;
+        }
+        return toStatus(get((int) ((time - start) / SLOT_MILLIS)));
+    }
+
+    /**
+     * Converts the given range of the bitmap into a {@link FreeBusy}.  Adjacent slots with the same
+     * status are merged, and the first and last intervals are clipped to the range.
+     *
+     * @throws IllegalArgumentException if the range is not covered by this bitmap
+     */
+    public FreeBusy toFreeBusy(String name, long rangeStart, long rangeEnd) {
+        if (!covers(rangeStart, rangeEnd)) {
+            throw new IllegalArgumentException("range " + rangeStart + "-" + rangeEnd + " is outside of " + this);
+        }
+        IntervalList intervals = new IntervalList(rangeStart, rangeEnd);
+        if (rangeEnd > rangeStart) {
+            int from = (int) ((rangeStart - start) / SLOT_MILLIS);
+            int to = (int) ((ceilSlot(rangeEnd) - start) / SLOT_MILLIS);
+            int runStart = from;
+            int runValue = get(from);
+            for (int slot = from + 1; slot <= to; slot++) {
+                int value = slot < to ? get(slot) : -1;
+                if (value != runValue) {
+                    if (runValue != FREE) {
+                        long ivStart = Math.max(rangeStart, start + runStart * SLOT_MILLIS);
+                        long ivEnd = Math.min(rangeEnd, start + slot * SLOT_MILLIS);
+                        intervals.addInterval(new Interval(ivStart, ivEnd, toStatus(runValue)));
+                    }
+                    runStart = slot;
+                    runValue = value;
+                }
+            }
+        }
+        return new FreeBusy(name, intervals, rangeStart, rangeEnd);
+    }
+
+    private static int toValue(String fbStatus) {
+        if (IcalXmlStrMap.FBTYPE_BUSY_UNAVAILABLE.equals(fbStatus)) {
+            return UNAVAILABLE;
+        } else if (IcalXmlStrMap.FBTYPE_BUSY.equals(fbStatus)) {
+            return BUSY;
+        } else if (IcalXmlStrMap.FBTYPE_BUSY_TENTATIVE.equals(fbStatus)) {
+            return TENTATIVE;
+        } else if (IcalXmlStrMap.FBTYPE_FREE.equals(fbStatus)) {
+            return FREE;
+        }
+        // be conservative with unknown values
+        return BUSY;
+    }
+
+    private static String toStatus(int value) {
+        switch (value) {
+            case UNAVAILABLE:
+                return IcalXmlStrMap.FBTYPE_BUSY_UNAVAILABLE;
+            case BUSY:
+                return IcalXmlStrMap.FBTYPE_BUSY;
+            case TENTATIVE:
+                return IcalXmlStrMap.FBTYPE_BUSY_TENTATIVE;
+            default:
+                return IcalXmlStrMap.FBTYPE_FREE;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "FreeBusyBitmap[" + getStart() + "-" + getEnd() + ", slots=" + numSlots + "]";
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * ***** BEGIN LICENSE BLOCK *****
+ * Zimbra Collaboration Suite Server
+ * Copyright (C) 2026 Synacor, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software Foundation,
+ * version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ * ***** END LICENSE BLOCK *****
+ */
+package com.zimbra.cs.fb;
+
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.zimbra.common.localconfig.LC;
+import com.zimbra.common.service.ServiceException;
+import com.zimbra.common.util.ZimbraLog;
+import com.zimbra.cs.account.AccessManager;
+import com.zimbra.cs.account.Account;
+import com.zimbra.cs.account.accesscontrol.Rights.User;
+import com.zimbra.cs.mailbox.MailItem;
+import com.zimbra.cs.mailbox.Mailbox;
+import com.zimbra.cs.mailbox.MailboxListener;
+import com.zimbra.cs.mailbox.MailboxManager;
+
+/**
+ * Keeps a {@link FreeBusyBitmap} per local account covering a window around the current time, so
+ * that free/busy lookups from the scheduling assistant and resource searches don't have to walk
+ * calendar items and instances on every request.
+ * <p>
+ * A bitmap is built on first use and dropped by {@link Listener} whenever an appointment or a folder
+ * of the mailbox changes.  Bitmaps report busy time at {@link FreeBusyBitmap#SLOT_MILLIS} granularity
+ * and ignore folder-level grants, so they are only used for requestors that have the account-level
+ * viewFreeBusy right, for all calendars, and when no appointment needs to be excluded.
+ */
+public final class FreeBusyBitmapCache {
+
+    private static final FreeBusyBitmapCache INSTANCE = new FreeBusyBitmapCache();
+
+    /** how long an invalidation is remembered; a bitmap that takes longer to build isn't kept */
+    private static final long INVALIDATION_TTL_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    private final Cache<String, FreeBusyBitmap> bitmaps =
+            CacheBuilder.newBuilder().maximumSize(LC.freebusy_bitmap_cache_size.intValue()).build();
+    // ordering of bitmap builds against invalidations, see getBitmap()
+    private final AtomicLong sequence = new AtomicLong();
+    private final Cache<String, Long> invalidated = CacheBuilder.newBuilder()
+            .expireAfterWrite(INVALIDATION_TTL_MILLIS, TimeUnit.MILLISECONDS).build();
+
+    public static FreeBusyBitmapCache getInstance() {
+        return INSTANCE;
+    }
+
+    public static boolean isEnabled() {
+        return LC.freebusy_bitmap_enabled.booleanValue();
+    }
+
+    public static class Listener extends MailboxListener {
+        private static final Set<MailItem.Type> TYPES = EnumSet.of(MailItem.Type.APPOINTMENT, MailItem.Type.FOLDER);
+
+        @Override
+        public void notify(ChangeNotification notification) {
+            if (notification.mailboxAccount != null) {
+                INSTANCE.invalidate(notification.mailboxAccount.getId());
+            }
+        }
+
+        @Override
+        public Set<MailItem.Type> registerForItemTypes() {
+            return TYPES;
+        }
+    }
+
+    public void invalidate(String accountId) {
+        invalidated.put(accountId, sequence.incrementAndGet());
+        bitmaps.invalidate(accountId);
+    }
+
+    /**
+     * Returns a bitmap of the mailbox covering the given range, building it if necessary.
+     *
+     * @return {@code null} if the range is outside of the cached window
+     */
+    public FreeBusyBitmap getBitmap(Mailbox mbox, long start, long end) throws ServiceException {
+        String accountId = mbox.getAccountId();
+        FreeBusyBitmap bitmap = bitmaps.getIfPresent(accountId);
+        if (bitmap != null && bitmap.covers(start, end)) {
+            return bitmap;
+        }
+        long now = System.currentTimeMillis();
+        long windowStart = now - TimeUnit.DAYS.toMillis(LC.freebusy_bitmap_past_days.intValue());
+        long windowEnd = now + TimeUnit.DAYS.toMillis(LC.freebusy_bitmap_future_days.intValue());
+        if (start < windowStart || end > windowEnd) {
+            return null;
+        }
+        long seq = sequence.get();
+        long started = System.nanoTime();
+        bitmap = mbox.getFreeBusyBitmap(windowStart, windowEnd);
+        bitmaps.put(accountId, bitmap);
+        // A change may have been committed after the calendars were read, and its invalidation may
+        // have run before the put above.  Drop the bitmap again in that case; the current request
+        // can still use it as it is no older than a direct lookup started at the same time.  If the
+        // build took so long that such an invalidation may have expired already, drop it as well.
+        Long lastInvalidated = invalidated.getIfPresent(accountId);
+        if ((lastInvalidated != null && lastInvalidated > seq) ||
+                System.nanoTime() - started >= TimeUnit.MILLISECONDS.toNanos(INVALIDATION_TTL_MILLIS)) {
+            bitmaps.invalidate(accountId);
+        }
+        ZimbraLog.fb.debug("built free/busy bitmap for %s: %s (%d bytes)", accountId, bitmap, bitmap.getMemorySize());
+        return bitmap;
+    }
+
+    /**
+     * Looks up the free/busy of several local accounts in one call.
+     *
+     * @param authAcct requesting account; may be {@code null}
+     * @param targets accounts keyed by the name the free/busy should be reported under
+     * @return free/busy for the targets that could be answered from bitmaps, in target order; the
+     *         remaining targets need a regular lookup
+     */
+    public Map<String, FreeBusy> getFreeBusy(Account authAcct, boolean asAdmin, Map<String, Account> targets,
+            long start, long end) {
+        Map<String, FreeBusy> result = new LinkedHashMap<String, FreeBusy>();
+        if (!isEnabled()) {
+            return result;
+        }
+        AccessManager accessMgr = AccessManager.getInstance();
+        for (Map.Entry<String, Account> entry : targets.entrySet()) {
+            String name = entry.getKey();
+            Account acct = entry.getValue();
+            try {
+                if (!accessMgr.canDo(authAcct, acct, User.R_viewFreeBusy, asAdmin)) {
+                    continue;
+                }
+                Mailbox mbox = MailboxManager.getInstance().getMailboxByAccount(acct);
+                FreeBusyBitmap bitmap = getBitmap(mbox, start, end);
+                if (bitmap != null) {
+                    result.put(name, bitmap.toFreeBusy(name, start, end));
+                }
+            } catch (ServiceException e) {
+                ZimbraLog.fb.warn("cannot get free/busy bitmap for %s", name, e);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return number of cached bitmaps
+     */
+    public long size() {
+        return bitmaps.size();
+    }
+
+    /**
+     * @return approximate heap used by the cached bitmaps
+     */
+    public long getMemorySize() {
+        long total = 0;
+        for (FreeBusyBitmap bitmap : bitmaps.asMap().values()) {
+            total += bitmap.getMemorySize();
+        }
+        return total;
+    }
+}
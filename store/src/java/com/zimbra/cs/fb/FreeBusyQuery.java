@@ -17,8 +17,11 @@
 package com.zimbra.cs.fb;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import javax.servlet.http.HttpServletRequest;
 
@@ -47,6 +50,7 @@ public class FreeBusyQuery {
 	
 	private HashMap<String,Account> mTargets;
 	private HashMap<String, Integer> mTargetFolder;  // optional calendar folder id for each target
+	private boolean mUseBitmaps;
 	
 	// needed for proxying to another mailbox server
 	private HttpServletRequest mReq;
@@ -67,6 +71,15 @@ public class FreeBusyQuery {
 		mTargetFolder = new HashMap<String, Integer>();
 	}
 	
+	/**
+	 * Allows local accounts to be answered from {@link FreeBusyBitmapCache}, at the cost of reporting
+	 * busy time rounded out to {@link FreeBusyBitmap#SLOT_MILLIS} boundaries.  Not suitable for
+	 * conflict checks, which must not report adjacent appointments as overlapping.
+	 */
+	public void setUseBitmaps(boolean useBitmaps) {
+		mUseBitmaps = useBitmaps;
+	}
+	
 	public void addAccountId(String accountId, int calFolderId) {
 		addUser(accountId, getAccountFromId(accountId), calFolderId);
 	}
@@ -112,7 +125,19 @@ public class FreeBusyQuery {
     	return null;
     }
     
+    private OperationContext getOperationContext() throws ServiceException {
+        if (mCtxt != null && mCtxt.getAuthToken() != null)
+            return new OperationContext(mCtxt.getAuthToken());
+        else if (mRequestor != null)
+            return new OperationContext(mRequestor);
+        else
+            return new OperationContext(GuestAccount.ANONYMOUS_ACCT);
+    }
+
     private void prepareRequests(ArrayList<FreeBusy> local, RemoteFreeBusyProvider remote, ArrayList<String> external) {
+        // local accounts that may be answered from free/busy bitmaps, looked up together below
+        Map<String, Account> bitmapTargets = new LinkedHashMap<String, Account>();
+        boolean useBitmaps = mUseBitmaps && mExApptUid == null && FreeBusyBitmapCache.isEnabled();
     	for (String id : mTargets.keySet()) {
     		Account acct = mTargets.get(id);
     		try {
@@ -124,21 +149,11 @@ public class FreeBusyQuery {
     		    int folder = mTargetFolder.get(id);
     		
         		if (Provisioning.onLocalServer(acct)) {
-        		    Mailbox mbox = MailboxManager.getInstance().getMailboxByAccount(acct);
-        		    OperationContext octxt = null;
-        		    if (mCtxt != null && mCtxt.getAuthToken() != null)
-        		        octxt = new OperationContext(mCtxt.getAuthToken());
-        		    else if (mRequestor != null)
-        		        octxt = new OperationContext(mRequestor);
-        		    else
-        		        octxt = new OperationContext(GuestAccount.ANONYMOUS_ACCT);
-                    Appointment exAppt = null;
-                    if (mExApptUid != null) {
-                        CalendarItem ci = mbox.getCalendarItemByUid(octxt, mExApptUid);
-                        if (ci instanceof Appointment)
-                            exAppt = (Appointment) ci;
-                    }
-        		    local.add(mbox.getFreeBusy(octxt, id, mStart, mEnd, folder, exAppt));
+        		    if (useBitmaps && folder == CALENDAR_FOLDER_ALL) {
+        		        bitmapTargets.put(id, acct);
+        		        continue;
+        		    }
+        		    addLocalFreeBusy(local, id, acct, folder);
         		} else {
         			remote.addFreeBusyRequest(mRequestor, acct, id, mStart, mEnd, folder);
         		}
@@ -146,6 +161,41 @@ public class FreeBusyQuery {
                 ZimbraLog.fb.error("cannot get free/busy for "+id, e);
     		}
     	}
+    	if (bitmapTargets.isEmpty())
+    	    return;
+    	Map<String, FreeBusy> fromBitmaps = Collections.emptyMap();
+    	try {
+    	    OperationContext octxt = getOperationContext();
+    	    fromBitmaps = FreeBusyBitmapCache.getInstance().getFreeBusy(octxt.getAuthenticatedUser(),
+    	            octxt.isUsingAdminPrivileges(), bitmapTargets, mStart, mEnd);
+    	} catch (ServiceException e) {
+    	    ZimbraLog.fb.warn("cannot get free/busy from bitmaps", e);
+    	}
+    	for (Map.Entry<String, Account> entry : bitmapTargets.entrySet()) {
+    	    String id = entry.getKey();
+    	    FreeBusy fb = fromBitmaps.get(id);
+    	    if (fb != null) {
+    	        local.add(fb);
+    	        continue;
+    	    }
+    	    try {
+    	        addLocalFreeBusy(local, id, entry.getValue(), CALENDAR_FOLDER_ALL);
+    	    } catch (ServiceException e) {
+    	        ZimbraLog.fb.error("cannot get free/busy for "+id, e);
+    	    }
+    	}
+    }
+
+    private void addLocalFreeBusy(ArrayList<FreeBusy> local, String id, Account acct, int folder) throws ServiceException {
+        Mailbox mbox = MailboxManager.getInstance().getMailboxByAccount(acct);
+        OperationContext octxt = getOperationContext();
+        Appointment exAppt = null;
+        if (mExApptUid != null) {
+            CalendarItem ci = mbox.getCalendarItemByUid(octxt, mExApptUid);
+            if (ci instanceof Appointment)
+                exAppt = (Appointment) ci;
+        }
+        local.add(mbox.getFreeBusy(octxt, id, mStart, mEnd, folder, exAppt));
     }
     
     private int getHopcount() {        
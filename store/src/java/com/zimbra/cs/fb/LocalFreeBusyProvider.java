@@ -64,7 +64,7 @@ public class LocalFreeBusyProvider {
 
         int exApptId = exAppt == null ? -1 : exAppt.getId();
 
-        IntervalList intervals = new IntervalList(start, end);
+        final IntervalList intervals = new IntervalList(start, end);
 
         List<CalendarDataResult> calDataResultList;
         if (folder == FreeBusyQuery.CALENDAR_FOLDER_ALL) {
@@ -89,56 +89,13 @@ public class LocalFreeBusyProvider {
                         f.getName(), folderId, folderFBAllowed, accountAceAllowed);
                 continue;
             }
-            for (Iterator<CalendarItemData> iter = result.data.calendarItemIterator(); iter.hasNext(); ) {
-                CalendarItemData appt = iter.next();
-                int apptId = appt.getCalItemId();
-                if (apptId == exApptId)
-                    continue;
-                FullInstanceData defaultInstance = appt.getDefaultData();
-                if (defaultInstance == null)
-                    continue;
-                boolean isTransparent = false;
-                String transp = defaultInstance.getTransparency();
-                isTransparent = IcalXmlStrMap.TRANSP_TRANSPARENT.equals(transp);
-                long defaultDuration = 0;
-                if (defaultInstance.getDuration() != null)
-                    defaultDuration = defaultInstance.getDuration().longValue();
-                String defaultFreeBusy = defaultInstance.getFreeBusyActual();
-                for (Iterator<InstanceData> instIter = appt.instanceIterator(); instIter.hasNext(); ) {
-                    InstanceData instance = instIter.next();
-                    long instStart = instance.getDtStart() != null ? instance.getDtStart().longValue() : 0;
-                    // Skip instances that are outside the time range but were returned due to alarm being in range.
-                    if (instStart >= end)
-                        continue;
-                    long dur = defaultDuration;
-                    if (instance.getDuration() != null)
-                        dur = instance.getDuration().longValue();
-                    if (dur <= 0)  // Only consider instances with non-zero, positive duration.
-                        continue;
-                    long instEnd = instStart + dur;
-
-                    long recurIdDt = 0;
-                    // Skip if instance is TRANSPARENT to free/busy searches.
-                    if (instance instanceof FullInstanceData) {
-                        FullInstanceData fullInst = (FullInstanceData) instance;
-                        String transpInst = fullInst.getTransparency();
-                        recurIdDt = fullInst.getRecurrenceId();
-                        if (IcalXmlStrMap.TRANSP_TRANSPARENT.equals(transpInst))
-                            continue;
-                    } else if (isTransparent) {
-                        continue;
-                    }
-
-                    String freeBusy = instance.getFreeBusyActual();
-                    if (freeBusy == null)
-                        freeBusy = defaultFreeBusy;
-                    if (!IcalXmlStrMap.FBTYPE_FREE.equals(freeBusy)) {
-                        FBInstance fbInst = new FBInstance(freeBusy, instStart, instEnd, apptId, recurIdDt);
-                        Interval ival = new Interval(instStart, instEnd, freeBusy, fbInst);
-                        intervals.addInterval(ival);
-                    }
+            addBusyInstances(result, end, exApptId, new InstanceSink() {
+                @Override
+                public void add(String freeBusy, long instStart, long instEnd, int apptId, long recurIdDt) {
+                    FBInstance fbInst = new FBInstance(freeBusy, instStart, instEnd, apptId, recurIdDt);
+                    intervals.addInterval(new Interval(instStart, instEnd, freeBusy, fbInst));
                 }
-            }
+            });
         }
         if (!accountAceAllowed && numAllowedFolders == 0 && !LC.freebusy_disable_nodata_status.booleanValue()) {
             Interval nodata = new Interval(start, end, IcalXmlStrMap.FBTYPE_NODATA);
@@ -147,6 +104,92 @@ public class LocalFreeBusyProvider {
         return new FreeBusy(name, intervals, start, end);
     }
 
+    /**
+     * Receives the non-free, non-transparent instances found by {@link #addBusyInstances}.
+     */
+    private interface InstanceSink {
+        void add(String freeBusy, long instStart, long instEnd, int apptId, long recurIdDt);
+    }
+
+    /**
+     * Builds the free/busy bitmap of all calendars in the mailbox that are not excluded from free/busy.
+     * Folder-level grants are not considered, so the result may only be handed out to requestors that
+     * have the account-level viewFreeBusy right.
+     *
+     * @param mbox
+     * @param start window start; rounded down to the bitmap slot size
+     * @param end window end; rounded up to the bitmap slot size
+     * @throws ServiceException
+     */
+    public static FreeBusyBitmap getFreeBusyBitmap(Mailbox mbox, long start, long end) throws ServiceException {
+        final FreeBusyBitmap bitmap = new FreeBusyBitmap(start, end);
+        List<CalendarDataResult> calDataResultList =
+                mbox.getAllCalendarsSummaryForRange(null, MailItem.Type.APPOINTMENT, bitmap.getStart(), bitmap.getEnd());
+        for (CalendarDataResult result : calDataResultList) {
+            Folder f = mbox.getFolderById(null, result.data.getFolderId());
+            if ((f.getFlagBitmask() & Flag.BITMASK_EXCLUDE_FREEBUSY) != 0)
+                continue;
+            addBusyInstances(result, bitmap.getEnd(), -1, new InstanceSink() {
+                @Override
+                public void add(String freeBusy, long instStart, long instEnd, int apptId, long recurIdDt) {
+                    bitmap.mark(instStart, instEnd, freeBusy);
+                }
+            });
+        }
+        return bitmap;
+    }
+
+    private static void addBusyInstances(CalendarDataResult result, long end, int exApptId, InstanceSink sink) {
+        for (Iterator<CalendarItemData> iter = result.data.calendarItemIterator(); iter.hasNext(); ) {
+            CalendarItemData appt = iter.next();
+            int apptId = appt.getCalItemId();
+            if (apptId == exApptId)
+                continue;
+            FullInstanceData defaultInstance = appt.getDefaultData();
+            if (defaultInstance == null)
+                continue;
+            boolean isTransparent = false;
+            String transp = defaultInstance.getTransparency();
+            isTransparent = IcalXmlStrMap.TRANSP_TRANSPARENT.equals(transp);
+            long defaultDuration = 0;
+            if (defaultInstance.getDuration() != null)
+                defaultDuration = defaultInstance.getDuration().longValue();
+            String defaultFreeBusy = defaultInstance.getFreeBusyActual();
+            for (Iterator<InstanceData> instIter = appt.instanceIterator(); instIter.hasNext(); ) {
+                InstanceData instance = instIter.next();
+                long instStart = instance.getDtStart() != null ? instance.getDtStart().longValue() : 0;
+                // Skip instances that are outside the time range but were returned due to alarm being in range.
+                if (instStart >= end)
+                    continue;
+                long dur = defaultDuration;
+                if (instance.getDuration() != null)
+                    dur = instance.getDuration().longValue();
+                if (dur <= 0)  // Only consider instances with non-zero, positive duration.
+                    continue;
+                long instEnd = instStart + dur;
+
+                long recurIdDt = 0;
+                // Skip if instance is TRANSPARENT to free/busy searches.
+                if (instance instanceof FullInstanceData) {
+                    FullInstanceData fullInst = (FullInstanceData) instance;
+                    String transpInst = fullInst.getTransparency();
+                    recurIdDt = fullInst.getRecurrenceId();
+                    if (IcalXmlStrMap.TRANSP_TRANSPARENT.equals(transpInst))
+                        continue;
+                } else if (isTransparent) {
+                    continue;
+                }
+
+                String freeBusy = instance.getFreeBusyActual();
+                if (freeBusy == null)
+                    freeBusy = defaultFreeBusy;
+                if (!IcalXmlStrMap.FBTYPE_FREE.equals(freeBusy)) {
+                    sink.add(freeBusy, instStart, instEnd, apptId, recurIdDt);
+                }
+            }
+        }
+    }
+
     public static void main(String[] args) {
         IntervalList l = new IntervalList(0, 100);
         Interval toAdd;
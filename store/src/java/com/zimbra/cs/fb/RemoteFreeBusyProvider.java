@@ -20,12 +20,20 @@ import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import javax.servlet.http.HttpServletRequest;
 
@@ -35,6 +43,7 @@ import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.impl.client.HttpClientBuilder;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.zimbra.common.account.Key;
 import com.zimbra.common.account.Key.AccountBy;
 import com.zimbra.common.calendar.ZCalendar.ICalTok;
@@ -42,6 +51,7 @@ import com.zimbra.common.calendar.ZCalendar.ZCalendarBuilder;
 import com.zimbra.common.calendar.ZCalendar.ZComponent;
 import com.zimbra.common.calendar.ZCalendar.ZVCalendar;
 import com.zimbra.common.httpclient.HttpClientUtil;
+import com.zimbra.common.localconfig.LC;
 import com.zimbra.common.service.ServiceException;
 import com.zimbra.common.soap.Element;
 import com.zimbra.common.soap.MailConstants;
@@ -107,65 +117,119 @@ public class RemoteFreeBusyProvider extends FreeBusyProvider {
 
     @Override
     public List<FreeBusy> getResults() {
+        List<Callable<List<FreeBusy>>> tasks = new ArrayList<Callable<List<FreeBusy>>>(mRequestList.size());
+        for (final Request req : mRequestList) {
+            tasks.add(new Callable<List<FreeBusy>>() {
+                @Override
+                public List<FreeBusy> call() {
+                    return getFreeBusy(req);
+                }
+            });
+        }
         ArrayList<FreeBusy> fbList = new ArrayList<FreeBusy>();
-        for (Request req : mRequestList) {
-            HttpRequestBase method = null;
-            Account acct = (Account)req.data;
+        for (List<FreeBusy> result : invokeAll(tasks)) {
+            if (result != null)
+                fbList.addAll(result);
+        }
+        return fbList;
+    }
+
+    private List<FreeBusy> getFreeBusy(Request req) {
+        ArrayList<FreeBusy> fbList = new ArrayList<FreeBusy>();
+        HttpRequestBase method = null;
+        Account acct = (Account)req.data;
+        try {
+            StringBuilder targetUrl = new StringBuilder();
+            targetUrl.append(UserServlet.getRestUrl(acct));
+            targetUrl.append("/Calendar?fmt=ifb");
+            targetUrl.append("&start=").append(mStart);
+            targetUrl.append("&end=").append(mEnd);
+            if (req.folder != FreeBusyQuery.CALENDAR_FOLDER_ALL)
+                targetUrl.append("&").append(UserServlet.QP_FREEBUSY_CALENDAR).append("=").append(req.folder);
             try {
-                StringBuilder targetUrl = new StringBuilder();
-                targetUrl.append(UserServlet.getRestUrl(acct));
-                targetUrl.append("/Calendar?fmt=ifb");
-                targetUrl.append("&start=").append(mStart);
-                targetUrl.append("&end=").append(mEnd);
-                if (req.folder != FreeBusyQuery.CALENDAR_FOLDER_ALL)
-                    targetUrl.append("&").append(UserServlet.QP_FREEBUSY_CALENDAR).append("=").append(req.folder);
+                if (mExApptUid != null)
+                    targetUrl.append("&").append(UserServlet.QP_EXUID).append("=").append(URLEncoder.encode(mExApptUid, "UTF-8"));
+            } catch (UnsupportedEncodingException e) {}
+            String authToken = null;
+            try {
+                if (mSoapCtxt != null)
+                    authToken = mSoapCtxt.getAuthToken().getEncoded();
+            } catch (AuthTokenException e) {}
+            if (authToken != null) {
+                targetUrl.append("&").append(ZimbraServlet.QP_ZAUTHTOKEN).append("=");
                 try {
-                    if (mExApptUid != null)
-                        targetUrl.append("&").append(UserServlet.QP_EXUID).append("=").append(URLEncoder.encode(mExApptUid, "UTF-8"));
+                    targetUrl.append(URLEncoder.encode(authToken, "UTF-8"));
                 } catch (UnsupportedEncodingException e) {}
-                String authToken = null;
-                try {
-                    if (mSoapCtxt != null)
-                        authToken = mSoapCtxt.getAuthToken().getEncoded();
-                } catch (AuthTokenException e) {}
-                if (authToken != null) {
-                    targetUrl.append("&").append(ZimbraServlet.QP_ZAUTHTOKEN).append("=");
-                    try {
-                        targetUrl.append(URLEncoder.encode(authToken, "UTF-8"));
-                    } catch (UnsupportedEncodingException e) {}
-                }
-                HttpClientBuilder clientBuilder = ZimbraHttpConnectionManager.getInternalHttpConnMgr().newHttpClient();
-                HttpProxyUtil.configureProxy(clientBuilder);
-                method = new HttpGet(targetUrl.toString());
-                String fbMsg;
-                try {
-                    HttpResponse response =  HttpClientUtil.executeMethod(clientBuilder.build(), method);
-                    byte[] buf = ByteUtil.getContent(response.getEntity().getContent(), 0);
-                    fbMsg = new String(buf, "UTF-8");
-                } catch (IOException | HttpException ex) {
-                    // ignore this recipient and go on
-                    fbMsg = null;
-                }
-                if (fbMsg != null) {
-                    ZVCalendar cal = ZCalendarBuilder.build(fbMsg);
-                    for (Iterator<ZComponent> compIter = cal.getComponentIterator(); compIter.hasNext(); ) {
-                        ZComponent comp = compIter.next();
-                        if (ICalTok.VFREEBUSY.equals(comp.getTok())) {
-                            FreeBusy fb = FreeBusy.parse(comp);
-                            fbList.add(fb);
-                        }
+            }
+            HttpClientBuilder clientBuilder = ZimbraHttpConnectionManager.getInternalHttpConnMgr().newHttpClient();
+            HttpProxyUtil.configureProxy(clientBuilder);
+            method = new HttpGet(targetUrl.toString());
+            String fbMsg;
+            try {
+                HttpResponse response =  HttpClientUtil.executeMethod(clientBuilder.build(), method);
+                byte[] buf = ByteUtil.getContent(response.getEntity().getContent(), 0);
+                fbMsg = new String(buf, "UTF-8");
+            } catch (IOException | HttpException ex) {
+                // ignore this recipient and go on
+                fbMsg = null;
+            }
+            if (fbMsg != null) {
+                ZVCalendar cal = ZCalendarBuilder.build(fbMsg);
+                for (Iterator<ZComponent> compIter = cal.getComponentIterator(); compIter.hasNext(); ) {
+                    ZComponent comp = compIter.next();
+                    if (ICalTok.VFREEBUSY.equals(comp.getTok())) {
+                        FreeBusy fb = FreeBusy.parse(comp);
+                        fbList.add(fb);
                     }
                 }
-            } catch (ServiceException e) {
-                ZimbraLog.fb.warn("can't get free/busy information for "+req.email, e);
-            } finally {
-                if (method != null)
-                    method.releaseConnection();
             }
+        } catch (ServiceException e) {
+            ZimbraLog.fb.warn("can't get free/busy information for "+req.email, e);
+        } finally {
+            if (method != null)
+                method.releaseConnection();
         }
         return fbList;
     }
 
+    /**
+     * Runs the lookups on the shared lookup pool and returns their results in the order of the
+     * tasks.  A failed or interrupted lookup yields a {@code null} result.
+     */
+    private static <T> List<T> invokeAll(List<Callable<T>> tasks) {
+        List<T> results = new ArrayList<T>(tasks.size());
+        if (tasks.size() == 1) {
+            // nothing to overlap with; don't pay for the hand-off
+            try {
+                results.add(tasks.get(0).call());
+            } catch (Exception e) {
+                ZimbraLog.fb.warn("remote free/busy lookup failed", e);
+                results.add(null);
+            }
+            return results;
+        }
+        List<Future<T>> futures;
+        try {
+            futures = LOOKUP_EXECUTOR.invokeAll(tasks);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            ZimbraLog.fb.warn("interrupted while waiting for remote free/busy lookups");
+            return Collections.nCopies(tasks.size(), null);
+        }
+        for (Future<T> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                results.add(null);
+            } catch (ExecutionException e) {
+                ZimbraLog.fb.warn("remote free/busy lookup failed", e.getCause());
+                results.add(null);
+            }
+        }
+        return results;
+    }
+
     @Override
     public Set<MailItem.Type> registerForItemTypes() {
         return EnumSet.noneOf(MailItem.Type.class);
@@ -211,43 +275,84 @@ public class RemoteFreeBusyProvider extends FreeBusyProvider {
         return "";
     }
 
+    /**
+     * Proxies one GetFreeBusyRequest per remote mailbox server.  The servers are queried in parallel
+     * and the responses are added in the same order as the servers were first referenced.
+     */
     @Override
     public void addResults(Element response) {
-        Provisioning prov = Provisioning.getInstance();
+        List<String> params = new ArrayList<String>(mRemoteAccountMap.size());
+        List<Callable<List<Element>>> tasks = new ArrayList<Callable<List<Element>>>(mRemoteAccountMap.size());
         for (Map.Entry<String, StringBuilder> entry : mRemoteAccountMap.entrySet()) {
             // String server = entry.getKey();
-            String paramStr = entry.getValue().toString();
-            String[] idStrs = paramStr.split(",");
+            final String paramStr = entry.getValue().toString();
+            params.add(paramStr);
+            tasks.add(new Callable<List<Element>>() {
+                @Override
+                public List<Element> call() {
+                    return getRemoteResults(paramStr);
+                }
+            });
+        }
+        List<List<Element>> results = invokeAll(tasks);
+        for (int i = 0; i < results.size(); i++) {
+            List<Element> result = results.get(i);
+            if (result == null) {
+                addFailedAccounts(response, params.get(i).split(","));
+                continue;
+            }
+            for (Element thisElt : result)
+                response.addElement(thisElt);
+        }
+    }
 
-            try {
-                Element req = mSoapCtxt.getRequestProtocol().getFactory().createElement(MailConstants.GET_FREE_BUSY_REQUEST);
-                req.addAttribute(MailConstants.A_CAL_START_TIME, mStart);
-                req.addAttribute(MailConstants.A_CAL_END_TIME, mEnd);
-                req.addAttribute(MailConstants.A_UID, paramStr);
+    /**
+     * @return the free/busy elements of the remote response, or {@code null} if the proxied request failed
+     */
+    private List<Element> getRemoteResults(String paramStr) {
+        Provisioning prov = Provisioning.getInstance();
+        String[] idStrs = paramStr.split(",");
+        List<Element> result = new ArrayList<Element>();
+        try {
+            Element req = mSoapCtxt.getRequestProtocol().getFactory().createElement(MailConstants.GET_FREE_BUSY_REQUEST);
+            req.addAttribute(MailConstants.A_CAL_START_TIME, mStart);
+            req.addAttribute(MailConstants.A_CAL_END_TIME, mEnd);
+            req.addAttribute(MailConstants.A_UID, paramStr);
 
-                // hack: use the ID of the first user
-                Account acct = prov.get(AccountBy.name, idStrs[0], mSoapCtxt.getAuthToken());
-                if (acct == null)
-                    acct = prov.get(AccountBy.id, idStrs[0], mSoapCtxt.getAuthToken());
-                if (acct != null) {
-                    Element remoteResponse = proxyRequest(req, acct.getId(), mSoapCtxt);
-                    for (Element thisElt : remoteResponse.listElements())
-                        response.addElement(thisElt.detach());
-                } else {
-                    ZimbraLog.fb.debug("Account " + idStrs[0] + " not found while searching free/busy");
-                }
-            } catch (SoapFaultException e) {
-                ZimbraLog.fb.error("cannot get free/busy for "+idStrs[0], e);
-                addFailedAccounts(response, idStrs);
-            } catch (ServiceException e) {
-                ZimbraLog.fb.error("cannot get free/busy for "+idStrs[0], e);
-                addFailedAccounts(response, idStrs);
+            // hack: use the ID of the first user
+            Account acct = prov.get(AccountBy.name, idStrs[0], mSoapCtxt.getAuthToken());
+            if (acct == null)
+                acct = prov.get(AccountBy.id, idStrs[0], mSoapCtxt.getAuthToken());
+            if (acct != null) {
+                Element remoteResponse = proxyRequest(req, acct.getId(), mSoapCtxt);
+                for (Element thisElt : remoteResponse.listElements())
+                    result.add(thisElt.detach());
+            } else {
+                ZimbraLog.fb.debug("Account " + idStrs[0] + " not found while searching free/busy");
             }
+        } catch (SoapFaultException e) {
+            ZimbraLog.fb.error("cannot get free/busy for "+idStrs[0], e);
+            return null;
+        } catch (ServiceException e) {
+            ZimbraLog.fb.error("cannot get free/busy for "+idStrs[0], e);
+            return null;
         }
+        return result;
     }
 
     private static final String REMOTE = "REMOTE";
 
+    private static final ExecutorService LOOKUP_EXECUTOR;
+
+    static {
+        int threads = Math.max(1, LC.freebusy_remote_lookup_threads.intValue());
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactoryBuilder().setNameFormat("FreeBusyLookup-%d").setDaemon(true).build());
+        executor.allowCoreThreadTimeOut(true);
+        LOOKUP_EXECUTOR = executor;
+    }
+
     @Override
     public String getName() {
         return REMOTE;
@@ -267,8 +372,9 @@ public class RemoteFreeBusyProvider extends FreeBusyProvider {
     }
 
     protected Element proxyRequest(Element request, String acctId, ZimbraSoapContext zsc) throws ServiceException {
-        // new context for proxied request has a different "requested account"
-        ZimbraSoapContext zscTarget = new ZimbraSoapContext(zsc, acctId);
+        // new context for proxied request has a different "requested account".  free/busy responses
+        // carry no notifications, and lookups run concurrently, so keep the caller's session out of it.
+        ZimbraSoapContext zscTarget = new ZimbraSoapContext(zsc, acctId).disableNotifications();
         Provisioning prov = Provisioning.getInstance();
         Account acct = prov.get(Key.AccountBy.id, acctId);
         Server server = prov.getServer(acct);
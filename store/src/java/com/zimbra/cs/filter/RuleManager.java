@@ -37,6 +37,7 @@ import com.zimbra.cs.mailbox.OperationContext;
 import com.zimbra.cs.mime.ParsedMessage;
 import com.zimbra.cs.service.util.ItemId;
 import com.zimbra.cs.service.util.SpamHandler;
+import com.zimbra.cs.stats.ZimbraPerf;
 import com.zimbra.soap.mail.type.FilterRule;
 
 import org.apache.jsieve.ConfigurationManager;
@@ -144,7 +145,7 @@ public final class RuleManager {
             script = "";
         }
         try {
-            Node node = parse(script);
+            Node node = SieveScriptCache.getInstance().getNode(script);
             // evaluate against dummy mail adapter to catch more errors
             SIEVE_FACTORY.evaluate(new DummyMailAdapter(), node);
             // save
@@ -223,7 +224,7 @@ public final class RuleManager {
 
             ZimbraLog.filter.debug("attrName[%s] rule[%s]", sieveScriptAttrName, script);
 
-            node = parse(script);
+            node = SieveScriptCache.getInstance().getNode(script);
             account.setCachedData(rulesCacheKey, node);
         }
         return node;
@@ -425,7 +426,7 @@ public final class RuleManager {
                     if (filter.equals(FILTER_RULES_CACHE_KEY)) {
                         mailAdapter.setUserScriptExecuting(true);
                     }
-                    boolean proceed = evaluateScript(mailAdapter, node);
+                    boolean proceed = evaluateScript(mailAdapter, node, filter);
                     if (!proceed) {
                         continue;
                     }
@@ -482,7 +483,7 @@ public final class RuleManager {
                     if (filter.equals(OUTGOING_FILTER_RULES_CACHE_KEY)) {
                         mailAdapter.setUserScriptExecuting(true);
                     }
-                    boolean proceed = evaluateScript(mailAdapter, node);
+                    boolean proceed = evaluateScript(mailAdapter, node, filter);
                     if (!proceed) {
                         continue;
                     }
@@ -512,7 +513,9 @@ public final class RuleManager {
         return addedMessageIds;
     }
 
-    private static boolean evaluateScript(ZimbraMailAdapter mailAdapter, Node node) throws SieveException {
+    private static boolean evaluateScript(ZimbraMailAdapter mailAdapter, Node node, String filter)
+            throws SieveException {
+        long start = ZimbraPerf.STOPWATCH_FILTER_SCRIPT.start();
         try {
             SIEVE_FACTORY.evaluate(mailAdapter, node);
         } catch (SieveException e) {
@@ -525,6 +528,9 @@ public final class RuleManager {
             } else {
                 throw e;
             }
+        } finally {
+            long elapsed = ZimbraPerf.STOPWATCH_FILTER_SCRIPT.stop(start);
+            ZimbraLog.filter.debug("evaluated %s in %dms", filter, elapsed);
         }
         if (!mailAdapter.getAccount().isSieveEditHeaderEnabled()) {
             if (mailAdapter.isAddHeaderPresent()) {
@@ -849,7 +855,7 @@ public final class RuleManager {
                 adminRule = "";
             }
             ZimbraLog.filter.debug("filterType[%s] rule[%s]", filterType == FilterType.INCOMING ? "incoming" : "outgoing", adminRule);
-            node = parse(adminRule);
+            node = SieveScriptCache.getInstance().getNode(adminRule);
             entry.setCachedData(rulesCacheKey, node);
         }
         return node;
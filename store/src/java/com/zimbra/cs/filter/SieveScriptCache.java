@@ -0,0 +1,120 @@
+/*
+ * ***** BEGIN LICENSE BLOCK *****
+ * Zimbra Collaboration Suite Server
+ * Copyright (C) 2026 Synacor, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software Foundation,
+ * version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ * ***** END LICENSE BLOCK *****
+ */
+package com.zimbra.cs.filter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.apache.jsieve.parser.generated.Node;
+import org.apache.jsieve.parser.generated.ParseException;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.zimbra.common.localconfig.LC;
+
+/**
+ * Caches what is derived from Sieve scripts independently of the account running them, so that it is
+ * only computed once per server rather than once per account or per message.
+ * <p>
+ * Parsed scripts are keyed by the script text.  Admin before/after scripts are usually inherited from
+ * the COS, domain or server, so every account running them shares a single parsed tree, as do accounts
+ * whose user scripts are identical.  The trees are evaluated concurrently and must not be modified;
+ * callers that rewrite a script, such as {@link FolderRenamer}, parse their own copy with
+ * {@link RuleManager#parse(String)}.
+ * <p>
+ * Compiled <tt>:matches</tt> patterns are keyed by the glob and the pattern flags.
+ */
+public final class SieveScriptCache {
+
+    private static final SieveScriptCache INSTANCE = new SieveScriptCache(
+            LC.filter_script_cache_max_chars.longValue(), LC.filter_pattern_cache_size.longValue());
+
+    private final Cache<String, Node> nodes;
+    private final Cache<String, Pattern> patterns;
+
+    @VisibleForTesting
+    SieveScriptCache(long maxChars, long maxPatterns) {
+        if (maxChars > 0) {
+            nodes = CacheBuilder.newBuilder()
+                    .maximumWeight(maxChars)
+                    .weigher(new Weigher<String, Node>() {
+                        @Override
+                        public int weigh(String key, Node value) {
+                            return key.length();
+                        }
+                    })
+                    .expireAfterAccess(1, TimeUnit.HOURS)
+                    .build();
+        } else {
+            nodes = null;
+        }
+        if (maxPatterns > 0) {
+            patterns = CacheBuilder.newBuilder().maximumSize(maxPatterns).build();
+        } else {
+            patterns = null;
+        }
+    }
+
+    public static SieveScriptCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the parsed script, parsing it if no account has run the same script recently.  The
+     * returned tree is shared and must not be modified.
+     *
+     * @throws ParseException if the script can't be parsed
+     */
+    public Node getNode(String script) throws ParseException {
+        if (nodes == null) {
+            return RuleManager.parse(script);
+        }
+        Node node = nodes.getIfPresent(script);
+        if (node == null) {
+            node = RuleManager.parse(script);
+            nodes.put(script, node);
+        }
+        return node;
+    }
+
+    /**
+     * Returns the compiled regular expression of a Sieve <tt>:matches</tt> glob.
+     *
+     * @param glob the Sieve pattern
+     * @param flags {@link Pattern} flags
+     * @throws java.util.regex.PatternSyntaxException if the pattern can't be compiled
+     */
+    public Pattern getGlobPattern(String glob, int flags) {
+        if (patterns == null) {
+            return Pattern.compile(FilterUtil.sieveToJavaRegex(glob), flags);
+        }
+        String key = flags + ":" + glob;
+        Pattern pattern = patterns.getIfPresent(key);
+        if (pattern == null) {
+            pattern = Pattern.compile(FilterUtil.sieveToJavaRegex(glob), flags);
+            patterns.put(key, pattern);
+        }
+        return pattern;
+    }
+
+    @VisibleForTesting
+    long size() {
+        return nodes == null ? 0 : nodes.size();
+    }
+}
@@ -116,6 +116,15 @@ public class ZimbraMailAdapter implements MailAdapter, EnvelopeAccessors {
      */
     private static Set<String> addrHdrs = ImmutableSet.of("from", "sender", "to", "bcc", "cc", "reply-to");
 
+    /**
+     * Header values and names already looked up in {@link #headerCacheMessage}, so that the tests of
+     * all scripts run against a message read each header only once.  Cleared when editheader changes
+     * the message.
+     */
+    private MimeMessage headerCacheMessage;
+    private final Map<String, List<String>> headerCache = new HashMap<String, List<String>>();
+    private List<String> headerNamesCache;
+
     /**
      * List of Actions to perform.
      */
@@ -672,6 +681,19 @@ public class ZimbraMailAdapter implements MailAdapter, EnvelopeAccessors {
         return hdrs;
     }
 
+    private void checkHeaderCache(MimeMessage msg) {
+        if (msg != headerCacheMessage) {
+            clearHeaderCache();
+            headerCacheMessage = msg;
+        }
+    }
+
+    private void clearHeaderCache() {
+        headerCacheMessage = null;
+        headerCache.clear();
+        headerNamesCache = null;
+    }
+
     @Override
     public List<String> getHeader(String name) {
         MimeMessage msg;
@@ -682,15 +704,23 @@ public class ZimbraMailAdapter implements MailAdapter, EnvelopeAccessors {
             return Collections.emptyList();
         }
 
+        checkHeaderCache(msg);
+        String key = name.toLowerCase();
+        List<String> values = headerCache.get(key);
+        if (values != null) {
+            return values;
+        }
+
         String[] headers = Mime.getHeaders(msg, name);
         if (headers == null) {
-            return Collections.emptyList();
+            values = Collections.emptyList();
+        } else if (addrHdrs.contains(key)) {
+            values = Collections.unmodifiableList(handleIDN(name, headers));
+        } else {
+            values = Collections.unmodifiableList(Arrays.asList(headers));
         }
-
-        if (addrHdrs.contains(name.toLowerCase()))
-            return handleIDN(name, headers);
-        else
-            return Arrays.asList(headers);
+        headerCache.put(key, values);
+        return values;
     }
 
     @Override
@@ -704,13 +734,18 @@ public class ZimbraMailAdapter implements MailAdapter, EnvelopeAccessors {
             return Collections.emptyList();
         }
 
+        checkHeaderCache(msg);
+        if (headerNamesCache != null) {
+            return headerNamesCache;
+        }
         try {
             @SuppressWarnings("unchecked")
             Enumeration<Header> allHeaders = msg.getAllHeaders();
             while (allHeaders.hasMoreElements()) {
                 headerNames.add(allHeaders.nextElement().getName());
             }
-            return new ArrayList<String>(headerNames);
+            headerNamesCache = Collections.unmodifiableList(new ArrayList<String>(headerNames));
+            return headerNamesCache;
         } catch (MessagingException ex) {
             throw new SieveMailException(ex);
         }
@@ -919,6 +954,7 @@ public class ZimbraMailAdapter implements MailAdapter, EnvelopeAccessors {
     }
 
     public void updateIncomingBlob() {
+        clearHeaderCache();
         DeliveryContext ctxt = handler.getDeliveryContext();
         if (ctxt != null) {
             StoreManager sm = StoreManager.getInstance();
@@ -51,6 +51,7 @@ import com.zimbra.common.soap.HeaderConstants;
 import com.zimbra.common.util.ZimbraLog;
 import com.zimbra.cs.filter.DummyMailAdapter;
 import com.zimbra.cs.filter.FilterUtil;
+import com.zimbra.cs.filter.SieveScriptCache;
 import com.zimbra.cs.filter.ZimbraComparatorUtils;
 import com.zimbra.cs.filter.ZimbraMailAdapter;
 
@@ -347,8 +348,8 @@ public class HeaderTest extends Header {
             for (String sourceStr : values) {
                 for (Object key : keys) {
                     String keyStr = ((String) key);
-                    String regex = FilterUtil.sieveToJavaRegex(keyStr);
-                    Matcher matcher = Pattern.compile(regex, Pattern.CASE_INSENSITIVE | Pattern.DOTALL).matcher(sourceStr);
+                    Matcher matcher = SieveScriptCache.getInstance()
+                            .getGlobPattern(keyStr, Pattern.CASE_INSENSITIVE | Pattern.DOTALL).matcher(sourceStr);
                     int grpCount = matcher.groupCount();
                     if (matcher.find() && grpCount > 0) {
                         mailAdapter.resetMatchedValues();
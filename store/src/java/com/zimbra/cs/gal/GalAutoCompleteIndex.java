@@ -0,0 +1,449 @@
+/*
+ * ***** BEGIN LICENSE BLOCK *****
+ * Zimbra Collaboration Suite Server
+ * Copyright (C) 2026 Synacor, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software Foundation,
+ * version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ * ***** END LICENSE BLOCK *****
+ */
+package com.zimbra.cs.gal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.google.common.base.CharMatcher;
+import com.google.common.base.Splitter;
+import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.zimbra.common.localconfig.LC;
+import com.zimbra.common.mailbox.ContactConstants;
+import com.zimbra.common.service.ServiceException;
+import com.zimbra.common.util.Pair;
+import com.zimbra.common.util.ZimbraLog;
+import com.zimbra.cs.account.Provisioning;
+import com.zimbra.cs.mailbox.Contact;
+import com.zimbra.cs.mailbox.MailItem;
+import com.zimbra.cs.mailbox.MailServiceException;
+import com.zimbra.cs.mailbox.Mailbox;
+import com.zimbra.cs.mailbox.OperationContext;
+import com.zimbra.cs.mailbox.util.TypedIdList;
+import com.zimbra.soap.type.GalSearchType;
+
+/**
+ * In-memory autocomplete index over the contacts of a GalSync account, so that autocomplete doesn't run a mailbox
+ * search for every keystroke.
+ * <p>
+ * The index maps the words of the name fields, the email addresses and the words of their local parts to the ids of
+ * the contacts they occur in.  The words are kept sorted, so the contacts matching a prefix are the union of the
+ * postings of a range of words.  A query matches the contacts that have a word starting with each of its words, which
+ * is a superset of what {@link com.zimbra.cs.mailbox.ContactAutoComplete} accepts, so its own matching still decides
+ * what is returned.
+ * <p>
+ * The index is built in the background the first time it is asked for, and is kept up to date the same way a GAL sync
+ * client is: from the contacts modified and deleted since the change id the index was last brought up to.  Until it is
+ * built, callers are expected to fall back to the mailbox search.
+ */
+public final class GalAutoCompleteIndex {
+
+    private static final Splitter WORD_SPLITTER =
+            Splitter.on(CharMatcher.whitespace().or(CharMatcher.anyOf(",;()\""))).omitEmptyStrings();
+    private static final Splitter LOCAL_PART_SPLITTER = Splitter.on(CharMatcher.anyOf("._-+")).omitEmptyStrings();
+
+    private static final String[] NAME_FIELDS = {
+        ContactConstants.A_firstName, ContactConstants.A_middleName, ContactConstants.A_lastName,
+        ContactConstants.A_fullName, ContactConstants.A_nickname, ContactConstants.A_phoneticFirstName,
+        ContactConstants.A_phoneticLastName
+    };
+
+    // dropped when unused for a while, e.g. once the GalSync account moves to another server
+    private static final Cache<String, GalAutoCompleteIndex> indexes = CacheBuilder.newBuilder()
+            .maximumSize(LC.gal_autocomplete_index_cache_size.intValue())
+            .expireAfterAccess(LC.gal_autocomplete_index_idle_minutes.intValue(), TimeUnit.MINUTES)
+            .build();
+
+    private static final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<Runnable>(100),
+            new ThreadFactoryBuilder().setNameFormat("GalAutoCompleteIndex").setDaemon(true).build());
+    static {
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * A contact, as much of it as is needed to filter and rank matches.
+     */
+    static final class Entry {
+        final int id;
+        final int folderId;
+        final boolean group;
+        final boolean resource;
+        final String[] emails;
+        final String[] words;
+
+        Entry(int id, int folderId, Map<String, String> fields) {
+            this.id = id;
+            this.folderId = folderId;
+            this.group = ContactConstants.TYPE_GROUP.equals(fields.get(ContactConstants.A_type));
+            this.resource = "RESOURCE".equals(fields.get(Provisioning.A_zimbraAccountCalendarUserType));
+            Set<String> words = new HashSet<String>();
+            for (String field : NAME_FIELDS) {
+                String value = fields.get(field);
+                if (!Strings.isNullOrEmpty(value)) {
+                    for (String word : WORD_SPLITTER.split(value)) {
+                        words.add(word.toLowerCase());
+                    }
+                }
+            }
+            List<String> emails = new ArrayList<String>(2);
+            for (Map.Entry<String, String> field : fields.entrySet()) {
+                // email, email2, ..., workEmail1, ... since the email fields autocomplete uses vary by account
+                if (!isEmailField(field.getKey()) || Strings.isNullOrEmpty(field.getValue())) {
+                    continue;
+                }
+                String email = field.getValue().toLowerCase();
+                emails.add(email);
+                words.add(email);
+                int at = email.indexOf('@');
+                for (String word : LOCAL_PART_SPLITTER.split(at < 0 ? email : email.substring(0, at))) {
+                    words.add(word);
+                }
+            }
+            this.emails = emails.toArray(new String[emails.size()]);
+            this.words = words.toArray(new String[words.size()]);
+        }
+
+        private static boolean isEmailField(String field) {
+            return field.startsWith(ContactConstants.A_email) || field.contains("Email");
+        }
+
+        boolean isType(GalSearchType type) {
+            switch (type) {
+            case account:
+                return !resource;
+            case resource:
+                return resource;
+            case group:
+                return group;
+            case all:
+            default:
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Ranks matches when there are more than can be returned.
+     */
+    public interface Ranker {
+        /**
+         * @return the rank of the email address, higher is better
+         */
+        int rank(String email);
+    }
+
+    private final String accountId;
+    // replaced as a whole when the index is rebuilt, so searches never see it half built
+    private volatile ConcurrentNavigableMap<String, int[]> postings = new ConcurrentSkipListMap<String, int[]>();
+    private volatile ConcurrentMap<Integer, Entry> entries = new ConcurrentHashMap<Integer, Entry>();
+    private final AtomicBoolean pending = new AtomicBoolean();
+    private volatile boolean ready;
+    private volatile int changeId;
+    private volatile Set<Integer> folderIds = Collections.emptySet();
+
+    GalAutoCompleteIndex(String accountId) {
+        this.accountId = accountId;
+    }
+
+    /**
+     * Returns the index of the GalSync account mailbox if it is built, and schedules bringing it up to date.
+     *
+     * @param folderIds the folders of the GAL data sources
+     * @return the index, or null if it is not built yet
+     */
+    public static GalAutoCompleteIndex getIndex(Mailbox mbox, Set<Integer> folderIds) {
+        if (!LC.gal_autocomplete_index_enabled.booleanValue()) {
+            return null;
+        }
+        GalAutoCompleteIndex index = indexes.getIfPresent(mbox.getAccountId());
+        if (index == null) {
+            index = new GalAutoCompleteIndex(mbox.getAccountId());
+            GalAutoCompleteIndex existing = indexes.asMap().putIfAbsent(mbox.getAccountId(), index);
+            if (existing != null) {
+                index = existing;
+            }
+        }
+        index.refreshLater(mbox, folderIds);
+        return index.ready ? index : null;
+    }
+
+    private void refreshLater(final Mailbox mbox, final Set<Integer> folderIds) {
+        if (ready && changeId == mbox.getLastChangeID() && this.folderIds.equals(folderIds)) {
+            return;
+        }
+        if (!pending.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        refresh(mbox, folderIds);
+                    } catch (Throwable t) {
+                        ZimbraLog.gal.warn("unable to refresh GAL autocomplete index for %s", accountId, t);
+                    } finally {
+                        pending.set(false);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pending.set(false);
+        }
+    }
+
+    /**
+     * Brings the index up to date with the mailbox, rebuilding it if it was built for other folders or the mailbox
+     * no longer has the tombstones needed to catch up.
+     */
+    synchronized void refresh(Mailbox mbox, Set<Integer> folderIds) throws ServiceException {
+        OperationContext octxt = new OperationContext(mbox);
+        if (!ready || !this.folderIds.equals(folderIds)) {
+            rebuild(mbox, octxt, folderIds);
+            return;
+        }
+        int lastChangeId = mbox.getLastChangeID();
+        if (lastChangeId == changeId) {
+            return;
+        }
+        TypedIdList deleted;
+        try {
+            deleted = mbox.getTombstones(changeId);
+        } catch (MailServiceException e) {
+            if (MailServiceException.MUST_RESYNC.equals(e.getCode())) {
+                rebuild(mbox, octxt, folderIds);
+                return;
+            }
+            throw e;
+        }
+        Pair<List<Integer>, TypedIdList> changed =
+                mbox.getModifiedItems(octxt, changeId, MailItem.Type.CONTACT, folderIds);
+        for (int id : deleted.getAllIds()) {
+            remove(id);
+        }
+        // contacts moved out of the GAL folders
+        for (int id : changed.getSecond().getAllIds()) {
+            remove(id);
+        }
+        for (int id : changed.getFirst()) {
+            try {
+                MailItem item = mbox.getItemById(octxt, id, MailItem.Type.CONTACT);
+                add(new Entry(id, item.getFolderId(), ((Contact) item).getFields()));
+            } catch (MailServiceException e) {
+                if (!MailServiceException.NO_SUCH_ITEM.equals(e.getCode())) {
+                    throw e;
+                }
+                remove(id);
+            }
+        }
+        ZimbraLog.gal.debug("GAL autocomplete index for %s updated from change %d to %d, %d changed, %d deleted",
+                accountId, changeId, lastChangeId, changed.getFirst().size(), deleted.size());
+        changeId = lastChangeId;
+    }
+
+    private void rebuild(Mailbox mbox, OperationContext octxt, Set<Integer> folderIds) throws ServiceException {
+        long start = System.currentTimeMillis();
+        // anything changed while the contacts are read is picked up by the next refresh
+        int lastChangeId = mbox.getLastChangeID();
+        List<Entry> built = new ArrayList<Entry>();
+        for (int folderId : folderIds) {
+            for (MailItem item : mbox.getItemList(octxt, MailItem.Type.CONTACT, folderId)) {
+                built.add(new Entry(item.getId(), folderId, ((Contact) item).getFields()));
+            }
+        }
+        load(built);
+        this.folderIds = new HashSet<Integer>(folderIds);
+        changeId = lastChangeId;
+        ready = true;
+        ZimbraLog.gal.info("GAL autocomplete index for %s built with %d contacts, %d words in %dms",
+                accountId, entries.size(), postings.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Replaces the contents of the index.
+     */
+    synchronized void load(List<Entry> built) {
+        Map<String, List<Integer>> words = new HashMap<String, List<Integer>>();
+        for (Entry entry : built) {
+            for (String word : entry.words) {
+                List<Integer> ids = words.get(word);
+                if (ids == null) {
+                    ids = new ArrayList<Integer>(1);
+                    words.put(word, ids);
+                }
+                ids.add(entry.id);
+            }
+        }
+        ConcurrentNavigableMap<String, int[]> postings = new ConcurrentSkipListMap<String, int[]>();
+        ConcurrentMap<Integer, Entry> entries = new ConcurrentHashMap<Integer, Entry>(built.size() * 4 / 3 + 1);
+        for (Map.Entry<String, List<Integer>> word : words.entrySet()) {
+            List<Integer> ids = word.getValue();
+            int[] posting = new int[ids.size()];
+            for (int i = 0; i < posting.length; i++) {
+                posting[i] = ids.get(i);
+            }
+            Arrays.sort(posting);
+            postings.put(word.getKey(), posting);
+        }
+        for (Entry entry : built) {
+            entries.put(entry.id, entry);
+        }
+        this.postings = postings;
+        this.entries = entries;
+        ready = true;
+    }
+
+    /**
+     * Adds or replaces a contact.
+     */
+    synchronized void add(Entry entry) {
+        remove(entry.id);
+        for (String word : entry.words) {
+            int[] posting = postings.get(word);
+            if (posting == null) {
+                postings.put(word, new int[] {entry.id});
+            } else {
+                int i = Arrays.binarySearch(posting, entry.id);
+                if (i < 0) {
+                    i = -i - 1;
+                    int[] updated = new int[posting.length + 1];
+                    System.arraycopy(posting, 0, updated, 0, i);
+                    updated[i] = entry.id;
+                    System.arraycopy(posting, i, updated, i + 1, posting.length - i);
+                    postings.put(word, updated);
+                }
+            }
+        }
+        entries.put(entry.id, entry);
+    }
+
+    synchronized void remove(int id) {
+        Entry entry = entries.remove(id);
+        if (entry == null) {
+            return;
+        }
+        for (String word : entry.words) {
+            int[] posting = postings.get(word);
+            if (posting == null) {
+                continue;
+            }
+            int i = Arrays.binarySearch(posting, id);
+            if (i < 0) {
+                continue;
+            }
+            if (posting.length == 1) {
+                postings.remove(word);
+            } else {
+                int[] updated = new int[posting.length - 1];
+                System.arraycopy(posting, 0, updated, 0, i);
+                System.arraycopy(posting, i + 1, updated, i, posting.length - i - 1);
+                postings.put(word, updated);
+            }
+        }
+    }
+
+    /**
+     * Returns the ids of the contacts that have a word starting with each word of the query, best ranked first.
+     *
+     * @param folderIds only return contacts in these folders
+     * @param limit return at most this many
+     * @param ranker ranks the matches if there are more than the limit, or null to keep them in id order
+     */
+    public List<Integer> search(String query, Set<Integer> folderIds, GalSearchType type, int limit,
+            final Ranker ranker) {
+        ConcurrentNavigableMap<String, int[]> postings = this.postings;
+        ConcurrentMap<Integer, Entry> entries = this.entries;
+        BitSet matches = null;
+        for (String word : WORD_SPLITTER.split(Strings.nullToEmpty(query).replaceFirst("[*]*$", ""))) {
+            String prefix = word.toLowerCase();
+            BitSet wordMatches = new BitSet();
+            for (int[] posting : postings.subMap(prefix, prefix + Character.MAX_VALUE).values()) {
+                for (int id : posting) {
+                    wordMatches.set(id);
+                }
+            }
+            if (matches == null) {
+                matches = wordMatches;
+            } else {
+                matches.and(wordMatches);
+            }
+            if (matches.isEmpty()) {
+                break;
+            }
+        }
+        if (matches == null) {
+            return Collections.emptyList();
+        }
+        List<Entry> found = new ArrayList<Entry>();
+        for (int id = matches.nextSetBit(0); id >= 0; id = matches.nextSetBit(id + 1)) {
+            Entry entry = entries.get(id);
+            if (entry != null && (folderIds == null || folderIds.contains(entry.folderId)) && entry.isType(type)) {
+                found.add(entry);
+            }
+        }
+        if (limit > 0 && found.size() > limit && ranker != null) {
+            final Map<Entry, Integer> ranks = new HashMap<Entry, Integer>();
+            for (Entry entry : found) {
+                int rank = 0;
+                for (String email : entry.emails) {
+                    rank = Math.max(rank, ranker.rank(email));
+                }
+                ranks.put(entry, rank);
+            }
+            // stable, so equally ranked matches stay in id order
+            Collections.sort(found, new Comparator<Entry>() {
+                @Override
+                public int compare(Entry e1, Entry e2) {
+                    return ranks.get(e2) - ranks.get(e1);
+                }
+            });
+        }
+        List<Integer> ids = new ArrayList<Integer>(limit > 0 ? Math.min(limit, found.size()) : found.size());
+        for (Entry entry : found) {
+            if (limit > 0 && ids.size() == limit) {
+                break;
+            }
+            ids.add(entry.id);
+        }
+        return ids;
+    }
+
+    int size() {
+        return entries.size();
+    }
+}
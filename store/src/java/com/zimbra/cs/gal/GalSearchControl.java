@@ -62,6 +62,7 @@ import com.zimbra.cs.index.ZimbraHit;
 import com.zimbra.cs.index.ZimbraQueryResults;
 import com.zimbra.cs.ldap.LdapUtil;
 import com.zimbra.cs.mailbox.Contact;
+import com.zimbra.cs.mailbox.ContactRankings;
 import com.zimbra.cs.mailbox.MailItem;
 import com.zimbra.cs.mailbox.MailServiceException;
 import com.zimbra.cs.mailbox.Mailbox;
@@ -125,6 +126,9 @@ public class GalSearchControl {
                 Account galAcct = mParams.getGalSyncAccount();
                 if (galAcct == null)
                     galAcct = getGalSyncAccount();
+                if (mParams.isUseAutoCompleteIndex() && indexAutocomplete(galAcct)) {
+                    return;
+                }
                 accountSearch(galAcct, true);
                 return;
             } catch (GalAccountNotConfiguredException e) {
@@ -142,6 +146,78 @@ public class GalSearchControl {
         }
     }
 
+    /**
+     * Autocompletes from the {@link GalAutoCompleteIndex} of the GalSync account, if the account is on this server and
+     * its index is built.
+     *
+     * @return false if the request has to be answered by a search instead
+     */
+    private boolean indexAutocomplete(Account galAcct) {
+        try {
+            if (!galAcct.getAccountStatus().isActive() || !Provisioning.onLocalServer(galAcct) || needResources() ||
+                    Strings.isNullOrEmpty(mParams.getQuery()) || mParams.getSearchEntryByDn() != null ||
+                    !Strings.isNullOrEmpty(mParams.getGalSearchQuery()) || mParams.getExtraQueryCallback() != null) {
+                return false;
+            }
+            Set<Integer> indexedFolderIds = new HashSet<Integer>();
+            Set<Integer> folderIds = new HashSet<Integer>();
+            GalMode galMode = mParams.getDomain().getGalMode();
+            for (DataSource ds : galAcct.getAllDataSources()) {
+                if (ds.getType() != DataSourceType.gal)
+                    continue;
+                indexedFolderIds.add(ds.getFolderId());
+                String galType = ds.getAttr(Provisioning.A_zimbraGalType);
+                if (galMode == GalMode.ldap && "zimbra".equals(galType))
+                    continue;
+                if (galMode == GalMode.zimbra && "ldap".equals(galType))
+                    continue;
+                folderIds.add(ds.getFolderId());
+            }
+            Mailbox mbox = MailboxManager.getInstance().getMailboxByAccount(galAcct);
+            GalAutoCompleteIndex index = GalAutoCompleteIndex.getIndex(mbox, indexedFolderIds);
+            if (index == null) {
+                return false;
+            }
+            final Account acct = mParams.getAccount();
+            GalAutoCompleteIndex.Ranker ranker = acct == null ? null : new GalAutoCompleteIndex.Ranker() {
+                private ContactRankings rankings;
+
+                @Override
+                public int rank(String email) {
+                    if (rankings == null) {
+                        try {
+                            rankings = new ContactRankings(acct.getId());
+                        } catch (ServiceException e) {
+                            ZimbraLog.gal.warn("unable to get contact rankings for %s", acct.getId(), e);
+                            return 0;
+                        }
+                    }
+                    return rankings.query(email);
+                }
+            };
+            int limit = mParams.getLimit();
+            List<Integer> ids = index.search(mParams.getQuery(), folderIds, mParams.getType(), limit, ranker);
+            OperationContext octxt = new OperationContext(mbox);
+            GalSearchResultCallback callback = mParams.getResultCallback();
+            for (int id : ids) {
+                try {
+                    MailItem item = mbox.getItemById(octxt, id, MailItem.Type.CONTACT);
+                    callback.handleContact((Contact) item);
+                } catch (MailServiceException e) {
+                    if (!MailServiceException.NO_SUCH_ITEM.equals(e.getCode())) {
+                        throw e;
+                    }
+                }
+            }
+            callback.setHasMoreResult(limit > 0 && ids.size() == limit);
+            ZimbraLog.gal.debug("autocomplete from index of %s: %d matches", galAcct.getId(), ids.size());
+            return true;
+        } catch (ServiceException e) {
+            ZimbraLog.gal.warn("autocomplete from index failed for %s", galAcct.getId(), e);
+            return false;
+        }
+    }
+
     public void search() throws ServiceException {
         search(true);
     }
@@ -78,6 +78,7 @@ public class GalSearchParams {
     private boolean ldapHasMore = true;
     private boolean getCount = false;
     private boolean expandQuery = true;
+    private boolean useAutoCompleteIndex = false;
     private String galSearchQuery;
 
     private GalOp mOp;
@@ -447,6 +448,18 @@ public class GalSearchParams {
         this.expandQuery = expandQuery;
     }
 
+    /**
+     * Whether autocomplete may be answered from the {@link GalAutoCompleteIndex}.  Only for callers that don't need
+     * the sort fields and paging of a mailbox search.
+     */
+    public boolean isUseAutoCompleteIndex() {
+        return useAutoCompleteIndex;
+    }
+
+    public void setUseAutoCompleteIndex(boolean useAutoCompleteIndex) {
+        this.useAutoCompleteIndex = useAutoCompleteIndex;
+    }
+
 	public String getGalSearchQuery() {
 		return galSearchQuery;
 	}
@@ -0,0 +1,112 @@
+/*
+ * ***** BEGIN LICENSE BLOCK *****
+ * Zimbra Collaboration Suite Server
+ * Copyright (C) 2026 Synacor, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software Foundation,
+ * version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ * ***** END LICENSE BLOCK *****
+ */
+package com.zimbra.cs.html;
+
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.zimbra.common.localconfig.LC;
+import com.zimbra.cs.servlet.ZThreadLocal;
+
+/**
+ * Caches defanged HTML bodies, so that reading the same message again doesn't parse and sanitize it again.
+ * <p>
+ * Entries are keyed by the digest of the message blob, which changes whenever the content does, and by
+ * everything else the output depends on: the part, the defanger (and so the ruleset in use), whether images
+ * are neutered, the default charset, the size limit and the virtual host the request came in on.
+ */
+public final class DefangCache {
+
+    /** Bump when a change to the defangers changes their output for the same input. */
+    static final int RULESET_VERSION = 1;
+
+    private static final DefangCache INSTANCE = new DefangCache(LC.defang_cache_max_chars.longValue());
+
+    private final Cache<String, Result> cache;
+
+    public static final class Result {
+        public final String content;
+        public final boolean truncated;
+
+        public Result(String content, boolean truncated) {
+            this.content = content;
+            this.truncated = truncated;
+        }
+    }
+
+    @VisibleForTesting
+    DefangCache(long maxChars) {
+        if (maxChars > 0) {
+            cache = CacheBuilder.newBuilder()
+                    .maximumWeight(maxChars)
+                    .weigher(new Weigher<String, Result>() {
+                        @Override
+                        public int weigh(String key, Result value) {
+                            return key.length() + value.content.length();
+                        }
+                    })
+                    .expireAfterAccess(1, TimeUnit.HOURS)
+                    .build();
+        } else {
+            cache = null;
+        }
+    }
+
+    public static DefangCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the cache key of a message part, or null if the part can't be cached.
+     *
+     * @param digest digest of the message blob
+     * @param part part name
+     */
+    public String getKey(String digest, String part, BrowserDefang defanger, boolean neuter, String charset,
+            int maxSize) {
+        if (cache == null || Strings.isNullOrEmpty(digest)) {
+            return null;
+        }
+        String host = null;
+        if (ZThreadLocal.getRequestContext() != null) {
+            host = ZThreadLocal.getRequestContext().getVirtualHost();
+        }
+        return new StringBuilder(digest).append('|').append(part).append('|').append(RULESET_VERSION)
+                .append('|').append(defanger.getClass().getName()).append('|').append(neuter)
+                .append('|').append(Strings.nullToEmpty(charset)).append('|').append(maxSize)
+                .append('|').append(Strings.nullToEmpty(host)).toString();
+    }
+
+    public Result get(String key) {
+        return key == null ? null : cache.getIfPresent(key);
+    }
+
+    public void put(String key, String content, boolean truncated) {
+        if (key != null && content != null) {
+            cache.put(key, new Result(content, truncated));
+        }
+    }
+
+    @VisibleForTesting
+    long size() {
+        return cache == null ? 0 : cache.size();
+    }
+}
@@ -25,7 +25,7 @@ import java.security.SecureRandom;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.List;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -120,7 +120,10 @@ public class DefangFilter extends DefaultFilter {
     private static final Pattern VALID_IMG_FILE = Pattern.compile(DebugConfig.defangValidImgFile);
     private static final Pattern VALID_INT_IMG = Pattern.compile(DebugConfig.defangValidIntImg,
             Pattern.CASE_INSENSITIVE);
-    private static List<String> ATTRIBUTES_CAN_ALLOW_SCRIPTS= Arrays.asList(DebugConfig.defangACanAllowScripts.split(","));
+    private static final Set<String> ATTRIBUTES_CAN_ALLOW_SCRIPTS =
+            new HashSet<String>(Arrays.asList(DebugConfig.defangACanAllowScripts.split(",")));
+    private static final Pattern AV_DATA_URI = Pattern.compile("(?i)data\\s*:");
+    private static final SecureRandom RANDOM = new SecureRandom();
 
     // matches the file format that convertd uses so it doesn't get 'pnsrc'ed
     private static final Pattern VALID_CONVERTD_FILE = Pattern
@@ -470,7 +473,7 @@ public class DefangFilter extends DefaultFilter {
         String sanitizedValue = "";
         int endIndex = 0;
         int random = 0;
-        SecureRandom r = new SecureRandom();
+        SecureRandom r = RANDOM;
         int range = 200;
         StringBuilder data = new StringBuilder();
         random = r.nextInt(range) + range;
@@ -612,24 +615,20 @@ public class DefangFilter extends DefaultFilter {
                 }
             }
         }
-        if (elementAccepted(element.rawname)) {
-            HashSet<String> value = mAcceptedElements.get(eName);
-            if (value != NULL) {
-                HashSet<String> anames = value;
-                int attributeCount = attributes.getLength();
-                for (int i = 0; i < attributeCount; i++) {
-                    String aName = attributes.getQName(i).toLowerCase();
-                    // remove the attribute if it isn't in the list of accepted names
-                    // or it has invalid content
-                    if (!anames.contains(aName) || removeAttrValue(eName, aName, attributes, i)) {
-                        attributes.removeAttributeAt(i--);
-                        attributeCount--;
-                    } else {
-                        sanitizeAttrValue(eName, aName, attributes, i);
-                    }
+        // a single lookup in the compiled table gives both the verdict and the attribute allowlist
+        HashSet<String> anames = mAcceptedElements.get(eName);
+        if (anames != null) {
+            int attributeCount = attributes.getLength();
+            for (int i = 0; i < attributeCount; i++) {
+                String aName = attributes.getQName(i).toLowerCase();
+                // remove the attribute if it isn't in the list of accepted names
+                // or it has invalid content
+                if (!anames.contains(aName) || removeAttrValue(eName, aName, attributes, i)) {
+                    attributes.removeAttributeAt(i--);
+                    attributeCount--;
+                } else {
+                    sanitizeAttrValue(eName, aName, attributes, i);
                 }
-            } else {
-                attributes.removeAllAttributes();
             }
 
             if (eName.equals("img") || eName.equals("input")) {
@@ -785,7 +784,7 @@ public class DefangFilter extends DefaultFilter {
             if (AV_JAVASCRIPT.matcher(result).find())
                 result = AV_JAVASCRIPT.matcher(result).replaceAll("JAVASCRIPT-BLOCKED:");
             else if (!VALID_INT_IMG.matcher(result).find()) {
-                result = result.replaceAll("(?i)data\\s*:", "DATAURI-BLOCKED:");
+                result = AV_DATA_URI.matcher(result).replaceAll("DATAURI-BLOCKED:");
             }
             if (AV_VBSCRIPT.matcher(result).find()) {
                 result = AV_VBSCRIPT.matcher(result).replaceAll("VBSCRIPT-BLOCKED:");
@@ -828,11 +827,11 @@ public class DefangFilter extends DefaultFilter {
      */
     private void sanitizeAttrValue(String eName, String aName, XMLAttributes attributes, int i) {
         String value = attributes.getValue(i);
-        boolean canAllowScript = ATTRIBUTES_CAN_ALLOW_SCRIPTS.contains(aName.toLowerCase());
-        String result = sanitize(value, canAllowScript);
-
+        String result;
         if (aName.equalsIgnoreCase("style")) {
             result = sanitizeStyleValue(value);
+        } else {
+            result = sanitize(value, ATTRIBUTES_CAN_ALLOW_SCRIPTS.contains(aName.toLowerCase()));
         }
 
         if (!result.equals(value)) {
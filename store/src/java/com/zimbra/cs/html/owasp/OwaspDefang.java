@@ -24,13 +24,15 @@ import java.io.Writer;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
 import com.google.common.base.Charsets;
 import com.google.common.io.CharStreams;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.zimbra.common.localconfig.DebugConfig;
 import com.zimbra.common.util.ZimbraLog;
 import com.zimbra.cs.html.AbstractDefang;
@@ -39,7 +41,10 @@ import com.zimbra.cs.servlet.ZThreadLocal;
 public class OwaspDefang extends AbstractDefang {
 
     private static final int finishBefore = DebugConfig.owasp_html_sanitizer_timeout;
-    ExecutorService executor = Executors.newCachedThreadPool();
+    /** shared by all instances; daemon threads so that a runaway sanitizer doesn't hold up shutdown */
+    private static final ExecutorService executor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
+            new SynchronousQueue<Runnable>(),
+            new ThreadFactoryBuilder().setNameFormat("OwaspSanitizer-%d").setDaemon(true).build());
 
     @Override
     public void defang(InputStream is, boolean neuterImages, Writer out) throws IOException {
@@ -73,6 +78,7 @@ public class OwaspDefang extends AbstractDefang {
         try {
             sanitizedHtml = future.get(finishBefore, TimeUnit.SECONDS);
         } catch (InterruptedException | ExecutionException | TimeoutException e) {
+            future.cancel(true);
             ZimbraLog.soap.debug("Exception during HTML sanitization", e);
             ZimbraLog.soap.warn("Exception during HTML sanitization: %s", e.getMessage());
             return null;
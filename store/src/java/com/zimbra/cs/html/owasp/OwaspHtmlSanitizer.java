@@ -58,21 +58,21 @@ public class OwaspHtmlSanitizer implements Callable<String> {
         // in tags array we can add multiple tags, so for each tag write start &
         // end with a & separator like(<!--&-->)
         tags.add("<!--&-->");
-        String formattedHtml = "";
         for (String str : tags) {
             String tagArr[] = str.split("&");
             String start = tagArr[0];
             String end = tagArr[1];
+            // a single builder, so that a body full of comments isn't copied once per comment
+            StringBuilder formattedHtml = new StringBuilder(html.length());
             String[] arrOfStr = html.split(start);
             for (String strAfterSplit : arrOfStr) {
                  if (!strAfterSplit.equals("") && strAfterSplit.contains(end)) {
-                     formattedHtml = formattedHtml + start + strAfterSplit;
+                     formattedHtml.append(start).append(strAfterSplit);
                  } else {
-                     formattedHtml = formattedHtml + strAfterSplit;
+                     formattedHtml.append(strAfterSplit);
                  }
             }
-            html = formattedHtml;
-            formattedHtml = "";
+            html = formattedHtml.toString();
         }
         if (html.contains("portal-page-1>div>div{padding-top:5px;}") && !html.split(">div>div")[1].equals("")) {
             html = html.split(">div>div")[0] + "div>div" + html.split(">div>div")[1];
@@ -17,6 +17,7 @@
 package com.zimbra.cs.imap;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PrintStream;
 import java.net.InetSocketAddress;
@@ -42,8 +43,10 @@ import java.util.TimeZone;
 import java.util.TreeMap;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.regex.Pattern;
+import java.util.zip.Deflater;
 
 import javax.mail.MessagingException;
+import javax.mail.internet.InternetHeaders;
 import javax.mail.internet.MimeMessage;
 
 import org.dom4j.DocumentException;
@@ -75,9 +78,11 @@ import com.zimbra.common.mailbox.ZimbraMailItem;
 import com.zimbra.common.mailbox.ZimbraQueryHit;
 import com.zimbra.common.mailbox.ZimbraQueryHitResults;
 import com.zimbra.common.mailbox.ZimbraSearchParams;
+import com.zimbra.common.mime.shim.JavaMailInternetHeaders;
 import com.zimbra.common.service.ServiceException;
 import com.zimbra.common.soap.SoapFaultException;
 import com.zimbra.common.util.AccessBoundedRegex;
+import com.zimbra.common.util.ByteUtil;
 import com.zimbra.common.util.Constants;
 import com.zimbra.common.util.DateUtil;
 import com.zimbra.common.util.Log;
@@ -105,6 +110,7 @@ import com.zimbra.cs.index.SortBy;
 import com.zimbra.cs.listeners.AuthListener;
 import com.zimbra.cs.mailbox.ACL;
 import com.zimbra.cs.mailbox.Flag;
+import com.zimbra.cs.mailbox.Folder;
 import com.zimbra.cs.mailbox.MailItem;
 import com.zimbra.cs.mailbox.MailServiceException;
 import com.zimbra.cs.mailbox.MailServiceException.NoSuchItemException;
@@ -112,16 +118,19 @@ import com.zimbra.cs.mailbox.Mailbox;
 import com.zimbra.cs.mailbox.OperationContext;
 import com.zimbra.cs.mailbox.Tag;
 import com.zimbra.cs.mailclient.imap.IDInfo;
+import com.zimbra.cs.mime.Mime;
 import com.zimbra.cs.security.sasl.Authenticator;
 import com.zimbra.cs.security.sasl.AuthenticatorUser;
 import com.zimbra.cs.security.sasl.PlainAuthenticator;
 import com.zimbra.cs.security.sasl.ZimbraAuthenticator;
+import com.zimbra.cs.server.CompressionStats;
 import com.zimbra.cs.server.ServerThrottle;
 import com.zimbra.cs.service.admin.AddAccountLogger;
 import com.zimbra.cs.service.admin.AdminAccessControl;
 import com.zimbra.cs.service.admin.FlushCache;
 import com.zimbra.cs.service.mail.FolderAction;
 import com.zimbra.cs.service.util.ItemId;
+import com.zimbra.cs.stats.ZimbraPerf;
 import com.zimbra.cs.util.AccountUtil;
 import com.zimbra.cs.util.BuildInfo;
 import com.zimbra.soap.admin.type.CacheEntrySelector;
@@ -134,12 +143,14 @@ public abstract class ImapHandler {
     protected enum ImapExtension { CONDSTORE, QRESYNC }
 
     private static final Set<String> SUPPORTED_EXTENSIONS = new LinkedHashSet<String>(Arrays.asList(
-        "ACL", "BINARY", "CATENATE", "CHILDREN", "CONDSTORE", "ENABLE", "ESEARCH", "ESORT",
+        "ACL", "BINARY", "CATENATE", "CHILDREN", "COMPRESS=DEFLATE", "CONDSTORE", "ENABLE", "ESEARCH", "ESORT",
         "I18NLEVEL=1", "ID", "IDLE", "LIST-EXTENDED", "LIST-STATUS", "LITERAL+", "LOGIN-REFERRALS",
-        "MULTIAPPEND", "NAMESPACE", "QRESYNC", "QUOTA", "RIGHTS=ektx", "SASL-IR", "SEARCHRES",
-        "SORT", "THREAD=ORDEREDSUBJECT", "UIDPLUS", "UNSELECT", "WITHIN", "XLIST"
+        "MOVE", "MULTIAPPEND", "NAMESPACE", "NOTIFY", "QRESYNC", "QUOTA", "RIGHTS=ektx", "SASL-IR", "SEARCHRES",
+        "SORT", "THREAD=ORDEREDSUBJECT", "THREAD=REFERENCES", "UIDPLUS", "UNSELECT", "WITHIN", "XLIST"
     ));
 
+    protected static final int COMPRESSION_LEVEL = Deflater.DEFAULT_COMPRESSION;
+
     private static final long MAXIMUM_IDLE_PROCESSING_MILLIS = 15 * Constants.MILLIS_PER_SECOND;
 
     // ID response parameters
@@ -225,10 +236,14 @@ public abstract class ImapHandler {
     protected Authenticator authenticator;
     protected ImapCredentials credentials;
     protected boolean startedTLS;
+    /** counters of the DEFLATE layer, or null if the client hasn't issued COMPRESS */
+    protected CompressionStats compression;
     protected String lastCommand;
     protected int consecutiveError;
     private ImapProxy imapProxy;
     protected ImapListener selectedFolderListener;
+    /** mailbox-wide listener of an active NOTIFY SET, or null */
+    private ImapNotifyListener notifyListener;
     private String idleTag;
     private String origRemoteIp;
     private String via;
@@ -275,6 +290,11 @@ public abstract class ImapHandler {
     protected abstract void enableInactivityTimer() throws IOException;
     protected abstract void completeAuthentication() throws IOException;
     protected abstract boolean doSTARTTLS(String tag) throws IOException;
+    /**
+     * Sends the tagged OK of a COMPRESS DEFLATE command and switches the connection to compressed
+     * streams, counting into {@link #compression}.
+     */
+    protected abstract void startCompression(String tag) throws IOException;
     protected abstract InetSocketAddress getLocalAddress();
 
     protected ImapCredentials getCredentials() {
@@ -537,6 +557,11 @@ public abstract class ImapHandler {
                 } else if (command.equals("CHECK")) {
                     checkEOF(tag, req);
                     return doCHECK(tag);
+                } else if (command.equals("COMPRESS") && extensionEnabled("COMPRESS=DEFLATE")) {
+                    req.skipSpace();
+                    String mechanism = req.readAtom();
+                    checkEOF(tag, req);
+                    return doCOMPRESS(tag, mechanism);
                 }
                 break;
             case 'D':
@@ -760,6 +785,13 @@ public abstract class ImapHandler {
                     ImapPath path = new ImapPath(req.readFolder(), credentials);
                     checkEOF(tag, req);
                     return doMYRIGHTS(tag, path);
+                } else if (command.equals("MOVE") && extensionEnabled("MOVE")) {
+                    req.skipSpace();
+                    String sequence = req.readSequence();
+                    req.skipSpace();
+                    ImapPath path = new ImapPath(req.readFolder(), credentials);
+                    checkEOF(tag, req);
+                    return isProxied ? imapProxy.proxy(req) : doMOVE(tag, sequence, path, byUID);
                 }
                 break;
             case 'N':
@@ -769,6 +801,17 @@ public abstract class ImapHandler {
                 } else if (command.equals("NAMESPACE") && extensionEnabled("NAMESPACE")) {
                     checkEOF(tag, req);
                     return doNAMESPACE(tag);
+                } else if (command.equals("NOTIFY") && extensionEnabled("NOTIFY")) {
+                    req.skipSpace();
+                    ImapNotify notify = null;
+                    if (req.peekATOM().equals("NONE")) {
+                        req.skipAtom("NONE");
+                    } else {
+                        req.skipAtom("SET");
+                        notify = ImapNotify.parse(tag, req, credentials);
+                    }
+                    checkEOF(tag, req);
+                    return doNOTIFY(tag, notify);
                 }
                 break;
             case 'R':
@@ -953,23 +996,29 @@ public abstract class ImapHandler {
                 }
                 break;
             case 'T':
-                if (command.equals("THREAD") && extensionEnabled("THREAD=ORDEREDSUBJECT")) {
+                if (command.equals("THREAD") && threadEnabled()) {
                     req.skipSpace();
-                    req.skipAtom("ORDEREDSUBJECT");
+                    String algorithm = req.readATOM();
+                    if (!extensionEnabled("THREAD=" + algorithm) ||
+                            !(algorithm.equals("ORDEREDSUBJECT") || algorithm.equals("REFERENCES"))) {
+                        throw new ImapParseException(tag, "unsupported THREAD algorithm: " + algorithm);
+                    }
                     req.skipSpace();
                     Charset charset = req.readCharset();
                     req.skipSpace();
                     ImapSearch i4search = req.readSearch(charset);
                     checkEOF(tag, req);
-                    return isProxied ? imapProxy.proxy(req) : doTHREAD(tag, i4search, byUID);
+                    return isProxied ? imapProxy.proxy(req) :
+                        doTHREAD(tag, i4search, byUID, algorithm.equals("REFERENCES"));
                 }
                 break;
             case 'U':
                 if (command.equals("UID")) {
                     req.skipSpace();  command = req.readATOM();
                     if (command.equals("FETCH") || command.equals("SEARCH") || command.equals("COPY") || command.equals("STORE") ||
+                            (command.equals("MOVE") && extensionEnabled("MOVE")) ||
                             (command.equals("EXPUNGE") && extensionEnabled("UIDPLUS")) || (command.equals("SORT") && extensionEnabled("SORT")) ||
-                            (command.equals("THREAD") && extensionEnabled("THREAD=ORDEREDSUBJECT"))) {
+                            (command.equals("THREAD") && threadEnabled())) {
                         byUID = true;
                         lastCommand += " " + command;
                         continue;
@@ -1247,6 +1296,7 @@ public abstract class ImapHandler {
         // [BINARY]           RFC 3516: IMAP4 Binary Content Extension
         // [CATENATE]         RFC 4469: Internet Message Access Protocol (IMAP) CATENATE Extension
         // [CHILDREN]         RFC 3348: IMAP4 Child Mailbox Extension
+        // [COMPRESS=DEFLATE] RFC 4978: The IMAP COMPRESS Extension
         // [CONDSTORE]        RFC 4551: IMAP Extension for Conditional STORE Operation or Quick Flag Changes Resynchronization
         // [ENABLE]           RFC 5161: The IMAP ENABLE Extension
         // [ESEARCH]          RFC 4731: IMAP4 Extension to SEARCH Command for Controlling What Kind of Information Is Returned
@@ -1258,6 +1308,7 @@ public abstract class ImapHandler {
         // [LIST-STATUS]      RFC 5819: IMAP4 Extension for Returning STATUS Information in Extended LIST
         // [LITERAL+]         RFC 2088: IMAP4 non-synchronizing literals
         // [LOGIN-REFERRALS]  RFC 2221: IMAP4 Login Referrals
+        // [MOVE]             RFC 6851: Internet Message Access Protocol (IMAP) - MOVE Extension
         // [MULTIAPPEND]      RFC 3502: Internet Message Access Protocol (IMAP) - MULTIAPPEND Extension
         // [NAMESPACE]        RFC 2342: IMAP4 Namespace
         // [QRESYNC]          RFC 5162: IMAP4 Extensions for Quick Mailbox Resynchronization
@@ -1267,6 +1318,7 @@ public abstract class ImapHandler {
         // [SEARCHRES]        RFC 5182: IMAP Extension for Referencing the Last SEARCH Result
         // [SORT]             RFC 5256: Internet Message Access Protocol - SORT and THREAD Extensions
         // [THREAD=ORDEREDSUBJECT]  RFC 5256: Internet Message Access Protocol - SORT and THREAD Extensions
+        // [THREAD=REFERENCES]      RFC 5256: Internet Message Access Protocol - SORT and THREAD Extensions
         // [UIDPLUS]          RFC 4315: Internet Message Access Protocol (IMAP) - UIDPLUS extension
         // [UNSELECT]         RFC 3691: IMAP UNSELECT command
         // [WITHIN]           RFC 5032: WITHIN Search Extension to the IMAP Protocol
@@ -1322,6 +1374,10 @@ public abstract class ImapHandler {
         }
     }
 
+    private boolean threadEnabled() {
+        return extensionEnabled("THREAD=ORDEREDSUBJECT") || extensionEnabled("THREAD=REFERENCES");
+    }
+
     private boolean mechanismEnabled(String mechanism) {
         return extensionEnabled("AUTH=" + mechanism);
     }
@@ -3075,6 +3131,120 @@ public abstract class ImapHandler {
         return true;
     }
 
+    // RFC 5465 3: "The NOTIFY command informs the server that the client listens for event
+    //              notifications all the time (even when no command is in progress), and that
+    //              it should cease sending any notifications not specified by the command."
+    private boolean doNOTIFY(String tag, ImapNotify notify) throws IOException {
+        if (!checkState(tag, State.AUTHENTICATED)) {
+            return true;
+        }
+        stopNotify();
+        if (notify != null) {
+            try {
+                MailboxStore mbox = credentials.getMailbox();
+                if (!(mbox instanceof Mailbox)) {
+                    ZimbraLog.imap.info("NOTIFY failed: mailbox %s is not local", credentials.getAccountId());
+                    sendNO(tag, "NOTIFY not supported for this mailbox");
+                    return true;
+                }
+                ImapNotifyListener listener = new ImapNotifyListener(this, notify, credentials);
+                listener.register();
+                notifyListener = listener;
+                if (notify.sendStatus) {
+                    sendNotifyStatus((Mailbox) mbox, notify);
+                }
+            } catch (ServiceException e) {
+                ZimbraLog.imap.warn("NOTIFY failed", e);
+                sendNO(tag, "NOTIFY failed");
+                return canContinue(e);
+            }
+        }
+        sendNotifications(true, false);
+        sendOK(tag, "NOTIFY completed");
+        return true;
+    }
+
+    // RFC 5465 5.1: "If the STATUS indicator is present, the server MUST send a STATUS response
+    //                for each mailbox specified by the NOTIFY command"
+    private void sendNotifyStatus(Mailbox mbox, ImapNotify notify) throws ServiceException, IOException {
+        ImapListener i4selected = getCurrentImapListener();
+        for (Folder folder : mbox.getFolderList(getContext(), SortBy.NONE)) {
+            if (i4selected != null && folder.getId() == i4selected.getFolderId() &&
+                    mbox.getAccountId().equalsIgnoreCase(i4selected.getTargetAccountId())) {
+                continue;
+            }
+            Set<ImapNotify.Event> events = notify.getEvents(folder);
+            if (events.contains(ImapNotify.Event.MESSAGE_NEW)) {
+                sendNotifyStatus(folder.getId(), events.contains(ImapNotify.Event.FLAG_CHANGE));
+            }
+        }
+    }
+
+    private void sendNotifyStatus(int folderId, boolean unseen) throws IOException {
+        try {
+            Folder folder = credentials.getMailbox() instanceof Mailbox ?
+                    ((Mailbox) credentials.getMailbox()).getFolderById(getContext(), folderId) : null;
+            if (folder == null) {
+                return;
+            }
+            ImapPath path = new ImapPath(null, folder, credentials);
+            if (!path.isVisible()) {
+                return;
+            }
+            byte status = (byte) (StatusDataItemNames.STATUS_MESSAGES | StatusDataItemNames.STATUS_UIDNEXT |
+                    StatusDataItemNames.STATUS_UIDVALIDITY);
+            if (unseen) {
+                status |= StatusDataItemNames.STATUS_UNSEEN;
+            }
+            if (sessionActivated(ImapExtension.CONDSTORE)) {
+                status |= StatusDataItemNames.STATUS_HIGHESTMODSEQ;
+            }
+            sendUntagged(status(path, status));
+        } catch (ServiceException e) {
+            // the folder went away before we got to it
+            ZimbraLog.imap.debug("skipping NOTIFY STATUS for folder %d", folderId, e);
+        } catch (ImapException e) {
+            ZimbraLog.imap.debug("skipping NOTIFY STATUS for folder %d", folderId, e);
+        }
+    }
+
+    /**
+     * Sends the STATUS and LIST responses queued by the NOTIFY listener, if any.
+     */
+    private void sendMailboxNotifications(boolean flush) throws IOException {
+        ImapNotifyListener listener = notifyListener;
+        if (listener == null) {
+            return;
+        }
+        boolean sent = false;
+        for (ImapNotifyListener.Update update : listener.drain()) {
+            for (String list : update.lists) {
+                sendUntagged(list);
+            }
+            if (update.status) {
+                sendNotifyStatus(update.folderId, update.unseen);
+            }
+            sent = true;
+        }
+        if (listener.isOverflowed()) {
+            // RFC 5465 5.8: "... the server MUST behave as if NOTIFY NONE had been issued"
+            stopNotify();
+            sendUntagged("OK [NOTIFICATIONOVERFLOW] NOTIFY stopped; too many pending events");
+            sent = true;
+        }
+        if (sent && flush) {
+            output.flush();
+        }
+    }
+
+    private void stopNotify() {
+        ImapNotifyListener listener = notifyListener;
+        if (listener != null) {
+            notifyListener = null;
+            listener.unregister();
+        }
+    }
+
     // Returns whether all of a set of <tt>linked</tt> RFC 4314 rights is contained within a string.
     private boolean allRightsPresent(final String i4rights, final String linked) {
         for (int i = 0; i < linked.length(); i++) {
@@ -3431,6 +3601,21 @@ public abstract class ImapHandler {
         return true;
     }
 
+    private boolean doCOMPRESS(String tag, String mechanism) throws IOException {
+        if (!checkState(tag, State.AUTHENTICATED)) {
+            return true;
+        } else if (!mechanism.equalsIgnoreCase("DEFLATE")) {
+            sendBAD(tag, "unsupported compression mechanism: " + mechanism);
+            return true;
+        } else if (compression != null) {
+            sendNO(tag, "[COMPRESSIONACTIVE] DEFLATE active via COMPRESS");
+            return true;
+        }
+        compression = new CompressionStats();
+        startCompression(tag);
+        return true;
+    }
+
     private boolean doCLOSE(String tag) throws IOException, ImapException {
         if (!checkState(tag, State.SELECTED)) {
             return true;
@@ -3773,7 +3958,7 @@ public abstract class ImapHandler {
         return mbox.searchImap(getContext(), params);
     }
 
-    private boolean doTHREAD(String tag, ImapSearch i4search, boolean byUID)
+    private boolean doTHREAD(String tag, ImapSearch i4search, boolean byUID, boolean references)
             throws IOException, ImapException {
         if (!checkState(tag, State.SELECTED)) {
             return true;
@@ -3836,6 +4021,15 @@ public abstract class ImapHandler {
         if (!threads.isEmpty()) {
             result.append(' ');
             for (List<ImapMessage> thread : threads.values()) {
+                if (references && thread.size() > 1) {
+                    // REFERENCES: the conversation is the thread; nest its messages by their References
+                    ReferencesThreader threader = new ReferencesThreader();
+                    for (ImapMessage i4msg : thread) {
+                        threader.add(getMessageId(i4msg, byUID), getThreadRefs(i4folder, i4msg));
+                    }
+                    threader.append(result);
+                    continue;
+                }
                 // ORDEREDSUBJECT: "(A)" for singletons, "(A B)" for pairs, "(A (B)(C)(D)(E))" for larger threads
                 Iterator<ImapMessage> it = thread.iterator();
                 result.append('(').append(getMessageId(it.next(), byUID));
@@ -3859,6 +4053,43 @@ public abstract class ImapHandler {
         return true;
     }
 
+    /**
+     * Returns the Message-ID and References of a message, reading only its header block, or null if
+     * the message is gone or unreadable.
+     */
+    private ImapThreadCache.Refs getThreadRefs(ImapFolder i4folder, ImapMessage i4msg) {
+        ImapThreadCache cache = ImapThreadCache.getInstance();
+        ImapThreadCache.Refs refs = cache.get(i4folder, i4msg.imapUid);
+        if (refs != null) {
+            return refs;
+        }
+        InputStream is = null;
+        try {
+            MailboxStore mbox = i4folder.getMailbox();
+            String folderOwner = i4folder.getFolder().getFolderItemIdentifier().accountId;
+            ItemIdentifier iid = ItemIdentifier.fromAccountIdAndItemId(
+                    (folderOwner != null) ? folderOwner : mbox.getAccountId(), i4msg.msgId);
+            ZimbraMailItem item = mbox.getItemById(getContext(), iid, i4msg.getType().toCommon());
+            is = ImapMessage.getContent(item).stream;
+            InternetHeaders headers = new JavaMailInternetHeaders(is);
+            List<String> messageId = Mime.getReferences(headers, "Message-ID");
+            List<String> parents = Mime.getReferences(headers, "References");
+            if (parents.isEmpty()) {
+                parents = Mime.getReferences(headers, "In-Reply-To");
+            }
+            refs = new ImapThreadCache.Refs(messageId.isEmpty() ? null : messageId.get(0), parents);
+            cache.put(i4folder, i4msg.imapUid, refs);
+            return refs;
+        } catch (ServiceException e) {
+            ZimbraLog.imap.debug("unable to read threading headers of message %d", i4msg.msgId, e);
+        } catch (MessagingException e) {
+            ZimbraLog.imap.debug("unable to parse threading headers of message %d", i4msg.msgId, e);
+        } finally {
+            ByteUtil.closeStream(is);
+        }
+        return null;
+    }
+
     protected boolean doFETCH(String tag, String sequenceSet, int attributes, List<ImapPartSpecifier> parts,
             boolean byUID, int changedSince) throws IOException, ImapException {
         checkCommandThrottle(new FetchCommand(sequenceSet, attributes, parts));
@@ -4446,16 +4677,35 @@ public abstract class ImapHandler {
     protected boolean doCOPY(String tag, String sequenceSet, ImapPath path, boolean byUID)
             throws IOException, ImapException {
         checkCommandThrottle(new CopyCommand(sequenceSet, path));
+        return copy(tag, sequenceSet, path, byUID, false);
+    }
+
+    protected boolean doMOVE(String tag, String sequenceSet, ImapPath path, boolean byUID)
+            throws IOException, ImapException {
+        checkCommandThrottle(new MoveCommand(sequenceSet, path));
+        return copy(tag, sequenceSet, path, byUID, true);
+    }
+
+    /**
+     * COPY, or MOVE (RFC 6851) when {@code move} is set.  Within a mailbox a MOVE is a single
+     * {@link ImapMailboxStore#imapMove} per batch; otherwise the messages are copied and the originals deleted.
+     */
+    private boolean copy(String tag, String sequenceSet, ImapPath path, boolean byUID, boolean move)
+            throws IOException, ImapException {
         if (!checkState(tag, State.SELECTED)) {
             return true;
         }
-        String command = (byUID ? "UID COPY" : "COPY");
+        String command = (byUID ? "UID " : "") + (move ? "MOVE" : "COPY");
         String copyuid = "";
 
         ImapFolder i4folder = getSelectedFolder();
         if (i4folder == null) {
             throw new ImapSessionClosedException();
         }
+        if (move && !i4folder.isWritable()) {
+            sendNO(tag, "mailbox selected READ-ONLY");
+            return true;
+        }
         MailboxStore mbox = i4folder.getMailbox();
         Set<ImapMessage> i4set;
         mbox.lock(false);
@@ -4469,13 +4719,13 @@ public abstract class ImapHandler {
         }
 
         if (i4set.size() > LC.imap_max_items_in_copy.intValue()) {
-            sendNO(tag, "COPY rejected, too many items in copy request");
+            sendNO(tag, command + " rejected, too many items in " + command.toLowerCase() + " request");
             return true;
         }
         // RFC 2180 4.4.1: "The server MAY disallow the COPY of messages in a multi-
         //                  accessed mailbox that contains expunged messages."
         if (!byUID && i4set.contains(null)) {
-            sendNO(tag, "COPY rejected because some of the requested messages were expunged");
+            sendNO(tag, command + " rejected because some of the requested messages were expunged");
             return true;
         }
         i4set.remove(null);
@@ -4485,6 +4735,8 @@ public abstract class ImapHandler {
                 throw ImapServiceException.FOLDER_NOT_VISIBLE(path.asImapPath());
             } else if (!path.isWritable(ACL.RIGHT_INSERT)) {
                 throw ImapServiceException.FOLDER_NOT_WRITABLE(path.asImapPath());
+            } else if (move && !i4folder.getPath().isWritable(ACL.RIGHT_DELETE)) {
+                throw ServiceException.PERM_DENIED("you do not have permission to delete messages from this folder");
             }
             MailboxStore mbxStore = path.getOwnerMailbox();
             if (null == mbxStore) {
@@ -4495,7 +4747,7 @@ public abstract class ImapHandler {
             try {
                 selectedFolder = i4folder.getFolder();
             } catch (ServiceException e1) {
-                ZimbraLog.imap.error("Problem with selected folder %s during doCOPY", e1.getMessage());
+                ZimbraLog.imap.error("Problem with selected folder %s during %s", e1.getMessage(), command);
                 return true;
             }
 
@@ -4517,17 +4769,27 @@ public abstract class ImapHandler {
             int uvv = targetFolder.getUIDValidity();
             ItemId iidTarget = new ItemId(targetFolder, path.getOwnerAccount().getId());
             ItemIdentifier targetIdentifier = iidTarget.toItemIdentifier();
+            boolean moveWithinMailbox = move && sameMailbox && !selectedFolderInOtherMailbox;
+            if (moveWithinMailbox && iidTarget.getId() == fromFolderId.id) {
+                sendNO(tag, "[CANNOT] cannot " + command + " messages to the selected mailbox");
+                return true;
+            }
 
             long checkpoint = System.currentTimeMillis();
             List<Integer> copyUIDs = extensionEnabled("UIDPLUS") ? Lists.newArrayListWithCapacity(i4set.size()) : null;
             final List<ImapMessage> i4list = Lists.newArrayList(i4set);
             final List<List<ImapMessage>> batches = Lists.partition(i4list, SUGGESTED_COPY_BATCH_SIZE);
             for (List<ImapMessage> batch : batches) {
-                if (sameMailbox && !selectedFolderInOtherMailbox) {
+                if (moveWithinMailbox) {
+                    moveOwnItems(selectedImapMboxStore, batch, iidTarget, copyUIDs);
+                } else if (sameMailbox && !selectedFolderInOtherMailbox) {
                     copyOwnItems(selectedImapMboxStore, batch, iidTarget, copyUIDs);
                 } else {
                     copyItemsBetweenMailboxes(selectedImapMboxStore, batch, fromFolderId, targetIdentifier, copyUIDs);
                 }
+                if (move && !moveWithinMailbox) {
+                    deleteOriginals(i4folder, batch);
+                }
 
                 // send a gratuitous untagged response to keep pissy clients from closing the socket from inactivity
                 long now = System.currentTimeMillis();
@@ -4570,6 +4832,16 @@ public abstract class ImapHandler {
             return canContinue(e);
         }
 
+        if (move) {
+            // RFC 6851 4.3: "the server SHOULD send COPYUID in response to a UID MOVE ... in an untagged OK
+            //                before sending EXPUNGE or similar responses."
+            if (!copyuid.isEmpty()) {
+                sendUntagged("OK " + copyuid + "moved");
+            }
+            sendNotifications(true, false);
+            sendOK(tag, command + " completed");
+            return true;
+        }
         // RFC 2180 4.4: "COPY is the only IMAP4 sequence number command that is safe to allow
         //                an EXPUNGE response on.  This is because a client is not permitted
         //                to cascade several COPY commands together."
@@ -4578,6 +4850,51 @@ public abstract class ImapHandler {
         return true;
     }
 
+    private void moveOwnItems(ImapMailboxStore selectedImapMboxStore, List<ImapMessage> batch, ItemId iidTarget,
+            List<Integer> copyUIDs) throws ServiceException {
+        List<Integer> movedUids;
+        try {
+            MailItemType type = MailItemType.UNKNOWN;
+            int[] mItemIds = new int[batch.size()];
+            int counter  = 0;
+            for (ImapMessage curMsg : batch) {
+                mItemIds[counter++] = curMsg.msgId;
+                if (counter == 1) {
+                    type = curMsg.getMailItemType();
+                } else if (curMsg.getMailItemType() != type) {
+                    type = MailItemType.UNKNOWN;
+                }
+            }
+            movedUids = selectedImapMboxStore.imapMove(getContext(), mItemIds, type, iidTarget.getId());
+        } catch (IOException e) {
+            throw ServiceException.FAILURE("Caught IOException executing " + this, e);
+        }
+        if (movedUids.size() != batch.size()) {
+            throw ServiceException.FAILURE(
+                    String.format("mismatch between original (%s) and target (%s) count during IMAP MOVE",
+                            batch.size(), movedUids.size()), null);
+        }
+        if (copyUIDs != null) {
+            copyUIDs.addAll(movedUids);
+        }
+    }
+
+    /** Deletes the originals of messages that were copied to another mailbox for a MOVE. */
+    private void deleteOriginals(ImapFolder i4folder, List<ImapMessage> batch) throws ServiceException {
+        List<Integer> ids = Lists.newArrayListWithCapacity(batch.size());
+        for (ImapMessage i4msg : batch) {
+            ids.add(i4msg.msgId);
+        }
+        List<Integer> nonExistingItems = new ArrayList<Integer>();
+        selectedFolderListener.getMailbox().delete(getContext(), ids, nonExistingItems);
+        for (Integer itemId : nonExistingItems) {
+            ImapMessage i4msg = i4folder.getById(itemId);
+            if (i4msg != null) {
+                i4msg.setExpunged(true);
+            }
+        }
+    }
+
     private void copyOwnItems(ImapMailboxStore selectedImapMboxStore, List<ImapMessage> batch, ItemId iidTarget,
             List<Integer> copyUIDs) throws ServiceException {
         List<Integer> copyMsgUids;
@@ -4646,6 +4963,8 @@ public abstract class ImapHandler {
     }
 
     public void sendNotifications(boolean notifyExpunges, boolean flush) throws IOException {
+        sendMailboxNotifications(flush);
+
         ImapProxy proxy = imapProxy;
         if (proxy != null) {
             proxy.fetchNotifications();
@@ -4791,6 +5110,14 @@ public abstract class ImapHandler {
     }
 
     protected void logout() {
+        stopNotify();
+        CompressionStats stats = compression;
+        if (stats != null) {
+            compression = null;
+            ZimbraLog.imap.info("compression: %s", stats);
+            ZimbraPerf.COUNTER_IMAP_COMPRESS_RATIO.increment(stats.getRatioPercent());
+            ZimbraPerf.COUNTER_IMAP_COMPRESS_CPU.increment(stats.getCpuMicros());
+        }
         try {
             if (credentials != null) {
                 setLoggingContext();
@@ -88,6 +88,12 @@ public abstract class ImapMailboxStore {
      */
     public abstract List<Integer> imapCopy(OperationContext octxt, int[] itemIds, MailItemType type, int folderId)
             throws IOException, ServiceException;
+    /**
+     * MUST only be called when the source items and target folder are in the same mailbox
+     * @return List of the IMAP UIDs of the items in the target folder, in the order of {@code itemIds}
+     */
+    public abstract List<Integer> imapMove(OperationContext octxt, int[] itemIds, MailItemType type, int folderId)
+            throws IOException, ServiceException;
     public abstract InputStreamWithSize getByImapId(OperationContext octxt, int imapId, String folderId, String resolvedPath)
             throws ServiceException;
     public abstract void checkAppendMessageFlags(OperationContext octxt, List<AppendMessage> appends) throws ServiceException;
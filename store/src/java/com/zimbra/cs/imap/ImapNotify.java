@@ -0,0 +1,232 @@
+/*
+ * ***** BEGIN LICENSE BLOCK *****
+ * Zimbra Collaboration Suite Server
+ * Copyright (C) 2026 Synacor, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software Foundation,
+ * version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ * ***** END LICENSE BLOCK *****
+ */
+package com.zimbra.cs.imap;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import com.zimbra.cs.mailbox.Folder;
+import com.zimbra.cs.mailbox.Mailbox;
+
+/**
+ * The event groups of a NOTIFY SET request (RFC 5465), and which of them apply to a given folder.
+ * <p>
+ * Only folders of the authenticated user's own mailbox are matched; mailboxes named under another
+ * user's namespace are accepted but never reported.
+ */
+final class ImapNotify {
+
+    enum Event {
+        MESSAGE_NEW("MessageNew"), MESSAGE_EXPUNGE("MessageExpunge"), FLAG_CHANGE("FlagChange"),
+        MAILBOX_NAME("MailboxName"), SUBSCRIPTION_CHANGE("SubscriptionChange");
+
+        private final String name;
+
+        private Event(String name) {
+            this.name = name;
+        }
+
+        static Event lookup(String name) {
+            for (Event event : values()) {
+                if (event.name.equalsIgnoreCase(name)) {
+                    return event;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    enum FilterType { SELECTED, SELECTED_DELAYED, PERSONAL, INBOXES, SUBSCRIBED, SUBTREE, MAILBOXES }
+
+    static final class Filter {
+        final FilterType type;
+        /** lowercased Zimbra paths, without the leading '/', of the SUBTREE and MAILBOXES filters */
+        final List<String> paths;
+        final Set<Event> events;
+
+        Filter(FilterType type, List<String> paths, Set<Event> events) {
+            this.type = type;
+            this.paths = paths;
+            this.events = events;
+        }
+
+        boolean matches(Folder folder) {
+            switch (type) {
+            case PERSONAL:
+                return true;
+            case INBOXES:
+                return folder.getId() == Mailbox.ID_FOLDER_INBOX;
+            case SUBSCRIBED:
+                return folder.isIMAPSubscribed();
+            case SUBTREE:
+            case MAILBOXES:
+                String path = folder.getPath().substring(1).toLowerCase();
+                for (String filterPath : paths) {
+                    if (path.equals(filterPath) ||
+                            (type == FilterType.SUBTREE && path.startsWith(filterPath + '/'))) {
+                        return true;
+                    }
+                }
+                return false;
+            default:
+                // the selected mailbox is reported by its ImapListener
+                return false;
+            }
+        }
+    }
+
+    final boolean sendStatus;
+    final List<Filter> filters;
+
+    ImapNotify(boolean sendStatus, List<Filter> filters) {
+        this.sendStatus = sendStatus;
+        this.filters = filters;
+    }
+
+    /**
+     * Returns the events the client asked for on a folder other than the selected one.  As in
+     * RFC 5465 5.1, the first event group whose filter matches the folder applies.
+     */
+    Set<Event> getEvents(Folder folder) {
+        for (Filter filter : filters) {
+            if (filter.matches(folder)) {
+                return filter.events;
+            }
+        }
+        return Collections.emptySet();
+    }
+
+    /**
+     * Parses the arguments of NOTIFY SET, starting right after "SET".
+     */
+    static ImapNotify parse(String tag, ImapRequest req, ImapCredentials creds)
+            throws IOException, ImapParseException {
+        boolean sendStatus = false;
+        req.skipSpace();
+        if (req.peekChar() != '(') {
+            req.skipAtom("STATUS");
+            sendStatus = true;
+            req.skipSpace();
+        }
+        List<Filter> filters = new ArrayList<Filter>();
+        do {
+            if (!filters.isEmpty()) {
+                req.skipSpace();
+            }
+            req.skipChar('(');
+            FilterType type = readFilterType(tag, req);
+            List<String> paths = null;
+            if (type == FilterType.SUBTREE || type == FilterType.MAILBOXES) {
+                paths = readPaths(req, creds);
+            }
+            req.skipSpace();
+            filters.add(new Filter(type, paths, readEvents(tag, req, type)));
+            req.skipChar(')');
+        } while (!req.eof());
+        return new ImapNotify(sendStatus, filters);
+    }
+
+    private static FilterType readFilterType(String tag, ImapRequest req) throws ImapParseException {
+        String name = req.readATOM();
+        try {
+            return FilterType.valueOf(name.replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            throw new ImapParseException(tag, "unknown NOTIFY filter: " + name);
+        }
+    }
+
+    private static List<String> readPaths(ImapRequest req, ImapCredentials creds)
+            throws IOException, ImapParseException {
+        List<String> paths = new ArrayList<String>();
+        req.skipSpace();
+        boolean list = req.peekChar() == '(';
+        if (list) {
+            req.skipChar('(');
+        }
+        do {
+            if (!paths.isEmpty()) {
+                req.skipSpace();
+            }
+            ImapPath path = new ImapPath(req.readFolder(), creds);
+            paths.add(path.getOwner() == null ? path.asZimbraPath().toLowerCase() : null);
+        } while (list && req.peekChar() != ')');
+        if (list) {
+            req.skipChar(')');
+        }
+        paths.removeAll(Collections.singleton(null));
+        return paths;
+    }
+
+    private static Set<Event> readEvents(String tag, ImapRequest req, FilterType type)
+            throws IOException, ImapParseException {
+        Set<Event> events = EnumSet.noneOf(Event.class);
+        if (req.peekChar() != '(') {
+            req.skipAtom("NONE");
+            return events;
+        }
+        req.skipChar('(');
+        List<String> unsupported = new ArrayList<String>();
+        while (true) {
+            String name = req.readAtom();
+            Event event = Event.lookup(name);
+            if (event == null) {
+                unsupported.add(name);
+            } else {
+                events.add(event);
+            }
+            if (req.peekChar() == ')') {
+                break;
+            }
+            req.skipSpace();
+            if (event == Event.MESSAGE_NEW && req.peekChar() == '(') {
+                // the FETCH attributes of new messages in the selected mailbox; EXISTS is sent instead
+                req.readFetch(new ArrayList<ImapPartSpecifier>());
+                if (req.peekChar() == ')') {
+                    break;
+                }
+                req.skipSpace();
+            }
+        }
+        req.skipChar(')');
+
+        if (!unsupported.isEmpty()) {
+            throw new ImapParseException(tag, "BADEVENT (MessageNew MessageExpunge FlagChange MailboxName SubscriptionChange)",
+                    "unsupported NOTIFY event " + unsupported.get(0), false);
+        }
+        // RFC 5465 5: "If one of MessageNew or MessageExpunge is specified, then both events MUST be
+        //              specified.  ...  FlagChange MUST NOT be specified without MessageNew and
+        //              MessageExpunge."
+        if (events.contains(Event.MESSAGE_NEW) != events.contains(Event.MESSAGE_EXPUNGE) ||
+                (events.contains(Event.FLAG_CHANGE) && !events.contains(Event.MESSAGE_NEW))) {
+            throw new ImapParseException(tag, "MessageNew, MessageExpunge and FlagChange must be requested together");
+        }
+        if ((type == FilterType.SELECTED || type == FilterType.SELECTED_DELAYED) &&
+                (events.contains(Event.MAILBOX_NAME) || events.contains(Event.SUBSCRIPTION_CHANGE))) {
+            throw new ImapParseException(tag, "mailbox events are not allowed on the selected mailbox");
+        }
+        return events;
+    }
+}
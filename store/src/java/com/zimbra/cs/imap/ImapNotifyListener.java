@@ -0,0 +1,271 @@
+/*
+ * ***** BEGIN LICENSE BLOCK *****
+ * Zimbra Collaboration Suite Server
+ * Copyright (C) 2026 Synacor, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software Foundation,
+ * version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ * ***** END LICENSE BLOCK *****
+ */
+package com.zimbra.cs.imap;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+
+import com.zimbra.common.mailbox.BaseItemInfo;
+import com.zimbra.common.service.ServiceException;
+import com.zimbra.common.util.ZimbraLog;
+import com.zimbra.cs.account.Provisioning;
+import com.zimbra.cs.imap.ImapNotify.Event;
+import com.zimbra.cs.mailbox.Folder;
+import com.zimbra.cs.mailbox.MailItem;
+import com.zimbra.cs.mailbox.Mailbox;
+import com.zimbra.cs.session.PendingModifications;
+import com.zimbra.cs.session.PendingModifications.Change;
+import com.zimbra.cs.session.Session;
+
+/**
+ * Listens on the authenticated user's mailbox on behalf of a connection that issued NOTIFY SET, and
+ * queues the folders the client asked to hear about.  A single listener covers every folder, so no
+ * {@link ImapListener} is needed for mailboxes that aren't selected.
+ * <p>
+ * Updates are coalesced per folder and turned into STATUS and LIST responses by the handler, either
+ * right away if the connection is idling or along with the notifications of the next command.  If
+ * more than {@link #MAX_PENDING_FOLDERS} folders pile up, the queue is dropped and the client is sent
+ * NOTIFICATIONOVERFLOW instead.
+ */
+final class ImapNotifyListener extends Session {
+
+    static final int MAX_PENDING_FOLDERS = 1000;
+
+    static final class Update {
+        final int folderId;
+        /** LIST responses, in the order the changes happened */
+        final List<String> lists = new ArrayList<String>(1);
+        boolean status;
+        boolean unseen;
+
+        Update(int folderId) {
+            this.folderId = folderId;
+        }
+    }
+
+    private final ImapHandler handler;
+    private final ImapNotify notify;
+    private final ImapCredentials credentials;
+    private LinkedHashMap<Integer, Update> pending = new LinkedHashMap<Integer, Update>();
+    private boolean overflowed;
+
+    ImapNotifyListener(ImapHandler handler, ImapNotify notify, ImapCredentials creds) {
+        super(creds.getAccountId(), Session.Type.IMAP);
+        this.handler = handler;
+        this.notify = notify;
+        this.credentials = creds;
+    }
+
+    ImapNotify getNotify() {
+        return notify;
+    }
+
+    @Override
+    protected boolean isMailboxListener() {
+        return true;
+    }
+
+    @Override
+    protected boolean isRegisteredInCache() {
+        return false;
+    }
+
+    @Override
+    protected long getSessionIdleLifetime() {
+        return 0;
+    }
+
+    @Override
+    protected void cleanup() {
+    }
+
+    /**
+     * Returns the queued updates and clears the queue.
+     */
+    synchronized Collection<Update> drain() {
+        if (pending.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Collection<Update> updates = pending.values();
+        pending = new LinkedHashMap<Integer, Update>();
+        return updates;
+    }
+
+    synchronized boolean isOverflowed() {
+        return overflowed;
+    }
+
+    private Update getUpdate(int folderId) {
+        Update update = pending.get(folderId);
+        if (update == null && !overflowed) {
+            if (pending.size() >= MAX_PENDING_FOLDERS) {
+                ZimbraLog.imap.info("more than %d folders with pending NOTIFY updates; dropping them", pending.size());
+                overflowed = true;
+                pending.clear();
+                return null;
+            }
+            pending.put(folderId, update = new Update(folderId));
+        }
+        return update;
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Override
+    public void notifyPendingChanges(PendingModifications pns, int changeId, Session source) {
+        Mailbox mbox = getMailboxOrNull();
+        if (mbox == null || !pns.hasNotifications()) {
+            return;
+        }
+        // the selected folder is reported by its own ImapListener
+        int selectedId = -1;
+        ImapListener i4selected = handler.getCurrentImapListener();
+        if (i4selected != null && getTargetAccountId().equalsIgnoreCase(i4selected.getTargetAccountId())) {
+            selectedId = i4selected.getFolderId();
+        }
+        boolean mailFoldersOnly = false;
+        try {
+            mailFoldersOnly = Provisioning.getInstance().getLocalServer().isImapDisplayMailFoldersOnly();
+        } catch (ServiceException e) {
+            ZimbraLog.imap.debug("unable to read zimbraImapDisplayMailFoldersOnly", e);
+        }
+
+        synchronized (this) {
+            if (overflowed) {
+                return;
+            }
+            if (pns.created != null) {
+                for (Object obj : pns.created.values()) {
+                    BaseItemInfo item = (BaseItemInfo) obj;
+                    if (item instanceof Folder) {
+                        Folder folder = (Folder) item;
+                        list(folder, mailFoldersOnly, Event.MAILBOX_NAME, "LIST () \"/\" " + name(folder));
+                    } else if (item instanceof MailItem && ImapHandler.ITEM_TYPES.contains(((MailItem) item).getType())) {
+                        status(mbox, ((MailItem) item).getFolderId(), selectedId, mailFoldersOnly, false);
+                    }
+                }
+            }
+            if (pns.deleted != null) {
+                for (Object obj : pns.deleted.values()) {
+                    Change chg = (Change) obj;
+                    if (chg.preModifyObj instanceof Folder) {
+                        Folder folder = (Folder) chg.preModifyObj;
+                        list(folder, mailFoldersOnly, Event.MAILBOX_NAME, "LIST (\\NonExistent) \"/\" " + name(folder));
+                    } else if (chg.what instanceof MailItem.Type && ImapHandler.ITEM_TYPES.contains(chg.what)) {
+                        status(mbox, chg.getFolderId(), selectedId, mailFoldersOnly, false);
+                    }
+                }
+            }
+            if (pns.modified != null) {
+                for (Object obj : pns.modified.values()) {
+                    Change chg = (Change) obj;
+                    if (chg.what instanceof Folder) {
+                        modified((Folder) chg.what, chg, mailFoldersOnly);
+                    } else if (chg.what instanceof MailItem && ImapHandler.ITEM_TYPES.contains(((MailItem) chg.what).getType())) {
+                        MailItem item = (MailItem) chg.what;
+                        if ((chg.why & Change.FOLDER) != 0) {
+                            status(mbox, item.getFolderId(), selectedId, mailFoldersOnly, false);
+                            if (chg.preModifyObj instanceof MailItem) {
+                                status(mbox, ((MailItem) chg.preModifyObj).getFolderId(), selectedId, mailFoldersOnly, false);
+                            }
+                        } else if ((chg.why & (Change.FLAGS | Change.TAGS | Change.UNREAD)) != 0) {
+                            status(mbox, item.getFolderId(), selectedId, mailFoldersOnly, true);
+                        }
+                    }
+                }
+            }
+            if (pending.isEmpty() && !overflowed) {
+                return;
+            }
+        }
+
+        // idling connections need to be notified immediately
+        if (handler.isIdle()) {
+            try {
+                handler.sendNotifications(true, true);
+            } catch (IOException e) {
+                ZimbraLog.imap.info("Failed to notify (%s), closing %s", e.toString(), this);
+                handler.close();
+            }
+        }
+    }
+
+    private void modified(Folder folder, Change chg, boolean mailFoldersOnly) {
+        if ((chg.why & (Change.NAME | Change.FOLDER | Change.PARENT)) != 0) {
+            String response = "LIST () \"/\" " + name(folder);
+            if (chg.preModifyObj instanceof Folder && !((Folder) chg.preModifyObj).getPath().equals(folder.getPath())) {
+                response += " (\"OLDNAME\" (" + name((Folder) chg.preModifyObj) + "))";
+            }
+            list(folder, mailFoldersOnly, Event.MAILBOX_NAME, response);
+        } else if ((chg.why & Change.FLAGS) != 0 && (!(chg.preModifyObj instanceof Folder) ||
+                ((Folder) chg.preModifyObj).isIMAPSubscribed() != folder.isIMAPSubscribed())) {
+            list(folder, mailFoldersOnly, Event.SUBSCRIPTION_CHANGE,
+                    "LIST (" + (folder.isIMAPSubscribed() ? "\\Subscribed" : "") + ") \"/\" " + name(folder));
+        }
+    }
+
+    private String name(Folder folder) {
+        return new ImapPath(null, folder.getPath(), credentials).asUtf7String();
+    }
+
+    private boolean isVisible(Folder folder, boolean mailFoldersOnly) {
+        return folder.getId() != Mailbox.ID_FOLDER_USER_ROOT && !folder.isHidden() &&
+                folder.isVisibleInImap(mailFoldersOnly);
+    }
+
+    private void list(Folder folder, boolean mailFoldersOnly, Event event, String response) {
+        if (isVisible(folder, mailFoldersOnly) && notify.getEvents(folder).contains(event)) {
+            Update update = getUpdate(folder.getId());
+            if (update != null) {
+                update.lists.add(response);
+            }
+        }
+    }
+
+    private void status(Mailbox mbox, int folderId, int selectedId, boolean mailFoldersOnly, boolean flagChange) {
+        if (folderId == selectedId || folderId <= 0) {
+            return;
+        }
+        Folder folder;
+        try {
+            folder = mbox.getFolderById(null, folderId);
+        } catch (ServiceException e) {
+            // deleted along with its messages
+            return;
+        }
+        if (!isVisible(folder, mailFoldersOnly)) {
+            return;
+        }
+        Set<Event> events = notify.getEvents(folder);
+        if (flagChange ? events.contains(Event.FLAG_CHANGE) : events.contains(Event.MESSAGE_NEW)) {
+            Update update = getUpdate(folderId);
+            if (update != null) {
+                update.status = true;
+                update.unseen |= events.contains(Event.FLAG_CHANGE);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ImapNotifyListener[" + getAuthenticatedAccountId() + "]";
+    }
+}
@@ -16,26 +16,35 @@
  */
 package com.zimbra.cs.imap;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
 import org.apache.http.concurrent.FutureCallback;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.zimbra.client.ZMailbox;
+import com.zimbra.common.localconfig.LC;
 import com.zimbra.common.mailbox.ItemIdentifier;
 import com.zimbra.common.service.ServiceException;
 import com.zimbra.common.soap.Element;
@@ -50,6 +59,7 @@ import com.zimbra.cs.service.admin.AdminServiceException;
 import com.zimbra.cs.session.PendingRemoteModifications;
 import com.zimbra.cs.session.SessionCache;
 import com.zimbra.cs.session.WaitSetError;
+import com.zimbra.cs.stats.ZimbraPerf;
 import com.zimbra.soap.JaxbUtil;
 import com.zimbra.soap.admin.message.AdminCreateWaitSetRequest;
 import com.zimbra.soap.admin.message.AdminCreateWaitSetResponse;
@@ -62,7 +72,28 @@ import com.zimbra.soap.type.Id;
 import com.zimbra.soap.type.IdAndType;
 import com.zimbra.soap.type.WaitSetAddSpec;
 
+/**
+ * Listens on a WaitSet on a remote mailbox server for changes to the folders that proxied IMAP
+ * sessions have selected.
+ * <p>
+ * Changes in folder interests are sent to the remote server in batches, so that when many sessions
+ * are opened or closed at once, e.g. after a mailbox server failover, they take a few requests
+ * rather than one each.  Signalled accounts are queued and delivered to the sessions on a shared
+ * pool, one batch per server at a time, so that a slow session doesn't hold up the polling of
+ * the WaitSet.  The queue is bounded: when it is full, the sessions of the account that doesn't
+ * fit are dropped, the account is removed from the WaitSet with the next poll, and the clients
+ * resync when they reconnect.
+ */
 public class ImapServerListener {
+    private static final ThreadPoolExecutor NOTIFY_POOL;
+    static {
+        int threads = Math.max(LC.imap_server_listener_notify_threads.intValue(), 1);
+        NOTIFY_POOL = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactoryBuilder().setNameFormat("ImapServerListener-%d").setDaemon(true).build());
+        NOTIFY_POOL.allowCoreThreadTimeOut(true);
+    }
+
     private final String server;
     private volatile String wsID = null;
     private final ConcurrentHashMap<String /* account ID */,
@@ -76,9 +107,38 @@ public class ImapServerListener {
     private final SoapProvisioning soapProv = new SoapProvisioning();
     private Future<HttpResponse> pendingRequest;
     private final Integer pendingRequestGuard = 1;
+    /* Accounts whose folder interests changed and have yet to be sent to the remote WaitSet. */
+    private final Set<String> pendingRegistrations =
+            Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    /* Accounts whose last batch failed to register, with the error for the threads waiting on them. */
+    private final ConcurrentHashMap<String, ServiceException> failedRegistrations = new ConcurrentHashMap<>();
+    /* Accounts the remote WaitSet knows about. */
+    private final Set<String> registeredAccounts =
+            Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private final BlockingQueue<QueuedNotification> notifications;
+    private final Executor notifier;
+    private final AtomicBoolean delivering = new AtomicBoolean(false);
+    private final AtomicLong delivered = new AtomicLong(0);
+    private final AtomicLong dropped = new AtomicLong(0);
+
+    private static final class QueuedNotification {
+        final AccountWithModifications accInfo;
+        final long queuedAt = System.currentTimeMillis();
+
+        QueuedNotification(AccountWithModifications accInfo) {
+            this.accInfo = accInfo;
+        }
+    }
 
     ImapServerListener(String svr) throws ServiceException {
+        this(svr, LC.imap_server_listener_queue_size.intValue(), NOTIFY_POOL);
+    }
+
+    @VisibleForTesting
+    ImapServerListener(String svr, int queueSize, Executor notifier) throws ServiceException {
         this.server = svr;
+        this.notifications = new LinkedBlockingQueue<QueuedNotification>(Math.max(queueSize, 1));
+        this.notifier = notifier;
         soapProv.soapSetURI(URLUtil.getAdminURL(Provisioning.getInstance().getServerByName(server)));
     }
 
@@ -94,6 +154,9 @@ public class ImapServerListener {
         try {
             deleteWaitSet();
             sessionMap.clear();
+            pendingRegistrations.clear();
+            failedRegistrations.clear();
+            notifications.clear();
             catchupToKnownLastChangeId.clear();
             lastSequence.set(0);
         } finally {
@@ -106,7 +169,6 @@ public class ImapServerListener {
     public void addListener(ImapRemoteSession listener) throws ServiceException {
         ItemIdentifier folderIdent = listener.getFolderItemIdentifier();
         String accountId = (folderIdent.accountId != null) ? folderIdent.accountId : listener.getTargetAccountId();
-        boolean alreadyListening = sessionMap.containsKey(accountId);
         sessionMap.putIfAbsent(accountId, new ConcurrentHashMap<Integer, Set<ImapRemoteSession>>());
         Integer folderId = folderIdent.id;
         ConcurrentHashMap<Integer, Set<ImapRemoteSession>> foldersToSessions = sessionMap.get(accountId);
@@ -120,7 +182,7 @@ public class ImapServerListener {
             ZMailbox zmbox = (ZMailbox) listener.getMailbox();
             zmbox.setCurWaitSetID(wsID);
         }
-        initWaitSet(accountId, alreadyListening);
+        register(accountId);
     }
 
     public void removeListener(ImapRemoteSession listener) throws ServiceException {
@@ -147,7 +209,7 @@ public class ImapServerListener {
                     }
                 }
                 if (wsID != null) {
-                    initWaitSet(accountId, true);
+                    register(accountId);
                 }
             }
         }
@@ -226,7 +288,17 @@ public class ImapServerListener {
             ZimbraLog.imap.debug("Another thread has already restored waitset.");
             return; //another thread has already restored waitset
         }
+        if(sessionMap.isEmpty()) {
+            return;
+        }
         cancelPendingRequest();
+        createWaitSet();
+        ZimbraLog.imap.debug("Created new waitset to replace lost or cancelled one. WaitSet ID: %s", wsID);
+        pendingRegistrations.addAll(sessionMap.keySet());
+        registerAccounts(null);
+    }
+
+    private void createWaitSet() throws ServiceException {
         AdminCreateWaitSetRequest req = new AdminCreateWaitSetRequest("all", false);
         checkAuth();
         AdminCreateWaitSetResponse resp;
@@ -235,32 +307,9 @@ public class ImapServerListener {
             throw ServiceException.FAILURE("Received null response from AdminCreateWaitSetRequest", null);
         }
         wsID = resp.getWaitSetId();
+        registeredAccounts.clear();
         setWaitSetIdOnMailboxes();
         lastSequence.set(resp.getSequence());
-        ZimbraLog.imap.debug("Created new waitset to replace lost or cancelled one. WaitSet ID: %s", wsID);
-        //send non-blocking synchronous WaitSetRequest. This way the caller has certainty that listeners were added on remote server
-        AdminWaitSetRequest waitSetReq = new AdminWaitSetRequest(wsID, lastSequence.toString());
-        waitSetReq.setBlock(false);
-        waitSetReq.setExpand(true);
-        Enumeration<String> accountIds = this.sessionMap.keys();
-        while(accountIds.hasMoreElements()) {
-            String accountId = accountIds.nextElement();
-            WaitSetAddSpec updateOrAdd = new WaitSetAddSpec();
-            updateOrAdd.setId(accountId);
-            Enumeration<Integer> folderIDs = this.sessionMap.get(accountId).keys();
-            while(folderIDs.hasMoreElements()) {
-                updateOrAdd.addFolderInterest(folderIDs.nextElement());
-                ZimbraLog.imap.debug("Adding account %s to waitset %s", accountId, wsID);
-                waitSetReq.addAddAccount(updateOrAdd);
-            }
-        }
-        ZimbraLog.imap.debug("Sending initial AdminWaitSetRequest. WaitSet ID: %s", wsID);
-        AdminWaitSetResponse wsResp = soapProv.invokeJaxbAsAdminWithRetry(waitSetReq, server);
-        try {
-            processAdminWaitSetResponse(wsResp);
-        } catch (Exception e) {
-            throw ServiceException.FAILURE("Failed to process initial AdminWaitSetResponse", e);
-        }
     }
 
     private void setWaitSetIdOnMailboxes() {
@@ -285,62 +334,142 @@ public class ImapServerListener {
         }
     }
 
-    private synchronized void initWaitSet(String accountId, boolean alreadyListening) throws ServiceException {
-        if(wsID == null && this.sessionMap.containsKey(accountId)) {
-            AdminCreateWaitSetRequest req = new AdminCreateWaitSetRequest("all", false);
-            checkAuth();
-            AdminCreateWaitSetResponse resp;
-            resp = soapProv.invokeJaxbAsAdminWithRetry(req, server);
-            if(resp == null) {
-                throw ServiceException.FAILURE("Received null response from AdminCreateWaitSetRequest", null);
+    private void register(String accountId) throws ServiceException {
+        // a failure of an earlier batch is for the threads that were waiting then
+        failedRegistrations.remove(accountId);
+        pendingRegistrations.add(accountId);
+        registerAccounts(accountId);
+    }
+
+    /**
+     * Sends the pending folder interest changes to the remote WaitSet, up to
+     * imap_server_listener_batch_size accounts per request, until the given account has been sent.
+     * Registrations queued by other threads while this one waited for the lock go out in the same
+     * requests.  With a null accountId, all pending registrations are sent.  If a request fails,
+     * its accounts are pending again, and the threads waiting on them get the error.
+     */
+    private synchronized void registerAccounts(String accountId) throws ServiceException {
+        int batchSize = Math.max(LC.imap_server_listener_batch_size.intValue(), 1);
+        while(accountId == null ? !pendingRegistrations.isEmpty() : pendingRegistrations.contains(accountId)) {
+            if(accountId != null) {
+                ServiceException failure = failedRegistrations.remove(accountId);
+                if(failure != null) {
+                    throw failure;
+                }
+            }
+            if(wsID == null) {
+                if(sessionMap.isEmpty()) {
+                    pendingRegistrations.clear();
+                    return;
+                }
+                createWaitSet();
+            }
+            ZimbraLog.imap.debug("Current waitset ID is %s", wsID);
+            //send non-blocking synchronous WaitSetRequest. This way the caller has certainty that listeners were added on remote server
+            AdminWaitSetRequest waitSetReq = new AdminWaitSetRequest(wsID, lastSequence.toString());
+            waitSetReq.setBlock(false);
+            waitSetReq.setExpand(true);
+            List<String> batch = new ArrayList<String>();
+            List<String> added = new ArrayList<String>();
+            List<String> removed = new ArrayList<String>();
+            if(!addRegistrations(waitSetReq, batchSize, batch, added, removed)) {
+                continue;
             }
-            wsID = resp.getWaitSetId();
-            setWaitSetIdOnMailboxes();
-            lastSequence.set(resp.getSequence());
-        } else {
             cancelPendingRequest();
+            try {
+                ZimbraLog.imap.debug("Sending initial AdminWaitSetRequest. WaitSet ID: %s", wsID);
+                AdminWaitSetResponse wsResp = soapProv.invokeJaxbAsAdminWithRetry(waitSetReq, server);
+                processAdminWaitSetResponse(wsResp);
+            } catch (SoapFaultException e) {
+                if(AdminServiceException.NO_SUCH_WAITSET.equalsIgnoreCase(e.getCode())) {
+                    //waitset is gone. Create a new one
+                    ZimbraLog.imap.warn("AdminWaitSet %s does not exist anymore", wsID);
+                    wsID = null;
+                    unsetWaitSetIdOnMailboxes();
+                    lastSequence.set(0);
+                    restoreWaitSet();
+                    return;
+                } else {
+                    throw registrationFailed(accountId, batch, added, removed, e);
+                }
+            } catch (Exception e) {
+                throw registrationFailed(accountId, batch, added, removed, e);
+            }
         }
-        ZimbraLog.imap.debug("Current waitset ID is %s", wsID);
-        //send non-blocking synchronous WaitSetRequest. This way the caller has certainty that listener was added on remote server
-        AdminWaitSetRequest waitSetReq = new AdminWaitSetRequest(wsID, lastSequence.toString());
-        waitSetReq.setBlock(false);
-        waitSetReq.setExpand(true);
-        if(!this.sessionMap.containsKey(accountId) || this.sessionMap.get(accountId).isEmpty()) {
-            ZimbraLog.imap.debug("Removing accout %s from waitset %s", accountId, wsID);
-            waitSetReq.addRemoveAccount(new Id(accountId));
-        } else {
+    }
+
+    /** Puts a batch that failed to register back in the pending registrations. */
+    private ServiceException registrationFailed(String accountId, List<String> batch, List<String> added,
+            List<String> removed, Exception e) {
+        ServiceException failure = ServiceException.FAILURE("Failed to process initial AdminWaitSetResponse", e);
+        registeredAccounts.removeAll(added);
+        registeredAccounts.addAll(removed);
+        for(String batchAccountId : batch) {
+            if(!batchAccountId.equals(accountId)) {
+                failedRegistrations.put(batchAccountId, failure);
+            }
+        }
+        pendingRegistrations.addAll(batch);
+        return failure;
+    }
+
+    /**
+     * Moves up to batchSize accounts from the pending registrations into the request.
+     * @return false if none of them changed the remote WaitSet
+     */
+    private boolean addRegistrations(AdminWaitSetRequest waitSetReq, int batchSize, List<String> batch,
+            List<String> added, List<String> removed) {
+        boolean changed = false;
+        Iterator<String> iter = pendingRegistrations.iterator();
+        for(int count = 0; count < batchSize && iter.hasNext(); count++) {
+            String accountId = iter.next();
+            iter.remove();
+            batch.add(accountId);
+            ConcurrentHashMap<Integer, Set<ImapRemoteSession>> foldersToSessions = sessionMap.get(accountId);
+            if(foldersToSessions == null || foldersToSessions.isEmpty()) {
+                if(addRemoval(waitSetReq, accountId)) {
+                    removed.add(accountId);
+                    changed = true;
+                }
+                continue;
+            }
             WaitSetAddSpec updateOrAdd = new WaitSetAddSpec();
             updateOrAdd.setId(accountId);
-            Enumeration<Integer> folderIDs = this.sessionMap.get(accountId).keys();
-            while(folderIDs.hasMoreElements()) {
-                updateOrAdd.addFolderInterest(folderIDs.nextElement());
+            for(Integer folderId : foldersToSessions.keySet()) {
+                updateOrAdd.addFolderInterest(folderId);
             }
-            if(alreadyListening) {
-                ZimbraLog.imap.debug("Updating folder interests for account %s in waitset %s", accountId, wsID);
-                waitSetReq.addUpdateAccount(updateOrAdd);
-            } else {
+            if(registeredAccounts.add(accountId)) {
                 ZimbraLog.imap.debug("Adding account %s to waitset %s", accountId, wsID);
                 waitSetReq.addAddAccount(updateOrAdd);
+                added.add(accountId);
+            } else {
+                ZimbraLog.imap.debug("Updating folder interests for account %s in waitset %s", accountId, wsID);
+                waitSetReq.addUpdateAccount(updateOrAdd);
             }
+            changed = true;
         }
+        return changed;
+    }
 
-        try {
-            ZimbraLog.imap.debug("Sending initial AdminWaitSetRequest. WaitSet ID: %s", wsID);
-            AdminWaitSetResponse wsResp = soapProv.invokeJaxbAsAdminWithRetry(waitSetReq, server);
-            processAdminWaitSetResponse(wsResp);
-        } catch (SoapFaultException e) {
-            if(AdminServiceException.NO_SUCH_WAITSET.equalsIgnoreCase(e.getCode())) {
-                //waitset is gone. Create a new one
-                ZimbraLog.imap.warn("AdminWaitSet %s does not exist anymore", wsID);
-                wsID = null;
-                unsetWaitSetIdOnMailboxes();
-                lastSequence.set(0);
-                restoreWaitSet();
-            } else {
-                throw ServiceException.FAILURE("Failed to process initial AdminWaitSetResponse", e);
+    private boolean addRemoval(AdminWaitSetRequest waitSetReq, String accountId) {
+        if(!registeredAccounts.remove(accountId)) {
+            return false;
+        }
+        ZimbraLog.imap.debug("Removing accout %s from waitset %s", accountId, wsID);
+        waitSetReq.addRemoveAccount(new Id(accountId));
+        return true;
+    }
+
+    /** Moves the pending accounts that no longer have sessions into a polling request. */
+    private void addPendingRemovals(AdminWaitSetRequest waitSetReq) {
+        Iterator<String> iter = pendingRegistrations.iterator();
+        while(iter.hasNext()) {
+            String accountId = iter.next();
+            ConcurrentHashMap<Integer, Set<ImapRemoteSession>> foldersToSessions = sessionMap.get(accountId);
+            if(foldersToSessions == null || foldersToSessions.isEmpty()) {
+                iter.remove();
+                addRemoval(waitSetReq, accountId);
             }
-        } catch (Exception e) {
-            throw ServiceException.FAILURE("Failed to process initial AdminWaitSetResponse", e);
         }
     }
 
@@ -364,6 +493,7 @@ public class ImapServerListener {
                 }
             } finally {
                 wsID = null;
+                registeredAccounts.clear();
                 unsetWaitSetIdOnMailboxes();
                 lastSequence.set(0);
             }
@@ -378,6 +508,8 @@ public class ImapServerListener {
             AdminWaitSetRequest waitSetReq = new AdminWaitSetRequest(wsID, lastSequence.toString());
             waitSetReq.setBlock(true);
             waitSetReq.setExpand(true);
+            // e.g. accounts whose sessions were dropped
+            addPendingRemovals(waitSetReq);
             try {
                 checkAuth();
                 ZimbraLog.imap.debug("Sending followup asynchronous AdminWaitSetRequest. WaitSet ID: %s", wsID);
@@ -392,6 +524,11 @@ public class ImapServerListener {
         }
     }
 
+    @VisibleForTesting
+    boolean isRegistrationPending(String accountId) {
+        return pendingRegistrations.contains(accountId);
+    }
+
     @VisibleForTesting
     public String getWSId() {
         return wsID;
@@ -442,6 +579,93 @@ public class ImapServerListener {
         }
     }
 
+    private void clearSessions(String accountId) {
+        ConcurrentHashMap<Integer, Set<ImapRemoteSession>> foldersToSessions = sessionMap.remove(accountId);
+        if(foldersToSessions != null && !foldersToSessions.isEmpty()) {
+            foldersToSessions.forEach((folderId, listeners) -> {
+                if(listeners != null) {
+                    for(ImapRemoteSession l : listeners) {
+                        SessionCache.clearSession(l);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Queues the signalled accounts for delivery to their sessions on the notification pool.  If
+     * the queue is full, the account's sessions are dropped rather than blocking the WaitSet.
+     */
+    @VisibleForTesting
+    void queueNotifications(List<AccountWithModifications> signalledAccounts) {
+        for(AccountWithModifications accInfo : signalledAccounts) {
+            if(!notifications.offer(new QueuedNotification(accInfo))) {
+                dropped.incrementAndGet();
+                ZimbraLog.imap.warn("ImapServerListener queue for server %s is full; dropping sessions for account %s",
+                        server, accInfo.getId());
+                clearSessions(accInfo.getId());
+                removeNotifyWhenCaughtUp(accInfo.getId(), accInfo.getLastChangeId());
+                // no session is left to take an interest in it
+                pendingRegistrations.add(accInfo.getId());
+            }
+        }
+        scheduleDelivery();
+    }
+
+    private void scheduleDelivery() {
+        if(!notifications.isEmpty() && delivering.compareAndSet(false, true)) {
+            try {
+                notifier.execute(deliveryTask);
+            } catch (RuntimeException e) {
+                delivering.set(false);
+                ZimbraLog.imap.warn("Unable to schedule IMAP notification delivery for server %s", server, e);
+            }
+        }
+    }
+
+    private final Runnable deliveryTask = new Runnable() {
+        @Override
+        public void run() {
+            try {
+                QueuedNotification notification;
+                while((notification = notifications.poll()) != null) {
+                    AccountWithModifications accInfo = notification.accInfo;
+                    try {
+                        notifyAccountChange(accInfo);
+                    } catch (RuntimeException e) {
+                        ZimbraLog.imap.warn("Failed to notify IMAP sessions of changes to account %s", accInfo.getId(), e);
+                    }
+                    removeNotifyWhenCaughtUp(accInfo.getId(), accInfo.getLastChangeId());
+                    delivered.incrementAndGet();
+                    ZimbraPerf.IMAP_LISTENER_TRACKER.addStat(server, notification.queuedAt);
+                }
+            } finally {
+                delivering.set(false);
+                scheduleDelivery();
+            }
+        }
+    };
+
+    /** @return number of signalled accounts waiting to be delivered to their sessions */
+    public int getQueuedCount() {
+        return notifications.size();
+    }
+
+    /** @return how long the oldest queued notification has been waiting, in milliseconds */
+    public long getLagMillis() {
+        QueuedNotification head = notifications.peek();
+        return head == null ? 0 : Math.max(System.currentTimeMillis() - head.queuedAt, 0);
+    }
+
+    public long getDeliveredCount() {
+        return delivered.get();
+    }
+
+    /** @return number of notifications dropped since the last call */
+    public long takeDroppedCount() {
+        return dropped.getAndSet(0);
+    }
+
     private synchronized void processAdminWaitSetResponse(AdminWaitSetResponse wsResp) throws Exception {
         String respWSId = wsResp.getWaitSetId();
         if(wsID == null || !wsID.equalsIgnoreCase(respWSId)) {
@@ -466,12 +690,7 @@ public class ImapServerListener {
         lastSequence.set(modSeq);
         List<AccountWithModifications> signalledAccounts = wsResp.getSignalledAccounts();
         if(signalledAccounts != null && signalledAccounts.size() > 0) {
-            Iterator<AccountWithModifications> iter = signalledAccounts.iterator();
-            while(iter.hasNext()) {
-                AccountWithModifications accInfo = iter.next();
-                notifyAccountChange(accInfo);
-                removeNotifyWhenCaughtUp(accInfo.getId(), accInfo.getLastChangeId());
-            }
+            queueNotifications(signalledAccounts);
         }
         cleanupCatchupToKnownLastChangeId();
 
@@ -490,18 +709,10 @@ public class ImapServerListener {
                             err == WaitSetError.Type.MAILBOX_DELETED ||
                             err == WaitSetError.Type.MAINTENANCE_MODE ||
                             err == WaitSetError.Type.WRONG_HOST_FOR_ACCOUNT ||
-                            err == WaitSetError.Type.ERROR_LOADING_MAILBOX) {
-                        ConcurrentHashMap<Integer, Set<ImapRemoteSession>> foldersToSessions = sessionMap.get(accId);
-                        sessionMap.remove(accId);
-                        if(foldersToSessions != null && !foldersToSessions.isEmpty()) {
-                            foldersToSessions.forEach((folderId, listeners) -> {
-                                if(listeners != null) {
-                                    for(ImapRemoteSession l : listeners) {
-                                        SessionCache.clearSession(l);
-                                    }
-                                }
-                            });
-                        }
+                            err == WaitSetError.Type.ERROR_LOADING_MAILBOX ||
+                            err == WaitSetError.Type.RESYNC_REQUIRED) {
+                        registeredAccounts.remove(accId);
+                        clearSessions(accId);
                     }
                 }
             }
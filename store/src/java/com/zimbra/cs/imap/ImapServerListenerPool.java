@@ -16,6 +16,8 @@
  */
 package com.zimbra.cs.imap;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
 
 import com.google.common.cache.CacheBuilder;
@@ -24,9 +26,11 @@ import com.google.common.cache.LoadingCache;
 import com.zimbra.client.ZMailbox;
 import com.zimbra.common.account.Key.AccountBy;
 import com.zimbra.common.service.ServiceException;
+import com.zimbra.common.stats.RealtimeStatsCallback;
 import com.zimbra.common.util.ZimbraLog;
 import com.zimbra.cs.account.Account;
 import com.zimbra.cs.account.Provisioning;
+import com.zimbra.cs.stats.ZimbraPerf;
 
 public class ImapServerListenerPool {
     private static final ImapServerListenerPool SINGLETON = new ImapServerListenerPool();
@@ -49,6 +53,38 @@ public class ImapServerListenerPool {
     });
 
     private ImapServerListenerPool() {
+        ZimbraPerf.addStatsCallback(new StatsCallback());
+    }
+
+    /**
+     * Reports the notification queues of all listeners, and logs the state of each one that is
+     * falling behind.  The delay of each server's notifications is in imap_listener.csv.
+     */
+    private final class StatsCallback implements RealtimeStatsCallback {
+        @Override
+        public Map<String, Object> getStatData() {
+            long queued = 0;
+            long dropped = 0;
+            for (Map.Entry<String, ImapServerListener> entry : serverToListenerMap.asMap().entrySet()) {
+                ImapServerListener listener = entry.getValue();
+                int listenerQueued = listener.getQueuedCount();
+                long lag = listener.getLagMillis();
+                long listenerDropped = listener.takeDroppedCount();
+                if (lag > 0 || listenerDropped > 0) {
+                    ZimbraLog.imap.info("ImapServerListener %s: queued=%d lag=%dms delivered=%d dropped=%d",
+                            entry.getKey(), listenerQueued, lag, listener.getDeliveredCount(), listenerDropped);
+                } else {
+                    ZimbraLog.imap.debug("ImapServerListener %s: queued=%d lag=%dms delivered=%d dropped=%d",
+                            entry.getKey(), listenerQueued, lag, listener.getDeliveredCount(), listenerDropped);
+                }
+                queued += listenerQueued;
+                dropped += listenerDropped;
+            }
+            Map<String, Object> data = new HashMap<String, Object>();
+            data.put(ZimbraPerf.RTS_IMAP_LISTENER_QUEUED, queued);
+            data.put(ZimbraPerf.RTS_IMAP_LISTENER_DROPPED, dropped);
+            return data;
+        }
     }
 
     public static ImapServerListenerPool getInstance() {
@@ -0,0 +1,113 @@
+/*
+ * ***** BEGIN LICENSE BLOCK *****
+ * Zimbra Collaboration Suite Server
+ * Copyright (C) 2026 Synacor, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software Foundation,
+ * version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ * ***** END LICENSE BLOCK *****
+ */
+package com.zimbra.cs.imap;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Objects;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.zimbra.common.localconfig.LC;
+
+/**
+ * Cache of the threading headers of messages, for THREAD=REFERENCES.
+ * <p>
+ * Entries are keyed by folder, UIDVALIDITY and IMAP UID, and the cache is bounded by the number of
+ * messages across all folders.  A message's headers can only change along with its UID (saving a draft
+ * assigns a new one), so entries never need to be invalidated; a renumbered folder gets a new
+ * UIDVALIDITY and so new keys.  Only messages that share a conversation with another message in the
+ * search results are ever looked up, since singletons need no nesting.
+ */
+final class ImapThreadCache {
+
+    /** References kept per message; deeper ancestors are reached through the parent's own references. */
+    static final int MAX_REFERENCES = 20;
+
+    private static final ImapThreadCache INSTANCE = new ImapThreadCache(LC.imap_thread_cache_max_messages.intValue());
+
+    /** The threading headers of a message. */
+    static final class Refs {
+        /** the Message-ID, or null */
+        final String messageId;
+        /** References, or In-Reply-To if there are none, oldest first */
+        final String[] references;
+
+        Refs(String messageId, List<String> references) {
+            this.messageId = messageId;
+            int start = Math.max(0, references.size() - MAX_REFERENCES);
+            this.references = references.subList(start, references.size()).toArray(new String[0]);
+        }
+    }
+
+    private static final class Key {
+        final String folder;
+        final int uid;
+
+        Key(String folder, int uid) {
+            this.folder = folder;
+            this.uid = uid;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return uid == other.uid && folder.equals(other.folder);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(folder, uid);
+        }
+    }
+
+    private final Cache<Key, Refs> cache;
+
+    @VisibleForTesting
+    ImapThreadCache(int maxMessages) {
+        if (maxMessages > 0) {
+            cache = CacheBuilder.newBuilder().maximumSize(maxMessages).expireAfterAccess(1, TimeUnit.HOURS).build();
+        } else {
+            cache = null;
+        }
+    }
+
+    static ImapThreadCache getInstance() {
+        return INSTANCE;
+    }
+
+    private static Key getKey(ImapFolder i4folder, int uid) {
+        return new Key(i4folder.getItemIdentifier().toString() + ':' + i4folder.getUIDValidity(), uid);
+    }
+
+    /**
+     * Returns the threading headers of the message with the given IMAP UID, or null if they aren't cached.
+     */
+    Refs get(ImapFolder i4folder, int uid) {
+        return cache == null ? null : cache.getIfPresent(getKey(i4folder, uid));
+    }
+
+    void put(ImapFolder i4folder, int uid, Refs refs) {
+        if (cache != null) {
+            cache.put(getKey(i4folder, uid), refs);
+        }
+    }
+}
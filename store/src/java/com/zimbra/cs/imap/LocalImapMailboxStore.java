@@ -145,6 +145,17 @@ public class LocalImapMailboxStore extends ImapMailboxStore {
         return uids;
     }
 
+    @Override
+    public List<Integer> imapMove(OperationContext octxt, int[] itemIds, MailItemType type, int folderId)
+            throws IOException, ServiceException {
+        List<MailItem> mis = mailbox.imapMove(octxt, itemIds, MailItem.Type.fromCommon(type), folderId);
+        List<Integer> uids = Lists.newArrayListWithCapacity(mis.size());
+        for (MailItem mi : mis) {
+            uids.add(mi.getImapUid());
+        }
+        return uids;
+    }
+
     @Override
     public InputStreamWithSize getByImapId(OperationContext octxt, int imapId, String folderId, String resolvedPath)
     throws ServiceException {
@@ -249,6 +249,12 @@ final class NioImapHandler extends ImapHandler implements NioHandler {
         return true;
     }
 
+    @Override
+    protected void startCompression(String tag) throws IOException {
+        connection.startCompression(COMPRESSION_LEVEL, compression);
+        sendOK(tag, "DEFLATE active");
+    }
+
     @Override
     protected InetSocketAddress getLocalAddress() {
         return connection.getLocalAddress();
@@ -0,0 +1,127 @@
+/*
+ * ***** BEGIN LICENSE BLOCK *****
+ * Zimbra Collaboration Suite Server
+ * Copyright (C) 2026 Synacor, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software Foundation,
+ * version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ * ***** END LICENSE BLOCK *****
+ */
+package com.zimbra.cs.imap;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Nests the messages of one conversation for THREAD=REFERENCES (RFC 5256 3).
+ * <p>
+ * The conversation itself already groups messages by their References, In-Reply-To and subject (see
+ * {@link com.zimbra.cs.mailbox.Threader}), so only the parent/child links within it are left to work
+ * out.  A message's parent is the nearest message it references that is part of the results; messages
+ * without one are siblings under a missing parent.  Messages must be added in sent date order, which
+ * is also the order of siblings in the output.
+ */
+final class ReferencesThreader {
+
+    private static final class Node {
+        final int id;
+        final List<Node> children = new ArrayList<Node>(1);
+        Node parent;
+
+        Node(int id) {
+            this.id = id;
+        }
+
+        boolean hasAncestor(Node node) {
+            for (Node n = this; n != null; n = n.parent) {
+                if (n == node) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private final List<Node> roots = new ArrayList<Node>(1);
+    private final List<Node> nodes = new ArrayList<Node>();
+    private final List<ImapThreadCache.Refs> refs = new ArrayList<ImapThreadCache.Refs>();
+
+    /**
+     * @param id the sequence number or UID to output for the message
+     * @param msgRefs the message's threading headers, or null if unknown
+     */
+    void add(int id, ImapThreadCache.Refs msgRefs) {
+        nodes.add(new Node(id));
+        refs.add(msgRefs);
+    }
+
+    /**
+     * Appends the thread to the THREAD response, e.g. {@code (3 6 (4 23)(44 7 96))}.
+     */
+    void append(StringBuilder result) {
+        link();
+        result.append('(');
+        if (roots.size() == 1) {
+            append(result, roots.get(0));
+        } else {
+            // RFC 5256 3: "a thread with a dummy parent and children 3 and 5 ... ((3)(5))"
+            for (Node root : roots) {
+                result.append('(');
+                append(result, root);
+                result.append(')');
+            }
+        }
+        result.append(')');
+    }
+
+    private void link() {
+        Map<String, Node> byMessageId = new HashMap<String, Node>();
+        for (int i = 0; i < nodes.size(); i++) {
+            ImapThreadCache.Refs msgRefs = refs.get(i);
+            if (msgRefs != null && msgRefs.messageId != null && !byMessageId.containsKey(msgRefs.messageId)) {
+                byMessageId.put(msgRefs.messageId, nodes.get(i));
+            }
+        }
+        for (int i = 0; i < nodes.size(); i++) {
+            Node node = nodes.get(i);
+            ImapThreadCache.Refs msgRefs = refs.get(i);
+            if (msgRefs != null) {
+                for (int r = msgRefs.references.length - 1; r >= 0 && node.parent == null; r--) {
+                    Node parent = byMessageId.get(msgRefs.references[r]);
+                    // a reference loop or a duplicate Message-ID would otherwise make a cycle
+                    if (parent != null && !parent.hasAncestor(node)) {
+                        node.parent = parent;
+                        parent.children.add(node);
+                    }
+                }
+            }
+            if (node.parent == null) {
+                roots.add(node);
+            }
+        }
+    }
+
+    private static void append(StringBuilder result, Node node) {
+        result.append(node.id);
+        if (node.children.size() == 1) {
+            result.append(' ');
+            append(result, node.children.get(0));
+        } else if (!node.children.isEmpty()) {
+            result.append(' ');
+            for (Node child : node.children) {
+                result.append('(');
+                append(result, child);
+                result.append(')');
+            }
+        }
+    }
+}
@@ -24,10 +24,12 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Set;
 
+import com.google.common.base.Joiner;
 import com.google.common.base.MoreObjects;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import com.google.common.primitives.Ints;
 import com.zimbra.client.ZFolder;
 import com.zimbra.client.ZMailbox;
 import com.zimbra.client.ZTag;
@@ -133,6 +135,18 @@ public class RemoteImapMailboxStore extends ImapMailboxStore {
         return zMailbox.imapCopy(itemIds, type, folderId);
     }
 
+    /**
+     * There is no SOAP equivalent of {@link com.zimbra.cs.mailbox.Mailbox#imapMove}, so this copies the items
+     * and then deletes the originals.
+     */
+    @Override
+    public List<Integer> imapMove(OperationContext octxt, int[] itemIds, MailItemType type, int folderId)
+            throws IOException, ServiceException {
+        List<Integer> uids = zMailbox.imapCopy(itemIds, type, folderId);
+        zMailbox.deleteMessage(Joiner.on(',').join(Ints.asList(itemIds)));
+        return uids;
+    }
+
     @Override
     public InputStreamWithSize getByImapId(OperationContext octxt, int imapId, String folderId, String resolvedPath)
     throws ServiceException {
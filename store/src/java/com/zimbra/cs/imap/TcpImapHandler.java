@@ -31,6 +31,7 @@ import com.zimbra.common.localconfig.LC;
 import com.zimbra.common.util.Constants;
 import com.zimbra.common.util.NetUtil;
 import com.zimbra.common.util.ZimbraLog;
+import com.zimbra.cs.server.DeflateStreams;
 import com.zimbra.cs.server.ProtocolHandler;
 import com.zimbra.cs.stats.ZimbraPerf;
 import com.zimbra.cs.util.IOUtil;
@@ -351,6 +352,14 @@ final class TcpImapHandler extends ProtocolHandler {
             return true;
         }
 
+        @Override
+        protected void startCompression(String tag) throws IOException {
+            sendOK(tag, "DEFLATE active");
+            // the client sends nothing more until it has the OK, so nothing is left buffered in the old input stream
+            input = new TcpServerInputStream(DeflateStreams.inflating(input, compression));
+            output = new BufferedOutputStream(DeflateStreams.deflating(output, COMPRESSION_LEVEL, compression));
+        }
+
         @Override
         protected InetSocketAddress getLocalAddress() {
             return (InetSocketAddress) socket.getLocalSocketAddress();
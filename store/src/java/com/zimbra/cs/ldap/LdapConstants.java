@@ -30,6 +30,7 @@ public class LdapConstants {
     public static final String ATTR_cn = "cn";
     public static final String ATTR_objectClass = "objectClass";
     public static final String ATTR_createTimestamp = "createTimestamp";
+    public static final String ATTR_modifyTimestamp = "modifyTimestamp";
     public static final String ATTR_hasSubordinates = "hasSubordinates";
     
     // AD attrs
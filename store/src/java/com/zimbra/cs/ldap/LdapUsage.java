@@ -30,6 +30,7 @@ public enum LdapUsage {
     ADD_GROUP_MEMBER,
     AUTO_PROVISION,
     AUTO_PROVISION_ADMIN_SEARCH,
+    CHANGE_FEED,
     COMPARE,
     CREATE_OU,
     CREATE_ACCOUNT,
@@ -0,0 +1,204 @@
+/*
+ * ***** BEGIN LICENSE BLOCK *****
+ * Zimbra Collaboration Suite Server
+ * Copyright (C) 2026 Synacor, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software Foundation,
+ * version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ * ***** END LICENSE BLOCK *****
+ */
+package com.zimbra.cs.ldap.unboundid;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.TimerTask;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.unboundid.ldap.sdk.AsyncRequestID;
+import com.unboundid.ldap.sdk.AsyncSearchResultListener;
+import com.unboundid.ldap.sdk.Filter;
+import com.unboundid.ldap.sdk.LDAPException;
+import com.unboundid.ldap.sdk.SearchRequest;
+import com.unboundid.ldap.sdk.SearchResult;
+import com.unboundid.ldap.sdk.SearchResultEntry;
+import com.unboundid.ldap.sdk.SearchResultReference;
+import com.unboundid.ldap.sdk.SearchScope;
+import com.unboundid.ldap.sdk.controls.ContentSyncRequestControl;
+import com.unboundid.ldap.sdk.controls.ContentSyncRequestMode;
+import com.zimbra.common.service.ServiceException;
+import com.zimbra.common.util.Constants;
+import com.zimbra.common.util.ZimbraLog;
+import com.zimbra.cs.account.Provisioning;
+import com.zimbra.cs.ldap.LdapConstants;
+import com.zimbra.cs.ldap.LdapDateUtil;
+import com.zimbra.cs.ldap.LdapServerType;
+import com.zimbra.cs.ldap.LdapUsage;
+import com.zimbra.cs.util.Zimbra;
+
+/**
+ * Pushes changes made on the LDAP master to a listener, so that cached entries can be invalidated as soon as they
+ * are modified rather than when their cache TTL expires.
+ * <p>
+ * Runs a content synchronization (RFC 4533, syncrepl) search in refreshAndPersist mode on a master connection, for
+ * the entries of the given object classes modified since the feed was started.  The connection is held for as long
+ * as the feed runs.  When it is lost, the search is started again after {@code retryInterval}, from a little before
+ * the time the feed went down, so that changes made meanwhile are still pushed.
+ * <p>
+ * Entries deleted from LDAP are only pushed if they were modified after the feed started; deletes carry no
+ * attributes, so they are pushed with a null zimbraId.
+ */
+public class UBIDChangeFeed implements AsyncSearchResultListener {
+
+    private static final long serialVersionUID = 1L;
+
+    /** covers the clock skew between the master and this server */
+    private static final long RESUME_SLACK = Constants.MILLIS_PER_MINUTE;
+
+    private static final String[] ATTRS = { Provisioning.A_zimbraId, LdapConstants.ATTR_objectClass };
+
+    public interface Listener {
+        /**
+         * Called for each entry added, modified or deleted on the master, on the feed's dispatch thread.
+         *
+         * @param zimbraId id of the entry, or null if the entry was deleted
+         */
+        void entryChanged(String dn, String zimbraId, String[] objectClasses) throws ServiceException;
+    }
+
+    private final String baseDN;
+    private final Filter classFilter;
+    private final Listener listener;
+    private final long retryInterval;
+    private final ThreadPoolExecutor dispatcher;
+
+    private UBIDLdapContext zlc;
+    private boolean stopped = true;
+    private long resumeFrom;
+
+    public UBIDChangeFeed(String baseDN, String[] objectClasses, long retryInterval, Listener listener) {
+        this.baseDN = baseDN;
+        this.listener = listener;
+        this.retryInterval = retryInterval;
+        List<Filter> classes = new ArrayList<Filter>(objectClasses.length);
+        for (String oc : objectClasses) {
+            classes.add(Filter.createEqualityFilter(LdapConstants.ATTR_objectClass, oc));
+        }
+        classFilter = Filter.createORFilter(classes);
+        // Keeps the listener from blocking the connection's reader thread, unless it falls far behind.
+        dispatcher = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(1000),
+                new ThreadFactoryBuilder().setNameFormat("LdapChangeFeed-%d").setDaemon(true).build(),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        dispatcher.allowCoreThreadTimeOut(true);
+    }
+
+    public synchronized void start() {
+        if (!stopped) {
+            return;
+        }
+        stopped = false;
+        resumeFrom = System.currentTimeMillis();
+        connect();
+    }
+
+    public synchronized void stop() {
+        stopped = true;
+        close();
+        dispatcher.shutdown();
+    }
+
+    private synchronized void connect() {
+        if (stopped) {
+            return;
+        }
+        String since = LdapDateUtil.toGeneralizedTimeLegacyFormat(new Date(resumeFrom - RESUME_SLACK));
+        Filter filter = Filter.createANDFilter(
+                Filter.createGreaterOrEqualFilter(LdapConstants.ATTR_modifyTimestamp, since), classFilter);
+        try {
+            zlc = new UBIDLdapContext(LdapServerType.MASTER, LdapUsage.CHANGE_FEED);
+            SearchRequest request = new SearchRequest(this, baseDN, SearchScope.SUB, filter, ATTRS);
+            request.addControl(new ContentSyncRequestControl(ContentSyncRequestMode.REFRESH_AND_PERSIST));
+            request.setResponseTimeoutMillis(0L);
+            zlc.getConn().asyncSearch(request);
+            ZimbraLog.ldap.info("LDAP change feed started, filter=%s", filter);
+        } catch (ServiceException e) {
+            ZimbraLog.ldap.warn("unable to start LDAP change feed", e);
+            close();
+            scheduleRetry();
+        } catch (LDAPException e) {
+            ZimbraLog.ldap.warn("unable to start LDAP change feed", e);
+            close();
+            scheduleRetry();
+        }
+    }
+
+    private void close() {
+        if (zlc != null) {
+            zlc.closeContext(true);
+            zlc = null;
+        }
+    }
+
+    private void scheduleRetry() {
+        try {
+            Zimbra.sTimer.schedule(new TimerTask() {
+                @Override
+                public void run() {
+                    connect();
+                }
+            }, retryInterval);
+        } catch (IllegalStateException e) {
+            // timer cancelled on shutdown
+        }
+    }
+
+    @Override
+    public void searchEntryReturned(final SearchResultEntry entry) {
+        try {
+            dispatcher.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        listener.entryChanged(entry.getDN(), entry.getAttributeValue(Provisioning.A_zimbraId),
+                                entry.getAttributeValues(LdapConstants.ATTR_objectClass));
+                    } catch (ServiceException e) {
+                        ZimbraLog.ldap.warn("unable to handle LDAP change of %s", entry.getDN(), e);
+                    } catch (RuntimeException e) {
+                        ZimbraLog.ldap.warn("unable to handle LDAP change of %s", entry.getDN(), e);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // stopped
+        }
+    }
+
+    @Override
+    public void searchReferenceReturned(SearchResultReference reference) {
+    }
+
+    @Override
+    public void searchResultReceived(AsyncRequestID requestID, SearchResult result) {
+        synchronized (this) {
+            if (stopped) {
+                return;
+            }
+            ZimbraLog.ldap.warn("LDAP change feed ended (%s), restarting in %dms", result.getResultCode(),
+                    retryInterval);
+            resumeFrom = System.currentTimeMillis();
+            close();
+        }
+        scheduleRetry();
+    }
+}
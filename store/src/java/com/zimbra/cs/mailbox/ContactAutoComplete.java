@@ -19,9 +19,12 @@ package com.zimbra.cs.mailbox;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -413,24 +416,32 @@ public class ContactAutoComplete {
         ZimbraLog.gal.debug("AutoComplete querying: %s", str);
         str = str.toLowerCase();
         AutoCompleteResult result = new AutoCompleteResult(limit);
-        result.rankings = new ContactRankings(getRequestedAcctId());
+        boolean useIndex = ContactAutoCompleteIndex.isEnabled() && !returnFullContactData;
+        result.rankings = useIndex ? ContactAutoCompleteIndex.getInstance().getRankings(getRequestedAcctId()) :
+            new ContactRankings(getRequestedAcctId());
         if (limit <= 0) {
             return result;
         }
         Pair<List<Folder>, Map<ItemId, Mountpoint>> pFolders = getLocalRemoteContactFolders(folders);
         List<Folder> listFolders = pFolders.getFirst();
         Map<ItemId, Mountpoint> mountpoints = pFolders.getSecond();
-        final String searchContactFolderQuery = generateFolderQuery(listFolders);
 
         long t0 = System.currentTimeMillis();
-        //Search in ranking table first.
-        addExistingContactsFromRankingTable(str, searchContactFolderQuery, mountpoints, limit, result);
-        long t1 = System.currentTimeMillis();
+        long t1;
+        if (useIndex && !hasMountpoint(listFolders)) {
+            queryIndex(str, listFolders, result);
+            t1 = System.currentTimeMillis();
+        } else {
+            final String searchContactFolderQuery = generateFolderQuery(listFolders);
+            //Search in ranking table first.
+            addExistingContactsFromRankingTable(str, searchContactFolderQuery, mountpoints, limit, result);
+            t1 = System.currentTimeMillis();
 
-        // search other folders
-        if (result.entries.size() < limit) {
-            String query = searchContactFolderQuery + generateQuery(str);
-            queryFolders(str, query, mountpoints, limit, result);
+            // search other folders
+            if (result.entries.size() < limit) {
+                String query = searchContactFolderQuery + generateQuery(str);
+                queryFolders(str, query, mountpoints, limit, result);
+            }
         }
         long t2 = System.currentTimeMillis();
 
@@ -476,6 +487,7 @@ public class ContactAutoComplete {
         params.setType(mSearchType);
         params.setLimit(200);
         params.setNeedCanExpand(mNeedCanExpand);
+        params.setUseAutoCompleteIndex(true);
         params.setResultCallback(new AutoCompleteCallback(str, result, params));
         try {
             try {
@@ -788,6 +800,50 @@ public class ContactAutoComplete {
         return pair;
     }
 
+    private static boolean hasMountpoint(List<Folder> folders) {
+        for (Folder folder : folders) {
+            if (folder instanceof Mountpoint) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Matches the local contact folders from the {@link ContactAutoCompleteIndex}.  Contacts with a ranked email
+     * address go first, as they do when the ranking table is searched first.
+     */
+    private void queryIndex(String str, List<Folder> folders, AutoCompleteResult result) throws ServiceException {
+        Mailbox mbox = MailboxManager.getInstance().getMailboxByAccountId(getRequestedAcctId());
+        Set<Integer> folderIds = new HashSet<Integer>();
+        for (Folder folder : folders) {
+            folderIds.add(folder.getId());
+        }
+        List<ContactAutoCompleteIndex.Entry> found =
+                ContactAutoCompleteIndex.getInstance().search(mbox, str, folderIds);
+        final Map<ContactAutoCompleteIndex.Entry, Integer> ranks = new HashMap<ContactAutoCompleteIndex.Entry, Integer>();
+        for (ContactAutoCompleteIndex.Entry entry : found) {
+            int rank = 0;
+            for (String email : entry.emails) {
+                rank = Math.max(rank, result.rankings.query(email));
+            }
+            ranks.put(entry, rank);
+        }
+        Collections.sort(found, new Comparator<ContactAutoCompleteIndex.Entry>() {
+            @Override
+            public int compare(ContactAutoCompleteIndex.Entry e1, ContactAutoCompleteIndex.Entry e2) {
+                return ranks.get(e2) - ranks.get(e1);
+            }
+        });
+        ZimbraLog.gal.debug("%d contacts from autocomplete index", found.size());
+        for (ContactAutoCompleteIndex.Entry entry : found) {
+            addMatchedContacts(str, entry.fields, entry.folderId, new ItemId(mbox, entry.id), result);
+            if (!result.canBeCached) {
+                return;
+            }
+        }
+    }
+
     private void queryFolders(String str, String generatedQuery, Map<ItemId, Mountpoint> mountpoints ,int limit, AutoCompleteResult result) throws ServiceException {
         Mailbox mbox = MailboxManager.getInstance().getMailboxByAccountId(getRequestedAcctId());
         SearchParams params = new SearchParams();
@@ -0,0 +1,461 @@
+/*
+ * ***** BEGIN LICENSE BLOCK *****
+ * Zimbra Collaboration Suite Server
+ * Copyright (C) 2026 Synacor, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software Foundation,
+ * version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ * ***** END LICENSE BLOCK *****
+ */
+package com.zimbra.cs.mailbox;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.google.common.base.CharMatcher;
+import com.google.common.base.Splitter;
+import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.zimbra.common.localconfig.LC;
+import com.zimbra.common.mailbox.BaseItemInfo;
+import com.zimbra.common.mailbox.ContactConstants;
+import com.zimbra.common.service.ServiceException;
+import com.zimbra.common.util.ZimbraLog;
+import com.zimbra.cs.session.PendingModifications.Change;
+import com.zimbra.cs.session.PendingModifications.ModificationKey;
+
+/**
+ * Keeps the contacts of recently used mailboxes in memory for {@link ContactAutoComplete}, so that autocomplete
+ * doesn't run a Lucene search of the contact folders and re-read the ranking table on every keystroke.
+ * <p>
+ * The words of the name fields and the email addresses of each contact are kept in a prefix {@link Trie}.  A query
+ * matches the contacts that have a word starting with each of its words, which is a superset of what
+ * {@link ContactAutoComplete#addMatchedContacts} accepts, so the final matching is unchanged.  The index is built on
+ * first use and kept up to date by {@link Listener} from the contact changes of each transaction.  The ranking table is
+ * kept along with it and replaced whenever {@link ContactRankings} writes it.  Mailboxes not used for
+ * {@code contact_autocomplete_index_idle_minutes} are dropped.
+ */
+public final class ContactAutoCompleteIndex {
+
+    private static final Splitter WORD_SPLITTER = Splitter.on(CharMatcher.whitespace()).omitEmptyStrings();
+
+    private static final String[] NAME_FIELDS = {
+        ContactConstants.A_firstName, ContactConstants.A_middleName, ContactConstants.A_lastName,
+        ContactConstants.A_fullName, ContactConstants.A_nickname, ContactConstants.A_phoneticFirstName,
+        ContactConstants.A_phoneticLastName
+    };
+
+    private static final ContactAutoCompleteIndex INSTANCE = new ContactAutoCompleteIndex();
+
+    private final Cache<String, MailboxContacts> mailboxes = CacheBuilder.newBuilder()
+            .maximumSize(LC.contact_autocomplete_index_cache_size.intValue())
+            .expireAfterAccess(LC.contact_autocomplete_index_idle_minutes.intValue(), TimeUnit.MINUTES)
+            .build();
+
+    public static ContactAutoCompleteIndex getInstance() {
+        return INSTANCE;
+    }
+
+    public static boolean isEnabled() {
+        return LC.contact_autocomplete_index_enabled.booleanValue();
+    }
+
+    /**
+     * Prefix trie mapping words to the sorted ids of the contacts they occur in.
+     */
+    static final class Trie {
+        private static final char[] NO_KEYS = new char[0];
+        private static final Node[] NO_CHILDREN = new Node[0];
+        private static final int[] NO_IDS = new int[0];
+
+        private static final class Node {
+            char[] keys = NO_KEYS;
+            Node[] children = NO_CHILDREN;
+            int[] ids = NO_IDS;
+
+            Node child(char c) {
+                int i = Arrays.binarySearch(keys, c);
+                return i < 0 ? null : children[i];
+            }
+
+            Node addChild(char c) {
+                int i = Arrays.binarySearch(keys, c);
+                if (i >= 0) {
+                    return children[i];
+                }
+                i = -i - 1;
+                Node child = new Node();
+                char[] newKeys = new char[keys.length + 1];
+                Node[] newChildren = new Node[children.length + 1];
+                System.arraycopy(keys, 0, newKeys, 0, i);
+                System.arraycopy(children, 0, newChildren, 0, i);
+                newKeys[i] = c;
+                newChildren[i] = child;
+                System.arraycopy(keys, i, newKeys, i + 1, keys.length - i);
+                System.arraycopy(children, i, newChildren, i + 1, children.length - i);
+                keys = newKeys;
+                children = newChildren;
+                return child;
+            }
+
+            void removeChild(char c) {
+                int i = Arrays.binarySearch(keys, c);
+                if (i < 0) {
+                    return;
+                }
+                char[] newKeys = new char[keys.length - 1];
+                Node[] newChildren = new Node[children.length - 1];
+                System.arraycopy(keys, 0, newKeys, 0, i);
+                System.arraycopy(children, 0, newChildren, 0, i);
+                System.arraycopy(keys, i + 1, newKeys, i, keys.length - i - 1);
+                System.arraycopy(children, i + 1, newChildren, i, children.length - i - 1);
+                keys = newKeys;
+                children = newChildren;
+            }
+
+            boolean isEmpty() {
+                return ids.length == 0 && keys.length == 0;
+            }
+        }
+
+        private final Node root = new Node();
+
+        void add(String word, int id) {
+            Node node = root;
+            for (int i = 0; i < word.length(); i++) {
+                node = node.addChild(word.charAt(i));
+            }
+            int i = Arrays.binarySearch(node.ids, id);
+            if (i < 0) {
+                i = -i - 1;
+                int[] ids = new int[node.ids.length + 1];
+                System.arraycopy(node.ids, 0, ids, 0, i);
+                ids[i] = id;
+                System.arraycopy(node.ids, i, ids, i + 1, node.ids.length - i);
+                node.ids = ids;
+            }
+        }
+
+        void remove(String word, int id) {
+            remove(root, word, 0, id);
+        }
+
+        /**
+         * @return whether the node is left empty and can be dropped
+         */
+        private boolean remove(Node node, String word, int depth, int id) {
+            if (depth == word.length()) {
+                int i = Arrays.binarySearch(node.ids, id);
+                if (i >= 0) {
+                    int[] ids = new int[node.ids.length - 1];
+                    System.arraycopy(node.ids, 0, ids, 0, i);
+                    System.arraycopy(node.ids, i + 1, ids, i, node.ids.length - i - 1);
+                    node.ids = ids.length == 0 ? NO_IDS : ids;
+                }
+                return node.isEmpty();
+            }
+            char c = word.charAt(depth);
+            Node child = node.child(c);
+            if (child != null && remove(child, word, depth + 1, id)) {
+                node.removeChild(c);
+            }
+            return node.isEmpty();
+        }
+
+        /**
+         * Adds the ids of all words starting with the prefix.
+         */
+        void collect(String prefix, BitSet ids) {
+            Node node = root;
+            for (int i = 0; i < prefix.length() && node != null; i++) {
+                node = node.child(prefix.charAt(i));
+            }
+            if (node != null) {
+                collect(node, ids);
+            }
+        }
+
+        private static void collect(Node node, BitSet ids) {
+            for (int id : node.ids) {
+                ids.set(id);
+            }
+            for (Node child : node.children) {
+                collect(child, ids);
+            }
+        }
+
+        boolean isEmpty() {
+            return root.isEmpty();
+        }
+    }
+
+    /**
+     * The fields of a contact autocomplete matches on.
+     */
+    static final class Entry {
+        final int id;
+        final int folderId;
+        final Map<String, String> fields;
+        final String[] emails;
+        final String[] words;
+
+        Entry(int id, int folderId, Map<String, String> fields) {
+            this.id = id;
+            this.folderId = folderId;
+            this.fields = fields;
+            Set<String> words = new HashSet<String>();
+            for (String field : NAME_FIELDS) {
+                String value = fields.get(field);
+                if (!Strings.isNullOrEmpty(value)) {
+                    for (String word : WORD_SPLITTER.split(value)) {
+                        words.add(word.toLowerCase());
+                    }
+                }
+            }
+            List<String> emails = new ArrayList<String>(2);
+            for (Map.Entry<String, String> field : fields.entrySet()) {
+                // the email fields used for autocomplete are configurable, so take every field that may be one
+                String name = field.getKey();
+                if ((name.startsWith(ContactConstants.A_email) || name.contains("Email")) &&
+                        !Strings.isNullOrEmpty(field.getValue())) {
+                    String email = field.getValue().toLowerCase();
+                    emails.add(email);
+                    words.add(email);
+                }
+            }
+            this.emails = emails.toArray(new String[emails.size()]);
+            this.words = words.toArray(new String[words.size()]);
+        }
+
+        Entry(Contact contact) {
+            this(contact.getId(), contact.getFolderId(), new HashMap<String, String>(contact.getFields()));
+        }
+    }
+
+    /**
+     * The contacts and ranking table of a mailbox.
+     */
+    static final class MailboxContacts {
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private final Trie trie = new Trie();
+        private final Map<Integer, Entry> entries = new HashMap<Integer, Entry>();
+        private ContactRankings rankings;
+        private long rankingsVersion;
+
+        void add(Entry entry) {
+            lock.writeLock().lock();
+            try {
+                removeEntry(entry.id);
+                for (String word : entry.words) {
+                    trie.add(word, entry.id);
+                }
+                entries.put(entry.id, entry);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void remove(int id) {
+            lock.writeLock().lock();
+            try {
+                removeEntry(id);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private void removeEntry(int id) {
+            Entry entry = entries.remove(id);
+            if (entry != null) {
+                for (String word : entry.words) {
+                    trie.remove(word, id);
+                }
+            }
+        }
+
+        /**
+         * Returns the contacts in the folders that have a word starting with each word of the query, in id order.
+         */
+        List<Entry> search(String query, Set<Integer> folderIds) {
+            lock.readLock().lock();
+            try {
+                BitSet matches = null;
+                for (String word : WORD_SPLITTER.split(query)) {
+                    BitSet wordMatches = new BitSet();
+                    trie.collect(word.toLowerCase(), wordMatches);
+                    if (matches == null) {
+                        matches = wordMatches;
+                    } else {
+                        matches.and(wordMatches);
+                    }
+                    if (matches.isEmpty()) {
+                        break;
+                    }
+                }
+                List<Entry> found = new ArrayList<Entry>();
+                if (matches != null) {
+                    for (int id = matches.nextSetBit(0); id >= 0; id = matches.nextSetBit(id + 1)) {
+                        Entry entry = entries.get(id);
+                        if (entry != null && folderIds.contains(entry.folderId)) {
+                            found.add(entry);
+                        }
+                    }
+                }
+                return found;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        int size() {
+            lock.readLock().lock();
+            try {
+                return entries.size();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+    }
+
+    public static class Listener extends MailboxListener {
+        private static final Set<MailItem.Type> TYPES = EnumSet.of(MailItem.Type.CONTACT);
+
+        @Override
+        public void notify(ChangeNotification notification) {
+            if (notification.mailboxAccount != null) {
+                INSTANCE.apply(notification.mailboxAccount.getId(), notification);
+            }
+        }
+
+        @Override
+        public Set<MailItem.Type> registerForItemTypes() {
+            return TYPES;
+        }
+    }
+
+    private void apply(String accountId, MailboxListener.ChangeNotification notification) {
+        MailboxContacts contacts = mailboxes.getIfPresent(accountId);
+        if (contacts == null) {
+            return;
+        }
+        if (notification.mods.deleted != null) {
+            for (ModificationKey key : notification.mods.deleted.keySet()) {
+                contacts.remove(key.getItemId());
+            }
+        }
+        if (notification.mods.created != null) {
+            for (BaseItemInfo item : notification.mods.created.values()) {
+                if (item instanceof Contact) {
+                    contacts.add(new Entry((Contact) item));
+                }
+            }
+        }
+        if (notification.mods.modified != null) {
+            for (Change change : notification.mods.modified.values()) {
+                if (change.what instanceof Contact) {
+                    contacts.add(new Entry((Contact) change.what));
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the contacts of the mailbox, loading them if they are not in memory.
+     */
+    MailboxContacts getContacts(Mailbox mbox) throws ServiceException {
+        String accountId = mbox.getAccountId();
+        MailboxContacts contacts = mailboxes.getIfPresent(accountId);
+        if (contacts != null) {
+            return contacts;
+        }
+        long start = System.currentTimeMillis();
+        int changeId = mbox.getLastChangeID();
+        contacts = new MailboxContacts();
+        for (MailItem item : mbox.getItemList(new OperationContext(mbox), MailItem.Type.CONTACT)) {
+            contacts.add(new Entry((Contact) item));
+        }
+        mailboxes.put(accountId, contacts);
+        // A change committed while the contacts were read may have been notified before the put above.  Don't keep
+        // what may be missing it; the current request can still use it.
+        if (mbox.getLastChangeID() != changeId) {
+            mailboxes.invalidate(accountId);
+        }
+        ZimbraLog.gal.debug("loaded %d contacts of %s for autocomplete in %dms", contacts.size(), accountId,
+                System.currentTimeMillis() - start);
+        return contacts;
+    }
+
+    /**
+     * Returns the contacts that may match the query in the given folders.
+     */
+    List<Entry> search(Mailbox mbox, String query, Set<Integer> folderIds) throws ServiceException {
+        return getContacts(mbox).search(query, folderIds);
+    }
+
+    /**
+     * Returns the ranking table of the account, from memory if the mailbox is in use.
+     */
+    ContactRankings getRankings(String accountId) throws ServiceException {
+        MailboxContacts contacts = mailboxes.getIfPresent(accountId);
+        if (contacts == null) {
+            return new ContactRankings(accountId);
+        }
+        long version;
+        synchronized (contacts) {
+            if (contacts.rankings != null) {
+                return contacts.rankings;
+            }
+            version = contacts.rankingsVersion;
+        }
+        ContactRankings rankings = new ContactRankings(accountId);
+        synchronized (contacts) {
+            // unless the table was written in the meantime
+            if (contacts.rankingsVersion == version) {
+                contacts.rankings = rankings;
+            }
+        }
+        return rankings;
+    }
+
+    /**
+     * Called after the ranking table of the account has been written.  The rankings must not be modified after this.
+     */
+    void rankingsChanged(String accountId, ContactRankings rankings) {
+        MailboxContacts contacts = mailboxes.getIfPresent(accountId);
+        if (contacts != null) {
+            synchronized (contacts) {
+                contacts.rankings = rankings;
+                contacts.rankingsVersion++;
+            }
+        }
+    }
+
+    public void invalidate(String accountId) {
+        mailboxes.invalidate(accountId);
+    }
+
+    /**
+     * @return number of mailboxes in memory
+     */
+    public long size() {
+        return mailboxes.size();
+    }
+}
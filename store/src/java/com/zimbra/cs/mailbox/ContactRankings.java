@@ -61,6 +61,7 @@ public class ContactRankings {
         rankings.mEntryMap.clear();
         rankings.mEntries.clear();
         rankings.writeToDatabase();
+        ContactAutoCompleteIndex.getInstance().rankingsChanged(accountId, rankings);
     }
     public static void remove(String accountId, String email) throws ServiceException {
         if (!LC.contact_ranking_enabled.booleanValue())
@@ -70,6 +71,7 @@ public class ContactRankings {
         if (entry != null)
             rankings.remove(entry);
         rankings.writeToDatabase();
+        ContactAutoCompleteIndex.getInstance().rankingsChanged(accountId, rankings);
     }
 
     public static void increment(String accountId, Collection<? extends Address> addrs) throws ServiceException {
@@ -83,6 +85,7 @@ public class ContactRankings {
             }
 
         rankings.writeToDatabase();
+        ContactAutoCompleteIndex.getInstance().rankingsChanged(accountId, rankings);
     }
 
     public static void increment(String accountId, Address[] addrs) throws ServiceException {
@@ -125,6 +125,7 @@ import com.zimbra.cs.db.DbSession;
 import com.zimbra.cs.db.DbTag;
 import com.zimbra.cs.db.DbVolumeBlobs;
 import com.zimbra.cs.fb.FreeBusy;
+import com.zimbra.cs.fb.FreeBusyBitmap;
 import com.zimbra.cs.fb.FreeBusyQuery;
 import com.zimbra.cs.fb.LocalFreeBusyProvider;
 import com.zimbra.cs.html.BrowserDefang;
@@ -204,6 +205,7 @@ import com.zimbra.cs.redolog.op.FixCalendarItemTZ;
 import com.zimbra.cs.redolog.op.GrantAccess;
 import com.zimbra.cs.redolog.op.ICalReply;
 import com.zimbra.cs.redolog.op.ImapCopyItem;
+import com.zimbra.cs.redolog.op.ImapMoveItem;
 import com.zimbra.cs.redolog.op.LockItem;
 import com.zimbra.cs.redolog.op.ModifyContact;
 import com.zimbra.cs.redolog.op.ModifyInvitePartStat;
@@ -256,6 +258,7 @@ import com.zimbra.cs.session.PendingModifications.Change;
 import com.zimbra.cs.session.Session;
 import com.zimbra.cs.session.SessionCache;
 import com.zimbra.cs.session.SoapSession;
+import com.zimbra.cs.session.WaitSetChangeLog;
 import com.zimbra.cs.stats.ZimbraPerf;
 import com.zimbra.cs.store.Blob;
 import com.zimbra.cs.store.MailboxBlob;
@@ -5222,6 +5225,18 @@ public class Mailbox implements MailboxStore {
         }
     }
 
+    /**
+     * Builds the free/busy bitmap of this mailbox; see {@link LocalFreeBusyProvider#getFreeBusyBitmap}.
+     */
+    public FreeBusyBitmap getFreeBusyBitmap(long start, long end) throws ServiceException {
+        lock.lock(false);
+        try {
+            return LocalFreeBusyProvider.getFreeBusyBitmap(this, start, end);
+        } finally {
+            lock.release();
+        }
+    }
+
     public static enum BrowseBy {
         attachments, domains, objects;
     }
@@ -7348,6 +7363,57 @@ public class Mailbox implements MailboxStore {
         }
     }
 
+    /**
+     * Moves items to a folder for IMAP MOVE (RFC 6851), giving each a new IMAP UID in the folder in the same
+     * transaction so that the caller can report them in a COPYUID response.  Unlike a COPY followed by an
+     * EXPUNGE, the items keep their IDs, blobs and index entries.
+     *
+     * @return the moved items, in the order requested
+     */
+    public List<MailItem> imapMove(OperationContext octxt, int[] itemIds, MailItem.Type type, int folderId)
+    throws ServiceException {
+        // this is an IMAP command, so we'd better be tracking IMAP changes by now...
+        beginTrackingImap();
+
+        for (int id : itemIds) {
+            if (id <= 0) {
+                throw MailItem.noSuchItem(id, type);
+            }
+        }
+
+        ImapMoveItem redoRecorder = new ImapMoveItem(mId, type, folderId);
+
+        boolean success = false;
+        try {
+            beginTransaction("imove", octxt, redoRecorder);
+            ImapMoveItem redoPlayer = (ImapMoveItem) currentChange().getRedoPlayer();
+
+            Folder target = getFolderById(folderId);
+
+            MailItem[] items = getItemById(itemIds, type);
+            for (MailItem item : items) {
+                checkItemChangeID(item);
+            }
+
+            List<MailItem> result = new ArrayList<MailItem>(items.length);
+            for (MailItem item : items) {
+                trainSpamFilter(octxt, item, target, "imap move");
+
+                if (item.move(target)) {
+                    int imapId = redoPlayer == null ? ID_AUTO_INCREMENT : redoPlayer.getImapUid(item.getId());
+                    item.setImapUid(getNextItemId(imapId));
+                }
+                redoRecorder.setImapUid(item.getId(), item.getImapUid());
+                result.add(item);
+            }
+
+            success = true;
+            return result;
+        } finally {
+            endTransaction(success);
+        }
+    }
+
     private <T extends MailItem> T trainSpamFilter(OperationContext octxt, T item, Folder target, String opDescription) {
         if (currentChange().getRedoPlayer() != null) { // don't re-train filter
                                                        // on replayed operation
@@ -10169,6 +10235,12 @@ public class Mailbox implements MailboxStore {
                     ZimbraLog.mailbox.error("ignoring error during notification", e);
                 }
             }
+            try {
+                WaitSetChangeLog.getInstance().mailboxChanged(mData.accountId, notification.lastChangeId,
+                        notification.mods, source);
+            } catch (RuntimeException e) {
+                ZimbraLog.mailbox.error("ignoring error during notification", e);
+            }
             MailboxListener.notifyListeners(notification);
         }
     }
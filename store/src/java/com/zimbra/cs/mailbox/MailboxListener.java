@@ -25,6 +25,7 @@ import com.google.common.annotations.VisibleForTesting;
 import com.zimbra.common.localconfig.DebugConfig;
 import com.zimbra.cs.account.Account;
 import com.zimbra.cs.datasource.DataSourceFolderListener;
+import com.zimbra.cs.fb.FreeBusyBitmapCache;
 import com.zimbra.cs.fb.FreeBusyProvider;
 import com.zimbra.cs.filter.FilterListener;
 import com.zimbra.cs.mailbox.MailItem.Type;
@@ -94,6 +95,8 @@ public abstract class MailboxListener {
         register(new FilterListener());
         register(new MemcachedCacheManager());
         register(new FreeBusyProvider.Listener());
+        register(new FreeBusyBitmapCache.Listener());
+        register(new ContactAutoCompleteIndex.Listener());
         register(new DataSourceFolderListener());
         register(new ShareStartStopListener());
         if (application.supports(AclPushListener.class)) {
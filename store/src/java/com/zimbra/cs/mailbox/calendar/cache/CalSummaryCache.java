@@ -17,11 +17,12 @@
 
 package com.zimbra.cs.mailbox.calendar.cache;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -57,7 +58,6 @@ import com.zimbra.cs.stats.ZimbraPerf;
 
 // TODO: caching remote calendars
 // TODO: TTL instead of last-modified time check, if folder configured that way or remote
-// TODO: high cache stickiness (or dedicated non-LRU cache) for heavily shared, almost read-only calendars
 // TODO: is the cached data friendly to JSON2 serialization?
 //       currently missing: CATEGORY, CREATED, LAST-MODIFIED, DESCRIPTION, STREET, CSZ, PHONE,
 //       RECUR,
@@ -362,133 +362,78 @@ public class CalSummaryCache {
         sMaxSearchDays = LC.calendar_search_max_days.intValueWithinRange(0, 3660);
     }
 
-    @SuppressWarnings("serial")
-    private static class SummaryLRU extends LinkedHashMap<CalSummaryKey, CalendarData> {
-        private final int mMaxAllowed;
-
-        // map that keeps track of which calendar folders are cached for each account
-        // This map is updated every time a calendar folder is added, removed, or aged out
-        // of the LRU.
-        private final Map<String /* account id */, Set<Integer> /* folder ids */> mAccountFolders;
-
-        private SummaryLRU(int capacity) {
-            super(capacity + 1, 1.0f, true);
-            mMaxAllowed = Math.max(capacity, 1);
-            mAccountFolders = new HashMap<String, Set<Integer>>();
-        }
-
-        @Override
-        public void clear() {
-            super.clear();
-            mAccountFolders.clear();
-        }
-
-        @Override
-        public CalendarData put(CalSummaryKey key, CalendarData value) {
-            CalendarData prevVal = super.put(key, value);
-            if (prevVal == null)
-                registerWithAccount(key);
-            return prevVal;
-        }
-
-        @Override
-        public void putAll(Map<? extends CalSummaryKey, ? extends CalendarData> t) {
-            super.putAll(t);
-            for (CalSummaryKey key : t.keySet()) {
-                registerWithAccount(key);
-            }
-        }
-
-        @Override
-        public CalendarData remove(Object key) {
-            CalendarData prevVal = super.remove(key);
-            if (prevVal != null && key instanceof CalSummaryKey) {
-                CalSummaryKey k = (CalSummaryKey) key;
-                deregisterFromAccount(k);
-            }
-            return prevVal;
-        }
-
-        @Override
-        protected boolean removeEldestEntry(Map.Entry<CalSummaryKey, CalendarData> eldest) {
-            boolean remove = size() > mMaxAllowed;
-            if (remove)
-                deregisterFromAccount(eldest.getKey());
-            return remove;
-        }
+    // cache containing range-limited calendar summary by calendar folder
+    private final SummaryTinyLFU mSummaryCache;
+    private final int mLRUCapacity;
+    private final CalSummaryMemcachedCache mMemcachedCache;
 
-        private void registerWithAccount(CalSummaryKey key) {
-            String accountId = key.getAccountId();
-            int folderId = key.getFolderId();
-            Set<Integer> folders = mAccountFolders.get(accountId);
-            if (folders == null) {
-                folders = new HashSet<Integer>();
-                mAccountFolders.put(accountId, folders);
-            }
-            folders.add(folderId);
-        }
+    CalSummaryCache(final int capacity) {
+        mLRUCapacity = capacity;
+        mSummaryCache = new SummaryTinyLFU(capacity);
+        mMemcachedCache = new CalSummaryMemcachedCache();
+    }
 
-        private void deregisterFromAccount(CalSummaryKey key) {
-            String accountId = key.getAccountId();
-            int folderId = key.getFolderId();
-            Set<Integer> folders = mAccountFolders.get(accountId);
-            if (folders != null) {
-                folders.remove(folderId);
-                // If no folders are cached for the account, drop the account entry from the map to save memory.
-                if (folders.isEmpty())
-                    mAccountFolders.remove(accountId);
-            }
+    /**
+     * Reloads the calendars that were in memory at the last shutdown from their cache files, so that
+     * the most used calendars don't have to be found again by admission.
+     */
+    void warm() {
+        if (mLRUCapacity <= 0)
+            return;
+        List<FileStore.SummaryIndexEntry> entries;
+        try {
+            entries = FileStore.loadSummaryIndex();
+        } catch (ServiceException e) {
+            ZimbraLog.calendar.warn("Error loading calendar summary cache index", e);
+            return;
         }
-
-        public static final int FOLDER_NOT_FOUND = -1;
-
-        public int getFolderForItem(String accountId, int itemId) {
-            int retval = FOLDER_NOT_FOUND;
-            Set<Integer> folders = mAccountFolders.get(accountId);
-            if (folders != null) {
-                for (int folderId : folders) {
-                    CalSummaryKey key = new CalSummaryKey(accountId, folderId);
-                    CalendarData calData = get(key);
-                    if (calData != null) {
-                        CalendarItemData ci = calData.getCalendarItemData(itemId);
-                        if (ci != null) {
-                            retval = folderId;
-                            break;
-                        }
-                    }
+        List<SummaryTinyLFU.HotKey> keys = new ArrayList<SummaryTinyLFU.HotKey>(entries.size());
+        Map<CalSummaryKey, CalendarData> data = new HashMap<CalSummaryKey, CalendarData>();
+        for (FileStore.SummaryIndexEntry entry : entries) {
+            if (data.size() >= mLRUCapacity)
+                break;
+            try {
+                // The folder isn't loaded here, so accept any modseq.  The data is checked against the
+                // folder on first use.
+                CalendarData calData = FileStore.loadCalendarData(entry.mboxId, entry.folderId, Integer.MAX_VALUE);
+                if (calData != null) {
+                    CalSummaryKey key = new CalSummaryKey(entry.accountId, entry.folderId);
+                    keys.add(new SummaryTinyLFU.HotKey(key, entry.frequency));
+                    data.put(key, calData);
                 }
+            } catch (ServiceException e) {
+                ZimbraLog.calendar.warn("Error loading cached calendar summary %s:%d",
+                        entry.accountId, entry.folderId, e);
             }
-            return retval;
         }
+        mSummaryCache.warm(keys, data);
+        ZimbraLog.calendar.info("Loaded %d of %d calendar summaries cached at last shutdown", data.size(), entries.size());
+    }
 
-        /**
-         * Toss all folders of the account from the LRU.
-         * @param mboxId
-         */
-        public void removeAccount(String accountId) {
-            Set<Integer> folders = mAccountFolders.get(accountId);
-            if (folders != null) {
-                // Get a copy of the folder list to avoid ConcurrentModificationException on mMboxFolders.
-                Integer[] fids = folders.toArray(new Integer[0]);
-                for (int folderId : fids) {
-                    CalSummaryKey key = new CalSummaryKey(accountId, folderId);
-                    remove(key);
+    /**
+     * Records the calendars currently in memory so that {@link #warm()} can reload them.  Their data is
+     * already in the file cache.
+     */
+    void saveIndex() {
+        if (mLRUCapacity <= 0)
+            return;
+        try {
+            MailboxManager mboxMgr = MailboxManager.getInstance();
+            List<FileStore.SummaryIndexEntry> entries = new ArrayList<FileStore.SummaryIndexEntry>();
+            for (SummaryTinyLFU.HotKey hotKey : mSummaryCache.getHotKeys()) {
+                String accountId = hotKey.key.getAccountId();
+                int mboxId = mboxMgr.lookupMailboxId(accountId);
+                if (mboxId > 0) {
+                    entries.add(new FileStore.SummaryIndexEntry(accountId, mboxId, hotKey.key.getFolderId(),
+                            hotKey.frequency));
                 }
             }
+            FileStore.saveSummaryIndex(entries);
+        } catch (ServiceException e) {
+            ZimbraLog.calendar.warn("Error saving calendar summary cache index", e);
         }
     }
 
-    // LRU cache containing range-limited calendar summary by calendar folder
-    private final SummaryLRU mSummaryCache;
-    private final int mLRUCapacity;
-    private final CalSummaryMemcachedCache mMemcachedCache;
-
-    CalSummaryCache(final int capacity) {
-        mLRUCapacity = capacity;
-        mSummaryCache = new SummaryLRU(capacity);
-        mMemcachedCache = new CalSummaryMemcachedCache();
-    }
-
     private static enum CacheLevel { Memory, Memcached, File, Miss }
 
     public class CalendarDataResult {
@@ -575,23 +520,24 @@ public class CalSummaryCache {
         OperationContext ownerOctxt = new OperationContext(targetAcct);
         int currentModSeq = folder.getImapMODSEQ();
 
-        // Lookup from heap LRU.
-            synchronized (mSummaryCache) {
-                if (mLRUCapacity > 0) {
-                    calData = mSummaryCache.get(key);
-                    lruSize = mSummaryCache.size();
-                }
-            }
-            if (calData != null) {
-                // Sanity check: Cached data can't be newer than the backend data.
-                if (calData.getModSeq() > currentModSeq) {
-                    calData = null;
-                } else {
-                    dataFrom = CacheLevel.Memory;
-                    // Data loaded from heap LRU supports incremental update for stale items.
-                    incrementalUpdate = sMaxStaleItems > 0;
-                }
+        // Lookup from heap cache.
+        if (mLRUCapacity > 0) {
+            calData = mSummaryCache.get(key);
+            lruSize = mSummaryCache.size();
+        }
+        if (calData != null) {
+            // Sanity check: Cached data can't be newer than the backend data.
+            if (calData.getModSeq() > currentModSeq) {
+                calData = null;
+            } else {
+                dataFrom = CacheLevel.Memory;
+                if (calData.getModSeq() == currentModSeq)
+                    calData.setTrackingStaleItems();
+                // Data loaded from heap cache supports incremental update for stale items, unless it
+                // was loaded from file at startup and has changed since.
+                incrementalUpdate = sMaxStaleItems > 0 && calData.isTrackingStaleItems();
             }
+        }
 
         if (calData == null) {
             // Load from file.
@@ -600,11 +546,10 @@ public class CalSummaryCache {
                 if (calData != null) {
                     // If data is up to date, add to LRU.
                     if (calData.getModSeq() == currentModSeq) {
+                        calData.setTrackingStaleItems();
                         if (mLRUCapacity > 0) {
-                            synchronized (mSummaryCache) {
-                                mSummaryCache.put(key, calData);
-                                lruSize = mSummaryCache.size();
-                            }
+                            mSummaryCache.put(key, calData);
+                            lruSize = mSummaryCache.size();
                         }
                     } else {
                         // Data loaded from file doesn't have stale items list.  It can't be refreshed incrementally.
@@ -648,11 +593,9 @@ public class CalSummaryCache {
                                                    sRangeMonthFrom, sRangeNumMonths);
             calData = reloadCalendarOverRange(ownerOctxt, mbox, folderId, type,
                     defaultRange.getFirst(), defaultRange.getSecond(), reusableCalData, incrementalUpdate);
-            synchronized (mSummaryCache) {
-                if (mLRUCapacity > 0) {
-                    mSummaryCache.put(key, calData);
-                    lruSize = mSummaryCache.size();
-                }
+            if (mLRUCapacity > 0) {
+                mSummaryCache.put(key, calData);
+                lruSize = mSummaryCache.size();
             }
             dataFrom = CacheLevel.Miss;
 
@@ -717,9 +660,7 @@ public class CalSummaryCache {
             return;
         int mboxId = mbox.getId();
         CalSummaryKey key = new CalSummaryKey(mbox.getAccountId(), folderId);
-        synchronized (mSummaryCache) {
-            mSummaryCache.remove(key);
-        }
+        mSummaryCache.remove(key);
         try {
             FileStore.deleteCalendarData(mboxId, folderId);
         } catch (ServiceException e) {
@@ -732,10 +673,8 @@ public class CalSummaryCache {
             return;
         CalSummaryKey key = new CalSummaryKey(mbox.getAccountId(), folderId);
         CalendarData calData = null;
-        synchronized (mSummaryCache) {
-            if (mLRUCapacity > 0) {
-                calData = mSummaryCache.get(key);
-            }
+        if (mLRUCapacity > 0) {
+            calData = mSummaryCache.peek(key);
         }
         // Invalidate the item from the calendar.
         if (calData != null) {
@@ -772,11 +711,8 @@ public class CalSummaryCache {
                     // If this is a folder move, invalidate the item from the old folder too.
                     if ((change.why & Change.FOLDER) != 0) {
                         String accountId = mbox.getAccountId();
-                        int prevFolderId;
-                        synchronized (mSummaryCache) {
-                            prevFolderId = mSummaryCache.getFolderForItem(accountId, itemId);
-                        }
-                        if (prevFolderId != folderId && prevFolderId != SummaryLRU.FOLDER_NOT_FOUND) {
+                        int prevFolderId = mSummaryCache.getFolderForItem(accountId, itemId);
+                        if (prevFolderId != folderId && prevFolderId != SummaryTinyLFU.FOLDER_NOT_FOUND) {
                             invalidateItem(mbox, prevFolderId, itemId);
                         }
                     }
@@ -810,11 +746,8 @@ public class CalSummaryCache {
                         lastMbox = mbox;
                         int itemId = entry.getKey().getItemId();
                         String accountId = mbox.getAccountId();
-                        int folderId;
-                        synchronized (mSummaryCache) {
-                            folderId = mSummaryCache.getFolderForItem(accountId, itemId);
-                        }
-                        if (folderId != SummaryLRU.FOLDER_NOT_FOUND) {
+                        int folderId = mSummaryCache.getFolderForItem(accountId, itemId);
+                        if (folderId != SummaryTinyLFU.FOLDER_NOT_FOUND) {
                             invalidateItem(mbox, folderId, itemId);
                         }
                     }
@@ -828,9 +761,7 @@ public class CalSummaryCache {
     }
 
     void purgeMailbox(Mailbox mbox) throws ServiceException {
-        synchronized (mSummaryCache) {
-            mSummaryCache.removeAccount(mbox.getAccountId());
-        }
+        mSummaryCache.removeAccount(mbox.getAccountId());
         if (MemcachedConnector.isConnected()) {
             mMemcachedCache.purgeMailbox(mbox);
         }
@@ -55,6 +55,28 @@ public class CalendarCacheManager {
         mSummaryCache = new CalSummaryCache(summaryLRUSize);
     }
 
+    /**
+     * Warms the summary cache with the calendars that were cached at the last shutdown.  The cache
+     * files are read in the background.
+     */
+    public void startup() {
+        if (!mSummaryCacheEnabled || !LC.calendar_cache_warm_on_startup.booleanValue())
+            return;
+        Thread thread = new Thread("CalendarCacheWarmer") {
+            @Override
+            public void run() {
+                mSummaryCache.warm();
+            }
+        };
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void shutdown() {
+        if (mSummaryCacheEnabled && LC.calendar_cache_warm_on_startup.booleanValue())
+            mSummaryCache.saveIndex();
+    }
+
     public void notifyCommittedChanges(PendingLocalModifications mods, int changeId) {
         if (mSummaryCacheEnabled)
             mSummaryCache.notifyCommittedChanges(mods, changeId);
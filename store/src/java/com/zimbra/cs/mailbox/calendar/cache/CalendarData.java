@@ -36,6 +36,9 @@ public class CalendarData {
     private List<CalendarItemData> mCalendarItems;
     private Map<Integer, CalendarItemData> mCalendarItemsMap;
     private Set<Integer> mStaleItemIds;
+    // False for data loaded from file, until it is known to be current.  Changes made before that are
+    // not in the stale items list, so the data can't be refreshed incrementally.
+    private volatile boolean mTrackingStaleItems;
 
     CalendarData(int folderId, int modSeq, long rangeStart, long rangeEnd) {
         mFolderId = folderId;
@@ -45,6 +48,7 @@ public class CalendarData {
         mCalendarItems = new ArrayList<CalendarItemData>();
         mCalendarItemsMap = new HashMap<Integer, CalendarItemData>();
         mStaleItemIds = new HashSet<Integer>();
+        mTrackingStaleItems = true;
     }
 
     void addCalendarItem(CalendarItemData calItemData) {
@@ -93,6 +97,14 @@ public class CalendarData {
         return mStaleItemIds.contains(calItemId);
     }
 
+    boolean isTrackingStaleItems() {
+        return mTrackingStaleItems;
+    }
+
+    void setTrackingStaleItems() {
+        mTrackingStaleItems = true;
+    }
+
     synchronized void copyStaleItemIdsTo(Set<Integer> copyTo) {
         copyTo.addAll(mStaleItemIds);
     }
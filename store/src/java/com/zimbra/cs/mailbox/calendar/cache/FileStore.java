@@ -24,12 +24,15 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
 
 import com.zimbra.common.localconfig.LC;
 import com.zimbra.common.service.ServiceException;
 import com.zimbra.common.util.FileUtil;
 import com.zimbra.common.util.ZimbraLog;
 import com.zimbra.cs.mailbox.Metadata;
+import com.zimbra.cs.mailbox.MetadataList;
 
 public class FileStore {
     private static final String FILE_EXT = ".dat";
@@ -43,6 +46,13 @@ public class FileStore {
     private static final String FN_CALDATA = "calData";
     private static final String FN_MODSEQ = "modSeq";
 
+    private static final String SUMMARY_INDEX_FILE = "summary-index" + FILE_EXT;
+    private static final String FN_ENTRIES = "entries";
+    private static final String FN_ACCOUNT_ID = "acct";
+    private static final String FN_MBOX_ID = "mbox";
+    private static final String FN_FOLDER_ID = "fid";
+    private static final String FN_FREQUENCY = "freq";
+
     private static final long MAX_CACHE_FILE_LEN = 100 * 1024 * 1024;  // 100MB
 
     private static File getMailboxDir(int mboxId) {
@@ -181,6 +191,82 @@ public class FileStore {
         return null;
     }
 
+    /**
+     * Entry of the summary cache index, which records the calendars held in memory at shutdown so that
+     * they can be reloaded at startup.
+     */
+    static class SummaryIndexEntry {
+        final String accountId;
+        final int mboxId;
+        final int folderId;
+        final int frequency;
+
+        SummaryIndexEntry(String accountId, int mboxId, int folderId, int frequency) {
+            this.accountId = accountId;
+            this.mboxId = mboxId;
+            this.folderId = folderId;
+            this.frequency = frequency;
+        }
+    }
+
+    private static File getSummaryIndexFile() {
+        return new File(LC.calendar_cache_directory.value(), SUMMARY_INDEX_FILE);
+    }
+
+    static void saveSummaryIndex(List<SummaryIndexEntry> entries)
+    throws ServiceException {
+        File file = getSummaryIndexFile();
+        try {
+            FileUtil.ensureDirExists(file.getParentFile());
+        } catch (IOException e) {
+            throw ServiceException.FAILURE(
+                    "Unable to create directory " + file.getParentFile().getAbsolutePath(), e);
+        }
+        MetadataList list = new MetadataList();
+        for (SummaryIndexEntry entry : entries) {
+            Metadata metaEntry = new Metadata();
+            metaEntry.put(FN_ACCOUNT_ID, entry.accountId);
+            metaEntry.put(FN_MBOX_ID, entry.mboxId);
+            metaEntry.put(FN_FOLDER_ID, entry.folderId);
+            metaEntry.put(FN_FREQUENCY, entry.frequency);
+            list.add(metaEntry);
+        }
+        Metadata meta = new Metadata();
+        meta.put(FN_VERSION, CURRENT_VERSION);
+        meta.put(FN_ENTRIES, list);
+        saveToFile(file, meta.toString());
+    }
+
+    /**
+     * Reads the summary cache index and removes it.  The index describes the cache at the last shutdown
+     * and is only meant for the following startup.
+     */
+    static List<SummaryIndexEntry> loadSummaryIndex()
+    throws ServiceException {
+        List<SummaryIndexEntry> entries = new ArrayList<SummaryIndexEntry>();
+        File file = getSummaryIndexFile();
+        String encoded = loadFromFile(file);
+        if (encoded == null)
+            return entries;
+        file.delete();
+
+        Metadata meta = new Metadata(encoded);
+        if (meta.getLong(FN_VERSION, 0) < CURRENT_VERSION) {
+            ZimbraLog.calendar.debug("Ignoring summary cache index of older version: path=%s", file.getAbsolutePath());
+            return entries;
+        }
+        MetadataList list = meta.getList(FN_ENTRIES, true);
+        if (list != null) {
+            for (int i = 0; i < list.size(); i++) {
+                Metadata metaEntry = list.getMap(i);
+                entries.add(new SummaryIndexEntry(metaEntry.get(FN_ACCOUNT_ID),
+                        (int) metaEntry.getLong(FN_MBOX_ID), (int) metaEntry.getLong(FN_FOLDER_ID),
+                        (int) metaEntry.getLong(FN_FREQUENCY)));
+            }
+        }
+        return entries;
+    }
+
     static void removeMailbox(int mboxId) {
         File dir = getMailboxDir(mboxId);
         try {
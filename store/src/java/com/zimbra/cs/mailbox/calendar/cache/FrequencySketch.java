@@ -0,0 +1,102 @@
+/*
+ * ***** BEGIN LICENSE BLOCK *****
+ * Zimbra Collaboration Suite Server
+ * Copyright (C) 2026 Synacor, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software Foundation,
+ * version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ * ***** END LICENSE BLOCK *****
+ */
+
+package com.zimbra.cs.mailbox.calendar.cache;
+
+/**
+ * Approximate access frequency of cache keys: a count-min sketch of 4-bit counters, 4 per key.
+ * Once the number of recorded accesses reaches 10x the cache capacity all counters are halved,
+ * so the sketch follows changes in popularity over time.
+ * <p>
+ * Not thread safe.
+ */
+final class FrequencySketch {
+
+    static final int MAX_FREQUENCY = 15;
+
+    private static final int DEPTH = 4;
+    private static final long[] SEEDS = {
+        0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    private final long[] table;
+    private final int counterMask;
+    private final int sampleSize;
+    private int size;
+
+    FrequencySketch(int capacity) {
+        int n = Integer.highestOneBit(Math.max(capacity, 8) - 1) << 1;  // 16 counters per long
+        table = new long[n];
+        counterMask = n * 16 - 1;
+        sampleSize = 10 * Math.max(capacity, 1);
+    }
+
+    private int counterIndex(int hash, int i) {
+        long h = (hash + SEEDS[i]) * SEEDS[i];
+        h += h >>> 32;
+        return (int) h & counterMask;
+    }
+
+    private int get(int counter) {
+        return (int) ((table[counter >>> 4] >>> ((counter & 15) << 2)) & 0xfL);
+    }
+
+    private static int spread(Object key) {
+        int h = key.hashCode();
+        h ^= h >>> 16;
+        h *= 0x45d9f3b;
+        return h ^ (h >>> 16);
+    }
+
+    int frequency(Object key) {
+        int hash = spread(key);
+        int freq = MAX_FREQUENCY;
+        for (int i = 0; i < DEPTH; i++) {
+            freq = Math.min(freq, get(counterIndex(hash, i)));
+        }
+        return freq;
+    }
+
+    void increment(Object key) {
+        int hash = spread(key);
+        int[] counters = new int[DEPTH];
+        int min = MAX_FREQUENCY;
+        for (int i = 0; i < DEPTH; i++) {
+            counters[i] = counterIndex(hash, i);
+            min = Math.min(min, get(counters[i]));
+        }
+        if (min == MAX_FREQUENCY) {
+            return;
+        }
+        // conservative update: only raise the counters holding the current estimate
+        for (int counter : counters) {
+            if (get(counter) == min) {
+                table[counter >>> 4] += 1L << ((counter & 15) << 2);
+            }
+        }
+        if (++size >= sampleSize) {
+            reset();
+        }
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        size /= 2;
+    }
+}
@@ -0,0 +1,385 @@
+/*
+ * ***** BEGIN LICENSE BLOCK *****
+ * Zimbra Collaboration Suite Server
+ * Copyright (C) 2026 Synacor, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software Foundation,
+ * version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ * ***** END LICENSE BLOCK *****
+ */
+
+package com.zimbra.cs.mailbox.calendar.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-memory calendar summary cache with W-TinyLFU eviction.
+ * <p>
+ * New entries go to a small LRU window.  Entries leaving the window are only admitted to the main
+ * area if they have been accessed more often than the entry they would push out, going by a
+ * {@link FrequencySketch}, and the main area is a segmented LRU where entries hit a second time are
+ * protected.  Heavily shared calendars therefore stay cached while a burst of one-off lookups
+ * (e.g. someone browsing many calendars once) only churns the window.
+ * <p>
+ * The cache is split in independent segments by account id, each with its own lock, so lookups of
+ * different accounts don't contend and all folders of an account are kept in the same segment.
+ */
+class SummaryTinyLFU {
+
+    static final int FOLDER_NOT_FOUND = -1;
+
+    private static final int MIN_SEGMENT_CAPACITY = 64;
+    private static final int MAX_SEGMENTS = 16;
+
+    private final Segment[] segments;
+
+    SummaryTinyLFU(int capacity) {
+        int n = Integer.highestOneBit(Math.max(capacity / MIN_SEGMENT_CAPACITY, 1));
+        n = Math.min(n, MAX_SEGMENTS);
+        segments = new Segment[n];
+        for (int i = 0; i < n; i++) {
+            // spread the remainder over the first segments
+            segments[i] = new Segment(capacity / n + (i < capacity % n ? 1 : 0));
+        }
+    }
+
+    private Segment segmentFor(String accountId) {
+        int h = accountId.hashCode();
+        h ^= h >>> 16;
+        return segments[h & (segments.length - 1)];
+    }
+
+    CalendarData get(CalSummaryKey key) {
+        return segmentFor(key.getAccountId()).get(key);
+    }
+
+    /**
+     * Same as {@link #get(CalSummaryKey)}, without counting as an access.
+     */
+    CalendarData peek(CalSummaryKey key) {
+        return segmentFor(key.getAccountId()).peek(key);
+    }
+
+    void put(CalSummaryKey key, CalendarData value) {
+        segmentFor(key.getAccountId()).put(key, value);
+    }
+
+    void remove(CalSummaryKey key) {
+        segmentFor(key.getAccountId()).remove(key);
+    }
+
+    void removeAccount(String accountId) {
+        segmentFor(accountId).removeAccount(accountId);
+    }
+
+    int getFolderForItem(String accountId, int itemId) {
+        return segmentFor(accountId).getFolderForItem(accountId, itemId);
+    }
+
+    int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * Cached key with its estimated access frequency, used to persist and restore the cache.
+     */
+    static final class HotKey {
+        final CalSummaryKey key;
+        final int frequency;
+
+        HotKey(CalSummaryKey key, int frequency) {
+            this.key = key;
+            this.frequency = frequency;
+        }
+    }
+
+    private static final Comparator<HotKey> HOTTEST_FIRST = new Comparator<HotKey>() {
+        @Override
+        public int compare(HotKey k1, HotKey k2) {
+            return Integer.compare(k2.frequency, k1.frequency);
+        }
+    };
+
+    /**
+     * @return all cached keys, most frequently used first
+     */
+    List<HotKey> getHotKeys() {
+        List<HotKey> keys = new ArrayList<HotKey>();
+        for (Segment segment : segments) {
+            segment.addHotKeys(keys);
+        }
+        Collections.sort(keys, HOTTEST_FIRST);
+        return keys;
+    }
+
+    /**
+     * Loads entries into the main area, bypassing admission, and restores their frequency.
+     *
+     * @param keys previously cached keys, most frequently used first; keys that don't fit are ignored
+     * @param data cached data of the keys; keys without data are ignored
+     */
+    void warm(List<HotKey> keys, Map<CalSummaryKey, CalendarData> data) {
+        Map<Segment, List<HotKey>> bySegment = new HashMap<Segment, List<HotKey>>();
+        for (HotKey hotKey : keys) {
+            if (!data.containsKey(hotKey.key)) {
+                continue;
+            }
+            Segment segment = segmentFor(hotKey.key.getAccountId());
+            List<HotKey> list = bySegment.get(segment);
+            if (list == null) {
+                list = new ArrayList<HotKey>();
+                bySegment.put(segment, list);
+            }
+            list.add(hotKey);
+        }
+        for (Map.Entry<Segment, List<HotKey>> entry : bySegment.entrySet()) {
+            entry.getKey().warm(entry.getValue(), data);
+        }
+    }
+
+    private static final class Segment {
+        private final int windowCapacity;
+        private final int protectedCapacity;
+        private final int mainCapacity;
+
+        private final Map<CalSummaryKey, CalendarData> data;
+        // keys of each area in LRU order, eldest first
+        private final LinkedHashSet<CalSummaryKey> window;
+        private final LinkedHashSet<CalSummaryKey> probation;
+        private final LinkedHashSet<CalSummaryKey> protectedArea;
+        private final FrequencySketch sketch;
+
+        // calendar folders cached for each account
+        private final Map<String /* account id */, Set<Integer> /* folder ids */> accountFolders;
+
+        private Segment(int capacity) {
+            windowCapacity = capacity > 0 ? Math.max(capacity / 100, 1) : 0;
+            mainCapacity = capacity - windowCapacity;
+            protectedCapacity = mainCapacity * 8 / 10;
+            data = new HashMap<CalSummaryKey, CalendarData>();
+            window = new LinkedHashSet<CalSummaryKey>();
+            probation = new LinkedHashSet<CalSummaryKey>();
+            protectedArea = new LinkedHashSet<CalSummaryKey>();
+            sketch = new FrequencySketch(capacity);
+            accountFolders = new HashMap<String, Set<Integer>>();
+        }
+
+        synchronized int size() {
+            return data.size();
+        }
+
+        synchronized void clear() {
+            data.clear();
+            window.clear();
+            probation.clear();
+            protectedArea.clear();
+            accountFolders.clear();
+        }
+
+        private static void touch(LinkedHashSet<CalSummaryKey> area, CalSummaryKey key) {
+            area.remove(key);
+            area.add(key);
+        }
+
+        private static CalSummaryKey eldest(LinkedHashSet<CalSummaryKey> area) {
+            return area.iterator().next();
+        }
+
+        synchronized CalendarData get(CalSummaryKey key) {
+            sketch.increment(key);
+            CalendarData value = data.get(key);
+            if (value == null) {
+                return null;
+            }
+            if (window.contains(key)) {
+                touch(window, key);
+            } else if (protectedArea.contains(key)) {
+                touch(protectedArea, key);
+            } else {
+                // second hit: promote from probation, making room by demoting the eldest protected entry
+                probation.remove(key);
+                protectedArea.add(key);
+                while (protectedArea.size() > protectedCapacity) {
+                    CalSummaryKey demoted = eldest(protectedArea);
+                    protectedArea.remove(demoted);
+                    probation.add(demoted);
+                }
+            }
+            return value;
+        }
+
+        synchronized CalendarData peek(CalSummaryKey key) {
+            return data.get(key);
+        }
+
+        synchronized void put(CalSummaryKey key, CalendarData value) {
+            if (data.containsKey(key)) {
+                data.put(key, value);
+                return;
+            }
+            if (windowCapacity == 0) {
+                return;
+            }
+            data.put(key, value);
+            window.add(key);
+            registerWithAccount(key);
+            while (window.size() > windowCapacity) {
+                CalSummaryKey candidate = eldest(window);
+                window.remove(candidate);
+                admit(candidate);
+            }
+        }
+
+        /**
+         * Moves an entry evicted from the window to the main area if it is used more often than the
+         * main area's eviction victim.
+         */
+        private void admit(CalSummaryKey candidate) {
+            if (probation.size() + protectedArea.size() < mainCapacity) {
+                probation.add(candidate);
+                return;
+            }
+            LinkedHashSet<CalSummaryKey> victimArea = probation.isEmpty() ? protectedArea : probation;
+            if (victimArea.isEmpty()) {
+                evict(candidate);
+                return;
+            }
+            CalSummaryKey victim = eldest(victimArea);
+            if (sketch.frequency(candidate) > sketch.frequency(victim)) {
+                victimArea.remove(victim);
+                evict(victim);
+                probation.add(candidate);
+            } else {
+                evict(candidate);
+            }
+        }
+
+        private void evict(CalSummaryKey key) {
+            data.remove(key);
+            deregisterFromAccount(key);
+        }
+
+        synchronized void remove(CalSummaryKey key) {
+            if (data.containsKey(key)) {
+                if (!window.remove(key) && !probation.remove(key)) {
+                    protectedArea.remove(key);
+                }
+                evict(key);
+            }
+        }
+
+        synchronized void removeAccount(String accountId) {
+            Set<Integer> folders = accountFolders.get(accountId);
+            if (folders != null) {
+                // Get a copy of the folder list to avoid ConcurrentModificationException.
+                Integer[] fids = folders.toArray(new Integer[0]);
+                for (int folderId : fids) {
+                    remove(new CalSummaryKey(accountId, folderId));
+                }
+            }
+        }
+
+        synchronized int getFolderForItem(String accountId, int itemId) {
+            Set<Integer> folders = accountFolders.get(accountId);
+            if (folders != null) {
+                for (int folderId : folders) {
+                    CalendarData calData = data.get(new CalSummaryKey(accountId, folderId));
+                    if (calData != null && calData.getCalendarItemData(itemId) != null) {
+                        return folderId;
+                    }
+                }
+            }
+            return FOLDER_NOT_FOUND;
+        }
+
+        private void registerWithAccount(CalSummaryKey key) {
+            Set<Integer> folders = accountFolders.get(key.getAccountId());
+            if (folders == null) {
+                folders = new HashSet<Integer>();
+                accountFolders.put(key.getAccountId(), folders);
+            }
+            folders.add(key.getFolderId());
+        }
+
+        private void deregisterFromAccount(CalSummaryKey key) {
+            Set<Integer> folders = accountFolders.get(key.getAccountId());
+            if (folders != null) {
+                folders.remove(key.getFolderId());
+                // If no folders are cached for the account, drop the account entry from the map to save memory.
+                if (folders.isEmpty()) {
+                    accountFolders.remove(key.getAccountId());
+                }
+            }
+        }
+
+        synchronized void addHotKeys(List<HotKey> keys) {
+            for (CalSummaryKey key : data.keySet()) {
+                keys.add(new HotKey(key, sketch.frequency(key)));
+            }
+        }
+
+        synchronized void warm(List<HotKey> keys, Map<CalSummaryKey, CalendarData> values) {
+            List<CalSummaryKey> toProtected = new ArrayList<CalSummaryKey>();
+            List<CalSummaryKey> toProbation = new ArrayList<CalSummaryKey>();
+            int room = mainCapacity - probation.size() - protectedArea.size();
+            int protectedRoom = protectedCapacity - protectedArea.size();
+            for (HotKey hotKey : keys) {
+                if (room == 0) {
+                    break;
+                }
+                if (data.containsKey(hotKey.key)) {
+                    continue;
+                }
+                while (sketch.frequency(hotKey.key) < hotKey.frequency) {
+                    sketch.increment(hotKey.key);
+                }
+                if (hotKey.frequency > 1 && protectedRoom > 0) {
+                    toProtected.add(hotKey.key);
+                    protectedRoom--;
+                } else {
+                    toProbation.add(hotKey.key);
+                }
+                room--;
+            }
+            // insert the coldest entries first so that they are the first to be evicted
+            for (int i = toProtected.size() - 1; i >= 0; i--) {
+                warmEntry(protectedArea, toProtected.get(i), values);
+            }
+            for (int i = toProbation.size() - 1; i >= 0; i--) {
+                warmEntry(probation, toProbation.get(i), values);
+            }
+        }
+
+        private void warmEntry(LinkedHashSet<CalSummaryKey> area, CalSummaryKey key,
+                Map<CalSummaryKey, CalendarData> values) {
+            data.put(key, values.get(key));
+            area.add(key);
+            registerWithAccount(key);
+        }
+    }
+}
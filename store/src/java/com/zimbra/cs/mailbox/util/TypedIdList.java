@@ -17,6 +17,7 @@
 package com.zimbra.cs.mailbox.util;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.EnumMap;
 import java.util.EnumSet;
 import java.util.Iterator;
@@ -214,6 +215,11 @@ public final class TypedIdList implements Iterable<Map.Entry<MailItem.Type, List
         return ids;
     }
 
+    public List<ItemInfo> getItemInfos(MailItem.Type type) {
+        List<ItemInfo> items = type2ids.get(type);
+        return items == null ? null : Collections.unmodifiableList(items);
+    }
+
     public List<Integer> getAllIds() {
         List<Integer> ids = new ArrayList<Integer>();
         for (List<ItemInfo> set : type2ids.values()) {
@@ -513,6 +513,10 @@ public final class ImapConnection extends MailConnection {
         return hasCapability(ImapCapabilities.UIDPLUS);
     }
 
+    public boolean hasCondStore() {
+        return hasCapability(ImapCapabilities.CONDSTORE);
+    }
+
     // Called from ImapRequest
     synchronized ImapResponse sendRequest(ImapRequest req) throws IOException {
         if (isClosed()) {
@@ -33,6 +33,7 @@ public final class MailboxInfo implements ResponseHandler {
     private long uidNext = -1;
     private long uidValidity = -1;
     private long unseen = -1;
+    private long highestModSeq = -1;
     private CAtom access;
 
     public MailboxInfo(String name) {
@@ -48,6 +49,7 @@ public final class MailboxInfo implements ResponseHandler {
         uidNext = mb.uidNext;
         uidValidity = mb.uidValidity;
         unseen = mb.unseen;
+        highestModSeq = mb.highestModSeq;
         access = mb.access;
     }
 
@@ -60,7 +62,7 @@ public final class MailboxInfo implements ResponseHandler {
     // status-att-list =  status-att SP number *(SP status-att SP number)
     //
     // status-att      = "MESSAGES" / "RECENT" / "UIDNEXT" / "UIDVALIDITY" /
-    //                   "UNSEEN"
+    //                   "UNSEEN" / "HIGHESTMODSEQ"
     //
     public static MailboxInfo readStatus(ImapInputStream is) throws IOException {
         MailboxInfo mbox = new MailboxInfo();
@@ -100,6 +102,9 @@ public final class MailboxInfo implements ResponseHandler {
             case UNSEEN:
                 unseen = is.readNumber();
                 break;
+            case HIGHESTMODSEQ:
+                highestModSeq = is.readNumber();
+                break;
             default:
                 ZimbraLog.imap_client.debug("Ignoring invalid STATUS response attribute: %s", attr);
             }
@@ -139,6 +144,9 @@ public final class MailboxInfo implements ResponseHandler {
             n = (Long) rt.getData();
             if (n > 0) uidValidity = n; // bug 38521
             break;
+        case HIGHESTMODSEQ:
+            highestModSeq = (Long) rt.getData();
+            break;
         case PERMANENTFLAGS:
             permanentFlags = (Flags) rt.getData();
             break;
@@ -159,6 +167,7 @@ public final class MailboxInfo implements ResponseHandler {
     public long getUidNext() { return uidNext; }
     public long getUidValidity() { return uidValidity; }
     public long getUnseen() { return unseen; }
+    public long getHighestModSeq() { return highestModSeq; }
     public boolean isReadOnly() { return access == CAtom.READ_ONLY; }
     public boolean isReadWrite() { return access == CAtom.READ_WRITE; }
 
@@ -183,6 +192,7 @@ public final class MailboxInfo implements ResponseHandler {
             .add("permanent_flags", permanentFlags)
             .add("uid_next", uidNext)
             .add("uid_validity", uidValidity)
+            .add("highest_modseq", highestModSeq)
             .add("access", access)
             .toString();
     }
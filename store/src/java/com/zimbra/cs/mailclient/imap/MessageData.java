@@ -43,6 +43,9 @@ import java.io.IOException;
  *                   "BODY" section ["<" number ">"] SP nstring /
  *                   "UID" SP uniqueid
  *                   ; MUST NOT change for a message
+ *
+ * fetch-mod-resp  = "MODSEQ" SP "(" permsg-modsequence ")"
+ *                   ; RFC 7162 CONDSTORE
  */
 public final class MessageData {
     private long msgno;
@@ -55,6 +58,7 @@ public final class MessageData {
     private BodyStructure bodyStructure;
     private List<Body> bodySections;
     private long uid = -1;
+    private long modSeq = -1;
 
     private static final SimpleDateFormat INTERNALDATE_FORMAT =
         new SimpleDateFormat("dd-MMM-yyyy HH:mm:ss Z", Locale.US);
@@ -122,6 +126,11 @@ public final class MessageData {
         case UID:
             uid = is.readNZNumber();
             break;
+        case MODSEQ:
+            is.skipChar('(');
+            modSeq = is.readNumber();
+            is.skipChar(')');
+            break;
         default:
             throw new ParseException("Invalid message data attribute: " + attr);
         }
@@ -153,6 +162,7 @@ public final class MessageData {
     public long getRfc822Size() { return rfc822Size; }
     public BodyStructure getBodyStructure() { return bodyStructure; }
     public long getUid() { return uid; }
+    public long getModSeq() { return modSeq; }
     
     public Body[] getBodySections() {
         return bodySections != null ?
@@ -32,6 +32,7 @@ import java.util.ArrayList;
  *                   "READ-ONLY" / "READ-WRITE" / "TRYCREATE" /
  *                   "UIDNEXT" SP nz-number / "UIDVALIDITY" SP nz-number /
  *                   "UNSEEN" SP nz-number /
+ *                   "HIGHESTMODSEQ" SP mod-sequence-value /
  *                   atom [SP 1*<any TEXT-CHAR except "]">]
  */
 public final class ResponseText {
@@ -67,6 +68,10 @@ public final class ResponseText {
             // (i.e. GMail) return 0. 
             data = is.readNumber();
             break;
+        case HIGHESTMODSEQ:
+            is.skipChar(' ');
+            data = is.readNumber();
+            break;
         case BADCHARSET:
             if (is.match(' ')) {
                 is.skipSpaces();
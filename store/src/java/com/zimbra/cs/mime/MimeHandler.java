@@ -19,10 +19,16 @@ package com.zimbra.cs.mime;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.activation.DataSource;
 import javax.mail.internet.MimeUtility;
@@ -32,12 +38,16 @@ import org.apache.lucene.document.Document;
 import com.google.common.base.Strings;
 import com.zimbra.common.calendar.ZCalendar.ZVCalendar;
 import com.zimbra.common.localconfig.DebugConfig;
+import com.zimbra.common.localconfig.LC;
 import com.zimbra.common.service.ServiceException;
+import com.zimbra.common.util.BufferStream;
 import com.zimbra.common.util.ByteUtil;
 import com.zimbra.common.util.ZimbraLog;
 import com.zimbra.cs.account.Provisioning;
 import com.zimbra.cs.convert.AttachmentInfo;
 import com.zimbra.cs.convert.ConversionException;
+import com.zimbra.cs.convert.ConversionPool;
+import com.zimbra.cs.convert.ExtractedTextCache;
 import com.zimbra.cs.index.IndexDocument;
 import com.zimbra.cs.index.analysis.MimeTypeTokenStream;
 import com.zimbra.cs.object.MatchedObject;
@@ -67,6 +77,7 @@ public abstract class MimeHandler {
     private String defaultCharset;
     private String locale;
     private String partName; // dotted-number part name
+    private int contentLimit = -1;
 
     /** Returns <tt>true</tt> if a request for the handler to perform text
      *  extraction or HTML conversion will result in an RPC to an external
@@ -146,6 +157,15 @@ public abstract class MimeHandler {
         return partName;
     }
 
+    /**
+     * Caps the length of the text returned by {@link #getContent}, on top of the indexed text
+     * limit the handler applies itself.  A cap of 0 skips text extraction; a negative cap
+     * means no cap.
+     */
+    void setContentLimit(int value) {
+        contentLimit = value;
+    }
+
     public void setFilename(String value) {
         filename = value;
     }
@@ -176,10 +196,18 @@ public abstract class MimeHandler {
      * Gets the text content of the document.
      */
     public final String getContent() throws MimeHandlerException {
+        if (contentLimit == 0) {
+            return "";
+        }
         if (!DebugConfig.disableMimePartExtraction) {
-            String toRet = getContentImpl();
+            if (extracted == null) {
+                extracted = extractContent();
+            }
+            String toRet = extracted;
             if (toRet == null)
                 return "";
+            else if (contentLimit > 0 && toRet.length() > contentLimit)
+                return toRet.substring(0, contentLimit);
             else
                 return toRet;
         } else {
@@ -207,6 +235,140 @@ public abstract class MimeHandler {
     }
     private boolean mDrainedContent = false;
     private static byte[] sDrainBuffer = new byte[4096];
+    private String extracted;
+
+    /**
+     * Runs {@link #getContentImpl()}, on the {@link ConversionPool} if the handler runs externally
+     * or the part is large.  Text extracted from large parts is kept in the {@link ExtractedTextCache},
+     * so that the same attachment in other messages or mailboxes isn't extracted again.
+     * <p>
+     * The part is read once, into a copy that the cache key is digested from and that a handler of its
+     * own converts.  A conversion that outlives its timeout goes on with that handler and copy, not with
+     * this handler and the message's part.
+     */
+    private String extractContent() throws MimeHandlerException {
+        boolean pooled = runsExternally() || size >= LC.conversion_pool_min_part_size.longValue();
+        ExtractedTextCache cache = null;
+        if (dataSource != null && size >= LC.text_extraction_cache_min_part_size.longValue()) {
+            cache = ExtractedTextCache.getInstance();
+        }
+        if (dataSource == null || (!pooled && cache == null)) {
+            return getContentImpl();
+        }
+
+        final BufferStream copy = new BufferStream(size, LC.conversion_pool_min_part_size.intValue());
+        // released by the conversion once it starts, or here if it never does
+        final AtomicBoolean claimed = new AtomicBoolean();
+        try {
+            String key = null;
+            InputStream is = null;
+            try {
+                MessageDigest md = null;
+                if (cache != null) {
+                    md = ExtractedTextCache.newDigest(getClass().getName() + '|' + getContentType() + '|' +
+                            Strings.nullToEmpty(defaultCharset) + '|' + MimeHandlerManager.getIndexedTextLimit());
+                }
+                is = dataSource.getInputStream();
+                copy.readFrom(md == null ? is : new DigestInputStream(is, md));
+                if (md != null) {
+                    key = ExtractedTextCache.getKey(md);
+                }
+            } catch (IOException e) {
+                throw new MimeHandlerException("cannot extract text", e);
+            } finally {
+                ByteUtil.closeStream(is);
+            }
+            if (key != null) {
+                String text = cache.get(key);
+                if (text != null) {
+                    return text;
+                }
+            }
+
+            final MimeHandler worker = detach(copy);
+            class Conversion implements Callable<String> {
+                @Override
+                public String call() throws MimeHandlerException {
+                    if (!claimed.compareAndSet(false, true)) {
+                        return null;
+                    }
+                    try {
+                        return worker.getContentImpl();
+                    } finally {
+                        copy.release();
+                    }
+                }
+            }
+            Conversion task = new Conversion();
+            String text;
+            if (pooled) {
+                try {
+                    text = ConversionPool.getInstance().run(task);
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof MimeHandlerException) {
+                        throw (MimeHandlerException) e.getCause();
+                    }
+                    throw new MimeHandlerException(e.getCause());
+                } catch (ConversionException e) {
+                    throw new MimeHandlerException(e);
+                }
+            } else {
+                text = task.call();
+            }
+            if (key != null && text != null) {
+                cache.put(key, text);
+            }
+            return text;
+        } finally {
+            if (claimed.compareAndSet(false, true)) {
+                copy.release();
+            }
+        }
+    }
+
+    /**
+     * Returns a new handler like this one that reads the given copy of the part instead.
+     */
+    private MimeHandler detach(final BufferStream content) throws MimeHandlerException {
+        MimeHandler handler;
+        try {
+            handler = getClass().newInstance();
+        } catch (InstantiationException | IllegalAccessException e) {
+            throw new MimeHandlerException(e);
+        }
+        handler.mimeTypeInfo = mimeTypeInfo;
+        handler.contentType = contentType;
+        handler.defaultCharset = defaultCharset;
+        handler.locale = locale;
+        handler.partName = partName;
+        handler.filename = filename;
+        handler.size = size;
+        handler.contentLimit = contentLimit;
+        final String name = dataSource.getName();
+        final String ctype = dataSource.getContentType();
+        handler.dataSource = new DataSource() {
+            @Override
+            public InputStream getInputStream() throws IOException {
+                return content.getInputStream();
+            }
+
+            @Override
+            public OutputStream getOutputStream() throws IOException {
+                throw new IOException("read-only copy of part " + partName);
+            }
+
+            @Override
+            public String getContentType() {
+                return ctype;
+            }
+
+            @Override
+            public String getName() {
+                return name;
+            }
+        };
+        return handler;
+    }
 
     /**
      * Returns the content for this MIME part.  Length of content returned
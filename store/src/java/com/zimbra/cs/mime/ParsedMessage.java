@@ -27,12 +27,12 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
 import java.util.Enumeration;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.zip.GZIPInputStream;
 
 import javax.mail.Address;
@@ -48,8 +48,10 @@ import javax.mail.internet.SharedInputStream;
 import javax.mail.util.SharedByteArrayInputStream;
 
 import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Fieldable;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Objects;
 import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Sets;
@@ -86,6 +88,7 @@ import com.zimbra.cs.mailbox.Flag;
 import com.zimbra.cs.mailbox.Mailbox;
 import com.zimbra.cs.mailbox.Threader;
 import com.zimbra.cs.object.ObjectHandlerException;
+import com.zimbra.cs.stats.ZimbraPerf;
 import com.zimbra.cs.store.Blob;
 import com.zimbra.cs.store.BlobInputStream;
 import com.zimbra.cs.store.StoreManager;
@@ -117,6 +120,8 @@ public final class ParsedMessage {
     private final List<String> filenames = new ArrayList<String>();
     private boolean indexAttachments;
     private int numParseErrors = 0;
+    private int extractedTextLength = 0;
+    private boolean extractedTextTruncated = false;
     private String defaultCharset;
 
     /** if TRUE then there was a _temporary_ failure analyzing the message.  We should attempt
@@ -146,7 +151,7 @@ public final class ParsedMessage {
     private CalendarPartInfo calendarPartInfo;
     private boolean wasMutated;
     private InputStream sharedStream;
-    private final Map<Mailbox, Threader> threaders = new HashMap<Mailbox, Threader>();
+    private final Map<Mailbox, Threader> threaders = new ConcurrentHashMap<Mailbox, Threader>();
     private String dataSourceId = null;
 
     public ParsedMessage(MimeMessage msg, boolean indexAttachments) throws ServiceException {
@@ -308,7 +313,14 @@ public final class ParsedMessage {
         return wasMutated;
     }
 
+    /**
+     * Sets the charset used to decode unlabeled headers.  Setting the charset the message was already
+     * prepared with leaves it untouched, so a message shared between delivery threads is never modified.
+     */
     public ParsedMessage setDefaultCharset(String charset) {
+        if (Objects.equal(defaultCharset, charset)) {
+            return this;
+        }
         defaultCharset = charset;
         if (mimeMessage instanceof ZMimeMessage) {
             ((ZMimeMessage) mimeMessage).setProperty("mail.mime.charset", charset);
@@ -453,6 +465,9 @@ public final class ParsedMessage {
             // we're done with the body content (saved from analyzeBodyParts()) now
             bodyContent = "";
 
+            ZimbraPerf.COUNTER_MSG_ANALYSIS_TEXT.increment(extractedTextLength);
+            LOG.debug("Extracted %d characters of text from %d parts (Message-Id: %s)",
+                    extractedTextLength, messageParts.size(), getMessageID());
             if (numParseErrors > 0) {
                 LOG.warn("Message had analysis errors in %d parts (Message-Id: %s, Subject: %s)",
                         numParseErrors, getMessageID(), getSubject());
@@ -473,6 +488,26 @@ public final class ParsedMessage {
         analyzeNonBodyParts();
     }
 
+    /**
+     * Runs all lazy parsing and analysis up front, so that the message can then be read by several
+     * threads delivering it to different mailboxes at the same time.  All those mailboxes must use
+     * the given default charset.
+     */
+    public ParsedMessage prepareForSharedDelivery(String charset) throws ServiceException {
+        setDefaultCharset(charset);
+        analyzeFully();
+        getCalendarPartInfo();
+        normalizeSubject();
+        getRecipients();
+        getParsedRecipients();
+        getSender();
+        getParsedSender();
+        getReplyTo();
+        getDateHeader();
+        getReceivedDate();
+        return this;
+    }
+
     /**
      * Returns the {@link MimeMessage}.  Affected by both conversion and mutation.
      */
@@ -1026,7 +1061,13 @@ public final class ParsedMessage {
             appendToContent(contentPrepend, fn); // also add the non-tokenized form, so full-filename searches match
         }
 
-        String text = contentPrepend.toString() + " " + fullContent.toString();
+        // release the extracted text as soon as it is copied, so that at most two copies are live
+        contentPrepend.ensureCapacity(contentPrepend.length() + fullContent.length() + 1);
+        contentPrepend.append(' ').append(fullContent);
+        fullContent.setLength(0);
+        fullContent.trimToSize();
+        String text = contentPrepend.toString();
+        contentPrepend = null;
         doc.addContent(text);
 
         try {
@@ -1122,6 +1163,7 @@ public final class ParsedMessage {
             Mime.repairTransferEncoding(mpi.getMimePart());
 
             if (handler.isIndexingEnabled()) {
+                handler.setContentLimit(getRemainingTextLimit());
                 handler.init(mpi.getMimePart().getDataHandler().getDataSource());
                 handler.setPartName(mpi.getPartName());
                 handler.setFilename(mpi.getFilename());
@@ -1147,17 +1189,25 @@ public final class ParsedMessage {
                 //     - the 'main body' and a local mime handler
                 //     - the 'main body' and IndexAttachments was set in the constructor
                 //     - IndexAttachments was set and !disableIndexingAttachmentsTogether
+                boolean indexSeparately = indexAttachments && !DebugConfig.disableIndexingAttachmentsSeparately;
                 if ((isMainBody && (!handler.runsExternally() || indexAttachments)) ||
                             (indexAttachments && !DebugConfig.disableIndexingAttachmentsTogether)) {
                     toRet = handler.getContent();
+                    chargeExtractedText(mpi, toRet.length());
                 }
 
-                if (indexAttachments && !DebugConfig.disableIndexingAttachmentsSeparately) {
+                if (indexSeparately) {
                     // Each non-text MIME part is also indexed as a separate
                     // Lucene document.  This is necessary so that we can tell the
                     // client what parts match if a search matched a particular
                     // part.
                     IndexDocument doc = new IndexDocument(handler.getDocument());
+                    if (toRet.isEmpty()) {
+                        Fieldable content = doc.toDocument().getFieldable(LuceneFields.L_CONTENT);
+                        if (content != null && content.stringValue() != null) {
+                            chargeExtractedText(mpi, content.stringValue().length());
+                        }
+                    }
 
                     String filename = handler.getFilename();
                     if (!Strings.isNullOrEmpty(filename)) {
@@ -1198,6 +1248,36 @@ public final class ParsedMessage {
         return toRet;
     }
 
+    /**
+     * Returns the number of characters that may still be extracted from this message's parts,
+     * or -1 if {@link LC#message_analysis_text_limit} is disabled.
+     */
+    private int getRemainingTextLimit() {
+        int limit = LC.message_analysis_text_limit.intValue();
+        if (limit <= 0) {
+            return -1;
+        }
+        return Math.max(limit - extractedTextLength, 0);
+    }
+
+    private void chargeExtractedText(MPartInfo mpi, int length) {
+        extractedTextLength += length;
+        int limit = LC.message_analysis_text_limit.intValue();
+        if (limit > 0 && extractedTextLength >= limit && !extractedTextTruncated) {
+            extractedTextTruncated = true;
+            LOG.info("Reached the limit of %d characters of extracted text at part %s; " +
+                    "the remaining text will not be indexed (Message-Id: %s)", limit, mpi.getPartName(), getMessageID());
+        }
+    }
+
+    /**
+     * Returns the number of characters of text extracted from the message parts so far, which
+     * is at most {@link LC#message_analysis_text_limit}.
+     */
+    public int getExtractedTextLength() {
+        return extractedTextLength;
+    }
+
     /**
      * Log the error and index minimum information.
      *
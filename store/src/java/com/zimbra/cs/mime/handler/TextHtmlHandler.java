@@ -50,7 +50,7 @@ public class TextHtmlHandler extends MimeHandler {
     @Override
     public void addFields(Document doc) throws MimeHandlerException {
         // make sure we've parsed the document
-        getContentImpl();
+        getContent();
     }
 
     @Override
@@ -0,0 +1,110 @@
+/*
+ * ***** BEGIN LICENSE BLOCK *****
+ * Zimbra Collaboration Suite Server
+ * Copyright (C) 2026 Synacor, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software Foundation,
+ * version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ * ***** END LICENSE BLOCK *****
+ */
+package com.zimbra.cs.redolog.op;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.zimbra.cs.mailbox.MailItem;
+import com.zimbra.cs.mailbox.Mailbox;
+import com.zimbra.cs.mailbox.MailboxManager;
+import com.zimbra.cs.mailbox.MailboxOperation;
+import com.zimbra.cs.redolog.RedoLogInput;
+import com.zimbra.cs.redolog.RedoLogOutput;
+
+/**
+ * IMAP MOVE: moves items to a folder and gives them new IMAP UIDs there.
+ */
+public class ImapMoveItem extends RedoableOp {
+
+    private Map<Integer, Integer> mImapUids = new LinkedHashMap<Integer, Integer>();
+    private MailItem.Type type;
+    private int mDestFolderId;
+
+    public ImapMoveItem() {
+        super(MailboxOperation.ImapMoveItem);
+        type = MailItem.Type.UNKNOWN;
+        mDestFolderId = 0;
+    }
+
+    public ImapMoveItem(int mailboxId, MailItem.Type type, int folderId) {
+        this();
+        setMailboxId(mailboxId);
+        this.type = type;
+        mDestFolderId = folderId;
+    }
+
+    public void setImapUid(int itemId, int imapUid) {
+        mImapUids.put(itemId, imapUid);
+    }
+
+    public int getImapUid(int itemId) {
+        Integer imapUid = mImapUids.get(itemId);
+        return imapUid == null ? Mailbox.ID_AUTO_INCREMENT : imapUid;
+    }
+
+    @Override
+    protected String getPrintableData() {
+        StringBuilder sb = new StringBuilder("type=").append(type);
+        sb.append(", destFolder=").append(mDestFolderId);
+        sb.append(", [id, imapUid]=");
+        for (Map.Entry<Integer, Integer> entry : mImapUids.entrySet()) {
+            sb.append('[').append(entry.getKey()).append(',').append(entry.getValue()).append(']');
+        }
+        return sb.toString();
+    }
+
+    @Override
+    protected void serializeData(RedoLogOutput out) throws IOException {
+        out.writeByte(type.toByte());
+        out.writeInt(mDestFolderId);
+        out.writeInt(mImapUids.size());
+        for (Map.Entry<Integer, Integer> entry : mImapUids.entrySet()) {
+            out.writeInt(entry.getKey());
+            out.writeInt(entry.getValue());
+        }
+    }
+
+    @Override
+    protected void deserializeData(RedoLogInput in) throws IOException {
+        type = MailItem.Type.of(in.readByte());
+        mDestFolderId = in.readInt();
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            int itemId = in.readInt();
+            mImapUids.put(itemId, in.readInt());
+        }
+    }
+
+    @Override
+    public void redo() throws Exception {
+        Mailbox mbox = MailboxManager.getInstance().getMailboxById(getMailboxId());
+
+        int i = 0, itemIds[] = new int[mImapUids.size()];
+        for (int id : mImapUids.keySet()) {
+            itemIds[i++] = id;
+        }
+        // idempotent: items already in the folder keep the UIDs they were given
+        mbox.imapMove(getOperationContext(), itemIds, type, mDestFolderId);
+    }
+
+    @Override
+    public boolean isDeleteOp() {
+        return mDestFolderId == Mailbox.ID_FOLDER_TRASH;
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * ***** BEGIN LICENSE BLOCK *****
+ * Zimbra Collaboration Suite Server
+ * Copyright (C) 2026 Synacor, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software Foundation,
+ * version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ * ***** END LICENSE BLOCK *****
+ */
+package com.zimbra.cs.server;
+
+/**
+ * Per-connection counters of a DEFLATE compression layer (RFC 4978): bytes before and after
+ * compression in each direction, and the time spent compressing and decompressing.
+ */
+public final class CompressionStats {
+    private long rawIn;
+    private long wireIn;
+    private long rawOut;
+    private long wireOut;
+    private long nanos;
+
+    synchronized void inflated(long wire, long raw, long elapsedNanos) {
+        wireIn += wire;
+        rawIn += raw;
+        nanos += elapsedNanos;
+    }
+
+    synchronized void deflated(long raw, long wire, long elapsedNanos) {
+        rawOut += raw;
+        wireOut += wire;
+        nanos += elapsedNanos;
+    }
+
+    public synchronized long getRawBytesIn() {
+        return rawIn;
+    }
+
+    public synchronized long getWireBytesIn() {
+        return wireIn;
+    }
+
+    public synchronized long getRawBytesOut() {
+        return rawOut;
+    }
+
+    public synchronized long getWireBytesOut() {
+        return wireOut;
+    }
+
+    /**
+     * Returns the size of what was sent as a percentage of its uncompressed size, or 100 if nothing was sent.
+     */
+    public synchronized long getRatioPercent() {
+        return rawOut == 0 ? 100 : wireOut * 100 / rawOut;
+    }
+
+    /**
+     * Returns the time spent in the compressor and decompressor, in microseconds.
+     */
+    public synchronized long getCpuMicros() {
+        return nanos / 1000;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("out=%d/%d (%d%%), in=%d/%d, cpu=%dus", wireOut, rawOut, getRatioPercent(), wireIn, rawIn,
+                getCpuMicros());
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * ***** BEGIN LICENSE BLOCK *****
+ * Zimbra Collaboration Suite Server
+ * Copyright (C) 2026 Synacor, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software Foundation,
+ * version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ * ***** END LICENSE BLOCK *****
+ */
+package com.zimbra.cs.server;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Stream wrappers for the DEFLATE compression layer of RFC 4978 (IMAP COMPRESS) on blocking connections.
+ * <p>
+ * The output stream only sync-flushes the compressor when it is flushed, which the protocol handlers do at
+ * response boundaries, so that the client can decompress a response as soon as it arrives.
+ */
+public final class DeflateStreams {
+    private static final int CHUNK_SIZE = 8192;
+
+    private DeflateStreams() {
+    }
+
+    public static InputStream inflating(InputStream in, CompressionStats stats) {
+        return new InflatingInputStream(in, stats);
+    }
+
+    public static OutputStream deflating(OutputStream out, int level, CompressionStats stats) {
+        return new DeflatingOutputStream(out, level, stats);
+    }
+
+    private static final class InflatingInputStream extends FilterInputStream {
+        private final Inflater inflater = new Inflater(true);
+        private final byte[] input = new byte[CHUNK_SIZE];
+        private final CompressionStats stats;
+        private boolean eof = false;
+
+        InflatingInputStream(InputStream in, CompressionStats stats) {
+            super(in);
+            this.stats = stats;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            int len = read(b, 0, 1);
+            return len == -1 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            while (!eof) {
+                int wire = 0;
+                if (inflater.needsInput()) {
+                    wire = in.read(input);
+                    if (wire == -1) {
+                        eof = true;
+                        break;
+                    }
+                    inflater.setInput(input, 0, wire);
+                }
+                long start = System.nanoTime();
+                int raw;
+                try {
+                    raw = inflater.inflate(b, off, len);
+                } catch (DataFormatException e) {
+                    throw new IOException("invalid compressed data", e);
+                }
+                stats.inflated(wire, raw, System.nanoTime() - start);
+                if (raw > 0) {
+                    return raw;
+                } else if (inflater.finished() || inflater.needsDictionary()) {
+                    throw new IOException("unexpected end of compressed stream");
+                }
+            }
+            return -1;
+        }
+
+        /** Whether buffered input inflates to anything isn't known without inflating it. */
+        @Override
+        public int available() {
+            return 0;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            byte[] b = new byte[(int) Math.min(n, CHUNK_SIZE)];
+            int len = read(b, 0, b.length);
+            return len == -1 ? 0 : len;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                inflater.end();
+            }
+        }
+    }
+
+    private static final class DeflatingOutputStream extends FilterOutputStream {
+        private final Deflater deflater;
+        private final byte[] output = new byte[CHUNK_SIZE];
+        private final CompressionStats stats;
+        private boolean closed = false;
+
+        DeflatingOutputStream(OutputStream out, int level, CompressionStats stats) {
+            super(out);
+            this.deflater = new Deflater(level, true);
+            this.stats = stats;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return;
+            }
+            deflater.setInput(b, off, len);
+            long wire = 0;
+            long nanos = 0;
+            while (!deflater.needsInput()) {
+                long start = System.nanoTime();
+                int n = deflater.deflate(output, 0, output.length, Deflater.NO_FLUSH);
+                nanos += System.nanoTime() - start;
+                out.write(output, 0, n);
+                wire += n;
+            }
+            stats.deflated(len, wire, nanos);
+        }
+
+        @Override
+        public synchronized void flush() throws IOException {
+            long wire = 0;
+            long nanos = 0;
+            int n;
+            do {
+                long start = System.nanoTime();
+                n = deflater.deflate(output, 0, output.length, Deflater.SYNC_FLUSH);
+                nanos += System.nanoTime() - start;
+                out.write(output, 0, n);
+                wire += n;
+            } while (n == output.length);
+            stats.deflated(0, wire, nanos);
+            out.flush();
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                super.close();
+            } finally {
+                deflater.end();
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * ***** BEGIN LICENSE BLOCK *****
+ * Zimbra Collaboration Suite Server
+ * Copyright (C) 2026 Synacor, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software Foundation,
+ * version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ * ***** END LICENSE BLOCK *****
+ */
+package com.zimbra.cs.server;
+
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.apache.mina.core.buffer.IoBuffer;
+import org.apache.mina.core.filterchain.IoFilterAdapter;
+import org.apache.mina.core.filterchain.IoFilterChain;
+import org.apache.mina.core.session.IoSession;
+import org.apache.mina.core.write.DefaultWriteRequest;
+import org.apache.mina.core.write.WriteRequest;
+
+/**
+ * MINA filter for the DEFLATE compression layer of RFC 4978 (IMAP COMPRESS).
+ * <p>
+ * Each write is compressed and followed by a sync flush, so that the client can decompress a response as soon
+ * as it arrives; {@link NioOutputStream} only writes to the session at response boundaries or when its buffer
+ * fills. The filter belongs to a single connection and holds its compression state.
+ */
+public final class NioCompressionFilter extends IoFilterAdapter {
+
+    /** When set, compression is disabled for the first write */
+    public static final String DISABLE_COMPRESSION_ONCE = NioCompressionFilter.class.getName() + ".DisableCompressionOnce";
+
+    private static final int CHUNK_SIZE = 8192;
+
+    private final Deflater deflater;
+    private final Inflater inflater = new Inflater(true);
+    private final CompressionStats stats;
+    private boolean ended = false;
+
+    public NioCompressionFilter(int level, CompressionStats stats) {
+        this.deflater = new Deflater(level, true);
+        this.stats = stats;
+    }
+
+    @Override
+    public void messageReceived(NextFilter nextFilter, IoSession session, Object message) throws IOException {
+        IoBuffer buf = (IoBuffer) message;
+        int wire = buf.remaining();
+        if (wire == 0) {
+            nextFilter.messageReceived(session, message);
+            return;
+        }
+        byte[] input = new byte[wire];
+        buf.get(input);
+        IoBuffer out = IoBuffer.allocate(wire * 4).setAutoExpand(true);
+        byte[] chunk = new byte[CHUNK_SIZE];
+        long start = System.nanoTime();
+        synchronized (inflater) {
+            if (ended) {
+                return;
+            }
+            inflater.setInput(input);
+            try {
+                while (!inflater.needsInput()) {
+                    int len = inflater.inflate(chunk);
+                    if (len > 0) {
+                        out.put(chunk, 0, len);
+                    } else if (inflater.finished() || inflater.needsDictionary()) {
+                        throw new IOException("unexpected end of compressed stream");
+                    }
+                }
+            } catch (DataFormatException e) {
+                throw new IOException("invalid compressed data", e);
+            }
+        }
+        out.flip();
+        stats.inflated(wire, out.remaining(), System.nanoTime() - start);
+        if (out.hasRemaining()) {
+            nextFilter.messageReceived(session, out);
+        }
+    }
+
+    @Override
+    public void filterWrite(NextFilter nextFilter, IoSession session, WriteRequest writeRequest) throws IOException {
+        IoBuffer buf = (IoBuffer) writeRequest.getMessage();
+        // the tagged OK of the COMPRESS command goes out uncompressed
+        if (session.containsAttribute(DISABLE_COMPRESSION_ONCE)) {
+            session.removeAttribute(DISABLE_COMPRESSION_ONCE);
+            nextFilter.filterWrite(session, writeRequest);
+            return;
+        }
+        int raw = buf.remaining();
+        if (raw == 0) {
+            nextFilter.filterWrite(session, writeRequest);
+            return;
+        }
+        byte[] input = new byte[raw];
+        buf.get(input);
+        IoBuffer out = IoBuffer.allocate(raw / 2 + 64).setAutoExpand(true);
+        byte[] chunk = new byte[CHUNK_SIZE];
+        long start = System.nanoTime();
+        synchronized (deflater) {
+            if (ended) {
+                throw new IOException("connection closed");
+            }
+            deflater.setInput(input);
+            int len;
+            do {
+                len = deflater.deflate(chunk, 0, chunk.length, Deflater.SYNC_FLUSH);
+                out.put(chunk, 0, len);
+            } while (len == chunk.length || !deflater.needsInput());
+        }
+        out.flip();
+        stats.deflated(raw, out.remaining(), System.nanoTime() - start);
+        nextFilter.filterWrite(session, new DefaultWriteRequest(out, writeRequest.getFuture()));
+    }
+
+    @Override
+    public void onPostRemove(IoFilterChain parent, String name, NextFilter nextFilter) {
+        end();
+    }
+
+    @Override
+    public void sessionClosed(NextFilter nextFilter, IoSession session) throws Exception {
+        end();
+        nextFilter.sessionClosed(session);
+    }
+
+    private void end() {
+        synchronized (deflater) {
+            synchronized (inflater) {
+                if (!ended) {
+                    ended = true;
+                    deflater.end();
+                    inflater.end();
+                }
+            }
+        }
+    }
+}
@@ -85,6 +85,15 @@ public final class NioConnection {
         session.setAttribute(SaslFilter.DISABLE_ENCRYPTION_ONCE, true);
     }
 
+    /**
+     * Starts compressing the connection with DEFLATE (RFC 4978).  The compression layer goes above any
+     * TLS or SASL security layer, and the next write, the reply to the request, is sent uncompressed.
+     */
+    public void startCompression(int level, CompressionStats stats) {
+        session.getFilterChain().addAfter("executer", "deflate", new NioCompressionFilter(level, stats));
+        session.setAttribute(NioCompressionFilter.DISABLE_COMPRESSION_ONCE, true);
+    }
+
     public void send(Object obj) {
         session.write(obj);
     }
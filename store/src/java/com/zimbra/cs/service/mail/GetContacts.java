@@ -247,4 +247,9 @@ public final class GetContacts extends MailDocumentHandler  {
 
         return responses;
     }
+
+    @Override
+    public boolean canRunInParallel(Element request) {
+        return true;
+    }
 }
@@ -79,4 +79,9 @@ public class GetConv extends MailDocumentHandler  {
         ToXML.encodeConversation(response, ifmt, octxt, conv, msgs, params);
         return response;
     }
+
+    @Override
+    public boolean canRunInParallel(Element request) {
+        return true;
+    }
 }
@@ -234,4 +234,9 @@ public class GetFolder extends MailDocumentHandler {
         // if neither this folder nor any of its subfolders match, it's out
         return node.mFolder == null && node.mSubfolders.isEmpty() ? null : node;
     }
+
+    @Override
+    public boolean canRunInParallel(Element request) {
+        return true;
+    }
 }
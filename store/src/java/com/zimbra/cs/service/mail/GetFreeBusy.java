@@ -93,6 +93,8 @@ public class GetFreeBusy extends MailDocumentHandler {
 
         Account requestor = Provisioning.getInstance().get(Key.AccountBy.id, zc.getAuthtokenAccountId());
     	FreeBusyQuery fbQuery = new FreeBusyQuery((HttpServletRequest) context.get(SoapServlet.SERVLET_REQUEST), zc, requestor, rangeStart, rangeEnd, exApptUid);
+    	// scheduling assistant and resource searches; slot granularity is fine here
+    	fbQuery.setUseBitmaps(true);
 
         String[] idStrs = null;
 
@@ -140,6 +140,16 @@ public class GetMsg extends MailDocumentHandler {
         return RedoLogProvider.getInstance().isSlave();
     }
 
+    @Override
+    public boolean canRunInParallel(Element request) {
+        try {
+            Element msg = request.getOptionalElement(MailConstants.E_MSG);
+            return msg != null && !msg.getAttributeBool(MailConstants.A_MARK_READ, false);
+        } catch (ServiceException e) {
+            return false;
+        }
+    }
+
     public static CalendarItem getCalendarItem(OperationContext octxt, Mailbox mbox, ItemId iid) throws ServiceException {
         assert(iid.hasSubpart());
         return mbox.getCalendarItemById(octxt, iid.getId());
@@ -107,8 +107,8 @@ public class Search extends MailDocumentHandler  {
             memberOfMap = ContactMemberOfMap.getMemberOfMap(mbox, octxt);
         }
 
-        // create the XML response Element
-        Element response = zsc.createElement(MailConstants.SEARCH_RESPONSE);
+        // create the XML response Element; hits are encoded as they are added
+        Element response = zsc.createStreamingElement(MailConstants.SEARCH_RESPONSE);
         try (ZimbraQueryResults results = mbox.index.search(zsc.getResponseProtocol(), octxt,
             params)) {
             // must use results.getSortBy() because the results might have ignored our sortBy
@@ -502,5 +502,13 @@ public class Search extends MailDocumentHandler  {
             request.addAttribute(recipField, "0");
         }
     }
-}
 
+    @Override
+    public boolean canRunInParallel(Element request) {
+        try {
+            return !request.getAttributeBool(MailConstants.A_MARK_READ, false);
+        } catch (ServiceException e) {
+            return false;
+        }
+    }
+}
@@ -102,6 +102,7 @@ import com.zimbra.cs.gal.GalGroup.GroupInfo;
 import com.zimbra.cs.gal.GalGroupInfoProvider;
 import com.zimbra.cs.gal.GalGroupMembers.ContactDLMembers;
 import com.zimbra.cs.html.BrowserDefang;
+import com.zimbra.cs.html.DefangCache;
 import com.zimbra.cs.html.DefangFactory;
 import com.zimbra.cs.html.DefangFilter;
 import com.zimbra.cs.html.HtmlDefang;
@@ -1622,7 +1623,8 @@ public final class ToXML {
             List<MPartInfo> parts = Mime.getParts(mm, getDefaultCharset(msg));
             if (parts != null && !parts.isEmpty()) {
                 Set<MPartInfo> bodies = Mime.getBody(parts, wantHTML);
-                addParts(m, parts.get(0), bodies, part, maxSize, neuter, false, getDefaultCharset(msg), bestEffort, wantContent);
+                addParts(m, parts.get(0), bodies, part, maxSize, neuter, false, getDefaultCharset(msg), bestEffort, wantContent,
+                        msg.getDigest());
             }
 
             if (wantExpandGroupInfo) {
@@ -2595,6 +2597,17 @@ throws ServiceException {
 
     private static void addParts(Element root, MPartInfo mpiRoot, Set<MPartInfo> bodies, String prefix, int maxSize,
             boolean neuter, boolean excludeCalendarParts, String defaultCharset, boolean swallowContentExceptions, MsgContent wantContent)
+    throws ServiceException {
+        addParts(root, mpiRoot, bodies, prefix, maxSize, neuter, excludeCalendarParts, defaultCharset, swallowContentExceptions,
+                wantContent, null);
+    }
+
+    /**
+     * @param digest digest of the blob the parts come from, if their defanged HTML may be cached
+     */
+    private static void addParts(Element root, MPartInfo mpiRoot, Set<MPartInfo> bodies, String prefix, int maxSize,
+            boolean neuter, boolean excludeCalendarParts, String defaultCharset, boolean swallowContentExceptions, MsgContent wantContent,
+            String digest)
     throws ServiceException {
         MPartInfo mpi = mpiRoot;
         LinkedList<Pair<Element, LinkedList<MPartInfo>>> queue = new LinkedList<Pair<Element, LinkedList<MPartInfo>>>();
@@ -2612,7 +2625,7 @@ throws ServiceException {
 
             mpi = parts.getFirst();
             Element child = addPart(phase, level.getFirst(), root, mpi, bodies, prefix, maxSize, neuter,
-                    excludeCalendarParts, defaultCharset, swallowContentExceptions, wantContent);
+                    excludeCalendarParts, defaultCharset, swallowContentExceptions, wantContent, digest);
             if (phase == VisitPhase.PREVISIT && child != null && mpi.hasChildren()) {
                 queue.addLast(new Pair<Element, LinkedList<MPartInfo>>(child, new LinkedList<MPartInfo>(mpi.getChildren())));
             } else {
@@ -2623,7 +2636,7 @@ throws ServiceException {
 
     private static Element addPart(VisitPhase phase, Element parent, Element root, MPartInfo mpi,
             Set<MPartInfo> bodies, String prefix, int maxSize, boolean neuter, boolean excludeCalendarParts,
-            String defaultCharset, boolean swallowContentExceptions, MsgContent wantContent)
+            String defaultCharset, boolean swallowContentExceptions, MsgContent wantContent, String digest)
     throws ServiceException {
         if (phase == VisitPhase.POSTVISIT) {
             return null;
@@ -2753,7 +2766,8 @@ throws ServiceException {
             }
 
             try {
-                addContent(el, mpi, maxSize, neuter, defaultCharset, wantContent);
+                addContent(el, mpi, maxSize, neuter, defaultCharset, wantContent,
+                        digest == null ? null : digest + '/' + Strings.nullToEmpty(prefix));
             } catch (IOException e) {
                 if (!swallowContentExceptions) {
                     throw ServiceException.FAILURE("error serializing part content", e);
@@ -2817,6 +2831,16 @@ throws ServiceException {
      * @throws IOException on error during parsing or defanging
      * @see HtmlDefang#defang(String, boolean) */
     private static void addContent(Element elt, MPartInfo mpi, int maxSize, boolean neuter, String defaultCharset, MsgContent wantContent)
+    throws IOException, MessagingException {
+        addContent(elt, mpi, maxSize, neuter, defaultCharset, wantContent, null);
+    }
+
+    /** As {@link #addContent(Element, MPartInfo, int, boolean, String, MsgContent)}, looking up and
+     *  caching the defanged content of <b>text/html</b> parts in the {@link DefangCache}.
+     *
+     * @param digest  Digest of the blob the part comes from, or <tt>null</tt> to bypass the cache. */
+    private static void addContent(Element elt, MPartInfo mpi, int maxSize, boolean neuter, String defaultCharset, MsgContent wantContent,
+            String digest)
     throws IOException, MessagingException {
         // TODO: support other parts
         String ctype = mpi.getContentType();
@@ -2840,7 +2864,21 @@ throws ServiceException {
         }
 
         boolean wasTruncated = false;
+        DefangCache defangCache = DefangCache.getInstance();
+        String cacheKey = null;
+        DefangCache.Result cached = null;
         if (ctype.equals(MimeConstants.CT_TEXT_HTML)) {
+            cacheKey = defangCache.getKey(digest, mpi.getPartName(), DefangFactory.getDefanger(ctype), neuter,
+                    defaultCharset, maxSize);
+            cached = defangCache.get(cacheKey);
+        }
+        if (cached != null) {
+            data = cached.content;
+            wasTruncated = cached.truncated;
+            if (wantContent.equals(MsgContent.original) || wantContent.equals(MsgContent.both)) {
+                originalContent = removeQuotedText(data, true);
+            }
+        } else if (ctype.equals(MimeConstants.CT_TEXT_HTML)) {
             String charset = mpi.getContentTypeParameter(MimeConstants.P_CHARSET);
             InputStream stream = null;
             StringWriter sw = new StringWriter();
@@ -2885,6 +2923,7 @@ throws ServiceException {
                 ByteUtil.closeStream(stream);
                 Closeables.closeQuietly(reader);
             }
+            defangCache.put(cacheKey, data, wasTruncated);
         } else if (ctype.equals(MimeConstants.CT_TEXT_ENRICHED)) {
             // Enriched text handling is a little funky because TextEnrichedHandler
             // doesn't use Reader and Writer.  As a result, we truncate
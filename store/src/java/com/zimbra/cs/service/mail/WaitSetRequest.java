@@ -52,7 +52,6 @@ import com.zimbra.cs.session.WaitSetAccount;
 import com.zimbra.cs.session.WaitSetCallback;
 import com.zimbra.cs.session.WaitSetError;
 import com.zimbra.cs.session.WaitSetMgr;
-import com.zimbra.cs.session.WaitSetSession;
 import com.zimbra.soap.SoapServlet;
 import com.zimbra.soap.ZimbraSoapContext;
 import com.zimbra.soap.base.WaitSetReq;
@@ -288,20 +287,12 @@ public class WaitSetRequest extends MailDocumentHandler {
         } else if (cb.completed) {
             resp.setSeqNo(cb.seqNo);
             for (String signalledAccount : cb.signalledAccounts) {
-                WaitSetSession signalledSession = cb.signalledSessions.get(signalledAccount);
                 int lastChangeId = 0;
-                Set<Integer> folderInterests = null;
-                if (signalledSession != null) {
-                    folderInterests = signalledSession.getFolderInterest();
-                    if(signalledSession.getMailbox() != null) {
-                        lastChangeId = signalledSession.getMailbox().getLastChangeID();
-                    }
-                } else {
-                    Mailbox mbox = MailboxManager.getInstance().getMailboxByAccountId(signalledAccount,
-                            false);
-                    if(mbox != null) {
-                        lastChangeId = mbox.getLastChangeID();
-                    }
+                Set<Integer> folderInterests = cb.folderInterests.get(signalledAccount);
+                Mailbox mbox = MailboxManager.getInstance().getMailboxByAccountId(signalledAccount,
+                        MailboxManager.FetchMode.ONLY_IF_CACHED);
+                if(mbox != null) {
+                    lastChangeId = mbox.getLastChangeID();
                 }
                 AccountWithModifications info = new AccountWithModifications(signalledAccount, lastChangeId);
                 @SuppressWarnings("rawtypes")
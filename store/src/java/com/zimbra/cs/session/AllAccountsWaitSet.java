@@ -242,7 +242,7 @@ public final class AllAccountsWaitSet extends WaitSetBase {
     }
 
     @Override
-    protected Map<String, WaitSetAccount> destroy() {
+    protected void destroy() {
         synchronized(sAllAccountsWaitSets) {
             sAllAccountsWaitSets.remove(this);
             if (ZimbraLog.session.isDebugEnabled()) {
@@ -256,11 +256,8 @@ public final class AllAccountsWaitSet extends WaitSetBase {
             }
             interestTypes = types;
         }
-        mCurrentSignalledSessions.clear();
-        mSentSignalledSessions.clear();
         mSentSignalledAccounts.clear();
         mCurrentSignalledAccounts.clear();
-        return null;
     }
 
     @Override
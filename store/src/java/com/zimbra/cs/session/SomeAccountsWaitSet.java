@@ -17,12 +17,15 @@
 package com.zimbra.cs.session;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Sets;
 import com.zimbra.common.service.ServiceException;
 import com.zimbra.common.util.ZimbraLog;
 import com.zimbra.cs.account.AccountServiceException;
@@ -31,12 +34,16 @@ import com.zimbra.cs.mailbox.Mailbox;
 import com.zimbra.cs.mailbox.MailboxManager;
 import com.zimbra.cs.mailbox.MailboxManager.FetchMode;
 import com.zimbra.cs.service.mail.WaitSetRequest;
+import com.zimbra.cs.service.util.SyncToken;
 import com.zimbra.soap.admin.type.SessionForWaitSet;
 import com.zimbra.soap.admin.type.WaitSetInfo;
 import com.zimbra.soap.admin.type.WaitSetSessionInfo;
 
 /**
  * SomeAccountsWaitSet: an implementation of IWaitSet that works by listening over one or more Accounts
+ * <p>
+ * Changes to the accounts are picked up from the {@link WaitSetChangeLog} shared by all WaitSets:
+ * the WaitSet only keeps a cursor into the log, and reads each change as soon as it is logged.
  *
  * External APIs:
  *     WaitSet.doWait()              // primary wait API
@@ -47,13 +54,29 @@ public final class SomeAccountsWaitSet extends WaitSetBase implements MailboxMan
     private long mCbSeqNo = 0; // seqno passed in by the current waiting callback
     private long mCurrentSeqNo; // current sequence number
 
-    /** these are the accounts we are listening to.  Stores EITHER a WaitSetSession or an AccountID  */
+    private final WaitSetChangeLog changeLog;
+    private long mCursor; // position in the change log up to which signals have been collected
+
+    /** these are the accounts we are listening to */
     private HashMap<String, WaitSetAccount> mSessions = new HashMap<String, WaitSetAccount>();
 
+    /** modifications built by merging several log entries, which are ours to add to */
+    @SuppressWarnings("rawtypes")
+    private final Set<PendingModifications> mergedModifications = Sets.newIdentityHashSet();
+
     /** Constructor */
     SomeAccountsWaitSet(String ownerAccountId, String id, Set<MailItem.Type> defaultInterest) {
+        this(ownerAccountId, id, defaultInterest, WaitSetChangeLog.getInstance());
+    }
+
+    @VisibleForTesting
+    SomeAccountsWaitSet(String ownerAccountId, String id, Set<MailItem.Type> defaultInterest,
+            WaitSetChangeLog changeLog) {
         super(ownerAccountId, id, defaultInterest);
         mCurrentSeqNo = 1;
+        this.changeLog = changeLog;
+        mCursor = changeLog.getNextPosition();
+        changeLog.addWaitSet(this);
     }
 
     @Override
@@ -61,20 +84,14 @@ public final class SomeAccountsWaitSet extends WaitSetBase implements MailboxMan
         List<WaitSetError> errors = new ArrayList<WaitSetError>();
 
         for (String id : accts) {
-            WaitSetSession session = null;
             synchronized(this) {
-                WaitSetAccount wsa = mSessions.get(id);
+                WaitSetAccount wsa = mSessions.remove(id);
                 if (wsa != null) {
-                    session = wsa.getSession();
-                    mSessions.remove(id);
+                    unwatch(wsa);
                 } else {
                     errors.add(new WaitSetError(id, WaitSetError.Type.NOT_IN_SET_DURING_REMOVE));
                 }
             }
-            if (session != null) {
-                assert(!Thread.holdsLock(this));
-                session.doCleanup();
-            }
         }
         return errors;
     }
@@ -116,42 +133,128 @@ public final class SomeAccountsWaitSet extends WaitSetBase implements MailboxMan
     public synchronized void mailboxLoaded(Mailbox mbox) {
         WaitSetAccount wsa = mSessions.get(mbox.getAccountId());
         if (wsa != null) {
-            // create a new session...
-            WaitSetError error = initializeWaitSetSession(wsa, mbox);
-            if (error != null) {
-                mSessions.remove(wsa.getAccountId());
-                signalError(error);
-            }
+            checkSyncToken(wsa, mbox);
         }
     }
 
     @Override
     public synchronized void mailboxDeleted(String accountId) {
-        WaitSetAccount wsa = mSessions.get(accountId);
+        WaitSetAccount wsa = mSessions.remove(accountId);
         if (wsa != null) {
-            mSessions.remove(accountId);
+            unwatch(wsa);
             signalError(new WaitSetError(accountId, WaitSetError.Type.MAILBOX_DELETED));
         }
     }
 
-    private synchronized WaitSetError initializeWaitSetSession(WaitSetAccount wsa, Mailbox mbox) {
-        //
-        // check to see if the session is already initialized and valid, if not, re-initialize it.
-        //
-        WaitSetSession session = wsa.getSession();
-        if (session != null && session.getMailbox() != mbox) {
-            ZimbraLog.session.warn("SESSION BEING LEAKED? WaitSetSession points to old version of mailbox...possibly leaking this session:", session);
-            wsa.cleanupSession();
-            session = null; // re-initialize it below
+    /**
+     * Signal the account if the mailbox has changed since the account's sync token, or revoke the
+     * signal if the sync token is up to date with the mailbox.
+     */
+    private synchronized void checkSyncToken(WaitSetAccount wsa, Mailbox mbox) {
+        SyncToken token = wsa.getLastKnownSyncToken();
+        if (token == null) {
+            return;
+        }
+        String accountId = wsa.getAccountId();
+        if (token.after(mbox.getLastChangeID())) {
+            mCurrentSignalledAccounts.remove(accountId);
+            currentPendingModifications.remove(accountId);
+        } else if (mCurrentSignalledAccounts.add(accountId)) {
+            trySendData();
+        }
+    }
+
+    private static boolean hasFolderInterests(WaitSetAccount wsa) {
+        return wsa.getFolderInterests() != null && !wsa.getFolderInterests().isEmpty();
+    }
+
+    private void unwatch(WaitSetAccount wsa) {
+        changeLog.unwatch(wsa.getAccountId(), hasFolderInterests(wsa));
+    }
+
+    /**
+     * Called by the change log whenever a change to a watched account is logged.  The change is
+     * read straight away, whether or not a callback is waiting, so that the cursor never falls far
+     * enough behind for changes to be overwritten before we have seen them.
+     */
+    synchronized void changeLogged(WaitSetChangeLog.Entry entry) {
+        collectSignals();
+        if (mCb != null && (mSessions.containsKey(entry.accountId) || !mCurrentErrors.isEmpty())) {
+            trySendData();
+        }
+    }
+
+    @Override
+    protected void collectSignals() {
+        WaitSetChangeLog.Changes changes = changeLog.getChangesSince(mCursor);
+        mCursor = changes.next;
+        if (currentPendingModifications.isEmpty()) {
+            mergedModifications.clear();
+        }
+        if (changes.overflowed) {
+            // changes we never saw may have been to any of our accounts
+            ZimbraLog.session.warn("WaitSet %s fell behind the change log; asking for a resync of all %d accounts",
+                    mWaitSetId, mSessions.size());
+            for (String accountId : mSessions.keySet()) {
+                mCurrentErrors.add(new WaitSetError(accountId, WaitSetError.Type.RESYNC_REQUIRED));
+            }
         }
+        for (WaitSetChangeLog.Entry entry : changes.entries) {
+            WaitSetAccount wsa = mSessions.get(entry.accountId);
+            if (wsa == null) {
+                continue;
+            }
+            wsa.setHighestChangeId(entry.changeId);
+            if (isSignalledBy(wsa, entry)) {
+                mCurrentSignalledAccounts.add(entry.accountId);
+                mergeMods(entry.accountId, entry.mods);
+            }
+        }
+    }
 
-        if (session == null) {
-            return wsa.createSession(mbox, this);
+    private boolean isSignalledBy(WaitSetAccount wsa, WaitSetChangeLog.Entry entry) {
+        SyncToken token = wsa.getLastKnownSyncToken();
+        if (token != null && token.after(entry.changeId)) {
+            return false; // sync token is later than the change
+        }
+        if (Collections.disjoint(wsa.getInterests(), entry.types)) {
+            return false;
+        }
+        if (hasFolderInterests(wsa) && !entry.affectsFolders(wsa.getFolderInterests())) {
+            return false;
+        }
+        // changes made by a SOAP session polling this waitset are returned in its SOAP headers
+        return !mWaitSetId.equals(entry.sourceWaitSetId);
+    }
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private void mergeMods(String accountId, PendingModifications mods) {
+        if (mods == null) {
+            return;
+        }
+        PendingModifications existing = currentPendingModifications.get(accountId);
+        if (existing == null) {
+            currentPendingModifications.put(accountId, mods);
+        } else if (mergedModifications.contains(existing)) {
+            existing.add(mods);
+        } else if (existing instanceof PendingLocalModifications && mods instanceof PendingLocalModifications) {
+            // the logged modifications are shared with other WaitSets, so merge into a copy
+            PendingLocalModifications merged = new PendingLocalModifications();
+            merged.add(existing);
+            merged.add(mods);
+            mergedModifications.add(merged);
+            currentPendingModifications.put(accountId, merged);
         } else {
-            return null;
+            currentPendingModifications.put(accountId, mods);
         }
     }
 
+    @Override
+    protected Set<Integer> getFolderInterests(String accountId) {
+        WaitSetAccount wsa = mSessions.get(accountId);
+        return wsa == null ? null : wsa.getFolderInterests();
+    }
+
     @Override
     protected boolean cbSeqIsCurrent() {
         return (mCbSeqNo == mCurrentSeqNo);
@@ -170,12 +273,24 @@ public final class SomeAccountsWaitSet extends WaitSetBase implements MailboxMan
             WaitSetAccount existing = mSessions.get(update.getAccountId());
             if (existing != null) {
                 ZimbraLog.session.trace("SomeAccountsWaitSet updating %s with details from %s", existing, update);
+                boolean hadFolderInterests = hasFolderInterests(existing);
                 existing.setInterests(update.getInterests());
+                existing.setFolderInterests(update.getFolderInterests());
                 existing.setLastKnownSyncToken(update.getLastKnownSyncToken());
-                WaitSetSession session = existing.getSession();
-                if (session != null) {
-                    session.update(update.getInterests(), update.getFolderInterests(), update.getLastKnownSyncToken());
-                    // update it!
+                if (hadFolderInterests != hasFolderInterests(existing)) {
+                    changeLog.unwatch(existing.getAccountId(), hadFolderInterests);
+                    changeLog.watch(existing.getAccountId(), !hadFolderInterests);
+                }
+                if (existing.getLastKnownSyncToken() != null) {
+                    try {
+                        Mailbox mbox = MailboxManager.getInstance().getMailboxByAccountId(existing.getAccountId(),
+                                FetchMode.ONLY_IF_CACHED);
+                        if (mbox != null) {
+                            checkSyncToken(existing, mbox);
+                        }
+                    } catch (ServiceException e) {
+                        ZimbraLog.session.debug("Unable to check sync token of %s", existing, e);
+                    }
                 }
             } else {
                 ZimbraLog.session.trace("SomeAccountsWaitSet no pre-existing session when updating %s", update);
@@ -188,12 +303,15 @@ public final class SomeAccountsWaitSet extends WaitSetBase implements MailboxMan
     synchronized protected List<WaitSetError> addAccountErrors(List<WaitSetAccount> wsas) {
         List<WaitSetError> errors = new ArrayList<WaitSetError>();
 
+        // changes logged before the accounts were added aren't of interest to us
+        collectSignals();
+
         for (WaitSetAccount wsa : wsas) {
             if (!mSessions.containsKey(wsa.getAccountId())) {
                 // add the account to our session list
                 mSessions.put(wsa.getAccountId(), wsa);
+                changeLog.watch(wsa.getAccountId(), hasFolderInterests(wsa));
 
-                // create the Session, if necessary, to listen to the requested mailbox
                 try {
                     // if there is a sync token, then we need to check to see if the
                     // token is up-to-date...which means we have to fetch the mailbox.  Otherwise,
@@ -202,15 +320,9 @@ public final class SomeAccountsWaitSet extends WaitSetBase implements MailboxMan
                     if (wsa.getLastKnownSyncToken() == null)
                         fetchMode = MailboxManager.FetchMode.ONLY_IF_CACHED;
 
-                    //
-                    // THIS CALL MIGHT REGISTER THE SESSION (via the MailboxManager notification --> mailboxLoaded() callback!
-                    //
                     Mailbox mbox = MailboxManager.getInstance().getMailboxByAccountId(wsa.getAccountId(), fetchMode);
                     if (mbox != null) {
-                        WaitSetError error = initializeWaitSetSession(wsa, mbox);
-                        if (error != null) {
-                            errors.add(error);
-                        }
+                        checkSyncToken(wsa, mbox);
                     }
                 } catch (ServiceException e) {
                     if (e.getCode() == AccountServiceException.NO_SUCH_ACCOUNT) {
@@ -220,7 +332,8 @@ public final class SomeAccountsWaitSet extends WaitSetBase implements MailboxMan
                     } else {
                         errors.add(new WaitSetError(wsa.getAccountId(), WaitSetError.Type.ERROR_LOADING_MAILBOX));
                     }
-                    mSessions.remove(wsa);
+                    mSessions.remove(wsa.getAccountId());
+                    unwatch(wsa);
                 }
 
             } else {
@@ -230,37 +343,33 @@ public final class SomeAccountsWaitSet extends WaitSetBase implements MailboxMan
         return errors;
     }
 
-    synchronized protected void cleanupSession(WaitSetSession session) {
-        WaitSetAccount acct = mSessions.get(session.getTargetAccountId());
-        if (acct != null) {
-            acct.cleanupSession();
-        }
-    }
-
     @Override
     protected int countSessions() {
         return mSessions.size();
     }
 
     /**
-     * Cleanup and remove all the sessions referenced by this WaitSet
+     * Stop listening on all the accounts referenced by this WaitSet
      */
     @Override
-    synchronized protected HashMap<String, WaitSetAccount> destroy() {
+    synchronized protected void destroy() {
         try {
             MailboxManager.getInstance().removeListener(this);
         } catch (ServiceException e) {
             ZimbraLog.session.warn("Caught unexpected ServiceException while destroying WaitSet: "+e, e);
         }
+        changeLog.removeWaitSet(this);
         cancelExistingCB();
-        HashMap<String, WaitSetAccount> toRet = mSessions;
+        for (WaitSetAccount wsa : mSessions.values()) {
+            unwatch(wsa);
+        }
         mSessions = new HashMap<String, WaitSetAccount>();
-        mCurrentSignalledSessions.clear();
-        mSentSignalledSessions.clear();
         mSentSignalledAccounts.clear();
         mCurrentSignalledAccounts.clear();
+        currentPendingModifications.clear();
+        sentPendingModifications.clear();
+        mergedModifications.clear();
         mCurrentSeqNo = Long.MAX_VALUE;
-        return toRet;
    }
 
     @Override
@@ -268,48 +377,6 @@ public final class SomeAccountsWaitSet extends WaitSetBase implements MailboxMan
         return mCb;
     }
 
-    /**
-     * Called by the WaitSetSession to revoke a signal...this happens when we get a
-     * sync token <update> with a higher sync token for this account than the account's
-     * current highest
-     *
-     * @param session
-     */
-    synchronized protected void unsignalDataReady(WaitSetSession session) {
-        if (mSessions.containsKey(session.getTargetAccountId())) { // ...false if waitset is shutting down...
-            mCurrentSignalledAccounts.remove(session.getTargetAccountId());
-            mCurrentSignalledSessions.remove(session.getTargetAccountId());
-        }
-    }
-
-    /**
-     * Called by the WaitSetSession when there is data to be signalled by this session
-     * @param session
-     */
-    synchronized protected void signalDataReady(WaitSetSession session) {
-        signalDataReady(session, null);
-    }
-
-    /**
-     * Called by the WaitSetSession when there is data to be signalled by this session
-     * @param session
-     */
-    synchronized protected void signalDataReady(WaitSetSession session, PendingModifications pms) {
-        boolean trace = ZimbraLog.session.isTraceEnabled();
-        if (trace) ZimbraLog.session.trace("SomeAccountsWaitSet.signalDataReady 1");
-        String targetAccId = session.getTargetAccountId();
-        if (mSessions.containsKey(targetAccId)) { // ...false if waitset is shutting down...
-            if (trace) ZimbraLog.session.trace("SomeAccountsWaitSet.signalDataReady 2");
-            if (mCurrentSignalledAccounts.add(targetAccId)) {
-                mCurrentSignalledSessions.add(session);
-                if (trace) ZimbraLog.session.trace("SomeAccountsWaitSet.signalDataReady 3");
-                addMods(currentPendingModifications, targetAccId, pms);
-                trySendData();
-            }
-        }
-        if (trace) ZimbraLog.session.trace("SomeAccountsWaitSet.signalDataReady done");
-    }
-
     @Override
     public synchronized WaitSetInfo handleQuery() {
         WaitSetInfo info = super.handleQuery();
@@ -344,17 +411,14 @@ public final class SomeAccountsWaitSet extends WaitSetBase implements MailboxMan
                 }
             }
 
-            WaitSetSession wss = wsa.getSession();
-            if (wss != null) {
-                WaitSetSessionInfo waitSetSession = new WaitSetSessionInfo(WaitSetRequest.interestToStr(wss.interest),
-                        wss.mHighestChangeId, wss.getLastAccessTime(), wss.getCreationTime(), wss.getSessionId());
-
-                waitSetSession.setFolderInterests(wss.folderInterest);
-                if (wss.mSyncToken != null) {
-                    waitSetSession.setToken(wss.mSyncToken.toString());
-                }
-                sess.setWaitSetSession(waitSetSession);
+            // there is no longer a session per account; report the account's place in the WaitSet instead
+            WaitSetSessionInfo waitSetSession = new WaitSetSessionInfo(WaitSetRequest.interestToStr(wsa.getInterests()),
+                    wsa.getHighestChangeId(), mLastAccessedTime, wsa.getCreationTime(), mWaitSetId);
+            waitSetSession.setFolderInterests(wsa.getFolderInterests());
+            if (wsa.getLastKnownSyncToken() != null) {
+                waitSetSession.setToken(wsa.getLastKnownSyncToken().toString());
             }
+            sess.setWaitSetSession(waitSetSession);
             info.addSession(sess);
         }
         return info;
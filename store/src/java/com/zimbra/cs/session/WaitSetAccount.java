@@ -19,13 +19,8 @@ package com.zimbra.cs.session;
 import java.util.Set;
 
 import com.google.common.base.MoreObjects;
-import com.zimbra.common.service.ServiceException;
 import com.zimbra.common.util.ZimbraLog;
-import com.zimbra.cs.account.AccountServiceException;
 import com.zimbra.cs.mailbox.MailItem;
-import com.zimbra.cs.mailbox.MailServiceException;
-import com.zimbra.cs.mailbox.Mailbox;
-import com.zimbra.cs.mailbox.MailboxManager;
 import com.zimbra.cs.service.util.SyncToken;
 
 /**
@@ -41,84 +36,10 @@ public class WaitSetAccount {
         ZimbraLog.session.debug("Created %s", toString());
     }
 
-    public WaitSetSession getSession() {
-        if (sessionId != null) {
-            try {
-                Mailbox mbox = getMailboxIfLoaded();
-                if (mbox != null)
-                    return (WaitSetSession)mbox.getListener(sessionId);
-            } catch (ServiceException e) {
-                ZimbraLog.session.info("Caught exception fetching mailbox in WaitSetAccount.getSession()", e);
-            }
-        }
-        return null;
-    }
-
-    /**
-     * The mailbox is loaded and in memory -- so create a {@link WaitSetSession} and add it
-     * as a listener to the mailbox
-     * <p>
-     * @param mbox
-     * @param ws
-     * @return
-     */
-    public WaitSetError createSession(Mailbox mbox, SomeAccountsWaitSet ws) {
-        // The session is not already initialized....therefore it's OK to lock in the reverse order
-        // (waitset then mailbox) because we know the session isn't added as a listener and therefore
-        // we won't get an upcall from the Mailbox
-        //
-        // See bug 31666 for more info
-        //
-        WaitSetSession session = new WaitSetSession(ws, accountId, interests, folderInterests, lastKnownSyncToken);
-        ZimbraLog.session.debug("Created WaitSetSession %s for waitset %s on account %s", session.getSessionId(), ws.getWaitSetId(), accountId);
-        mbox.lock.lock();
-        try {
-            session.register();
-            sessionId = session.getSessionId();
-            // must force update here so that initial sync token is checked against current mbox state
-            session.update(interests, folderInterests, lastKnownSyncToken);
-        } catch (MailServiceException e) {
-            sessionId = null;
-            if (e.getCode().equals(MailServiceException.MAINTENANCE)) {
-                //wsa.ref = null; // will get re-set when mailboxAvailable() is called
-                //wsa.setRef(null);
-                ZimbraLog.session.debug("Maintenance mode trying to initialize WaitSetSession for accountId "+accountId);
-            } else {
-                ZimbraLog.session.warn("Error initializing WaitSetSession for accountId "+accountId+" -- MailServiceException", e);
-                return new WaitSetError(accountId, WaitSetError.Type.ERROR_LOADING_MAILBOX);
-            }
-        } catch (ServiceException e) {
-            sessionId = null;
-            ZimbraLog.session.warn("Error initializing WaitSetSession for accountId "+accountId+" -- ServiceException", e);
-            if (e.getCode() == AccountServiceException.NO_SUCH_ACCOUNT) {
-                return new WaitSetError(accountId, WaitSetError.Type.NO_SUCH_ACCOUNT);
-            } else if (e.getCode() == ServiceException.WRONG_HOST) {
-                return new WaitSetError(accountId, WaitSetError.Type.WRONG_HOST_FOR_ACCOUNT);
-            } else {
-                return new WaitSetError(accountId, WaitSetError.Type.ERROR_LOADING_MAILBOX);
-            }
-        } finally {
-            mbox.lock.release();
-        }
-        return null;
-    }
-
-    /**
-     * Remove the session as a listener from the mailbox, clean up our references to it.
-     */
-    public void cleanupSession() {
-        WaitSetSession session = getSession();
-        if (session!= null) {
-            sessionId = null; // must set this first to avoid recursion
-            session.doCleanup();
-        }
-    }
-
     @Override
     public String toString() {
         return MoreObjects.toStringHelper(this)
                 .add("account", accountId)
-                .add("sessionId", sessionId)
                 .add("lastKnownSyncToken", lastKnownSyncToken)
                 .add("interests", interests)
                 .add("folderInterests", folderInterests)
@@ -126,10 +47,18 @@ public class WaitSetAccount {
                 .toString();
     }
 
-    private Mailbox getMailboxIfLoaded() throws ServiceException {
-        Mailbox mbox = MailboxManager.getInstance().getMailboxByAccountId(accountId,
-                                                                          MailboxManager.FetchMode.ONLY_IF_CACHED);
-        return mbox;
+    long getCreationTime() {
+        return creationTime;
+    }
+
+    int getHighestChangeId() {
+        return highestChangeId;
+    }
+
+    void setHighestChangeId(int changeId) {
+        if (changeId > highestChangeId) {
+            highestChangeId = changeId;
+        }
     }
 
     void setLastKnownSyncToken(SyncToken lastKnownSyncToken) {
@@ -168,5 +97,7 @@ public class WaitSetAccount {
     private Set<MailItem.Type> interests;
     private Set<Integer> folderInterests;
     private SyncToken lastKnownSyncToken;
-    private String sessionId;
+    private final long creationTime = System.currentTimeMillis();
+    /** highest change seen for the account since it was added to the WaitSet */
+    private int highestChangeId;
 }
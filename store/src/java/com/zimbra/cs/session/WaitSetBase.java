@@ -17,6 +17,7 @@
 package com.zimbra.cs.session;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -51,15 +52,13 @@ public abstract class WaitSetBase implements IWaitSet {
 
     /** this is the signalled set data that is new (has never been sent) */
     protected HashSet<String /*accountId*/> mCurrentSignalledAccounts = Sets.newHashSet();
-    protected HashSet<WaitSetSession> mCurrentSignalledSessions = Sets.newHashSet();
     protected Map<String /*accountId*/, PendingModifications> currentPendingModifications = Maps.newHashMap();
 
     /** this is the signalled set data that we've already sent, it just hasn't been acked yet */
     protected HashSet<String /*accountId*/> mSentSignalledAccounts = Sets.newHashSet();
-    protected HashSet<WaitSetSession /*accountId*/> mSentSignalledSessions = Sets.newHashSet();
     protected Map<String /*accountId*/, PendingModifications> sentPendingModifications = Maps.newHashMap();
 
-    abstract protected Map<String, WaitSetAccount> destroy();
+    abstract protected void destroy();
     abstract protected int countSessions();
     abstract protected boolean cbSeqIsCurrent();
     abstract protected String toNextSeqNo();
@@ -89,6 +88,21 @@ public abstract class WaitSetBase implements IWaitSet {
 
     protected synchronized WaitSetCallback getCb() { return mCb; }
 
+    /**
+     * Bring the current signalled set up to date before it is examined.  WaitSets that work out
+     * their signalled accounts lazily do so here.
+     */
+    protected void collectSignals() {
+    }
+
+    /**
+     * @return the folders the WaitSet is interested in for the account; null or empty means all
+     * folders
+     */
+    protected Set<Integer> getFolderInterests(String accountId) {
+        return null;
+    }
+
     /**
      * Cancel any existing callback
      */
@@ -137,11 +151,11 @@ public abstract class WaitSetBase implements IWaitSet {
         }
 
         ZimbraLog.session.trace("WaitSetBase.trySendData 1 cb=%s", mCb);
+        collectSignals();
         boolean cbIsCurrent = cbSeqIsCurrent();
 
         if (cbIsCurrent) {
             mSentSignalledAccounts.clear();
-            mSentSignalledSessions.clear();
             sentPendingModifications.clear();
             mSentErrors.clear();
         }
@@ -162,7 +176,7 @@ public abstract class WaitSetBase implements IWaitSet {
         //                (CB not up to date AND Sent not empty)
         //
         if ((mCurrentSignalledAccounts.size() > 0 || mCurrentErrors.size() > 0) ||
-                        (!cbIsCurrent && (mSentSignalledSessions.size() > 0 || mSentErrors.size() > 0 || mSentSignalledAccounts.size() > 0))) {
+                        (!cbIsCurrent && (mSentErrors.size() > 0 || mSentSignalledAccounts.size() > 0))) {
             // if sent is empty, then just swap sent,current instead of copying
             if (mSentSignalledAccounts.size() == 0) {
                 ZimbraLog.session.trace("WaitSetBase.trySendData 2a");
@@ -170,9 +184,6 @@ public abstract class WaitSetBase implements IWaitSet {
                 HashSet<String> tempAccounts = mCurrentSignalledAccounts;
                 mCurrentSignalledAccounts = mSentSignalledAccounts;
                 mSentSignalledAccounts = tempAccounts;
-                HashSet<WaitSetSession> tempSessions = mCurrentSignalledSessions;
-                mCurrentSignalledSessions = mSentSignalledSessions;
-                mSentSignalledSessions = tempSessions;
                 Map<String, PendingModifications> tempNotifications = currentPendingModifications;
                 currentPendingModifications = sentPendingModifications;
                 sentPendingModifications = tempNotifications;
@@ -181,8 +192,6 @@ public abstract class WaitSetBase implements IWaitSet {
                 assert(!cbIsCurrent);
                 mSentSignalledAccounts.addAll(mCurrentSignalledAccounts);
                 mCurrentSignalledAccounts.clear();
-                mSentSignalledSessions.addAll(mCurrentSignalledSessions);
-                mCurrentSignalledSessions.clear();
                 sentPendingModifications.putAll(currentPendingModifications);
                 currentPendingModifications.clear();
             }
@@ -193,7 +202,14 @@ public abstract class WaitSetBase implements IWaitSet {
 
             assert(mSentSignalledAccounts.size() > 0 || mSentErrors.size() > 0);
             ZimbraLog.session.trace("WaitSetBase.trySendData 3");
-            mCb.dataReady(this, toNextSeqNo(), false, mSentErrors, mSentSignalledSessions, mSentSignalledAccounts, sentPendingModifications);
+            Map<String, Set<Integer>> folderInterests = new HashMap<String, Set<Integer>>();
+            for (String accountId : mSentSignalledAccounts) {
+                Set<Integer> fids = getFolderInterests(accountId);
+                if (fids != null) {
+                    folderInterests.put(accountId, fids);
+                }
+            }
+            mCb.dataReady(this, toNextSeqNo(), false, mSentErrors, folderInterests, mSentSignalledAccounts, sentPendingModifications);
             mCb = null;
             mLastAccessedTime = System.currentTimeMillis();
         }
@@ -202,6 +218,7 @@ public abstract class WaitSetBase implements IWaitSet {
 
     @Override
     public synchronized WaitSetInfo handleQuery() {
+        collectSignals();
         WaitSetInfo info = WaitSetInfo.createForWaitSetIdOwnerInterestsLastAccessDate(mWaitSetId, mOwnerAccountId,
                 WaitSetRequest.expandInterestStr(defaultInterest), mLastAccessedTime);
 
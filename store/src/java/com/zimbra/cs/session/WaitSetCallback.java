@@ -16,7 +16,6 @@
  */
 package com.zimbra.cs.session;
 
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -33,7 +32,7 @@ public class WaitSetCallback {
 
     public boolean completed = false;
     public boolean canceled;
-    public HashMap<String /* accountId */, WaitSetSession> signalledSessions;
+    public Map<String /* accountId */, Set<Integer>> folderInterests;
     public Set<String> signalledAccounts;
     public Map<String /*accountId*/, PendingModifications> pendingModifications;
     public IWaitSet waitSet;
@@ -44,7 +43,8 @@ public class WaitSetCallback {
     public CountDownLatch completedLatch;
 
     public void dataReady(IWaitSet wset, String seqNum, boolean setCanceled, List<WaitSetError> inErrors,
-            Set<WaitSetSession> signalledSessions, Set<String> signalledAccounts, Map<String /*accountId*/, PendingModifications> pms) {
+            Map<String /*accountId*/, Set<Integer>> folderInterests, Set<String> signalledAccounts,
+            Map<String /*accountId*/, PendingModifications> pms) {
         boolean trace = ZimbraLog.session.isTraceEnabled();
         synchronized(this) {
             if (inErrors != null && inErrors.size() > 0) {
@@ -52,13 +52,10 @@ public class WaitSetCallback {
             }
             this.waitSet = wset;
             this.canceled = setCanceled;
-            if(signalledSessions == null) {
-                this.signalledSessions =  Maps.newHashMapWithExpectedSize(0);
+            if(folderInterests == null) {
+                this.folderInterests =  Maps.newHashMapWithExpectedSize(0);
             } else {
-                this.signalledSessions = Maps.newHashMapWithExpectedSize(signalledSessions.size());
-                for(WaitSetSession s : signalledSessions) {
-                    this.signalledSessions.put(s.getTargetAccountId(), s);
-                }
+                this.folderInterests = Maps.newHashMap(folderInterests);
             }
 
             this.signalledAccounts = (signalledAccounts == null) ? Sets.newHashSetWithExpectedSize(0)
@@ -0,0 +1,261 @@
+/*
+ * ***** BEGIN LICENSE BLOCK *****
+ * Zimbra Collaboration Suite Server
+ * Copyright (C) 2026 Synacor, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software Foundation,
+ * version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ * ***** END LICENSE BLOCK *****
+ */
+package com.zimbra.cs.session;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.zimbra.common.localconfig.LC;
+import com.zimbra.cs.mailbox.MailItem;
+
+/**
+ * A bounded log of the changes committed to watched mailboxes, shared by all the
+ * {@link SomeAccountsWaitSet}s on the server.  Each change is logged once however many WaitSets
+ * watch the account.  A WaitSet only keeps a cursor into the log, which it advances as each change
+ * is logged.
+ * <p>
+ * The modifications themselves are only kept for accounts that some WaitSet watches with folder
+ * interests, as that is the only case in which they are returned to the client.  If a change is
+ * overwritten before a WaitSet has read it, the WaitSet tells the client to resync its accounts.
+ */
+public final class WaitSetChangeLog {
+    private static final WaitSetChangeLog SINGLETON =
+            new WaitSetChangeLog(LC.zimbra_waitset_change_log_size.intValue());
+
+    /** Rough size of a log entry, not counting the modifications it holds on to */
+    private static final int ENTRY_BYTES = 96;
+    /** Rough size of a created or modified item snapshot held by logged modifications */
+    private static final int ITEM_SNAPSHOT_BYTES = 1024;
+    /** Rough size of a deleted item held by logged modifications */
+    private static final int DELETED_ITEM_BYTES = 64;
+    /** Rough size of one WaitSet's subscription to an account */
+    private static final int SUBSCRIPTION_BYTES = 160;
+
+    static final class Entry {
+        final String accountId;
+        final int changeId;
+        final Set<MailItem.Type> types;
+        /** bit (folderId % 64) is set for each changed folder */
+        final long folderMask;
+        /** the WaitSet of the SOAP session that made the change, which already knows about it */
+        final String sourceWaitSetId;
+        final PendingModifications<?> mods;
+        /** estimated size of the modifications */
+        final long modsBytes;
+
+        Entry(String accountId, int changeId, Set<MailItem.Type> types, Set<Integer> folders,
+                String sourceWaitSetId, PendingModifications<?> mods) {
+            this.accountId = accountId;
+            this.changeId = changeId;
+            this.types = types;
+            this.folderMask = folderMask(folders);
+            this.sourceWaitSetId = sourceWaitSetId;
+            this.mods = mods;
+            this.modsBytes = estimateBytes(mods);
+        }
+
+        private static long estimateBytes(PendingModifications<?> mods) {
+            if (mods == null) {
+                return 0;
+            }
+            long bytes = 0;
+            if (mods.created != null) {
+                bytes += (long) mods.created.size() * ITEM_SNAPSHOT_BYTES;
+            }
+            if (mods.modified != null) {
+                bytes += (long) mods.modified.size() * ITEM_SNAPSHOT_BYTES;
+            }
+            if (mods.deleted != null) {
+                bytes += (long) mods.deleted.size() * DELETED_ITEM_BYTES;
+            }
+            return bytes;
+        }
+
+        boolean affectsFolders(Set<Integer> folderInterests) {
+            if (mods != null) {
+                return !Collections.disjoint(folderInterests, mods.getAllChangedFolders());
+            }
+            return (folderMask & folderMask(folderInterests)) != 0;
+        }
+
+        private static long folderMask(Set<Integer> folders) {
+            long mask = 0;
+            for (Integer folderId : folders) {
+                mask |= 1L << (folderId & 63);
+            }
+            return mask;
+        }
+    }
+
+    static final class Changes {
+        final List<Entry> entries;
+        /** position to pass to the next call to {@link WaitSetChangeLog#getChangesSince} */
+        final long next;
+        /** true if entries after the requested position have been overwritten */
+        final boolean overflowed;
+
+        Changes(List<Entry> entries, long next, boolean overflowed) {
+            this.entries = entries;
+            this.next = next;
+            this.overflowed = overflowed;
+        }
+    }
+
+    private static final class Watch {
+        int watchers;
+        int folderWatchers;
+    }
+
+    private final Entry[] ring;
+    private long next = 0;
+    private int subscriptions = 0;
+    private long retainedModsBytes = 0;
+    private final ConcurrentHashMap<String, Watch> watched = new ConcurrentHashMap<String, Watch>();
+    private final Set<SomeAccountsWaitSet> waitSets = new CopyOnWriteArraySet<SomeAccountsWaitSet>();
+
+    @VisibleForTesting
+    WaitSetChangeLog(int size) {
+        ring = new Entry[Math.max(size, 1)];
+    }
+
+    public static WaitSetChangeLog getInstance() {
+        return SINGLETON;
+    }
+
+    void addWaitSet(SomeAccountsWaitSet ws) {
+        waitSets.add(ws);
+    }
+
+    void removeWaitSet(SomeAccountsWaitSet ws) {
+        waitSets.remove(ws);
+    }
+
+    /**
+     * Start logging changes to the account on behalf of a WaitSet
+     * @param folderInterests whether the WaitSet is interested in particular folders, and so
+     * needs the modifications
+     */
+    synchronized void watch(String accountId, boolean folderInterests) {
+        Watch watch = watched.get(accountId);
+        if (watch == null) {
+            watch = new Watch();
+            watched.put(accountId, watch);
+        }
+        watch.watchers++;
+        if (folderInterests) {
+            watch.folderWatchers++;
+        }
+        subscriptions++;
+    }
+
+    synchronized void unwatch(String accountId, boolean folderInterests) {
+        Watch watch = watched.get(accountId);
+        if (watch == null) {
+            return;
+        }
+        watch.watchers--;
+        if (folderInterests) {
+            watch.folderWatchers--;
+        }
+        subscriptions--;
+        if (watch.watchers <= 0) {
+            watched.remove(accountId);
+        }
+    }
+
+    public boolean isWatched(String accountId) {
+        return watched.containsKey(accountId);
+    }
+
+    /**
+     * Called by the Mailbox once it has committed a change.  Does nothing unless some WaitSet is
+     * watching the account.
+     */
+    public void mailboxChanged(String accountId, int changeId, PendingModifications<?> pms, Session source) {
+        if (!isWatched(accountId)) {
+            return;
+        }
+        String sourceWaitSetId = null;
+        if (source instanceof SoapSession) {
+            sourceWaitSetId = ((SoapSession) source).getCurWaitSetID();
+        }
+        Set<MailItem.Type> types = EnumSet.noneOf(MailItem.Type.class);
+        types.addAll(pms.changedTypes);
+        Entry entry;
+        synchronized (this) {
+            Watch watch = watched.get(accountId);
+            if (watch == null) {
+                return;
+            }
+            entry = new Entry(accountId, changeId, types, pms.getAllChangedFolders(), sourceWaitSetId,
+                    watch.folderWatchers > 0 ? pms : null);
+            int slot = (int) (next % ring.length);
+            if (ring[slot] != null) {
+                retainedModsBytes -= ring[slot].modsBytes;
+            }
+            ring[slot] = entry;
+            retainedModsBytes += entry.modsBytes;
+            next++;
+        }
+        for (SomeAccountsWaitSet ws : waitSets) {
+            ws.changeLogged(entry);
+        }
+    }
+
+    synchronized long getNextPosition() {
+        return next;
+    }
+
+    synchronized Changes getChangesSince(long position) {
+        long oldest = Math.max(next - ring.length, 0);
+        long from = Math.max(position, oldest);
+        List<Entry> entries = new ArrayList<Entry>((int) Math.max(next - from, 0));
+        for (long pos = from; pos < next; pos++) {
+            entries.add(ring[(int) (pos % ring.length)]);
+        }
+        return new Changes(entries, next, position < oldest);
+    }
+
+    /** @return number of distinct accounts watched by at least one WaitSet */
+    public int getWatchedAccountCount() {
+        return watched.size();
+    }
+
+    /** @return number of changes currently held in the log */
+    public synchronized int getEntryCount() {
+        return (int) Math.min(next, ring.length);
+    }
+
+    /**
+     * @return estimated heap used per watched account by the WaitSet subscriptions and the log,
+     * including the modifications kept for accounts with folder interests
+     */
+    public synchronized long getBytesPerWatchedAccount() {
+        int accounts = watched.size();
+        if (accounts == 0) {
+            return 0;
+        }
+        return ((long) subscriptions * SUBSCRIPTION_BYTES + (long) getEntryCount() * ENTRY_BYTES
+                + retainedModsBytes) / accounts;
+    }
+}
@@ -20,7 +20,6 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 import java.util.TimerTask;
 
@@ -186,13 +185,7 @@ public class WaitSetMgr {
             // remove the wait set
             sWaitSets.remove(id);
 
-            Map<String, WaitSetAccount> toCleanup = ws.destroy();
-            if (toCleanup != null) {
-                assert(!Thread.holdsLock(ws));
-                for (WaitSetAccount wsa: toCleanup.values()) {
-                    wsa.cleanupSession();
-                }
-            }
+            ws.destroy();
         }
     }
 
@@ -292,8 +285,6 @@ public class WaitSetMgr {
                 WaitSetBase ws = iter.next();
                 assert(!Thread.holdsLock(ws)); // must never lock WS before sWaitSets or deadlock
 
-                Map<String, WaitSetAccount> toCleanup = null;
-
                 synchronized(ws) {
                     // only timeout if no cb AND if not accessed for a timeout
                     if (ws.getCb() == null && ws.getLastAccessedTime() < cutoffTime) {
@@ -307,7 +298,7 @@ public class WaitSetMgr {
 
                         // remove
                         iter.remove();
-                        toCleanup = ws.destroy();
+                        ws.destroy();
                         removed++;
                     } else {
                         if (ws.getCb() != null) {
@@ -317,14 +308,6 @@ public class WaitSetMgr {
                         activeSessions+=ws.countSessions();
                     }
                 }
-
-                // cleanup w/o WaitSet lock held
-                if (toCleanup != null) {
-                    assert(!Thread.holdsLock(ws));
-                    for (WaitSetAccount wsa : toCleanup.values()) {
-                        wsa.cleanupSession();
-                    }
-                }
             }
         }
         if (removed > 0) {
@@ -332,8 +315,11 @@ public class WaitSetMgr {
         }
 
         if (activeSets > 0) {
-            ZimbraLog.session.info("WaitSet sweeper: %d active WaitSets (%d accounts) - %d sets with blocked callbacks",
-                activeSets, activeSessions, withCallback);
+            WaitSetChangeLog changeLog = WaitSetChangeLog.getInstance();
+            ZimbraLog.session.info("WaitSet sweeper: %d active WaitSets (%d accounts) - %d sets with blocked callbacks;"
+                    + " change log: %d entries, %d watched accounts, ~%d bytes/account",
+                activeSets, activeSessions, withCallback, changeLog.getEntryCount(),
+                changeLog.getWatchedAccountCount(), changeLog.getBytesPerWatchedAccount());
         }
     }
 
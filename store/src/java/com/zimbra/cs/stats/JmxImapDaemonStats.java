@@ -22,6 +22,8 @@ import com.zimbra.common.stats.DeltaCalculator;
 public class JmxImapDaemonStats implements JmxImapDaemonStatsMBean {
 
     private final DeltaCalculator imapDeltaCalc = new DeltaCalculator(ZimbraPerf.STOPWATCH_IMAP);
+    private final DeltaCalculator compressRatioDeltaCalc = new DeltaCalculator(ZimbraPerf.COUNTER_IMAP_COMPRESS_RATIO);
+    private final DeltaCalculator compressCpuDeltaCalc = new DeltaCalculator(ZimbraPerf.COUNTER_IMAP_COMPRESS_CPU);
 
     JmxImapDaemonStats() {
     }
@@ -36,8 +38,27 @@ public class JmxImapDaemonStats implements JmxImapDaemonStatsMBean {
         return (long) imapDeltaCalc.getRealtimeAverage();
     }
 
+    @Override
+    public long getImapCompressedConnections() {
+        return ZimbraPerf.COUNTER_IMAP_COMPRESS_RATIO.getCount();
+    }
+
+    /** Average size of what a compressed connection sent, as a percentage of its uncompressed size */
+    @Override
+    public long getImapCompressionRatio() {
+        return (long) compressRatioDeltaCalc.getRealtimeAverage();
+    }
+
+    /** Average time a compressed connection spent compressing and decompressing */
+    @Override
+    public long getImapCompressionCpuMicros() {
+        return (long) compressCpuDeltaCalc.getRealtimeAverage();
+    }
+
     @Override
     public void reset() {
         imapDeltaCalc.reset();
+        compressRatioDeltaCalc.reset();
+        compressCpuDeltaCalc.reset();
     }
 }
\ No newline at end of file
@@ -25,6 +25,7 @@ import com.zimbra.cs.account.Provisioning;
 import com.zimbra.cs.account.accesscontrol.PermissionCache;
 import com.zimbra.cs.account.ldap.LdapProv;
 import com.zimbra.cs.mailbox.MessageCache;
+import com.zimbra.cs.session.WaitSetChangeLog;
 import com.zimbra.cs.store.BlobInputStream;
 import com.zimbra.cs.store.FileDescriptorCache;
 
@@ -41,12 +42,21 @@ public class ServerStatsCallback implements RealtimeStatsCallback {
         data.put(ZimbraPerf.RTS_FD_CACHE_HIT_RATE, fdc.getHitRate());
         
         data.put(ZimbraPerf.RTS_ACL_CACHE_HIT_RATE, PermissionCache.getHitRate());
+
+        WaitSetChangeLog changeLog = WaitSetChangeLog.getInstance();
+        data.put(ZimbraPerf.RTS_WAITSET_ACCOUNTS, changeLog.getWatchedAccountCount());
+        data.put(ZimbraPerf.RTS_WAITSET_LOG_SIZE, changeLog.getEntryCount());
+        data.put(ZimbraPerf.RTS_WAITSET_BYTES_PER_ACCOUNT, changeLog.getBytesPerWatchedAccount());
         
         Provisioning prov = Provisioning.getInstance();
         if (prov instanceof LdapProv) {
             LdapProv ldap = (LdapProv) prov;
             data.put(ZimbraPerf.RTS_ACCOUNT_CACHE_SIZE, ldap.getAccountCacheSize());
             data.put(ZimbraPerf.RTS_ACCOUNT_CACHE_HIT_RATE, ldap.getAccountCacheHitRate());
+            data.put(ZimbraPerf.RTS_ACCOUNT_CACHE_REFRESH_MS, ldap.getAccountCacheRefreshTime());
+            data.put(ZimbraPerf.RTS_ACCOUNT_CACHE_STALE_MS, ldap.getAccountCacheStaleness());
+            data.put(ZimbraPerf.RTS_GROUP_INDEX_SIZE, ldap.getGroupIndexSize());
+            data.put(ZimbraPerf.RTS_GROUP_INDEX_BYTES, ldap.getGroupIndexMemoryFootprint());
             data.put(ZimbraPerf.RTS_COS_CACHE_SIZE, ldap.getCosCacheSize());
             data.put(ZimbraPerf.RTS_COS_CACHE_HIT_RATE, ldap.getCosCacheHitRate());
             data.put(ZimbraPerf.RTS_DOMAIN_CACHE_SIZE, ldap.getDomainCacheSize());
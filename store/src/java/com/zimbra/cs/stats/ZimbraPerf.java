@@ -97,6 +97,12 @@ public class ZimbraPerf {
     @Description("Number of IMAP SSL handler threads")
     public static final String RTS_IMAP_SSL_THREADS = "imap_ssl_threads";
 
+    @Description("Number of remote mailbox notifications waiting to be delivered to IMAP sessions")
+    public static final String RTS_IMAP_LISTENER_QUEUED = "imap_listener_queued";
+
+    @Description("Number of remote mailbox notifications dropped because the IMAP listener queue was full")
+    public static final String RTS_IMAP_LISTENER_DROPPED = "imap_listener_dropped";
+
     @Description("Number of HTTP handler threads")
     public static final String RTS_HTTP_THREADS = "http_threads";
 
@@ -118,6 +124,15 @@ public class ZimbraPerf {
     @Description("File descriptor cache hit rate")
     public static final String RTS_FD_CACHE_HIT_RATE = "fd_cache_hit_rate";
 
+    @Description("Number of accounts watched by WaitSets")
+    public static final String RTS_WAITSET_ACCOUNTS = "waitset_accounts";
+
+    @Description("Number of changes held in the WaitSet change log")
+    public static final String RTS_WAITSET_LOG_SIZE = "waitset_log_size";
+
+    @Description("Estimated WaitSet memory per watched account, in bytes")
+    public static final String RTS_WAITSET_BYTES_PER_ACCOUNT = "waitset_bytes_per_account";
+
     // LDAP provisioning caches.
     @Description("LDAP ACL cache hit rate")
     public static final String RTS_ACL_CACHE_HIT_RATE = "acl_cache_hit_rate";
@@ -128,6 +143,18 @@ public class ZimbraPerf {
     @Description("LDAP account cache hit rate")
     public static final String RTS_ACCOUNT_CACHE_HIT_RATE = "account_cache_hit_rate";
 
+    @Description("Average time (ms) to refresh a stale LDAP account cache entry in the background")
+    public static final String RTS_ACCOUNT_CACHE_REFRESH_MS = "account_cache_refresh_ms";
+
+    @Description("Average time (ms) stale LDAP account cache entries had expired for when served")
+    public static final String RTS_ACCOUNT_CACHE_STALE_MS = "account_cache_stale_ms";
+
+    @Description("Number of distribution lists in the group membership index")
+    public static final String RTS_GROUP_INDEX_SIZE = "group_index_size";
+
+    @Description("Estimated memory (bytes) used by the group membership index")
+    public static final String RTS_GROUP_INDEX_BYTES = "group_index_bytes";
+
     @Description("LDAP COS cache size")
     public static final String RTS_COS_CACHE_SIZE = "cos_cache_size";
 
@@ -177,15 +204,21 @@ public class ZimbraPerf {
     public static final Counter COUNTER_LMTP_RCVD_RCPT = new Counter();
     public static final Counter COUNTER_LMTP_DLVD_MSGS = new Counter();
     public static final Counter COUNTER_LMTP_DLVD_BYTES = new Counter();
+    public static final StopWatch STOPWATCH_LMTP_RCPT = new StopWatch();
     public static final StopWatch STOPWATCH_DB_CONN = new StopWatch();
     public static final StopWatch STOPWATCH_LDAP_DC = new StopWatch();
     public static final StopWatch STOPWATCH_MBOX_ADD_MSG = new StopWatch();
+    public static final StopWatch STOPWATCH_FILTER_SCRIPT = new StopWatch();
     public static final StopWatch STOPWATCH_MBOX_GET = new StopWatch();         // Mailbox accessor response time
     public static final Counter COUNTER_MBOX_CACHE = new Counter();           // Mailbox cache hit rate
     public static final Counter COUNTER_MBOX_MSG_CACHE = new Counter();
     public static final Counter COUNTER_MBOX_ITEM_CACHE = new Counter();
     public static final StopWatch STOPWATCH_SOAP = new StopWatch();
+    public static final StopWatch STOPWATCH_SOAP_BATCH_PARALLEL = new StopWatch();
+    public static final Counter COUNTER_SOAP_BATCH_SPEEDUP = new Counter();
     public static final StopWatch STOPWATCH_IMAP = new StopWatch();
+    public static final Counter COUNTER_IMAP_COMPRESS_RATIO = new Counter();
+    public static final Counter COUNTER_IMAP_COMPRESS_CPU = new Counter();
     public static final StopWatch STOPWATCH_POP = new StopWatch();
     public static final Counter COUNTER_IDX_WRT = new Counter();
     public static final Counter COUNTER_IDX_WRT_OPENED = new Counter();
@@ -195,6 +228,7 @@ public class ZimbraPerf {
     public static final Counter COUNTER_CALENDAR_CACHE_LRU_SIZE = new Counter();
     public static final Counter COUNTER_IDX_BYTES_WRITTEN = new Counter();
     public static final Counter COUNTER_IDX_BYTES_READ = new Counter();
+    public static final Counter COUNTER_MSG_ANALYSIS_TEXT = new Counter();
     public static final Counter COUNTER_BLOB_INPUT_STREAM_READ = new Counter();
     public static final Counter COUNTER_BLOB_INPUT_STREAM_SEEK_RATE = new Counter();
     public static final StopWatch STOPWATCH_EWS = new StopWatch();
@@ -206,6 +240,8 @@ public class ZimbraPerf {
     public static final ActivityTracker LDAP_TRACKER = new ActivityTracker("ldap.csv");
     public static final ActivityTracker SYNC_TRACKER = new ActivityTracker("sync.csv");
     public static final ActivityTracker SQL_TRACKER  = new ActivityTracker("sql.csv");
+    // notifications delivered to IMAP sessions and their time in the queue, per remote mailbox server
+    public static final ActivityTracker IMAP_LISTENER_TRACKER = new ActivityTracker("imap_listener.csv");
 
     private static int mailboxCacheSize;
     private static long mailboxCacheSizeTimestamp = 0;
@@ -218,11 +254,15 @@ public class ZimbraPerf {
             RTS_LMTP_CONN, RTS_LMTP_THREADS,
             RTS_POP_CONN, RTS_POP_THREADS, RTS_POP_SSL_CONN, RTS_POP_SSL_THREADS,
             RTS_IMAP_CONN, RTS_IMAP_THREADS, RTS_IMAP_SSL_CONN, RTS_IMAP_SSL_THREADS,
+            RTS_IMAP_LISTENER_QUEUED, RTS_IMAP_LISTENER_DROPPED,
             RTS_HTTP_IDLE_THREADS, RTS_HTTP_THREADS, RTS_SOAP_SESSIONS,
             RTS_MBOX_CACHE_SIZE, RTS_MSG_CACHE_SIZE,
             RTS_FD_CACHE_SIZE, RTS_FD_CACHE_HIT_RATE,
+            RTS_WAITSET_ACCOUNTS, RTS_WAITSET_LOG_SIZE, RTS_WAITSET_BYTES_PER_ACCOUNT,
             RTS_ACL_CACHE_HIT_RATE,
             RTS_ACCOUNT_CACHE_SIZE, RTS_ACCOUNT_CACHE_HIT_RATE,
+            RTS_ACCOUNT_CACHE_REFRESH_MS, RTS_ACCOUNT_CACHE_STALE_MS,
+            RTS_GROUP_INDEX_SIZE, RTS_GROUP_INDEX_BYTES,
             RTS_COS_CACHE_SIZE, RTS_COS_CACHE_HIT_RATE,
             RTS_DOMAIN_CACHE_SIZE, RTS_DOMAIN_CACHE_HIT_RATE,
             RTS_SERVER_CACHE_SIZE, RTS_SERVER_CACHE_HIT_RATE,
@@ -232,7 +272,8 @@ public class ZimbraPerf {
             RTS_XMPP_CACHE_SIZE, RTS_XMPP_CACHE_HIT_RATE
             };
     private static String[] imapdRealtimeStatsNames = new String[] {
-                RTS_IMAP_CONN, RTS_IMAP_THREADS, RTS_IMAP_SSL_CONN, RTS_IMAP_SSL_THREADS
+                RTS_IMAP_CONN, RTS_IMAP_THREADS, RTS_IMAP_SSL_CONN, RTS_IMAP_SSL_THREADS,
+                RTS_IMAP_LISTENER_QUEUED, RTS_IMAP_LISTENER_DROPPED
             };
 
     private static RealtimeStats realtimeStats = null;
@@ -252,6 +293,9 @@ public class ZimbraPerf {
     @Description("Number of bytes of data delivered to mailboxes as a result of LMTP delivery")
     private static final String DC_LMTP_DLVD_BYTES = "lmtp_dlvd_bytes";
 
+    @Description("Average latency (ms) of delivering a message to one local LMTP recipient")
+    private static final String DC_LMTP_RCPT_MS_AVG = "lmtp_rcpt_ms_avg";
+
     @Description("Number of times that the server got a database connection from the pool")
     private static final String DC_DB_CONN_COUNT = "db_conn_count";
 
@@ -270,6 +314,12 @@ public class ZimbraPerf {
     @Description("Average latency (ms) of adding a message to a mailbox")
     private static final String DC_MBOX_ADD_MSG_MS_AVG = "mbox_add_msg_ms_avg";
 
+    @Description("Number of Sieve scripts (admin before, user and admin after) evaluated against a message")
+    private static final String DC_FILTER_SCRIPT_COUNT = "filter_script_count";
+
+    @Description("Average time (ms) to evaluate a Sieve script against a message")
+    private static final String DC_FILTER_SCRIPT_MS_AVG = "filter_script_ms_avg";
+
     @Description("Number of times that the server got a mailbox from the cache")
     private static final String DC_MBOX_GET_COUNT = "mbox_get_count";
 
@@ -291,6 +341,15 @@ public class ZimbraPerf {
     @Description("Average processing time (ms) of SOAP requests")
     private static final String DC_SOAP_MS_AVG = "soap_ms_avg";
 
+    @Description("Number of BatchRequests executed in parallel mode")
+    private static final String DC_SOAP_BATCH_PARALLEL_COUNT = "soap_batch_parallel_count";
+
+    @Description("Average processing time (ms) of BatchRequests executed in parallel mode")
+    private static final String DC_SOAP_BATCH_PARALLEL_MS_AVG = "soap_batch_parallel_ms_avg";
+
+    @Description("Average speedup (%) of parallel BatchRequests: total time of the sub-requests over elapsed time")
+    private static final String DC_SOAP_BATCH_SPEEDUP = "soap_batch_speedup";
+
     @Description("Number of IMAP requests received")
     private static final String DC_IMAP_COUNT = "imap_count";
 
@@ -330,6 +389,15 @@ public class ZimbraPerf {
     @Description("Average of idx_bytes_read")
     private static final String DC_IDX_BYTES_READ_AVG = "idx_bytes_read_avg";
 
+    @Description("Average size of what a compressed IMAP connection sent, as a percentage of its uncompressed size")
+    private static final String DC_IMAP_COMPRESS_RATIO_AVG = "imap_compress_ratio_avg";
+
+    @Description("Average time in microseconds a compressed IMAP connection spent compressing and decompressing")
+    private static final String DC_IMAP_COMPRESS_CPU_AVG = "imap_compress_cpu_us_avg";
+
+    @Description("Average number of characters of text extracted from a message for indexing")
+    private static final String DC_MSG_ANALYSIS_TEXT_AVG = "msg_analysis_text_avg";
+
     @Description("Hit rate of calendar summary cache, counting cache hit from both memory and file")
     private static final String DC_CALCACHE_HIT = "calcache_hit";
 
@@ -469,12 +537,15 @@ public class ZimbraPerf {
                             new DeltaCalculator(COUNTER_LMTP_RCVD_RCPT).setTotalName(DC_LMTP_RCVD_RCPT),
                             new DeltaCalculator(COUNTER_LMTP_DLVD_MSGS).setTotalName(DC_LMTP_DLVD_MSGS),
                             new DeltaCalculator(COUNTER_LMTP_DLVD_BYTES).setTotalName(DC_LMTP_DLVD_BYTES),
+                            new DeltaCalculator(STOPWATCH_LMTP_RCPT).setAverageName(DC_LMTP_RCPT_MS_AVG),
                             new DeltaCalculator(STOPWATCH_DB_CONN).setCountName(DC_DB_CONN_COUNT)
                                     .setAverageName(DC_DB_CONN_MS_AVG),
                             new DeltaCalculator(STOPWATCH_LDAP_DC).setCountName(DC_LDAP_DC_COUNT)
                                     .setAverageName(DC_LDAP_DC_MS_AVG),
                             new DeltaCalculator(STOPWATCH_MBOX_ADD_MSG).setCountName(DC_MBOX_ADD_MSG_COUNT)
                                     .setAverageName(DC_MBOX_ADD_MSG_MS_AVG),
+                            new DeltaCalculator(STOPWATCH_FILTER_SCRIPT).setCountName(DC_FILTER_SCRIPT_COUNT)
+                                    .setAverageName(DC_FILTER_SCRIPT_MS_AVG),
                             new DeltaCalculator(STOPWATCH_MBOX_GET).setCountName(DC_MBOX_GET_COUNT)
                                     .setAverageName(DC_MBOX_GET_MS_AVG),
                             new DeltaCalculator(COUNTER_MBOX_CACHE).setAverageName(DC_MBOX_CACHE),
@@ -482,8 +553,13 @@ public class ZimbraPerf {
                             new DeltaCalculator(COUNTER_MBOX_ITEM_CACHE).setAverageName(DC_MBOX_ITEM_CACHE),
                             new DeltaCalculator(STOPWATCH_SOAP).setCountName(DC_SOAP_COUNT)
                                     .setAverageName(DC_SOAP_MS_AVG),
+                            new DeltaCalculator(STOPWATCH_SOAP_BATCH_PARALLEL).setCountName(DC_SOAP_BATCH_PARALLEL_COUNT)
+                                    .setAverageName(DC_SOAP_BATCH_PARALLEL_MS_AVG),
+                            new DeltaCalculator(COUNTER_SOAP_BATCH_SPEEDUP).setAverageName(DC_SOAP_BATCH_SPEEDUP),
                             new DeltaCalculator(STOPWATCH_IMAP).setCountName(DC_IMAP_COUNT)
                                     .setAverageName(DC_IMAP_MS_AVG),
+                            new DeltaCalculator(COUNTER_IMAP_COMPRESS_RATIO).setAverageName(DC_IMAP_COMPRESS_RATIO_AVG),
+                            new DeltaCalculator(COUNTER_IMAP_COMPRESS_CPU).setAverageName(DC_IMAP_COMPRESS_CPU_AVG),
                             new DeltaCalculator(STOPWATCH_POP).setCountName(DC_POP_COUNT)
                                     .setAverageName(DC_POP_MS_AVG),
                             new DeltaCalculator(COUNTER_IDX_WRT).setAverageName(DC_IDX_WRT_AVG),
@@ -500,6 +576,7 @@ public class ZimbraPerf {
                                     .setAverageName(DC_IDX_BYTES_WRITTTEN_AVG),
                             new DeltaCalculator(COUNTER_IDX_BYTES_READ)
                                     .setTotalName(DC_IDX_BYTES_READ).setAverageName(DC_IDX_BYTES_READ_AVG),
+                            new DeltaCalculator(COUNTER_MSG_ANALYSIS_TEXT).setAverageName(DC_MSG_ANALYSIS_TEXT_AVG),
                             new DeltaCalculator(COUNTER_BLOB_INPUT_STREAM_READ).setTotalName(DC_BIS_READ),
                             new DeltaCalculator(COUNTER_BLOB_INPUT_STREAM_SEEK_RATE)
                                     .setAverageName(DC_BIS_SEEK_RATE),
@@ -513,6 +590,8 @@ public class ZimbraPerf {
                     new Accumulator[] {
                             new DeltaCalculator(STOPWATCH_IMAP)
                                     .setCountName(DC_IMAP_COUNT).setAverageName(DC_IMAP_MS_AVG),
+                            new DeltaCalculator(COUNTER_IMAP_COMPRESS_RATIO).setAverageName(DC_IMAP_COMPRESS_RATIO_AVG),
+                            new DeltaCalculator(COUNTER_IMAP_COMPRESS_CPU).setAverageName(DC_IMAP_COMPRESS_CPU_AVG),
                             realtimeStats
                     }
                 );
@@ -562,6 +641,7 @@ public class ZimbraPerf {
         StatsDumper.schedule(LDAP_TRACKER, CSV_DUMP_FREQUENCY);
         StatsDumper.schedule(SYNC_TRACKER, CSV_DUMP_FREQUENCY);
         StatsDumper.schedule(SQL_TRACKER, CSV_DUMP_FREQUENCY);
+        StatsDumper.schedule(IMAP_LISTENER_TRACKER, CSV_DUMP_FREQUENCY);
         ThreadStats threadStats = new ThreadStats("threads.csv");
         StatsDumper.schedule(threadStats, CSV_DUMP_FREQUENCY);
     }
@@ -578,6 +658,7 @@ public class ZimbraPerf {
         StatsDumper.schedule(new Stats("imapd_stats.csv", sAccumulators, jmxImapDaemonStats),
                 CSV_DUMP_FREQUENCY);
         StatsDumper.schedule(IMAPD_TRACKER, CSV_DUMP_FREQUENCY);
+        StatsDumper.schedule(IMAP_LISTENER_TRACKER, CSV_DUMP_FREQUENCY);
     }
 
     /**
@@ -55,6 +55,7 @@ import com.zimbra.cs.mailbox.MailboxManager;
 import com.zimbra.cs.mailbox.PurgeThread;
 import com.zimbra.cs.mailbox.ScheduledTaskManager;
 import com.zimbra.cs.mailbox.acl.AclPushTask;
+import com.zimbra.cs.mailbox.calendar.cache.CalendarCacheManager;
 import com.zimbra.cs.memcached.MemcachedConnector;
 import com.zimbra.cs.redolog.RedoLogProvider;
 import com.zimbra.cs.server.ServerManager;
@@ -300,6 +301,13 @@ public final class Zimbra {
         app.initialize(sIsMailboxd);
         if (sIsMailboxd) {
             SessionCache.startup();
+            CalendarCacheManager.getInstance().startup();
+            if (LC.ldap_cache_change_feed_enabled.booleanValue() && prov instanceof LdapProv) {
+                ((LdapProv) prov).startChangeFeed();
+            }
+            if (LC.ldap_group_index_enabled.booleanValue() && prov instanceof LdapProv) {
+                ((LdapProv) prov).startGroupIndex();
+            }
             AuthTokenRegistry.startup(prov.getConfig(Provisioning.A_zimbraAuthTokenNotificationInterval).getIntAttr(Provisioning.A_zimbraAuthTokenNotificationInterval, 60000));
             dbSessionCleanup();
 
@@ -396,6 +404,10 @@ public final class Zimbra {
         if (sIsMailboxd) {
             PurgeThread.shutdown();
             AutoProvisionThread.shutdown();
+            if (Provisioning.getInstance() instanceof LdapProv) {
+                ((LdapProv) Provisioning.getInstance()).stopChangeFeed();
+                ((LdapProv) Provisioning.getInstance()).stopGroupIndex();
+            }
         }
 
         ZimbraApplication app = ZimbraApplication.getInstance();
@@ -445,6 +457,10 @@ public final class Zimbra {
             EhcacheManager.getInstance().shutdown();
         }
 
+        if (sIsMailboxd) {
+            CalendarCacheManager.getInstance().shutdown();
+        }
+
         MailboxManager.getInstance().shutdown();
 
         if (sIsMailboxd) {
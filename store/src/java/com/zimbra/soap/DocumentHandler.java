@@ -276,6 +276,15 @@ public abstract class DocumentHandler {
         return true;
     }
 
+    /** Returns <tt>true</tt> if the request only reads state and doesn't
+     *  block, so that it may run concurrently with the other sub-requests of
+     *  a <tt>BatchRequest</tt> with <tt>parallel="1"</tt>.  Requests for
+     *  which this returns <tt>false</tt> run on their own, after all previous
+     *  sub-requests have completed. */
+    public boolean canRunInParallel(Element request) {
+        return false;
+    }
+
     /** Returns whether the client making the SOAP request is localhost. */
     protected boolean clientIsLocal(Map<String, Object> context) {
         HttpServletRequest req = (HttpServletRequest) context.get(SoapServlet.SERVLET_REQUEST);
@@ -0,0 +1,257 @@
+/*
+ * ***** BEGIN LICENSE BLOCK *****
+ * Zimbra Collaboration Suite Server
+ * Copyright (C) 2026 Synacor, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software Foundation,
+ * version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program.
+ * If not, see <https://www.gnu.org/licenses/>.
+ * ***** END LICENSE BLOCK *****
+ */
+
+package com.zimbra.soap;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.zimbra.common.localconfig.LC;
+import com.zimbra.common.service.ServiceException;
+import com.zimbra.common.soap.Element;
+import com.zimbra.common.soap.SoapProtocol;
+import com.zimbra.common.soap.ZimbraNamespace;
+import com.zimbra.common.util.ZimbraLog;
+import com.zimbra.cs.account.AuthToken;
+import com.zimbra.cs.stats.ZimbraPerf;
+
+/**
+ * Runs the sub-requests of a {@code <BatchRequest parallel="1">}.
+ * <p>
+ * Consecutive sub-requests whose handler says they {@link DocumentHandler#canRunInParallel(Element) can run in
+ * parallel} are dispatched concurrently, at most {@code soap_batch_parallel_max_per_batch} at a time.  Any other
+ * sub-request may write to the mailbox, so it waits for all earlier sub-requests to complete and runs alone on the
+ * request thread; the sub-requests after it start once it is done.  Responses are returned in request order.
+ * Concurrent sub-requests each get their own copy of the {@link ZimbraSoapContext} and auth token, as proxying a
+ * request changes them.
+ */
+final class ParallelBatch {
+
+    private static final ExecutorService EXECUTOR = createExecutor();
+
+    private final SoapEngine engine;
+    private final Map<String, Object> context;
+    private final ZimbraSoapContext zsc;
+    private final String proxyAuthToken;
+    private final boolean contOnError;
+    private final boolean logRequests;
+    private final int maxInFlight;
+
+    private final Thread caller = Thread.currentThread();
+    private final Map<String, String> logContext = ZimbraLog.getContext();
+    // total time spent in the sub-requests, to compare with the elapsed time of the batch
+    private long busyTime;
+
+    ParallelBatch(SoapEngine engine, Map<String, Object> context, ZimbraSoapContext zsc, String proxyAuthToken,
+            boolean contOnError, boolean logRequests) {
+        this.engine = engine;
+        this.context = context;
+        this.zsc = zsc;
+        this.proxyAuthToken = proxyAuthToken;
+        this.contOnError = contOnError;
+        this.logRequests = logRequests;
+        this.maxInFlight = Math.max(LC.soap_batch_parallel_max_per_batch.intValue(), 1);
+    }
+
+    private static ExecutorService createExecutor() {
+        int threads = LC.soap_batch_parallel_threads.intValue();
+        if (threads <= 0) {
+            return null;
+        }
+        // When the queue is full, the request thread runs the sub-request itself.
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(threads * 4),
+                new ThreadFactoryBuilder().setNameFormat("SoapBatch-%d").setDaemon(true).build(),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Whether the batch asks for {@code parallel="1"} and parallel batches are enabled, i.e.
+     * {@code soap_batch_parallel_threads} is positive.
+     */
+    static boolean isRequested(Element batch) {
+        if (EXECUTOR == null) {
+            return false;
+        }
+        try {
+            return batch.getAttributeBool(ZimbraNamespace.A_PARALLEL, false);
+        } catch (ServiceException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Dispatches the sub-requests and returns their responses, in request order.  Unless {@code contOnError} is set,
+     * no sub-request is started after one has failed and the responses end with the first fault.
+     */
+    List<Element> run(List<Element> requests) {
+        long start = System.currentTimeMillis();
+        List<Element> responses = new ArrayList<Element>(requests.size());
+        List<Future<Element>> inFlight = new ArrayList<Future<Element>>(maxInFlight);
+        boolean failed = false;
+        for (Element req : requests) {
+            DocumentHandler handler = engine.getDocumentDispatcher().getHandler(req);
+            // proxying changes the auth token, so each concurrent sub-request needs its own
+            ZimbraSoapContext taskZsc = null;
+            if (handler != null && handler.canRunInParallel(req)) {
+                taskZsc = zsc.copyForParallelRequest();
+            }
+            boolean parallel = taskZsc != null;
+            if (!parallel || inFlight.size() >= maxInFlight) {
+                // a write waits for everything before it; otherwise make room for one more
+                int wait = parallel ? 1 : inFlight.size();
+                for (int i = 0; i < wait; i++) {
+                    failed |= collect(inFlight.remove(0), responses);
+                }
+            }
+            if (failed && !contOnError) {
+                break;
+            }
+            if (parallel) {
+                inFlight.add(submit(handler, req, taskZsc));
+            } else {
+                failed |= collect(dispatch(handler, req, context, zsc), responses);
+            }
+        }
+        for (Future<Element> future : inFlight) {
+            failed |= collect(future, responses);
+        }
+
+        if (failed && !contOnError) {
+            // sub-requests already running when the fault happened complete, but their responses are dropped
+            SoapProtocol proto = zsc.getResponseProtocol();
+            for (int i = 0; i < responses.size(); i++) {
+                if (proto.isFault(responses.get(i))) {
+                    responses.subList(i + 1, responses.size()).clear();
+                    break;
+                }
+            }
+        }
+
+        long elapsed = System.currentTimeMillis() - start;
+        ZimbraPerf.STOPWATCH_SOAP_BATCH_PARALLEL.stop(start);
+        ZimbraPerf.COUNTER_SOAP_BATCH_SPEEDUP.increment(elapsed > 0 ? busyTime * 100 / elapsed : 100);
+        if (logRequests) {
+            ZimbraLog.soap.info("(batch) parallel requests=%d elapsed=%d busy=%d", requests.size(), elapsed, busyTime);
+        }
+        return responses;
+    }
+
+    private Future<Element> submit(final DocumentHandler handler, final Element req, final ZimbraSoapContext taskZsc) {
+        // each sub-request gets its own copy, as dispatching puts the handler's session in it
+        final Map<String, Object> taskContext = new HashMap<String, Object>(context);
+        taskContext.put(SoapEngine.ZIMBRA_CONTEXT, taskZsc);
+        Callable<Element> task = new Callable<Element>() {
+            @Override
+            public Element call() {
+                boolean pooled = Thread.currentThread() != caller;
+                if (pooled) {
+                    ZimbraLog.setContext(logContext);
+                }
+                try {
+                    return dispatch(handler, req, taskContext, taskZsc);
+                } finally {
+                    if (pooled) {
+                        ZimbraLog.clearContext();
+                    }
+                }
+            }
+        };
+        try {
+            return EXECUTOR.submit(task);
+        } catch (RejectedExecutionException e) {
+            FutureTask<Element> future = new FutureTask<Element>(task);
+            future.run();
+            return future;
+        }
+    }
+
+    private Element dispatch(DocumentHandler handler, Element req, Map<String, Object> ctxt, ZimbraSoapContext reqZsc) {
+        long start = System.currentTimeMillis();
+        Element response = engine.dispatchRequest(handler, req, ctxt, reqZsc);
+        long elapsed = System.currentTimeMillis() - start;
+        synchronized (this) {
+            busyTime += elapsed;
+        }
+        if (logRequests) {
+            ZimbraLog.soap.info("(batch) %s elapsed=%d", req.getName(), elapsed);
+        }
+        String id = req.getAttribute(SoapEngine.A_REQUEST_CORRELATOR, null);
+        if (id != null) {
+            response.addAttribute(SoapEngine.A_REQUEST_CORRELATOR, id);
+        }
+        return response;
+    }
+
+    /**
+     * Waits for a sub-request and appends its response.
+     *
+     * @return true if the response is a fault
+     */
+    private boolean collect(Future<Element> future, List<Element> responses) {
+        Element response;
+        boolean interrupted = false;
+        while (true) {
+            try {
+                response = future.get();
+                break;
+            } catch (InterruptedException e) {
+                // the sub-request can't be abandoned half way; keep waiting
+                interrupted = true;
+            } catch (ExecutionException e) {
+                response = zsc.getResponseProtocol().soapFault(ServiceException.FAILURE(e.getCause().toString(),
+                        e.getCause()));
+                break;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return collect(response, responses);
+    }
+
+    private boolean collect(Element response, List<Element> responses) {
+        responses.add(response);
+        restoreProxyAuthToken();
+        return zsc.getResponseProtocol().isFault(response);
+    }
+
+    private void restoreProxyAuthToken() {
+        if (proxyAuthToken != null) {
+            // requests will invalidate it when proxying locally;
+            // make sure it's set for each sub-request in batch
+            AuthToken at = zsc.getAuthToken();
+            if (at != null) {
+                at.setProxyAuthToken(proxyAuthToken);
+            }
+        }
+    }
+}
@@ -327,6 +327,8 @@ public class SoapEngine {
         Element ectxt = soapProto.getHeader(envelope, HeaderConstants.CONTEXT);
         try {
             zsc = new ZimbraSoapContext(ectxt, doc.getQName(), handler, context, soapProto);
+            // the envelope returned from here is only serialized by SoapServlet
+            zsc.setStreamingResponse(true);
         } catch (ServiceException e) {
             return soapFaultEnv(soapProto, "unable to construct SOAP context", e);
         }
@@ -465,24 +467,31 @@ public class SoapEngine {
                 if (!isResumed) {
                     ZimbraLog.soap.info(doc.getName());
                 }
-                for (Element req : doc.listElements()) {
-                    String id = req.getAttribute(A_REQUEST_CORRELATOR, null);
-                    long start = System.currentTimeMillis();
-                    Element br = dispatchRequest(dispatcher.getHandler(req), req, context, zsc);
-                    if (!isResumed) {
-                        ZimbraLog.soap.info("(batch) %s elapsed=%d", req.getName(), System.currentTimeMillis() - start);
-                    }
-                    if (id != null) {
-                        br.addAttribute(A_REQUEST_CORRELATOR, id);
-                    }
-                    responseBody.addNonUniqueElement(br);
-                    if (!contOnError && responseProto.isFault(br)) {
-                        break;
+                if (ParallelBatch.isRequested(doc)) {
+                    ParallelBatch batch = new ParallelBatch(this, context, zsc, proxyAuthToken, contOnError, !isResumed);
+                    for (Element br : batch.run(doc.listElements())) {
+                        responseBody.addNonUniqueElement(br);
                     }
-                    if (proxyAuthToken != null) {
-                        // requests will invalidate it when proxying locally;
-                        // make sure it's set for each sub-request in batch
-                        zsc.getAuthToken().setProxyAuthToken(proxyAuthToken);
+                } else {
+                    for (Element req : doc.listElements()) {
+                        String id = req.getAttribute(A_REQUEST_CORRELATOR, null);
+                        long start = System.currentTimeMillis();
+                        Element br = dispatchRequest(dispatcher.getHandler(req), req, context, zsc);
+                        if (!isResumed) {
+                            ZimbraLog.soap.info("(batch) %s elapsed=%d", req.getName(), System.currentTimeMillis() - start);
+                        }
+                        if (id != null) {
+                            br.addAttribute(A_REQUEST_CORRELATOR, id);
+                        }
+                        responseBody.addNonUniqueElement(br);
+                        if (!contOnError && responseProto.isFault(br)) {
+                            break;
+                        }
+                        if (proxyAuthToken != null) {
+                            // requests will invalidate it when proxying locally;
+                            // make sure it's set for each sub-request in batch
+                            zsc.getAuthToken().setProxyAuthToken(proxyAuthToken);
+                        }
                     }
                 }
             } else {
@@ -370,18 +370,22 @@ public class SoapServlet extends ZimbraServlet {
         resp.setStatus(statusCode);
         resp.setHeader("Cache-Control", "no-store, no-cache");
 
-        if (chunkingEnabled) {
-            // Let jetty chunk the response if applicable.
-            ZimbraServletOutputStream out = new ZimbraServletOutputStream(resp.getOutputStream());
-            envelope.output(out);
-            out.flush();
-        } else {
-            // serialize the envelope to a byte array and send the response with Content-Length header.
-            byte[] soapBytes = envelope.toUTF8();
-            resp.setContentLength(soapBytes.length);
-            resp.getOutputStream().write(soapBytes);
-            resp.getOutputStream().flush();
+        try {
+            if (chunkingEnabled) {
+                // Let jetty chunk the response if applicable.
+                ZimbraServletOutputStream out = new ZimbraServletOutputStream(resp.getOutputStream());
+                envelope.output(out);
+                out.flush();
+            } else {
+                // serialize the envelope to a byte array and send the response with Content-Length header.
+                byte[] soapBytes = envelope.toUTF8();
+                resp.setContentLength(soapBytes.length);
+                resp.getOutputStream().write(soapBytes);
+                resp.getOutputStream().flush();
+            }
+        } finally {
+            // also removes the spill files of streamed children if the client went away
+            envelope.destroy();
         }
-        envelope.destroy();
     }
 }
@@ -30,10 +30,12 @@ import org.eclipse.jetty.continuation.Continuation;
 import com.google.common.base.Strings;
 import com.zimbra.common.account.Key.AccountBy;
 import com.zimbra.common.auth.ZAuthToken;
+import com.zimbra.common.localconfig.LC;
 import com.zimbra.common.service.ServiceException;
 import com.zimbra.common.soap.Element;
 import com.zimbra.common.soap.HeaderConstants;
 import com.zimbra.common.soap.SoapProtocol;
+import com.zimbra.common.soap.StreamingElement;
 import com.zimbra.common.soap.SoapTransport;
 import com.zimbra.common.util.Log;
 import com.zimbra.common.util.LogFactory;
@@ -46,6 +48,7 @@ import com.zimbra.cs.account.AuthTokenException;
 import com.zimbra.cs.account.GuestAccount;
 import com.zimbra.cs.account.Provisioning;
 import com.zimbra.cs.account.ShareInfoData;
+import com.zimbra.cs.account.ZimbraAuthToken;
 import com.zimbra.cs.account.accesscontrol.Rights;
 import com.zimbra.cs.mailbox.ACL;
 import com.zimbra.cs.mailbox.OperationContext;
@@ -153,6 +156,7 @@ public final class ZimbraSoapContext {
     private boolean mIsProxyRequest;
     private int mHopCount;
     private boolean mMountpointTraversed;
+    private boolean mStreamingResponse;  // whether the response is serialized straight to the client
 
     private String mOriginalUserAgent;
     private String mUserAgent;
@@ -266,6 +270,55 @@ public final class ZimbraSoapContext {
         }
     }
 
+    /** Creates a copy of <code>zsc</code> that uses <code>authToken</code>, for a
+     *  sub-request of a parallel batch.  Unlike the proxying constructors,
+     *  the hop count and session settings are unchanged. */
+    private ZimbraSoapContext(ZimbraSoapContext zsc, AuthToken authToken) throws ServiceException {
+        mRawAuthToken = authToken.toZAuthToken();
+        mAuthToken = authToken;
+        mAuthTokenAccountId = zsc.mAuthTokenAccountId;
+        mRequestedAccountId = zsc.mRequestedAccountId;
+        mRequestProtocol = zsc.mRequestProtocol;
+        mResponseProtocol = zsc.mResponseProtocol;
+        mChangeConstraintType = zsc.mChangeConstraintType;
+        mMaximumChangeId = zsc.mMaximumChangeId;
+        mSessionEnabled = zsc.mSessionEnabled;
+        mSessionProxied = zsc.mSessionProxied;
+        mSessionInfo = zsc.mSessionInfo;
+        mUnqualifiedItemIds = zsc.mUnqualifiedItemIds;
+        mWaitForNotifications = zsc.mWaitForNotifications;
+        mCanceledWaitForNotifications = zsc.mCanceledWaitForNotifications;
+        continuationResume = zsc.continuationResume;
+        mProxyTarget = zsc.mProxyTarget;
+        mIsProxyRequest = zsc.mIsProxyRequest;
+        mHopCount = zsc.mHopCount;
+        mMountpointTraversed = zsc.mMountpointTraversed;
+        mStreamingResponse = zsc.mStreamingResponse;
+        mOriginalUserAgent = zsc.mOriginalUserAgent;
+        mUserAgent = zsc.mUserAgent;
+        mRequestIP = zsc.mRequestIP;
+        mPort = zsc.mPort;
+        mVia = zsc.mVia;
+        soapRequestId = zsc.soapRequestId;
+        mNotificationFormat = zsc.mNotificationFormat;
+        mCurWaitSetID = zsc.mCurWaitSetID;
+    }
+
+    /** Returns a copy of this context with its own copy of the auth token,
+     *  so that proxying one sub-request of a parallel batch doesn't change
+     *  the proxy auth token of another.  Returns <tt>null</tt> if the auth
+     *  token can't be copied. */
+    ZimbraSoapContext copyForParallelRequest() {
+        if (!(mAuthToken instanceof ZimbraAuthToken)) {
+            return null;
+        }
+        try {
+            return new ZimbraSoapContext(this, ((ZimbraAuthToken) mAuthToken).clone());
+        } catch (CloneNotSupportedException | ServiceException e) {
+            return null;
+        }
+    }
+
     /**
      * Creates a {@link ZimbraSoapContext} from the {@code <context>}
      * {@link Element} from the SOAP header.
@@ -494,7 +547,7 @@ public final class ZimbraSoapContext {
     }
 
     /**
-     * WaitSetSession will NOT trigger a response for this Waitset, since the notifications
+     * SomeAccountsWaitSet will NOT trigger a response for this Waitset, since the notifications
      * will be returned in SOAP headers instead. This ensures that the the remote server
      * isn't notified of the same notifications twice using different mechanisms.
      */
@@ -698,6 +751,15 @@ public final class ZimbraSoapContext {
         return this;
     }
 
+    /**
+     * Marks the response of this request as serialized straight to the client, so that handlers may build it
+     * with {@link #createStreamingElement(QName)}.
+     */
+    public ZimbraSoapContext setStreamingResponse(boolean streaming) {
+        mStreamingResponse = streaming;
+        return this;
+    }
+
     public boolean isNotificationEnabled() {
         return mSessionEnabled;
     }
@@ -899,6 +961,21 @@ public final class ZimbraSoapContext {
         return mResponseProtocol.getFactory().createElement(qname);
     }
 
+    /**
+     * Creates a response element that encodes its children as they are completed instead of keeping them in
+     * memory, for handlers that return many independent children. Falls back to a regular element when the
+     * response is used in-process rather than sent to the client, or {@code soap_response_streaming_enabled}
+     * is off.
+     *
+     * @see StreamingElement
+     */
+    public Element createStreamingElement(QName qname) throws ServiceException {
+        if (!mStreamingResponse || !LC.soap_response_streaming_enabled.booleanValue()) {
+            return createElement(qname);
+        }
+        return StreamingElement.create(mResponseProtocol, qname);
+    }
+
     public Element createRequestElement(String name) {
         return mRequestProtocol.getFactory().createElement(name);
     }